@@ -0,0 +1,105 @@
+package org.agra.agra_backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.agra.agra_backend.service.CatalogVersionService;
+import org.agra.agra_backend.service.CourseSnapshotService;
+import org.agra.agra_backend.service.CourseSnapshotService.SnapshotFile;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers anonymous catalog and course detail reads from {@link CourseSnapshotService} files,
+ * before the controller runs. Runs after the security filters, so CORS and security headers are
+ * already in place. Anything it cannot answer (signed-in users, clients without gzip, no current
+ * snapshot) goes on to the controller unchanged.
+ */
+@Component
+public class CourseSnapshotInterceptor implements HandlerInterceptor {
+
+    // Tomcat's sendfile contract: the connector streams the file straight from the page cache
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Below this a plain write is cheaper than handing the file to the connector (Tomcat's own default)
+    static final long SENDFILE_MIN_BYTES = 48 * 1024;
+    private static final Pattern COURSE_PATH = Pattern.compile("/api/courses/([A-Za-z0-9_-]{1,64})");
+
+    private final CourseSnapshotService courseSnapshotService;
+
+    public CourseSnapshotInterceptor(CourseSnapshotService courseSnapshotService) {
+        this.courseSnapshotService = courseSnapshotService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!"GET".equals(request.getMethod()) || !isAnonymous() || !acceptsGzip(request)) {
+            return true;
+        }
+        Optional<SnapshotFile> snapshot = lookup(request.getRequestURI().substring(request.getContextPath().length()),
+                LocaleContextHolder.getLocale());
+        if (snapshot.isEmpty()) {
+            return true;
+        }
+        SnapshotFile file = snapshot.get();
+        response.setHeader(HttpHeaders.ETAG, file.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, "Accept-Language, Authorization, Accept-Encoding");
+        if (CatalogVersionService.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), file.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setContentLengthLong(file.getLength());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && file.getLength() >= SENDFILE_MIN_BYTES) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toRealPath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, file.getLength());
+            return false;
+        }
+        try (InputStream in = new FileSystemResource(file.getPath()).getInputStream()) {
+            StreamUtils.copy(in, response.getOutputStream());
+        }
+        return false;
+    }
+
+    private Optional<SnapshotFile> lookup(String path, Locale locale) {
+        if ("/api/courses/getAllCourses".equals(path)) {
+            return courseSnapshotService.catalog(CourseSnapshotService.CATALOG_ALL, locale);
+        }
+        if ("/api/courses/getActiveCourses".equals(path)) {
+            return courseSnapshotService.catalog(CourseSnapshotService.CATALOG_ACTIVE, locale);
+        }
+        Matcher course = COURSE_PATH.matcher(path);
+        return course.matches() ? courseSnapshotService.course(course.group(1), locale) : Optional.empty();
+    }
+
+    private static boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accepted = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accepted != null && accepted.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+}
@@ -0,0 +1,21 @@
+package org.agra.agra_backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class CourseSnapshotWebConfig implements WebMvcConfigurer {
+
+    private final CourseSnapshotInterceptor courseSnapshotInterceptor;
+
+    public CourseSnapshotWebConfig(CourseSnapshotInterceptor courseSnapshotInterceptor) {
+        this.courseSnapshotInterceptor = courseSnapshotInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Catalog listings and course details only; deeper paths are never snapshotted
+        registry.addInterceptor(courseSnapshotInterceptor).addPathPatterns("/api/courses/*");
+    }
+}
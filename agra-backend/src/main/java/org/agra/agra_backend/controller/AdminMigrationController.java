@@ -0,0 +1,53 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.payload.LikeMigrationProgress;
+import org.agra.agra_backend.payload.LikeMigrationReport;
+import org.agra.agra_backend.service.LegacyLikeMigrationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/migrations")
+public class AdminMigrationController {
+
+    private final LegacyLikeMigrationService legacyLikeMigrationService;
+
+    public AdminMigrationController(LegacyLikeMigrationService legacyLikeMigrationService) {
+        this.legacyLikeMigrationService = legacyLikeMigrationService;
+    }
+
+    /**
+     * Run (or resume) the legacy like copy. maxBatches=0 runs until the legacy collection is exhausted.
+     */
+    @PostMapping("/legacy-likes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public LikeMigrationProgress migrateLegacyLikes(
+            @RequestParam(required = false) Integer batchSize,
+            @RequestParam(required = false, defaultValue = "0") int maxBatches) {
+        try {
+            return legacyLikeMigrationService.migrate(batchSize, maxBatches);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/legacy-likes/checkpoint")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> legacyLikeCheckpoint() {
+        return legacyLikeMigrationService.getCheckpoint();
+    }
+
+    @GetMapping("/legacy-likes/report")
+    @PreAuthorize("hasRole('ADMIN')")
+    public LikeMigrationReport legacyLikeReport() {
+        return legacyLikeMigrationService.verify();
+    }
+}
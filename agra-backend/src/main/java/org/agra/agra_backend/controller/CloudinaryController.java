@@ -1,6 +1,10 @@
 package org.agra.agra_backend.controller;
 
 import org.agra.agra_backend.service.CloudinaryService;
+import org.agra.agra_backend.service.UploadLimitExceededException;
+import org.agra.agra_backend.service.UploadSlotUnavailableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -86,6 +90,16 @@ public class CloudinaryController {
 
             return ResponseEntity.ok(response);
 
+        } catch (UploadLimitExceededException e) {
+            response.put(KEY_STATUS, KEY_ERROR);
+            response.put(KEY_MESSAGE, e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        } catch (UploadSlotUnavailableException e) {
+            response.put(KEY_STATUS, KEY_ERROR);
+            response.put(KEY_MESSAGE, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(response);
         } catch (Exception e) {
             response.put(KEY_STATUS, KEY_ERROR);
             response.put(KEY_MESSAGE, "Error uploading image: " + e.getMessage());
@@ -117,6 +131,16 @@ public class CloudinaryController {
 
             return ResponseEntity.ok(response);
 
+        } catch (UploadLimitExceededException e) {
+            response.put(KEY_STATUS, KEY_ERROR);
+            response.put(KEY_MESSAGE, e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        } catch (UploadSlotUnavailableException e) {
+            response.put(KEY_STATUS, KEY_ERROR);
+            response.put(KEY_MESSAGE, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(response);
         } catch (Exception e) {
             response.put(KEY_STATUS, KEY_ERROR);
             response.put(KEY_MESSAGE, "Error uploading image: " + e.getMessage());
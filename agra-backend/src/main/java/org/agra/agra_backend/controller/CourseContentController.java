@@ -0,0 +1,126 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.payload.ContentPatchResult;
+import org.agra.agra_backend.payload.CourseOutline;
+import org.agra.agra_backend.payload.CourseTranslationPatch;
+import org.agra.agra_backend.payload.LessonPatch;
+import org.agra.agra_backend.payload.LessonView;
+import org.agra.agra_backend.payload.QuizQuestionPatch;
+import org.agra.agra_backend.service.CatalogVersionService;
+import org.agra.agra_backend.service.CourseContentService;
+import org.agra.agra_backend.service.CourseLessonService;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Lazy reads for the course player (an outline, then one lesson at a time) and partial course
+ * edits. Each edit carries the course version the editor loaded and answers 409 when someone else
+ * saved in between.
+ */
+@RestController
+@RequestMapping("/api/courses/{courseId}")
+public class CourseContentController {
+
+    private final CourseContentService courseContentService;
+    private final CourseLessonService courseLessonService;
+    private final CatalogVersionService catalogVersionService;
+
+    public CourseContentController(CourseContentService courseContentService,
+                                   CourseLessonService courseLessonService,
+                                   @Nullable CatalogVersionService catalogVersionService) {
+        this.courseContentService = courseContentService;
+        this.courseLessonService = courseLessonService;
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    @GetMapping("/outline")
+    public ResponseEntity<CourseOutline> getOutline(
+            @PathVariable String courseId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Locale locale = LocaleContextHolder.getLocale();
+        // Same content tag as the detail read; the path keeps the two representations apart in caches
+        String etag = catalogVersionService == null ? null : catalogVersionService.courseEtag(courseId, locale, null);
+        if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        Optional<CourseOutline> outline = courseLessonService.getOutline(courseId, locale);
+        if (outline.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return etag == null ? ResponseEntity.ok(outline.get()) : conditionalOk(etag).body(outline.get());
+    }
+
+    @GetMapping("/lessons/{lessonId}")
+    public ResponseEntity<LessonView> getLesson(
+            @PathVariable String courseId,
+            @PathVariable String lessonId,
+            @RequestParam(value = "lang", required = false) String lang,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Locale locale = lang == null || lang.isBlank() ? LocaleContextHolder.getLocale() : Locale.forLanguageTag(lang);
+        Optional<Course> holder = courseLessonService.getLesson(courseId, lessonId);
+        if (holder.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = null;
+        if (catalogVersionService != null) {
+            etag = catalogVersionService.lessonEtag(courseId, holder.get().getDefaultLanguage(),
+                    holder.get().getTextContent().get(0), locale);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
+        LessonView lesson = courseLessonService.localizeLesson(courseId, holder.get(), locale);
+        return etag == null ? ResponseEntity.ok(lesson) : conditionalOk(etag).body(lesson);
+    }
+
+    @PatchMapping("/lessons/{lessonId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ContentPatchResult> patchLesson(@PathVariable String courseId,
+                                                          @PathVariable String lessonId,
+                                                          @RequestBody LessonPatch patch) {
+        return ResponseEntity.ok(courseContentService.patchLesson(courseId, lessonId, patch));
+    }
+
+    @PatchMapping("/lessons/{lessonId}/questions/{questionId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ContentPatchResult> patchQuizQuestion(@PathVariable String courseId,
+                                                                @PathVariable String lessonId,
+                                                                @PathVariable String questionId,
+                                                                @RequestBody QuizQuestionPatch patch) {
+        return ResponseEntity.ok(courseContentService.patchQuizQuestion(courseId, lessonId, questionId, patch));
+    }
+
+    @PatchMapping("/translations/{language}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ContentPatchResult> patchTranslation(@PathVariable String courseId,
+                                                               @PathVariable String language,
+                                                               @RequestBody CourseTranslationPatch patch) {
+        return ResponseEntity.ok(courseContentService.patchTranslation(courseId, language, patch));
+    }
+
+    private static ResponseEntity.BodyBuilder conditionalOk(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT_LANGUAGE);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                .cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT_LANGUAGE).build();
+    }
+}
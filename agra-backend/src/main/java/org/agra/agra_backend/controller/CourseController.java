@@ -5,14 +5,23 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.agra.agra_backend.dao.NotificationRepository;
 import org.agra.agra_backend.model.*;
+import org.agra.agra_backend.payload.CourseDeletionProgress;
+import org.agra.agra_backend.payload.CourseSearchResult;
+import org.agra.agra_backend.payload.CourseSummary;
+import org.agra.agra_backend.service.CatalogVersionService;
 import org.agra.agra_backend.service.CloudinaryService;
 import org.agra.agra_backend.service.CourseService;
 import org.agra.agra_backend.service.CourseProgressService;
+import org.agra.agra_backend.service.CourseRecommendationService;
+import org.agra.agra_backend.service.CourseSearchService;
 import org.agra.agra_backend.service.CourseLikeService;
 import org.agra.agra_backend.service.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -47,10 +56,16 @@ public class CourseController {
     private final CourseLikeService courseLikeService;
     private final NotificationRepository notificationRepository;
     private final NotificationService notificationService;
+    private final CatalogVersionService catalogVersionService;
+    private final CourseRecommendationService recommendationService;
+    private final CourseSearchService courseSearchService;
 
     public CourseController(SimpMessagingTemplate messagingTemplate, CloudinaryService cloudinaryService, CourseService courseService,
                             CourseProgressService courseProgressService, CourseLikeService courseLikeService,
-                            NotificationRepository notificationRepository, NotificationService notificationService) {
+                            NotificationRepository notificationRepository, NotificationService notificationService,
+                            @org.springframework.lang.Nullable CatalogVersionService catalogVersionService,
+                            @org.springframework.lang.Nullable CourseRecommendationService recommendationService,
+                            @org.springframework.lang.Nullable CourseSearchService courseSearchService) {
         this.cloudinaryService = cloudinaryService;
         this.courseService = courseService;
         this.courseProgressService = courseProgressService;
@@ -58,6 +73,9 @@ public class CourseController {
         this.messagingTemplate = messagingTemplate;
         this.notificationRepository = notificationRepository;
         this.notificationService = notificationService;
+        this.catalogVersionService = catalogVersionService;
+        this.recommendationService = recommendationService;
+        this.courseSearchService = courseSearchService;
     }
 
     @PostMapping(value="/addCourse", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -97,53 +115,80 @@ public class CourseController {
 
 
     @GetMapping("/getAllCourses")
-    public ResponseEntity<List<Course>> getAllCourses(Authentication authentication) {
-        List<Course> courses = courseService.getAllCourses();
-        if (authentication != null && authentication.getPrincipal() != null) {
-            User user = (User) authentication.getPrincipal();
-            String userId = user.getId();
-            java.util.Set<String> likedIds = new java.util.HashSet<>(courseLikeService.listLikedCourseIds(userId));
-            for (Course c : courses) {
-                if (c != null && c.getId() != null) {
-                    c.setLiked(likedIds.contains(c.getId()));
-                }
-            }
+    public ResponseEntity<List<CourseSummary>> getAllCourses(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication) {
+        Locale locale = LocaleContextHolder.getLocale();
+        String userId = userIdOf(authentication);
+        String etag = catalogEtag(locale, userId);
+        if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+            return notModified(etag, userId);
         }
-
-        return ResponseEntity.ok(courseService.localizeCourses(courses, LocaleContextHolder.getLocale()));
+        List<CourseSummary> courses = courseService.localizeSummaries(courseService.getAllCourseSummaries(), locale);
+        applyLikedFlags(courses, userId);
+        return conditionalOk(etag, userId).body(courses);
     }
 
     @GetMapping("/getActiveCourses")
-    public ResponseEntity<List<Course>> getActiveCourses(Authentication authentication) {
-        List<Course> courses = courseService.getActiveCourses();
-        log.debug("Active courses: {}", courses);
+    public ResponseEntity<List<CourseSummary>> getActiveCourses(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication) {
+        Locale locale = LocaleContextHolder.getLocale();
+        String userId = userIdOf(authentication);
+        String etag = catalogEtag(locale, userId);
+        if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+            return notModified(etag, userId);
+        }
+        List<CourseSummary> courses = courseService.localizeSummaries(courseService.getActiveCourseSummaries(), locale);
+        log.debug("Active courses: {}", courses.size());
+        applyLikedFlags(courses, userId);
+        return conditionalOk(etag, userId).body(courses);
+    }
 
-        if (authentication != null && authentication.getPrincipal() != null) {
-            User user = (User) authentication.getPrincipal();
-            String userId = user.getId();
-            java.util.Set<String> likedIds = new java.util.HashSet<>(courseLikeService.listLikedCourseIds(userId));
-            for (Course c : courses) {
-                if (c != null && c.getId() != null) {
-                    c.setLiked(likedIds.contains(c.getId()));
-                }
+    // Summaries are localized copies, so the per-user flag never leaks into the cached list
+    private void applyLikedFlags(List<CourseSummary> courses, String userId) {
+        if (userId == null || courses.isEmpty()) {
+            return;
+        }
+        List<String> ids = courses.stream().filter(Objects::nonNull).map(CourseSummary::getId).toList();
+        Set<String> likedIds = courseLikeService.likedAmong(userId, ids);
+        for (CourseSummary c : courses) {
+            if (c != null && c.getId() != null) {
+                c.setLiked(likedIds.contains(c.getId()));
             }
         }
-
-        return ResponseEntity.ok(courseService.localizeCourses(courses, LocaleContextHolder.getLocale()));
     }
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<Course> getCourseById(@PathVariable String id, Authentication authentication) {
+    public ResponseEntity<Course> getCourseById(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication) {
+        Locale locale = LocaleContextHolder.getLocale();
+        String userId = userIdOf(authentication);
+        // The stored content tag answers revalidation without loading the course
+        String etag = catalogVersionService == null ? null : catalogVersionService.courseEtag(id, locale, userId);
+        if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+            return notModified(etag, userId);
+        }
         Optional<Course> courseOpt = courseService.getCourseById(id);
         if (courseOpt.isEmpty()) return ResponseEntity.notFound().build();
         Course course = courseOpt.get();
-        if (authentication != null && authentication.getPrincipal() != null) {
-            User user = (User) authentication.getPrincipal();
-            String userId = user.getId();
-            course.setLiked(courseLikeService.isLiked(userId, id));
+        if (etag == null && catalogVersionService != null) {
+            etag = catalogVersionService.courseEtag(course, locale, userId);
+            if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+                return notModified(etag, userId);
+            }
         }
-        return ResponseEntity.ok(courseService.localizeCourse(course, LocaleContextHolder.getLocale()));
+        Course localized = courseService.localizeCourse(course, locale);
+        if (userId != null) {
+            localized.setLiked(courseLikeService.isLiked(userId, id));
+        }
+        if (etag == null) {
+            return ResponseEntity.ok(localized);
+        }
+        return conditionalOk(etag, userId).body(localized);
     }
 
     @PutMapping(value = "updateCourse/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -166,6 +211,9 @@ public class CourseController {
         } catch (JsonProcessingException e) {
             log.warn("Error parsing course JSON: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Rejected stale update of course {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IOException e) {
             log.error("Error uploading image: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -187,15 +235,78 @@ public class CourseController {
     }
 
     @GetMapping("/country/{country}")
-    public ResponseEntity<List<Course>> getCoursesByCountry(@PathVariable String country) {
-        List<Course> courses = courseService.getCoursesByCountry(country);
-        return ResponseEntity.ok(courseService.localizeCourses(courses, LocaleContextHolder.getLocale()));
+    public ResponseEntity<List<CourseSummary>> getCoursesByCountry(
+            @PathVariable String country,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Locale locale = LocaleContextHolder.getLocale();
+        String etag = catalogEtag(locale, null);
+        if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+            return notModified(etag, null);
+        }
+        List<CourseSummary> courses = courseService.getCourseSummariesByCountry(country);
+        return conditionalOk(etag, null).body(courseService.localizeSummaries(courses, locale));
     }
 
     @GetMapping("/domain/{domain}")
-    public ResponseEntity<List<Course>> getCoursesByDomain(@PathVariable String domain) {
-        List<Course> courses = courseService.getCoursesByDomain(domain);
-        return ResponseEntity.ok(courseService.localizeCourses(courses, LocaleContextHolder.getLocale()));
+    public ResponseEntity<List<CourseSummary>> getCoursesByDomain(
+            @PathVariable String domain,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Locale locale = LocaleContextHolder.getLocale();
+        String etag = catalogEtag(locale, null);
+        if (CatalogVersionService.matches(ifNoneMatch, etag)) {
+            return notModified(etag, null);
+        }
+        List<CourseSummary> courses = courseService.getCourseSummariesByDomain(domain);
+        return conditionalOk(etag, null).body(courseService.localizeSummaries(courses, locale));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CourseSearchResult> searchCourses(
+            @RequestParam(required = false) List<String> country,
+            @RequestParam(required = false) List<String> domain,
+            @RequestParam(required = false) List<String> lang,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            Authentication authentication) {
+        if (courseSearchService == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        CourseSearchResult result = courseSearchService.search(country, domain, lang, status, page, size);
+        List<CourseSummary> courses = courseService.localizeSummaries(result.getCourses(), LocaleContextHolder.getLocale());
+        applyLikedFlags(courses, userIdOf(authentication));
+        result.setCourses(courses);
+        return ResponseEntity.ok(result);
+    }
+
+    private String catalogEtag(Locale locale, String userId) {
+        return catalogVersionService == null ? null : catalogVersionService.catalogEtag(locale, userId);
+    }
+
+    private static String userIdOf(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            return null;
+        }
+        return user.getId();
+    }
+
+    // Bodies depend on the language and, when signed in, on the user's liked flags
+    private static ResponseEntity.BodyBuilder conditionalOk(String etag, String userId) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (etag != null) {
+            builder.eTag(etag)
+                    .cacheControl(userId == null ? CacheControl.noCache() : CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.AUTHORIZATION);
+        }
+        return builder;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag, String userId) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(userId == null ? CacheControl.noCache() : CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.AUTHORIZATION)
+                .build();
     }
 
     @GetMapping("/{id}/enrollment-status")
@@ -245,28 +356,45 @@ public class CourseController {
                     .map(CourseProgress::getCourseId)
                     .collect(java.util.stream.Collectors.toSet());
 
-            List<Course> allCourses = courseService.getAllCourses();
-            List<Course> result = allCourses.stream()
+            List<CourseSummary> allCourses = courseService.getAllCourseSummaries();
+            List<CourseSummary> result = allCourses.stream()
                     .filter(Objects::nonNull)
                     .filter(c -> c.getId() != null)
                     .filter(c -> !c.isArchived())
                     .filter(c -> !c.getId().equals(id))
                     .filter(c -> !enrolledCourseIds.contains(c.getId()))
                     .toList();
+            result = rankByCoEnrollment(result, enrolledCourseIds, id);
 
-            // Set liked flag if authenticated
-            java.util.Set<String> likedIds = new java.util.HashSet<>(courseLikeService.listLikedCourseIds(userId));
-            for (Course c : result) {
-                c.setLiked(likedIds.contains(c.getId()));
-            }
-
-            return ResponseEntity.ok(courseService.localizeCourses(result, LocaleContextHolder.getLocale()));
+            List<CourseSummary> localized = courseService.localizeSummaries(result, LocaleContextHolder.getLocale());
+            applyLikedFlags(localized, userIdOf(authentication));
+            return ResponseEntity.ok(localized);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .build();
         }
     }
 
+    // Courses taken together with the current and enrolled ones come first; the rest keep catalog order
+    private List<CourseSummary> rankByCoEnrollment(List<CourseSummary> courses, Set<String> enrolledCourseIds, String currentId) {
+        if (recommendationService == null || courses.size() < 2) {
+            return courses;
+        }
+        Set<String> seeds = new HashSet<>(enrolledCourseIds);
+        seeds.add(currentId);
+        List<String> ranked = recommendationService.recommend(seeds, seeds, courses.size());
+        if (ranked.isEmpty()) {
+            return courses;
+        }
+        Map<String, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ranked.size(); i++) {
+            rank.put(ranked.get(i), i);
+        }
+        List<CourseSummary> ordered = new ArrayList<>(courses);
+        ordered.sort(Comparator.comparingInt(c -> rank.getOrDefault(c.getId(), Integer.MAX_VALUE)));
+        return ordered;
+    }
+
     @PostMapping("/{id}/like")
     public ResponseEntity<Object> likeCourse(@PathVariable String id, Authentication authentication) {
         if (authentication == null || authentication.getPrincipal() == null) {
@@ -362,31 +490,31 @@ public class CourseController {
         }
     }
 
+    // One batched hydration for all enrollments instead of a cache round trip per course
     private List<Map<String, Object>> buildCoursesWithProgress(List<CourseProgress> enrollments) {
+        List<String> courseIds = enrollments.stream().map(CourseProgress::getCourseId).toList();
+        Map<String, Course> courses = new HashMap<>();
+        for (Course course : courseService.getCoursesByIds(courseIds, LocaleContextHolder.getLocale())) {
+            courses.put(course.getId(), course);
+        }
         List<Map<String, Object>> coursesWithProgress = new ArrayList<>();
-        for (int i = 0; i < enrollments.size(); i++) {
-            CourseProgress enrollment = enrollments.get(i);
-            log.debug("GET /api/courses/enrolled - Enrollment {}: courseId={}, userId={}, enrolledAt={}, progress={}%",
-                    i + 1, enrollment.getCourseId(), enrollment.getUserId(),
-                    enrollment.getEnrolledAt(), enrollment.getProgressPercentage());
-            buildCourseData(enrollment).ifPresent(coursesWithProgress::add);
+        for (CourseProgress enrollment : enrollments) {
+            Course localizedCourse = courses.get(enrollment.getCourseId());
+            if (localizedCourse == null) {
+                log.warn("GET /api/courses/enrolled - Course not found: {}", enrollment.getCourseId());
+                continue;
+            }
+            if (localizedCourse.isArchived()) {
+                log.debug("GET /api/courses/enrolled - Skipping archived course: {} (ID: {})",
+                        localizedCourse.getTitle(), localizedCourse.getId());
+                continue;
+            }
+            coursesWithProgress.add(buildCourseData(localizedCourse, enrollment));
         }
         return coursesWithProgress;
     }
 
-    private Optional<Map<String, Object>> buildCourseData(CourseProgress progress) {
-        log.debug("GET /api/courses/enrolled - Processing courseId: {}", progress.getCourseId());
-        Optional<Course> courseOpt = courseService.getCourseById(progress.getCourseId());
-        if (courseOpt.isEmpty()) {
-            log.warn("GET /api/courses/enrolled - Course not found: {}", progress.getCourseId());
-            return Optional.empty();
-        }
-        Course localizedCourse = courseService.localizeCourse(courseOpt.get(), LocaleContextHolder.getLocale());
-        if (localizedCourse.isArchived()) {
-            log.debug("GET /api/courses/enrolled - Skipping archived course: {} (ID: {})",
-                    localizedCourse.getTitle(), localizedCourse.getId());
-            return Optional.empty();
-        }
+    private Map<String, Object> buildCourseData(Course localizedCourse, CourseProgress progress) {
         Map<String, Object> courseData = new HashMap<>();
         courseData.put("id", localizedCourse.getId());
         courseData.put("title", localizedCourse.getTitle());
@@ -409,7 +537,7 @@ public class CourseController {
 
         log.debug("GET /api/courses/enrolled - Added course: {} (Progress: {}%)",
                 localizedCourse.getTitle(), progress.getProgressPercentage());
-        return Optional.of(courseData);
+        return courseData;
     }
 
     /**
@@ -422,7 +550,7 @@ public class CourseController {
         try {
             log.info("POST /api/courses/admin/cleanup-orphaned-enrollments - Request received");
             
-            int deletedCount = courseProgressService.cleanupOrphanedEnrollments(courseService);
+            int deletedCount = courseProgressService.cleanupOrphanedEnrollments();
             
             return ResponseEntity.ok(Map.of(
                     KEY_MESSAGE, "Cleanup completed successfully",
@@ -436,6 +564,17 @@ public class CourseController {
         }
     }
 
+    /**
+     * Progress of the background cleanup started by a course delete
+     */
+    @GetMapping("/admin/deletions/{id}")
+    @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CourseDeletionProgress> getDeletionProgress(@PathVariable String id) {
+        return courseService.getDeletionProgress(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/test-connection")
     public ResponseEntity<Object> testCloudinaryConnection() {
         try {
@@ -467,14 +606,11 @@ public class CourseController {
                 return ResponseEntity.badRequest().body(Map.of(KEY_ERROR, "File is required"));
             }
 
-            Optional<Course> courseOpt = courseService.getCourseById(id);
-            if (courseOpt.isEmpty()) {
+            if (courseService.getCourseById(id).isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of(KEY_ERROR, MSG_COURSE_NOT_FOUND));
             }
 
-            Course course = courseOpt.get();
-
             String folderPath = "courses/" + id + "/files";
             log.info("[CourseController] Uploading file as image - courseId={}, name={}, contentType={}, size={} bytes, targetFolder={}",
                     id, file.getOriginalFilename(), file.getContentType(), file.getSize(), folderPath);
@@ -501,18 +637,21 @@ public class CourseController {
                     new java.util.Date()
             );
 
-            if (course.getFiles() == null) {
-                course.setFiles(new ArrayList<>());
+            // Attached to the stored course; the cached copy's version may already be stale
+            if (courseService.addFile(id, courseFile).isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of(KEY_ERROR, MSG_COURSE_NOT_FOUND));
             }
-            course.getFiles().add(courseFile);
-            course.setUpdatedAt(new java.util.Date());
-            courseService.save(course);
 
             log.info("[CourseController] Saved CourseFile - id={}, name={}, type={}, size={}, url={}, publicId={}",
                     courseFile.getId(), courseFile.getName(), courseFile.getType(), courseFile.getSize(),
                     courseFile.getUrl(), courseFile.getPublicId());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(courseFile);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Could not attach file to course {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of(KEY_ERROR, "Course was modified concurrently, try again"));
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of(KEY_ERROR, "Failed to upload file: " + e.getMessage()));
@@ -557,40 +696,27 @@ public class CourseController {
     @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Object> deleteCourseFile(@PathVariable String id, @PathVariable String fileId) {
         try {
-            Optional<Course> courseOpt = courseService.getCourseById(id);
-            if (courseOpt.isEmpty()) {
+            if (courseService.getCourseById(id).isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of(KEY_ERROR, MSG_COURSE_NOT_FOUND));
             }
 
-            Course course = courseOpt.get();
-            if (course.getFiles() == null || course.getFiles().isEmpty()) {
+            // Detached from the stored course first, so the course never links a deleted asset
+            Optional<CourseFile> removed = courseService.removeFile(id, fileId);
+            if (removed.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of(KEY_ERROR, "File not found"));
             }
-
-            CourseFile target = null;
-            for (CourseFile f : course.getFiles()) {
-                if (f != null && fileId.equals(f.getId())) {
-                    target = f;
-                    break;
-                }
+            String publicId = removed.get().getPublicId();
+            if (publicId != null && !publicId.isEmpty()) {
+                cloudinaryService.deleteRaw(publicId);
             }
 
-            if (target == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of(KEY_ERROR, "File not found"));
-            }
-
-            if (target.getPublicId() != null && !target.getPublicId().isEmpty()) {
-                cloudinaryService.deleteRaw(target.getPublicId());
-            }
-
-            course.getFiles().removeIf(f -> f != null && fileId.equals(f.getId()));
-            course.setUpdatedAt(new java.util.Date());
-            courseService.save(course);
-
             return ResponseEntity.noContent().build();
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Could not detach file {} from course {}: {}", fileId, id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of(KEY_ERROR, "Course was modified concurrently, try again"));
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of(KEY_ERROR, "Failed to delete file: " + e.getMessage()));
@@ -0,0 +1,102 @@
+package org.agra.agra_backend.controller;
+
+import jakarta.validation.Valid;
+import org.agra.agra_backend.model.CourseFile;
+import org.agra.agra_backend.payload.UploadInitRequest;
+import org.agra.agra_backend.payload.UploadStatus;
+import org.agra.agra_backend.service.CourseFileUploadService;
+import org.agra.agra_backend.service.UploadLimitExceededException;
+import org.agra.agra_backend.service.UploadSlotUnavailableException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Resumable course file uploads for large files: POST to start, PUT each chunk with its offset and
+ * SHA-256, GET to find where to resume, POST complete to store the file and attach it.
+ */
+@RestController
+@RequestMapping("/api/courses/{courseId}/uploads")
+public class CourseFileUploadController {
+
+    static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-SHA256";
+
+    private final CourseFileUploadService courseFileUploadService;
+
+    public CourseFileUploadController(CourseFileUploadService courseFileUploadService) {
+        this.courseFileUploadService = courseFileUploadService;
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UploadStatus> start(@PathVariable String courseId, @Valid @RequestBody UploadInitRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(courseFileUploadService.start(courseId, request));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not start upload", e);
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UploadStatus> status(@PathVariable String courseId, @PathVariable String uploadId) {
+        return ResponseEntity.ok(courseFileUploadService.status(courseId, uploadId));
+    }
+
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UploadStatus> writeChunk(@PathVariable String courseId,
+                                                   @PathVariable String uploadId,
+                                                   @RequestParam long offset,
+                                                   @RequestHeader(CHUNK_CHECKSUM_HEADER) String checksum,
+                                                   InputStream body) {
+        try {
+            return ResponseEntity.ok(courseFileUploadService.writeChunk(courseId, uploadId, offset, body, checksum));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read chunk body", e);
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CourseFile> complete(@PathVariable String courseId, @PathVariable String uploadId) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(courseFileUploadService.complete(courseId, uploadId));
+        } catch (UploadSlotUnavailableException e) {
+            // The assembled file stays in the spool; the same completion can simply be retried
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (UploadLimitExceededException e) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage(), e);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Course was modified concurrently, try again", e);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to upload file: " + e.getMessage(), e);
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> abort(@PathVariable String courseId, @PathVariable String uploadId) {
+        courseFileUploadService.abort(courseId, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
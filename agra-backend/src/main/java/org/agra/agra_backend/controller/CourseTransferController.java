@@ -0,0 +1,56 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.payload.CourseImportReport;
+import org.agra.agra_backend.service.CourseTransferService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Catalog export and import as NDJSON, for seeding and moving content between environments
+ * through the same validation and cache invalidation as the editor.
+ */
+@RestController
+@RequestMapping("/api/courses/admin")
+public class CourseTransferController {
+
+    private final CourseTransferService courseTransferService;
+
+    public CourseTransferController(CourseTransferService courseTransferService) {
+        this.courseTransferService = courseTransferService;
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportCourses() {
+        StreamingResponseBody body = courseTransferService::exportCourses;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"courses.ndjson\"")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {
+            MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CourseImportReport> importCourses(InputStream body,
+                                                            @RequestParam(defaultValue = "false") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(courseTransferService.importCourses(body, dryRun));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read import body", e);
+        }
+    }
+}
@@ -5,10 +5,13 @@ import org.agra.agra_backend.model.CourseProgress;
 import org.agra.agra_backend.model.User;
 import org.agra.agra_backend.service.CertificateService;
 import org.agra.agra_backend.service.CourseProgressService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -21,6 +24,7 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class ProgressController {
     private static final String KEY_COMPLETED_AT = "completedAt";
+    private static final Logger log = LoggerFactory.getLogger(ProgressController.class);
 
     private final CourseProgressService courseProgressService;
     private final CertificateService certificateService;
@@ -36,9 +40,6 @@ public class ProgressController {
             @RequestBody Map<String, Object> progressData,
             Authentication authentication) {
         try {
-            // Log the incoming request data for debugging
-            System.out.println("Received progress data: " + progressData);
-            
             if (authentication == null || authentication.getPrincipal() == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Authentication required"));
@@ -53,8 +54,9 @@ public class ProgressController {
             Object timeSpentObj = progressData.get("timeSpent");
             String lastAccessedAt = (String) progressData.get("lastAccessedAt");
             
-            System.out.println("Extracted courseId: " + courseId + ", lessonId: " + lessonId + 
-                             ", timeSpent: " + timeSpentObj + ", lastAccessedAt: " + lastAccessedAt);
+            // Heartbeat path: players call this every few seconds, so keep it off stdout
+            log.debug("Lesson progress from user {}: courseId={}, lessonId={}, timeSpent={}, lastAccessedAt={}",
+                    userId, courseId, lessonId, timeSpentObj, lastAccessedAt);
             
             if (courseId == null) {
                 return ResponseEntity.badRequest()
@@ -114,12 +116,11 @@ public class ProgressController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("error", "User is not enrolled in this course"));
             }
-            System.err.println("Runtime error in updateLessonProgress: " + e.getMessage());
+            log.warn("Runtime error in updateLessonProgress: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to update lesson progress: " + e.getMessage()));
         } catch (Exception e) {
-            System.err.println("Unexpected error in updateLessonProgress: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error in updateLessonProgress", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to update lesson progress"));
         }
@@ -129,33 +130,20 @@ public class ProgressController {
     public ResponseEntity<?> getCourseProgress(
             @PathVariable String courseId,
             Authentication authentication) {
-        System.out.println("GET /api/progress/course/" + courseId + " - Request received");
-        
         try {
             if (authentication == null || authentication.getPrincipal() == null) {
-                System.err.println("GET /api/progress/course/" + courseId + " - Authentication failed");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Authentication required"));
             }
 
             User user = (User) authentication.getPrincipal();
             String userId = user.getId();
-            
-            System.out.println("GET /api/progress/course/" + courseId + " - User: " + userId);
 
             Optional<CourseProgress> progressOpt = courseProgressService.getEnrollmentStatus(userId, courseId);
             
             if (progressOpt.isPresent()) {
                 CourseProgress progress = progressOpt.get();
-                
-                System.out.println("GET /api/progress/course/" + courseId + " - Found progress:");
-                System.out.println("  - Progress percentage: " + progress.getProgressPercentage());
-                System.out.println("  - Completed: " + progress.isCompleted());
-                System.out.println("  - Started at: " + progress.getStartedAt());
-                System.out.println("  - Current lesson: " + progress.getCurrentLessonId());
-                System.out.println("  - Completed lessons: " + progress.getCompletedLessons());
-                System.out.println("  - Lesson completion dates: " + progress.getLessonCompletionDates());
-                
+
                 Map<String, Object> response = new HashMap<>();
                 response.put("courseId", progress.getCourseId());
                 response.put("progressPercentage", progress.getProgressPercentage());
@@ -166,21 +154,19 @@ public class ProgressController {
                 response.put("completedLessons", progress.getCompletedLessons() != null ? progress.getCompletedLessons() : new ArrayList<>());
                 response.put("lessonCompletionDates", progress.getLessonCompletionDates()); // Add completion dates
                 response.put("certificateUrl", progress.getCertificateUrl()); // Can be null
-                
-                System.out.println("GET /api/progress/course/" + courseId + " - Returning response with " + 
-                                 (progress.getCompletedLessons() != null ? progress.getCompletedLessons().size() : 0) + 
-                                 " completed lessons");
-                
+                log.debug("Course progress for user {} in course {}: {}% complete, {} completed lesson(s)",
+                        userId, courseId, progress.getProgressPercentage(),
+                        progress.getCompletedLessons() != null ? progress.getCompletedLessons().size() : 0);
+
                 return ResponseEntity.ok(response);
             } else {
-                System.out.println("GET /api/progress/course/" + courseId + " - User not enrolled");
+                log.debug("User {} is not enrolled in course {}", userId, courseId);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(Map.of("error", "User is not enrolled in this course"));
             }
 
         } catch (Exception e) {
-            System.err.println("GET /api/progress/course/" + courseId + " - Error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to retrieve progress for course {}", courseId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to retrieve progress: " + e.getMessage()));
         }
@@ -191,9 +177,6 @@ public class ProgressController {
             @RequestBody Map<String, Object> lessonData,
             Authentication authentication) {
         try {
-            // Log the incoming request data for debugging
-            System.out.println("Received lesson completion data: " + lessonData);
-            
             if (authentication == null || authentication.getPrincipal() == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Authentication required"));
@@ -205,8 +188,7 @@ public class ProgressController {
             // Extract data from request body
             String courseId = (String) lessonData.get("courseId");
             String lessonId = (String) lessonData.get("lessonId");
-            System.out.println("Extracted courseId: " + courseId + ", lessonId: " + lessonId +
-                             ", userId: " + userId);
+            log.debug("Lesson completion from user {}: courseId={}, lessonId={}", userId, courseId, lessonId);
             
             if (courseId == null || lessonId == null) {
                 return ResponseEntity.badRequest()
@@ -228,17 +210,12 @@ public class ProgressController {
                         .body(Map.of("error", "User is not enrolled in this course"));
             }
 
-            System.out.println("User is enrolled. Current completed lessons: " + 
-                             existingProgress.get().getCompletedLessons());
-
             CourseProgress updatedProgress = courseProgressService.markLessonComplete(userId, courseId, lessonId, completedAt);
 
-            System.out.println("Lesson marked complete. Updated completed lessons: " + 
-                             updatedProgress.getCompletedLessons());
-
             // Verify the lesson was actually added to completed list
             boolean lessonWasAdded = updatedProgress.getCompletedLessons().contains(lessonId);
-            System.out.println("Lesson " + lessonId + " was added to completed list: " + lessonWasAdded);
+            log.debug("Lesson {} completed for user {}: added={}, {} completed lesson(s)",
+                    lessonId, userId, lessonWasAdded, updatedProgress.getCompletedLessons().size());
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Lesson marked as complete");
@@ -252,9 +229,11 @@ public class ProgressController {
 
             return ResponseEntity.ok(response);
 
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode())
+                    .body(Map.of("error", e.getReason() != null ? e.getReason() : "Invalid lesson"));
         } catch (RuntimeException e) {
-            System.err.println("Runtime error in markLessonComplete: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Runtime error in markLessonComplete: {}", e.getMessage());
             if (e.getMessage().contains("not enrolled")) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("error", "User is not enrolled in this course"));
@@ -262,8 +241,7 @@ public class ProgressController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to mark lesson as complete: " + e.getMessage()));
         } catch (Exception e) {
-            System.err.println("Unexpected error in markLessonComplete: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Unexpected error in markLessonComplete", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to mark lesson as complete"));
         }
@@ -0,0 +1,44 @@
+package org.agra.agra_backend.controller;
+
+import jakarta.validation.Valid;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.ProgressSyncRequest;
+import org.agra.agra_backend.payload.ProgressSyncResult;
+import org.agra.agra_backend.service.ProgressSyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Offline progress sync: the app replays the lesson completions, current lessons and percentages it
+ * recorded offline in one request, each with its own idempotency key, and gets a result per event.
+ */
+@RestController
+@RequestMapping("/api/progress/sync")
+@CrossOrigin(origins = "*")
+public class ProgressSyncController {
+
+    private final ProgressSyncService progressSyncService;
+
+    public ProgressSyncController(ProgressSyncService progressSyncService) {
+        this.progressSyncService = progressSyncService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ProgressSyncResult> sync(@Valid @RequestBody ProgressSyncRequest request, Authentication authentication) {
+        return ResponseEntity.ok(progressSyncService.sync(currentUserId(authentication), request.getEvents()));
+    }
+
+    private static String currentUserId(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        return user.getId();
+    }
+}
@@ -0,0 +1,56 @@
+package org.agra.agra_backend.controller;
+
+import jakarta.validation.Valid;
+import org.agra.agra_backend.model.QuizAttempt;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.QuizResult;
+import org.agra.agra_backend.payload.QuizSubmission;
+import org.agra.agra_backend.service.QuizScoringService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Server-side quiz grading: submit the selected answer ids per question, get back the score and
+ * which questions were wrong. Passing marks the lesson complete.
+ */
+@RestController
+@RequestMapping("/api/progress/quiz")
+@CrossOrigin(origins = "*")
+public class QuizController {
+
+    private final QuizScoringService quizScoringService;
+
+    public QuizController(QuizScoringService quizScoringService) {
+        this.quizScoringService = quizScoringService;
+    }
+
+    @PostMapping("/submit")
+    public ResponseEntity<QuizResult> submit(@Valid @RequestBody QuizSubmission submission, Authentication authentication) {
+        return ResponseEntity.ok(quizScoringService.submit(currentUserId(authentication), submission));
+    }
+
+    @GetMapping("/attempts")
+    public ResponseEntity<List<QuizAttempt>> attempts(@RequestParam String courseId,
+                                                      @RequestParam String lessonId,
+                                                      Authentication authentication) {
+        return ResponseEntity.ok(quizScoringService.getAttempts(currentUserId(authentication), courseId, lessonId));
+    }
+
+    private static String currentUserId(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        return user.getId();
+    }
+}
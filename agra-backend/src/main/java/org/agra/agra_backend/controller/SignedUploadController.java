@@ -0,0 +1,54 @@
+package org.agra.agra_backend.controller;
+
+import jakarta.validation.Valid;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.SignedUploadCompleteRequest;
+import org.agra.agra_backend.payload.SignedUploadRequest;
+import org.agra.agra_backend.service.SignedUploadService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/**
+ * Direct-to-storage uploads: clients fetch signed parameters, upload to Cloudinary themselves and
+ * then report the result so it can be verified and linked. Media bytes never reach the backend.
+ */
+@RestController
+@RequestMapping("/api/uploads/signed")
+public class SignedUploadController {
+
+    private final SignedUploadService signedUploadService;
+
+    public SignedUploadController(SignedUploadService signedUploadService) {
+        this.signedUploadService = signedUploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> issue(@Valid @RequestBody SignedUploadRequest request,
+                                                     Authentication authentication) {
+        User user = requireUser(authentication);
+        return ResponseEntity.ok(signedUploadService.issue(user, request.getTargetType(), request.getTargetId(),
+                request.getContentType(), request.getSize()));
+    }
+
+    @PostMapping("/complete")
+    public ResponseEntity<Map<String, Object>> complete(@Valid @RequestBody SignedUploadCompleteRequest request,
+                                                        Authentication authentication) {
+        User user = requireUser(authentication);
+        return ResponseEntity.ok(signedUploadService.complete(user, request));
+    }
+
+    private User requireUser(Authentication authentication) {
+        if (authentication == null || authentication.getPrincipal() == null || !(authentication.getPrincipal() instanceof User user)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        return user;
+    }
+}
@@ -0,0 +1,73 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.payload.TrainingKitBundle;
+import org.agra.agra_backend.service.TrainingKitBundleService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Offline course bundles. The first call reports the bundle for the current content (202 while it
+ * is built); the download URL it returns is immutable, and range requests on it let interrupted
+ * downloads resume.
+ */
+@RestController
+@RequestMapping("/api/courses/{courseId}/bundle")
+public class TrainingKitController {
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final TrainingKitBundleService trainingKitBundleService;
+
+    public TrainingKitController(TrainingKitBundleService trainingKitBundleService) {
+        this.trainingKitBundleService = trainingKitBundleService;
+    }
+
+    @GetMapping
+    public ResponseEntity<TrainingKitBundle> getBundle(@PathVariable String courseId,
+                                                       @RequestParam(value = "lang", required = false) String lang,
+                                                       Locale locale) {
+        Locale requested = lang == null || lang.isBlank() ? locale : Locale.forLanguageTag(lang);
+        return trainingKitBundleService.requestBundle(courseId, requested)
+                .map(bundle -> switch (bundle.getStatus()) {
+                    case TrainingKitBundleService.STATUS_READY -> ResponseEntity.ok(bundle);
+                    case TrainingKitBundleService.STATUS_BUILDING -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                            .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                            .body(bundle);
+                    default -> ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(bundle);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Range, If-Range and If-None-Match are handled by Spring for Resource bodies
+    @GetMapping("/{hash}")
+    public ResponseEntity<Resource> downloadBundle(@PathVariable String courseId, @PathVariable String hash) {
+        return trainingKitBundleService.bundleFile(hash)
+                .map(path -> download(courseId, hash, path))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<Resource> download(String courseId, String hash, Path path) {
+        return ResponseEntity.ok()
+                .eTag("\"" + hash + "\"")
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(courseId + "-offline.zip").build().toString())
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(new FileSystemResource(path));
+    }
+}
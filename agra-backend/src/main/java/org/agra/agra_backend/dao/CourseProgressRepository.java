@@ -2,7 +2,10 @@ package org.agra.agra_backend.dao;
 
 import org.agra.agra_backend.model.CourseProgress;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +14,9 @@ public interface CourseProgressRepository extends MongoRepository<CourseProgress
     List<CourseProgress> findByUserId(String userId);
     List<CourseProgress> findByCourseId(String courseId);
     boolean existsByUserIdAndCourseId(String userId, String courseId);
+
+    // Only the certificate fields, so lessons completed meanwhile are not overwritten
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'certificateCode': ?1, 'certificateIssuedAt': ?2, 'certificateUrl': ?3 } }")
+    long updateCertificate(String id, String certificateCode, Date certificateIssuedAt, String certificateUrl);
 }
\ No newline at end of file
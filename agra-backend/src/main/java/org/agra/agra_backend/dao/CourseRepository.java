@@ -1,6 +1,8 @@
 package org.agra.agra_backend.dao;
 
 import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.payload.CourseSummary;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
@@ -9,4 +11,23 @@ public interface CourseRepository extends MongoRepository<Course, String> {
     List<Course> findByCountry(String country);
     List<Course> findByDomain(String domain);
     List<Course> findByArchivedFalse();
+
+    // Catalog cards only: lessons, quizzes and files are reduced to counts on the server
+    String SUMMARY_PROJECTION = "{ $project: { translations: 1, defaultLanguage: 1, domain: 1, country: 1, trainerId: 1, "
+            + "languagesAvailable: 1, imageUrl: 1, thumbnailUrl: 1, mediaStatus: 1, archived: 1, activeCall: 1, "
+            + "createdAt: 1, updatedAt: 1, "
+            + "lessonCount: { $size: { $ifNull: ['$textContent', []] } }, "
+            + "fileCount: { $size: { $ifNull: ['$files', []] } } } }";
+
+    @Aggregation(pipeline = {SUMMARY_PROJECTION})
+    List<CourseSummary> findAllSummaries();
+
+    @Aggregation(pipeline = {"{ $match: { archived: false } }", SUMMARY_PROJECTION})
+    List<CourseSummary> findActiveSummaries();
+
+    @Aggregation(pipeline = {"{ $match: { country: ?0 } }", SUMMARY_PROJECTION})
+    List<CourseSummary> findSummariesByCountry(String country);
+
+    @Aggregation(pipeline = {"{ $match: { domain: ?0 } }", SUMMARY_PROJECTION})
+    List<CourseSummary> findSummariesByDomain(String domain);
 }
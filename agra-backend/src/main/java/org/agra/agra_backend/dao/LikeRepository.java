@@ -25,9 +25,22 @@ public interface LikeRepository extends MongoRepository<Like, String> {
 
     List<Like> findByUserId(String userId);
 
+    List<Like> findByUserIdAndTargetType(String userId, String targetType);
+
     @Query("{'userId': ?0, 'targetType': ?1, 'targetId': {'$in': ?2}}")
     List<Like> findByUserIdAndTargetTypeAndTargetIdIn(String userId, String targetType, List<String> targetIds);
 
     @Query("{'targetType': 'POST'}")
     List<Like> findPostLikes();
+
+    // Legacy fallback reads only see likes that have not been copied to the modern collections yet
+
+    @Query(value = "{'userId': ?0, 'targetType': ?1, 'targetId': ?2, 'migratedAt': {'$exists': false}}", exists = true)
+    boolean existsUnmigratedByUserIdAndTargetTypeAndTargetId(String userId, String targetType, String targetId);
+
+    @Query(value = "{'targetType': ?0, 'targetId': ?1, 'migratedAt': {'$exists': false}}", count = true)
+    long countUnmigratedByTargetTypeAndTargetId(String targetType, String targetId);
+
+    @Query("{'userId': ?0, 'targetType': ?1, 'targetId': {'$in': ?2}, 'migratedAt': {'$exists': false}}")
+    List<Like> findUnmigratedByUserIdAndTargetTypeAndTargetIdIn(String userId, String targetType, List<String> targetIds);
 }
\ No newline at end of file
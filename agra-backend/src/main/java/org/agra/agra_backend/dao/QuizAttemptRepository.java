@@ -0,0 +1,12 @@
+package org.agra.agra_backend.dao;
+
+import org.agra.agra_backend.model.QuizAttempt;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface QuizAttemptRepository extends MongoRepository<QuizAttempt, String> {
+    List<QuizAttempt> findByUserIdAndCourseIdAndLessonIdOrderBySubmittedAtDesc(String userId, String courseId, String lessonId);
+}
@@ -0,0 +1,10 @@
+package org.agra.agra_backend.dao;
+
+import org.agra.agra_backend.model.TrainingKit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface TrainingKitRepository extends MongoRepository<TrainingKit, String> {
+    List<TrainingKit> findByCourseId(String courseId);
+}
@@ -0,0 +1,12 @@
+package org.agra.agra_backend.dao;
+
+import org.agra.agra_backend.model.UploadSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+@Repository
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String> {
+    long deleteByExpiresAtBefore(Date cutoff);
+}
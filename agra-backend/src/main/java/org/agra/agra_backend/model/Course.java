@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -17,6 +18,10 @@ public class Course {
     @Id
     private String id;
 
+    // Optimistic lock; full saves and partial content edits both move it
+    @Version
+    private Long version;
+
     @Transient
     private String title;
     @Transient
@@ -44,6 +49,8 @@ public class Course {
     private String imageUrl;       // Generated optimized URL for course cards
     private String thumbnailUrl;   // Generated thumbnail URL
     private String detailImageUrl; // Generated high-res URL for course details
+    private String mediaStatus;    // PENDING while the course image is processed in the background
+    private Map<String, String> imageRenditions; // thumb/medium/full URLs when rendered locally
 
 
 
@@ -3,6 +3,8 @@ package org.agra.agra_backend.model;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -14,6 +16,7 @@ import java.util.HashMap;
 @Getter
 @Setter
 @Document(collection = "course_progress")
+@CompoundIndex(name = "user_course_unique", def = "{'userId': 1, 'courseId': 1}", unique = true)
 public class CourseProgress {
     @Id
     private String id;
@@ -22,6 +25,7 @@ public class CourseProgress {
     private Date enrolledAt;
     private Date startedAt;
     private boolean completed;
+    private Date completedAt;
     private String certificateUrl;
     private String certificateCode;
     private Date certificateIssuedAt;
@@ -29,6 +33,30 @@ public class CourseProgress {
     
     // Lesson tracking fields
     private String currentLessonId;
+    // When the current lesson was last moved; offline syncs only move it forward in time
+    private Date currentLessonAt;
+    // Completed lessons as a bitset over the course's lesson ordinals (see LessonOrdinals), 64 per word
+    private long[] completedLessonBits = new long[0];
+    // Lesson ids of the set bits, filled in when the document is read; never written back
+    @ReadOnlyProperty
     private List<String> completedLessons = new ArrayList<>();
     private Map<String, Date> lessonCompletionDates = new HashMap<>();
+    // Best graded quiz score per lesson, in percent
+    private Map<String, Integer> quizScores = new HashMap<>();
+
+    public boolean isLessonCompleted(int ordinal) {
+        int word = ordinal >>> 6;
+        return completedLessonBits != null && word < completedLessonBits.length
+                && (completedLessonBits[word] & (1L << ordinal)) != 0;
+    }
+
+    public int completedLessonCount() {
+        int count = 0;
+        if (completedLessonBits != null) {
+            for (long word : completedLessonBits) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
 }
@@ -0,0 +1,26 @@
+package org.agra.agra_backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The bit position of every lesson a course has ever had, used by {@link CourseProgress#getCompletedLessonBits()}.
+ * Append-only: lessons keep their ordinal through edits and reordering, and a deleted lesson's
+ * ordinal is never reused. Kept outside the course document so whole-course saves cannot rewrite it.
+ */
+@Getter
+@Setter
+@Document(collection = "course_lesson_ordinals")
+public class LessonOrdinals {
+    // The course id
+    @Id
+    private String id;
+    private Map<String, Integer> ordinals = new HashMap<>();
+    // Next ordinal to hand out; also the compare-and-set guard for assignments
+    private int next;
+}
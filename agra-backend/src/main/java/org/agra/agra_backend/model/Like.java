@@ -36,6 +36,10 @@ public class Like {
     @Field("created_at")
     private LocalDateTime createdAt;
 
+    // Set once a POST/COMMENT like has been copied into post_likes/comment_likes
+    @Field("migrated_at")
+    private LocalDateTime migratedAt;
+
     public Like(String userId, User userInfo, String targetType, String targetId) {
         this.userId = userId;
         this.userInfo = userInfo;
@@ -6,11 +6,13 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Document(collection = "posts")
 @Data
@@ -23,6 +25,7 @@ public class Post {
     private String id;
 
     @Field("user_id")
+    @Indexed
     private String userId;
 
     @Field("user_info")
@@ -33,6 +36,14 @@ public class Post {
     @Field("image_url")
     private String imageUrl;
 
+    // PENDING while the image is processed in the background, then READY or FAILED
+    @Field("media_status")
+    private String mediaStatus;
+
+    // Bounded renditions keyed by name (thumb, medium, full); image_url points at full
+    @Field("image_renditions")
+    private Map<String, String> imageRenditions;
+
     @CreatedDate
     @Field("created_at")
     private LocalDateTime createdAt;
@@ -0,0 +1,32 @@
+package org.agra.agra_backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * An offline progress event that has already been applied, kept until {@code expiresAt} so a
+ * replayed sync batch skips it and answers with the original outcome.
+ */
+@Getter
+@Setter
+@Document(collection = "progress_sync_keys")
+public class ProgressSyncKey {
+    // userId + ':' + the client's idempotency key
+    @Id
+    private String id;
+    private String userId;
+    private String courseId;
+    private String lessonId;
+    private String type;
+    // Enrollment percentage right after the event was applied
+    private Integer progressPercentage;
+    private Date appliedAt;
+
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
@@ -0,0 +1,40 @@
+package org.agra.agra_backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One graded quiz submission. {@code courseVersion} is the course version the answer key was
+ * extracted from, so attempts graded against an older quiz can be told apart.
+ */
+@Getter
+@Setter
+@Document(collection = "quiz_attempts")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_course_lesson_submitted", def = "{'userId': 1, 'courseId': 1, 'lessonId': 1, 'submittedAt': -1}"),
+        @CompoundIndex(name = "course_lesson_submitted", def = "{'courseId': 1, 'lessonId': 1, 'submittedAt': -1}")
+})
+public class QuizAttempt {
+    @Id
+    private String id;
+    private String userId;
+    private String courseId;
+    private String lessonId;
+    private Long courseVersion;
+    private int correct;
+    private int total;
+    private int percent;
+    private boolean passed;
+    // Question id -> selected answer ids, limited to the quiz's own questions and answers
+    private Map<String, List<String>> answers;
+    private List<String> wrongQuestionIds;
+    private Date submittedAt;
+}
@@ -0,0 +1,37 @@
+package org.agra.agra_backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A resumable course file upload. The bytes live in the local spool; this records what was
+ * declared at init and how many bytes have been received and verified so far.
+ */
+@Getter
+@Setter
+@Document(collection = "upload_sessions")
+public class UploadSession {
+    @Id
+    private String id;
+
+    @Indexed
+    private String courseId;
+
+    private String filename;
+    private String contentType;
+    // image, video or raw
+    private String resourceType;
+    private long size;
+    // Optional SHA-256 of the whole file, checked on completion
+    private String sha256;
+    private long receivedBytes;
+    private Date createdAt;
+
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
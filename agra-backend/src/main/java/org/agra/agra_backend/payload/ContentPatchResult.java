@@ -0,0 +1,19 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ContentPatchResult {
+    private String courseId;
+    // Send this back as the expected version on the next edit
+    private Long version;
+    private Date updatedAt;
+}
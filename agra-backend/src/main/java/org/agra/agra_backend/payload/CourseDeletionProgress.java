@@ -0,0 +1,24 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CourseDeletionProgress {
+    private String courseId;
+    // QUEUED, RUNNING, COMPLETED or FAILED
+    private String status;
+    // Documents removed so far, per collection
+    private Map<String, Long> deleted;
+    private Date startedAt;
+    private Date finishedAt;
+    private String error;
+}
@@ -0,0 +1,50 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of an NDJSON course import. Counts cover every line; the per-course entries and errors are
+ * capped so a huge file cannot blow up the response.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CourseImportReport {
+    private boolean dryRun;
+    private long processed;
+    private long created;
+    private long updated;
+    private long unchanged;
+    private long failed;
+    private boolean truncated;
+    private List<Entry> changes = new ArrayList<>();
+    private List<LineError> errors = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Entry {
+        private long line;
+        private String courseId;
+        // CREATE or UPDATE
+        private String action;
+        private List<String> changedFields;
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LineError {
+        private long line;
+        private String message;
+    }
+}
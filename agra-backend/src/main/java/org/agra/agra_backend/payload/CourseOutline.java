@@ -0,0 +1,28 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * First-paint view of a course: localized headings and per-lesson metadata, no lesson bodies. The
+ * player fetches each lesson separately when it is opened.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseOutline {
+    private String id;
+    private String title;
+    private String description;
+    private String defaultLanguage;
+    private Long version;
+    private Date updatedAt;
+    private int totalMinutes;
+    private List<LessonOutline> lessons;
+}
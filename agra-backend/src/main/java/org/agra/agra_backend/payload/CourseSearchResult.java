@@ -0,0 +1,25 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of faceted catalog results. Each facet's counts apply every filter except that facet's
+ * own, so a client can show how many courses each alternative value would return.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseSearchResult {
+    private List<CourseSummary> courses;
+    private int total;
+    private int page;
+    private int size;
+    private Map<String, Map<String, Integer>> facets;
+}
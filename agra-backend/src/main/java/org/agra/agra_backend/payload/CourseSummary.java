@@ -0,0 +1,42 @@
+package org.agra.agra_backend.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.agra.agra_backend.model.CourseTranslation;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog card view of a course: everything a listing needs, without lessons, quizzes or files.
+ * Read with a Mongo projection; the full document is only served by {@code /api/courses/{id}}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CourseSummary {
+    private String id;
+    private String title;
+    private String description;
+    private String defaultLanguage;
+    // Present in the cached copy so any locale can be resolved; dropped once localized
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, CourseTranslation> translations;
+    private String domain;
+    private String country;
+    private String trainerId;
+    private List<String> languagesAvailable;
+    private String imageUrl;
+    private String thumbnailUrl;
+    private String mediaStatus;
+    private boolean archived;
+    private boolean activeCall;
+    private boolean liked;
+    private int lessonCount;
+    private int fileCount;
+    private Date createdAt;
+    private Date updatedAt;
+}
@@ -0,0 +1,20 @@
+package org.agra.agra_backend.payload;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Partial edit of one course-level translation. Null fields are left as stored.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CourseTranslationPatch {
+    private Long version;
+    private String title;
+    private String description;
+    private List<String> goals;
+}
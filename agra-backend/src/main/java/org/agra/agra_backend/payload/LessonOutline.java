@@ -0,0 +1,20 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonOutline {
+    private String id;
+    private int order;
+    private String type;
+    private String title;
+    private int questionCount;
+    // Reading time of the body plus time for the quiz, rounded up
+    private int estimatedMinutes;
+}
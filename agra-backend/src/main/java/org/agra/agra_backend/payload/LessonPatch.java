@@ -0,0 +1,24 @@
+package org.agra.agra_backend.payload;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.agra.agra_backend.model.TextContentTranslation;
+
+import java.util.Map;
+
+/**
+ * Partial edit of one lesson. Null fields are left as stored; map entries only touch the languages
+ * they name. {@code version} is the course version the editor loaded, checked before writing.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class LessonPatch {
+    private Long version;
+    private String type;
+    private Integer order;
+    private Map<String, String> title;
+    private Map<String, String> content;
+    private Map<String, TextContentTranslation> translations;
+}
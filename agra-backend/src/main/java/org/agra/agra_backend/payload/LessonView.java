@@ -0,0 +1,47 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One lesson resolved to a single language, as served to the course player.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonView {
+    private String id;
+    private String courseId;
+    private int order;
+    private String type;
+    // Language the title and body were actually served in, after fallbacks
+    private String language;
+    private String title;
+    private String content;
+    private List<Question> quizQuestions;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Question {
+        private String id;
+        private String question;
+        private List<Answer> answers;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Answer {
+        private String id;
+        private String text;
+        private boolean correct;
+    }
+}
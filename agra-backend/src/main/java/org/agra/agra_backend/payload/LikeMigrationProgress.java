@@ -0,0 +1,19 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeMigrationProgress {
+    // Last legacy _id copied; the next run resumes after it
+    private String lastId;
+    private long processed;
+    private long upserted;
+    private int batches;
+    private boolean completed;
+}
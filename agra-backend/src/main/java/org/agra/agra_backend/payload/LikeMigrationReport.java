@@ -0,0 +1,39 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeMigrationReport {
+    private long legacyPostLikes;
+    private long legacyCommentLikes;
+    private long targetsChecked;
+    private long pendingLegacyLikes;
+    private List<TargetMismatch> mismatches = new ArrayList<>();
+
+    /**
+     * True when every legacy like has a modern counterpart and the legacy read fallback can be disabled.
+     */
+    public boolean isConsistent() {
+        return pendingLegacyLikes == 0 && mismatches.isEmpty();
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TargetMismatch {
+        private String targetType;
+        private String targetId;
+        private long legacyCount;
+        private long migratedCount;
+    }
+}
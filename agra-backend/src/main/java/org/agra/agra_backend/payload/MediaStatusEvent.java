@@ -0,0 +1,18 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class MediaStatusEvent {
+    private String targetType;
+    private String targetId;
+    private String status;
+    private String imageUrl;
+    private String error;
+}
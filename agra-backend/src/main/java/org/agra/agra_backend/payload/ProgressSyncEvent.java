@@ -0,0 +1,29 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * One progress event recorded on the device while offline. Validated per event, so one bad event
+ * does not reject the whole batch.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgressSyncEvent {
+    // Generated by the client once per event and resent unchanged on every retry
+    private String idempotencyKey;
+    // LESSON_COMPLETE, CURRENT_LESSON or PROGRESS
+    private String type;
+    private String courseId;
+    private String lessonId;
+    // PROGRESS only, 0-100
+    private Integer progressPercentage;
+    // When it happened on the device; missing or future times are taken as the sync time
+    private Date occurredAt;
+}
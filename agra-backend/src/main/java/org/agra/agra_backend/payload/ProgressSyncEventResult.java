@@ -0,0 +1,28 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of one synced event. {@code APPLIED} events are done, also when {@code duplicate} says an
+ * earlier sync applied them; {@code REJECTED} ones will fail the same way again; {@code FAILED} ones
+ * were not applied and should be retried with the same key.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgressSyncEventResult {
+    public static final String APPLIED = "APPLIED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    private String idempotencyKey;
+    private String status;
+    private boolean duplicate;
+    private String error;
+    private String courseId;
+    private Integer progressPercentage;
+}
@@ -0,0 +1,19 @@
+package org.agra.agra_backend.payload;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgressSyncRequest {
+    // In the order they happened on the device
+    @NotEmpty
+    private List<ProgressSyncEvent> events;
+}
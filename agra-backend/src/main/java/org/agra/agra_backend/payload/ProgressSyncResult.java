@@ -0,0 +1,21 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProgressSyncResult {
+    // One per submitted event, in request order
+    private List<ProgressSyncEventResult> results;
+    private int applied;
+    private int duplicates;
+    private int rejected;
+    private int failed;
+}
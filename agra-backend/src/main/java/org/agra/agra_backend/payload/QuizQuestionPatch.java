@@ -0,0 +1,24 @@
+package org.agra.agra_backend.payload;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.agra.agra_backend.model.QuizAnswer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partial edit of one quiz question. Question text is merged per language; a non-null answer list
+ * replaces the stored one.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class QuizQuestionPatch {
+    private Long version;
+    private Map<String, String> question;
+    @JsonAlias("options")
+    private List<QuizAnswer> answers;
+}
@@ -0,0 +1,27 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Outcome of a graded quiz attempt. Only which questions were wrong is returned, never the keys.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizResult {
+    private String attemptId;
+    private String courseId;
+    private String lessonId;
+    private int correct;
+    private int total;
+    private int percent;
+    private boolean passed;
+    private int passPercent;
+    private List<String> wrongQuestionIds;
+}
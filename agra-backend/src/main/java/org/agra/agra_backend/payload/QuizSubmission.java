@@ -0,0 +1,25 @@
+package org.agra.agra_backend.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuizSubmission {
+    @NotBlank
+    private String courseId;
+    @NotBlank
+    private String lessonId;
+    // Question id -> selected answer ids; unanswered questions may be left out
+    @NotNull
+    private Map<String, List<String>> answers;
+}
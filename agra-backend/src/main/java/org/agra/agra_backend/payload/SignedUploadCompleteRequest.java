@@ -0,0 +1,29 @@
+package org.agra.agra_backend.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Fields echoed back from the storage upload response so the backend can verify and link the asset.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignedUploadCompleteRequest {
+    @NotBlank
+    private String targetType;
+    @NotBlank
+    private String targetId;
+    @NotBlank
+    private String publicId;
+    @NotBlank
+    private String version;
+    @NotBlank
+    private String signature;
+    private String format;
+    private Long bytes;
+}
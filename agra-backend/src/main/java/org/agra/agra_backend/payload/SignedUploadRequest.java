@@ -0,0 +1,25 @@
+package org.agra.agra_backend.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SignedUploadRequest {
+    @NotBlank
+    private String targetType;
+    @NotBlank
+    private String targetId;
+    @NotBlank
+    private String contentType;
+    @NotNull
+    @Positive
+    private Long size;
+}
@@ -0,0 +1,25 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * State of the offline bundle for one course and language. {@code downloadUrl} is set once the
+ * bundle is READY; it names the content hash, so the file behind it never changes.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrainingKitBundle {
+    private String courseId;
+    private String language;
+    // READY, BUILDING or FAILED
+    private String status;
+    private String hash;
+    private Long size;
+    private String downloadUrl;
+    private String error;
+}
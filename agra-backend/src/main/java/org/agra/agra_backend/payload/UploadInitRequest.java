@@ -0,0 +1,24 @@
+package org.agra.agra_backend.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadInitRequest {
+    @NotBlank
+    private String filename;
+    private String contentType;
+    @Positive
+    private long size;
+    // Hex SHA-256 of the whole file; when given, the assembled file is checked against it
+    @Pattern(regexp = "[0-9a-fA-F]{64}")
+    private String sha256;
+}
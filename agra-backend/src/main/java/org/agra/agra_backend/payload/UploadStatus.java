@@ -0,0 +1,27 @@
+package org.agra.agra_backend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Progress of a resumable upload. After an interruption the client resumes by sending the next
+ * chunk at {@code receivedBytes}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatus {
+    private String uploadId;
+    private String courseId;
+    private String filename;
+    private String resourceType;
+    private long size;
+    private long receivedBytes;
+    private int maxChunkBytes;
+    private Date expiresAt;
+}
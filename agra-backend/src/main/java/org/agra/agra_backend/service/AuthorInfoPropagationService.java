@@ -0,0 +1,193 @@
+package org.agra.agra_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.agra.agra_backend.model.Comment;
+import org.agra.agra_backend.model.Post;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.UserInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rewrites the author summary embedded in posts and comments after a profile change, so feed reads
+ * can use {@code user_info} as stored instead of looking every author up again.
+ * <p>
+ * Work runs on a single background thread. Each pass selects up to {@code batchSize} documents whose
+ * embedded summary still differs from the new one and rewrites them with one {@code updateMulti},
+ * pausing between batches to keep the write rate bounded. Repeated updates for the same user
+ * collapse into one job carrying the latest summary.
+ */
+@Service
+public class AuthorInfoPropagationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorInfoPropagationService.class);
+    private static final String[] FEED_CACHES = {"feed:recent", "feed:topPosts"};
+    private static final String AUTHOR_INDEX = "user_id_1";
+
+    private final MongoTemplate mongoTemplate;
+    private final CacheManager cacheManager;
+    private final int batchSize;
+    private final long pauseMs;
+    private final ExecutorService executor;
+    private final Map<String, UserInfo> pending = new ConcurrentHashMap<>();
+
+    public AuthorInfoPropagationService(MongoTemplate mongoTemplate,
+                                        @Nullable CacheManager cacheManager,
+                                        @Value("${author-info.propagation.batch-size:500}") int batchSize,
+                                        @Value("${author-info.propagation.pause-ms:100}") long pauseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.cacheManager = cacheManager;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMs = Math.max(0L, pauseMs);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "author-info-propagation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Boot does not create annotated indexes here, so create the author indexes each rewrite pass
+     * selects on. Without them every profile change scans all posts and comments.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureAuthorIndexes() {
+        for (Class<?> entityClass : List.of(Post.class, Comment.class)) {
+            try {
+                mongoTemplate.indexOps(entityClass).ensureIndex(new Index()
+                        .on("user_id", Sort.Direction.ASC)
+                        .named(AUTHOR_INDEX));
+            } catch (RuntimeException e) {
+                log.warn("Could not create the author index on {}: {}", entityClass.getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a rewrite of the user's embedded summary. Returns immediately.
+     */
+    public void propagate(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        UserInfo summary = toSummary(user);
+        // Only enqueue when no job is waiting for this user; a waiting job picks up the newer summary
+        if (pending.put(user.getId(), summary) == null) {
+            try {
+                executor.execute(() -> run(user.getId()));
+            } catch (RejectedExecutionException e) {
+                pending.remove(user.getId());
+                log.warn("Author info propagation rejected for user {}: executor shut down", user.getId());
+            }
+        }
+    }
+
+    public static boolean summaryChanged(User before, User after) {
+        if (before == null || after == null) {
+            return after != null;
+        }
+        return !Objects.equals(before.getName(), after.getName())
+                || !Objects.equals(before.getEmail(), after.getEmail())
+                || !Objects.equals(before.getPicture(), after.getPicture())
+                || !Objects.equals(before.getBirthdate(), after.getBirthdate());
+    }
+
+    public static UserInfo toSummary(User user) {
+        UserInfo info = new UserInfo();
+        info.setId(user.getId());
+        info.setName(user.getName());
+        info.setEmail(user.getEmail());
+        info.setPicture(user.getPicture());
+        info.setBirthdate(user.getBirthdate());
+        return info;
+    }
+
+    void run(String userId) {
+        UserInfo summary = pending.remove(userId);
+        if (summary == null) {
+            return;
+        }
+        try {
+            long posts = rewrite(userId, summary, Post.class, Post::getId);
+            long comments = rewrite(userId, summary, Comment.class, Comment::getId);
+            if (posts + comments > 0) {
+                evictFeeds();
+            }
+            log.info("Propagated author info for user {}: {} post(s), {} comment(s)", userId, posts, comments);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Author info propagation failed for user {}", userId, e);
+        }
+    }
+
+    private <T> long rewrite(String userId, UserInfo summary, Class<T> entityClass, Function<T, String> idOf)
+            throws InterruptedException {
+        long rewritten = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Query stale = new Query(Criteria.where("userId").is(userId).orOperator(
+                    Criteria.where("userInfo").exists(false),
+                    Criteria.where("userInfo.name").ne(summary.getName()),
+                    Criteria.where("userInfo.email").ne(summary.getEmail()),
+                    Criteria.where("userInfo.picture").ne(summary.getPicture()),
+                    Criteria.where("userInfo.birthdate").ne(summary.getBirthdate())
+            )).limit(batchSize);
+            stale.fields().include("_id");
+            List<String> ids = mongoTemplate.find(stale, entityClass).stream().map(idOf).toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            rewritten += mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("_id").in(ids)),
+                    new Update().set("userInfo", summary),
+                    entityClass).getModifiedCount();
+            if (ids.size() < batchSize) {
+                break;
+            }
+            if (pauseMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(pauseMs);
+            }
+        }
+        return rewritten;
+    }
+
+    private void evictFeeds() {
+        if (cacheManager == null) {
+            return;
+        }
+        for (String name : FEED_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.agra.agra_backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Multi-key reads and writes against entries owned by the Redis cache manager. {@code @Cacheable}
+ * only works one key at a time; this reads a whole batch with one MGET and back-fills misses with
+ * one MSET, using the same key prefix and value serializer as the cache itself.
+ */
+@Service
+public class CacheBatchReader {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheBatchReader.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCacheConfiguration cacheConfiguration;
+
+    public CacheBatchReader(@Nullable StringRedisTemplate redisTemplate,
+                            @Nullable RedisCacheConfiguration cacheConfiguration) {
+        this.redisTemplate = redisTemplate;
+        this.cacheConfiguration = cacheConfiguration;
+    }
+
+    /**
+     * Cached entries for the given keys. Keys that are not cached are absent from the result; a
+     * cached "no such entity" maps to {@link Optional#empty()}. Returns an empty map when Redis fails.
+     */
+    public <T> Map<String, Optional<T>> getAll(String cacheName, Collection<String> keys, Class<T> type) {
+        Map<String, Optional<T>> found = new HashMap<>();
+        if (redisTemplate == null || cacheConfiguration == null || keys.isEmpty()) {
+            return found;
+        }
+        List<String> ordered = new ArrayList<>(keys);
+        List<String> redisKeys = ordered.stream().map(key -> redisKey(cacheName, key)).toList();
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(redisKeys);
+            for (int i = 0; values != null && i < values.size(); i++) {
+                String raw = values.get(i);
+                if (raw == null) {
+                    continue;
+                }
+                Object value = cacheConfiguration.getValueSerializationPair()
+                        .read(ByteBuffer.wrap(raw.getBytes(StandardCharsets.UTF_8)));
+                if (value instanceof NullValue) {
+                    found.put(ordered.get(i), Optional.empty());
+                } else if (type.isInstance(value)) {
+                    found.put(ordered.get(i), Optional.of(type.cast(value)));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batch read from cache {} failed, loading from the database: {}", cacheName, e.getMessage());
+            found.clear();
+        }
+        return found;
+    }
+
+    /**
+     * Back-fill entries with one MSET. Caches configured with a TTL are written entry by entry so
+     * every key still expires.
+     */
+    public void putAll(String cacheName, Map<String, ?> entries) {
+        if (redisTemplate == null || cacheConfiguration == null || entries.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> serialized = new LinkedHashMap<>();
+            entries.forEach((key, value) -> {
+                ByteBuffer buffer = cacheConfiguration.getValueSerializationPair().write(value);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                serialized.put(redisKey(cacheName, key), new String(bytes, StandardCharsets.UTF_8));
+            });
+            Duration ttl = cacheConfiguration.getTtlFunction().getTimeToLive(Object.class, null);
+            if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+                redisTemplate.opsForValue().multiSet(serialized);
+            } else {
+                serialized.forEach((key, value) -> redisTemplate.opsForValue().set(key, value, ttl));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batch write to cache {} failed: {}", cacheName, e.getMessage());
+        }
+    }
+
+    private String redisKey(String cacheName, String key) {
+        return cacheConfiguration.usePrefix() ? cacheConfiguration.getKeyPrefixFor(cacheName) + key : key;
+    }
+}
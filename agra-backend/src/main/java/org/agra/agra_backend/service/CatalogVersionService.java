@@ -0,0 +1,347 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.TextContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validators for conditional course reads. A catalog version counter moves on every course write,
+ * each course keeps a hash of its stored content, and each user has a likes version that moves when
+ * they like or unlike a course. Controllers turn these into ETags without loading any course data.
+ * <p>
+ * Values live in Redis so every instance agrees; when Redis is unavailable the service falls back to
+ * in-process counters, which only ever cause extra full responses on other instances.
+ */
+@Service
+public class CatalogVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogVersionService.class);
+    static final String CATALOG_KEY = "courses:catalog:version";
+    static final String COURSE_TAG_PREFIX = "courses:catalog:tag:";
+    static final String LIKES_PREFIX = "courses:likes:version:";
+    private static final String[] COURSE_CACHES = {
+            "courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"
+    };
+    private static final String DETAIL_CACHE = "courses:detail";
+    private static final String LESSON_CACHE = "courses:lesson";
+    // Listing caches that still hold whole course documents, lessons included
+    private static final String[] FULL_COURSE_CACHES = {"courses:all", "courses:active", "courses:country", "courses:domain"};
+
+    // Sorted keys so equal content always serializes to the same bytes
+    private static final ObjectMapper HASH_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+    private final AtomicLong localCatalogVersion = new AtomicLong();
+    private final Map<String, String> localCourseTags = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> localLikesVersions = new ConcurrentHashMap<>();
+
+    public CatalogVersionService(@Nullable StringRedisTemplate redisTemplate, @Nullable CacheManager cacheManager) {
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Record a course write. Course caches are cleared before the version moves, so a reader that
+     * sees the new version can only hydrate the new content.
+     */
+    public void courseChanged(Course course) {
+        if (course == null || course.getId() == null) {
+            return;
+        }
+        String tag = contentHash(course);
+        clearCourseCaches();
+        localCourseTags.put(course.getId(), tag);
+        try {
+            if (redisTemplate != null) {
+                redisTemplate.opsForValue().set(COURSE_TAG_PREFIX + course.getId(), tag);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not store content tag for course {}: {}", course.getId(), e.getMessage());
+        }
+        bumpCatalog();
+    }
+
+    /**
+     * Record a write made without the resulting document at hand (deletes, partial updates). The
+     * stored tag is dropped, so detail reads hash the hydrated course until the next full write.
+     */
+    public void courseChanged(String courseId) {
+        if (courseId == null) {
+            return;
+        }
+        clearCourseCaches();
+        localCourseTags.remove(courseId);
+        try {
+            if (redisTemplate != null) {
+                redisTemplate.delete(COURSE_TAG_PREFIX + courseId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not drop content tag for course {}: {}", courseId, e.getMessage());
+        }
+        bumpCatalog();
+    }
+
+    /**
+     * Record an edit to lesson or quiz content. Summaries and listings do not carry lesson bodies, so
+     * only this course's detail entry and the caches holding full course documents are dropped, and
+     * the catalog version stays where it is. With a lesson id only that lesson's cached read is
+     * dropped; without one every cached lesson is.
+     */
+    public void courseContentChanged(String courseId, @Nullable String lessonId) {
+        if (courseId == null) {
+            return;
+        }
+        if (cacheManager != null) {
+            Cache detail = cacheManager.getCache(DETAIL_CACHE);
+            if (detail != null) {
+                detail.evict(courseId);
+            }
+            Cache lessons = cacheManager.getCache(LESSON_CACHE);
+            if (lessons != null) {
+                if (lessonId == null) {
+                    lessons.clear();
+                } else {
+                    lessons.evict(courseId + ":" + lessonId);
+                }
+            }
+            for (String name : FULL_COURSE_CACHES) {
+                Cache cache = cacheManager.getCache(name);
+                if (cache != null) {
+                    cache.clear();
+                }
+            }
+        }
+        localCourseTags.remove(courseId);
+        try {
+            if (redisTemplate != null) {
+                redisTemplate.delete(COURSE_TAG_PREFIX + courseId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not drop content tag for course {}: {}", courseId, e.getMessage());
+        }
+    }
+
+    /**
+     * Record a bulk write of many courses made without going through {@link #courseChanged(Course)}.
+     * Their content tags are dropped in one call, caches are cleared and the catalog version moves
+     * once, however many courses were written.
+     */
+    public void coursesChanged(Collection<String> courseIds) {
+        clearCourseCaches();
+        List<String> keys = new ArrayList<>(courseIds.size());
+        for (String courseId : courseIds) {
+            localCourseTags.remove(courseId);
+            keys.add(COURSE_TAG_PREFIX + courseId);
+        }
+        try {
+            if (redisTemplate != null && !keys.isEmpty()) {
+                redisTemplate.delete(keys);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not drop content tags for {} course(s): {}", keys.size(), e.getMessage());
+        }
+        bumpCatalog();
+    }
+
+    public void likesChanged(String userId) {
+        if (userId == null) {
+            return;
+        }
+        localLikesVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+        try {
+            if (redisTemplate != null) {
+                redisTemplate.opsForValue().increment(LIKES_PREFIX + userId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not bump likes version for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * ETag for a catalog listing. Listings that carry the per-user liked flag pass the user id so the
+     * tag also moves with that user's likes; anonymous and flag-free listings pass {@code null}.
+     */
+    public String catalogEtag(Locale locale, @Nullable String userId) {
+        List<String> values = read(CATALOG_KEY, userId == null ? null : LIKES_PREFIX + userId);
+        if (values == null) {
+            return etag("cL" + localCatalogVersion.get(), locale, userId, localLikes(userId));
+        }
+        return etag("c" + orZero(values.get(0)), locale, userId, orZero(values.get(1)));
+    }
+
+    /**
+     * Writes made through this instance; moves with every {@code courseChanged} call, without I/O.
+     */
+    public long localVersion() {
+        return localCatalogVersion.get();
+    }
+
+    /**
+     * The shared catalog version, or a local one when Redis is unavailable.
+     */
+    public String catalogVersion() {
+        List<String> values = read(CATALOG_KEY, null);
+        return values == null ? "L" + localCatalogVersion.get() : orZero(values.get(0));
+    }
+
+    /**
+     * ETag for a course detail read, or {@code null} when no content tag is stored and the caller has
+     * to hydrate the course and use {@link #courseEtag(Course, Locale, String)} instead.
+     */
+    @Nullable
+    public String courseEtag(String courseId, Locale locale, @Nullable String userId) {
+        List<String> values = read(COURSE_TAG_PREFIX + courseId, userId == null ? null : LIKES_PREFIX + userId);
+        if (values == null) {
+            String tag = localCourseTags.get(courseId);
+            return tag == null ? null : etag(tag, locale, userId, localLikes(userId));
+        }
+        return values.get(0) == null ? null : etag(values.get(0), locale, userId, orZero(values.get(1)));
+    }
+
+    public String courseEtag(Course course, Locale locale, @Nullable String userId) {
+        if (userId == null) {
+            return etag(contentHash(course), locale, null, null);
+        }
+        List<String> values = read(LIKES_PREFIX + userId, null);
+        return etag(contentHash(course), locale, userId, values == null ? localLikes(userId) : orZero(values.get(0)));
+    }
+
+    /**
+     * Weak comparison as RFC 9110 requires for If-None-Match: a {@code W/} prefix on either side is
+     * ignored and {@code *} matches any current representation.
+     */
+    public static boolean matches(@Nullable String ifNoneMatch, @Nullable String etag) {
+        if (ifNoneMatch == null || etag == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String current = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || stripWeak(trimmed).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ETag for a single lesson read, hashed from the stored lesson and the course's default language
+     * (which decides the fallback), so it moves with edits to that lesson and nothing else.
+     */
+    public String lessonEtag(String courseId, @Nullable String defaultLanguage, TextContent lesson, Locale locale) {
+        String fallback = courseId + ":" + lesson.getId() + ":" + System.identityHashCode(lesson);
+        return etag("s" + hash(Arrays.asList(defaultLanguage, lesson), fallback), locale, null, null);
+    }
+
+    static String contentHash(Course course) {
+        // Without a hash the fallback still changes on every write, just not on content alone
+        return hash(course, course.getId() + ":" + (course.getUpdatedAt() == null ? 0 : course.getUpdatedAt().getTime()));
+    }
+
+    private static String hash(Object value, String fallback) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(HASH_MAPPER.writeValueAsBytes(value));
+            return HexFormat.of().formatHex(hash, 0, 12);
+        } catch (NoSuchAlgorithmException | com.fasterxml.jackson.core.JsonProcessingException e) {
+            return HexFormat.of().formatHex(fallback.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String etag(String base, Locale locale, @Nullable String userId, @Nullable String likesVersion) {
+        StringBuilder tag = new StringBuilder("\"").append(base)
+                .append('-').append(locale == null ? "und" : locale.toLanguageTag());
+        if (userId != null) {
+            tag.append("-u").append(Integer.toHexString(userId.hashCode())).append("-l").append(likesVersion);
+        }
+        return tag.append('"').toString();
+    }
+
+    // Local values carry an "L" so they never collide with a Redis-backed version
+    private String localLikes(@Nullable String userId) {
+        AtomicLong version = userId == null ? null : localLikesVersions.get(userId);
+        return "L" + (version == null ? 0 : version.get());
+    }
+
+    private static String orZero(@Nullable String value) {
+        return value == null ? "0" : value;
+    }
+
+    private void bumpCatalog() {
+        localCatalogVersion.incrementAndGet();
+        try {
+            if (redisTemplate != null) {
+                redisTemplate.opsForValue().increment(CATALOG_KEY);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not bump catalog version: {}", e.getMessage());
+        }
+    }
+
+    // One round trip for both validators; null when Redis is unavailable, null entries for missing keys
+    @Nullable
+    private List<String> read(String key, @Nullable String secondKey) {
+        if (redisTemplate == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(2);
+        values.add(null);
+        values.add(null);
+        try {
+            List<String> fetched = secondKey == null
+                    ? redisTemplate.opsForValue().multiGet(List.of(key))
+                    : redisTemplate.opsForValue().multiGet(List.of(key, secondKey));
+            for (int i = 0; fetched != null && i < fetched.size(); i++) {
+                values.set(i, fetched.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.debug("Catalog version read failed, using local values: {}", e.getMessage());
+            return null;
+        }
+        return values;
+    }
+
+    private void clearCourseCaches() {
+        if (cacheManager == null) {
+            return;
+        }
+        for (String name : COURSE_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -125,7 +125,7 @@ public class CertificateService {
         String resolvedUrl = resolveCertificateUrl(progress, certificateUrl);
         progress.setCertificateUrl(resolvedUrl);
 
-        courseProgressRepository.save(progress);
+        courseProgressRepository.updateCertificate(progress.getId(), certificateCode, issuedAt, resolvedUrl);
 
         CertificateRecord record = certificateRecordRepository
                 .findByCourseIdAndUserId(progress.getCourseId(), progress.getUserId())
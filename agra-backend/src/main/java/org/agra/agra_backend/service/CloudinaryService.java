@@ -4,14 +4,26 @@ import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
-public class CloudinaryService {
+public class CloudinaryService implements MediaUploader {
+
+    public static final String RESOURCE_IMAGE = "image";
+    public static final String RESOURCE_VIDEO = "video";
+    public static final String RESOURCE_RAW = "raw";
 
     @Value("${cloudinary.cloud-name}")
     private String cloudName;
@@ -22,8 +34,24 @@ public class CloudinaryService {
     @Value("${cloudinary.api-secret}")
     private String apiSecret;
 
+    // Hard cap checked against the declared multipart size before any byte is read
+    @Value("${cloudinary.upload.max-bytes:104857600}")
+    private long maxUploadBytes = 104_857_600L;
+
+    // Files above this size go through the chunked upload API; one chunk is the largest buffer held per upload
+    @Value("${cloudinary.upload.chunk-size-bytes:6291456}")
+    private int chunkSizeBytes = 6_291_456;
+
+    @Value("${cloudinary.upload.max-concurrent:4}")
+    private int maxConcurrentUploads = 4;
+
+    @Value("${cloudinary.upload.acquire-timeout-ms:30000}")
+    private long uploadAcquireTimeoutMs = 30_000L;
+
     private Cloudinary cloudinary;
 
+    private Semaphore uploadPermits = new Semaphore(4, true);
+
     @PostConstruct
     public void init() {
         this.cloudinary = new Cloudinary(ObjectUtils.asMap(
@@ -31,6 +59,7 @@ public class CloudinaryService {
                 "api_key", apiKey,
                 "api_secret", apiSecret
         ));
+        this.uploadPermits = new Semaphore(Math.max(1, maxConcurrentUploads), true);
 
         System.out.println("Cloudinary initialized successfully!");
         System.out.println("Cloud name: " + cloudName);
@@ -43,8 +72,8 @@ public class CloudinaryService {
     @SuppressWarnings("unchecked")
     public Map<String, Object> uploadImage(MultipartFile file, String uploadPreset) throws IOException {
         try {
-            Map<String, Object> uploadResult = (Map<String, Object>) cloudinary.uploader().upload(
-                    file.getBytes(),
+            Map<String, Object> uploadResult = streamUpload(
+                    file,
                     ObjectUtils.asMap(
                             "upload_preset", uploadPreset,
                             "resource_type", "image"
@@ -120,10 +149,7 @@ public class CloudinaryService {
                 uploadParams.put("folder", normalizedFolderPath);
             }
 
-            Map<String, Object> uploadResult = (Map<String, Object>) cloudinary.uploader().upload(
-                    file.getBytes(),
-                    uploadParams
-            );
+            Map<String, Object> uploadResult = streamUpload(file, uploadParams);
 
             System.out.println("Image uploaded successfully to " +
                     (normalizedFolderPath != null ? normalizedFolderPath : "root") +
@@ -137,6 +163,157 @@ public class CloudinaryService {
         }
     }
 
+    // Upload an image that is already on local disk to a specific folder
+    @Override
+    public Map<String, Object> uploadImageFromDisk(Path file, String folderPath) throws IOException {
+        try {
+            String normalizedFolderPath = normalizeFolderPath(folderPath);
+
+            Map<String, Object> uploadParams = ObjectUtils.asMap(
+                    "upload_preset", "hkpcvcr8",
+                    "resource_type", "image"
+            );
+            if (normalizedFolderPath != null && !normalizedFolderPath.isEmpty()) {
+                uploadParams.put("folder", normalizedFolderPath);
+            }
+
+            Map<String, Object> uploadResult = uploadFromDisk(file, uploadParams);
+
+            System.out.println("Image uploaded successfully from disk to " +
+                    (normalizedFolderPath != null ? normalizedFolderPath : "root") +
+                    ": " + uploadResult.get("secure_url"));
+            return uploadResult;
+
+        } catch (IOException e) {
+            System.err.println("Error uploading image " + file + " to folder " + folderPath + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Upload any file already on local disk, as the given resource type (image, video or raw)
+    public Map<String, Object> uploadFileFromDisk(Path file, String folderPath, String resourceType, String originalName)
+            throws IOException {
+        try {
+            String normalizedFolderPath = normalizeFolderPath(folderPath);
+
+            Map<String, Object> uploadParams = ObjectUtils.asMap(
+                    "upload_preset", "hkpcvcr8",
+                    "resource_type", resourceType
+            );
+            if (RESOURCE_RAW.equals(resourceType)) {
+                // Raw files are delivered as-is, so keep the original name and extension in the public_id
+                uploadParams.put("use_filename", true);
+                uploadParams.put("unique_filename", false);
+                uploadParams.put("public_id", sanitizeFilenameKeepingExtension(originalName, null));
+            }
+            if (normalizedFolderPath != null && !normalizedFolderPath.isEmpty()) {
+                uploadParams.put("folder", normalizedFolderPath);
+            }
+
+            return uploadFromDisk(file, uploadParams);
+
+        } catch (IOException e) {
+            System.err.println("Error uploading " + resourceType + " file " + file + " to folder " + folderPath + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Storage resource type for a file: images as image, video and audio as video (Cloudinary keeps
+     * audio under video), everything else (PDF, office documents, archives) as raw. Falls back to
+     * the file extension when the declared content type is missing or generic.
+     */
+    public static String resourceTypeFor(String contentType, String filename) {
+        MediaType type = null;
+        if (contentType != null && !contentType.isBlank()) {
+            try {
+                type = MediaType.parseMediaType(contentType);
+            } catch (InvalidMediaTypeException e) {
+                type = null;
+            }
+        }
+        if ((type == null || MediaType.APPLICATION_OCTET_STREAM.includes(type)) && filename != null) {
+            type = MediaTypeFactory.getMediaType(filename).orElse(type);
+        }
+        if (type == null) {
+            return RESOURCE_RAW;
+        }
+        // SVG can carry script; keep it out of the image pipeline
+        if ("image".equals(type.getType()) && !type.getSubtype().contains("svg")) {
+            return RESOURCE_IMAGE;
+        }
+        if ("video".equals(type.getType()) || "audio".equals(type.getType())) {
+            return RESOURCE_VIDEO;
+        }
+        return RESOURCE_RAW;
+    }
+
+    /**
+     * Streams a multipart file to Cloudinary without materializing it as a byte array.
+     * Small files are spooled to a temp file and sent from disk; files larger than one chunk
+     * use the chunked upload API so at most one chunk is buffered per in-flight upload.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> streamUpload(MultipartFile file, Map<String, Object> uploadParams) throws IOException {
+        long size = file.getSize();
+        enforceSizeLimit(size);
+
+        acquireUploadPermit();
+        try {
+            if (size > chunkSizeBytes) {
+                try (InputStream in = file.getInputStream()) {
+                    return (Map<String, Object>) cloudinary.uploader().uploadLarge(in, uploadParams, chunkSizeBytes);
+                }
+            }
+            Path spooled = Files.createTempFile("cloudinary-upload-", ".part");
+            try {
+                file.transferTo(spooled);
+                return (Map<String, Object>) cloudinary.uploader().upload(spooled.toFile(), uploadParams);
+            } finally {
+                Files.deleteIfExists(spooled);
+            }
+        } finally {
+            uploadPermits.release();
+        }
+    }
+
+    // Same as streamUpload, for files that already live on local disk (e.g. the media spool)
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> uploadFromDisk(Path file, Map<String, Object> uploadParams) throws IOException {
+        long size = Files.size(file);
+        enforceSizeLimit(size);
+
+        acquireUploadPermit();
+        try {
+            if (size > chunkSizeBytes) {
+                return (Map<String, Object>) cloudinary.uploader().uploadLarge(file.toFile(), uploadParams, chunkSizeBytes);
+            }
+            return (Map<String, Object>) cloudinary.uploader().upload(file.toFile(), uploadParams);
+        } finally {
+            uploadPermits.release();
+        }
+    }
+
+    private void enforceSizeLimit(long size) throws UploadLimitExceededException {
+        if (size > maxUploadBytes) {
+            throw new UploadLimitExceededException(
+                    "File exceeds the maximum upload size of " + maxUploadBytes + " bytes (got " + size + ")");
+        }
+    }
+
+    private void acquireUploadPermit() throws IOException {
+        try {
+            if (!uploadPermits.tryAcquire(uploadAcquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new UploadSlotUnavailableException(
+                        "Too many concurrent uploads, try again later (limit=" + maxConcurrentUploads + ")",
+                        Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(uploadAcquireTimeoutMs + 999)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an upload slot", e);
+        }
+    }
+
     private String normalizeFolderPath(String folderPath) {
         if (folderPath == null || folderPath.trim().isEmpty()) {
             return null;
@@ -153,21 +330,7 @@ public class CloudinaryService {
     @SuppressWarnings("unchecked")
     public Map<String, Object> uploadProfilePicture(MultipartFile file, String userEmail) throws IOException {
         try {
-            String sanitizedEmail = userEmail.replaceAll("[^a-zA-Z0-9]", "_").toLowerCase();
-            String folderPath = "users/" + sanitizedEmail;
-
-            Map<String, Object> uploadResult = (Map<String, Object>) cloudinary.uploader().upload(
-                    file.getBytes(),
-                    ObjectUtils.asMap(
-                            "upload_preset", "hkpcvcr8",
-                            "folder", folderPath,
-                            "public_id", "profilepic",
-                            "resource_type", "image",
-                            "overwrite", true,
-                            "unique_filename", false,
-                            "use_filename", false
-                    )
-            );
+            Map<String, Object> uploadResult = streamUpload(file, profilePictureParams(userEmail));
 
             System.out.println("Profile picture uploaded successfully for user: " + userEmail +
                     " -> " + uploadResult.get("secure_url"));
@@ -179,6 +342,34 @@ public class CloudinaryService {
         }
     }
 
+    // Same as uploadProfilePicture, for a picture already downscaled to local disk
+    public Map<String, Object> uploadProfilePictureFromDisk(Path file, String userEmail) throws IOException {
+        try {
+            Map<String, Object> uploadResult = uploadFromDisk(file, profilePictureParams(userEmail));
+
+            System.out.println("Profile picture uploaded successfully from disk for user: " + userEmail +
+                    " -> " + uploadResult.get("secure_url"));
+            return uploadResult;
+
+        } catch (IOException e) {
+            System.err.println("Error uploading profile picture for user " + userEmail + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private Map<String, Object> profilePictureParams(String userEmail) {
+        String sanitizedEmail = userEmail.replaceAll("[^a-zA-Z0-9]", "_").toLowerCase();
+        return ObjectUtils.asMap(
+                "upload_preset", "hkpcvcr8",
+                "folder", "users/" + sanitizedEmail,
+                "public_id", "profilepic",
+                "resource_type", "image",
+                "overwrite", true,
+                "unique_filename", false,
+                "use_filename", false
+        );
+    }
+
     @SuppressWarnings("unchecked")
     public Map<String, Object> uploadTicketAttachment(MultipartFile file, String userId, String ticketId) throws IOException {
         try {
@@ -187,8 +378,8 @@ public class CloudinaryService {
             String folderPath = "tickets/" + safeUser + "/" + safeTicket;
             String publicId = buildTicketAttachmentPublicId(file.getOriginalFilename());
 
-            Map<String, Object> uploadResult = (Map<String, Object>) cloudinary.uploader().upload(
-                    file.getBytes(),
+            Map<String, Object> uploadResult = streamUpload(
+                    file,
                     ObjectUtils.asMap(
                             "upload_preset", "hkpcvcr8",
                             "folder", folderPath,
@@ -237,10 +428,7 @@ public class CloudinaryService {
                     + ", name=" + file.getOriginalFilename()
                     + ", contentType=" + file.getContentType()
                     + ", size=" + file.getSize() + " bytes");
-            Map<String, Object> uploadResult = (Map<String, Object>) cloudinary.uploader().upload(
-                    file.getBytes(),
-                    uploadParams
-            );
+            Map<String, Object> uploadResult = streamUpload(file, uploadParams);
 
             System.out.println("Raw file uploaded successfully to " +
                     (normalizedFolderPath != null ? normalizedFolderPath : "root") +
@@ -318,10 +506,7 @@ public class CloudinaryService {
                 uploadParams.put("folder", normalizedFolderPath);
             }
 
-            Map<String, Object> uploadResult = (Map<String, Object>) cloudinary.uploader().upload(
-                    file.getBytes(),
-                    uploadParams
-            );
+            Map<String, Object> uploadResult = streamUpload(file, uploadParams);
 
             System.out.println("Auto resource uploaded successfully to " +
                     (normalizedFolderPath != null ? normalizedFolderPath : "root") +
@@ -351,6 +536,16 @@ public class CloudinaryService {
         }
     }
 
+    // Delete an asset of the given resource type (image, video or raw) by publicId
+    @SuppressWarnings("unchecked")
+    public String deleteAsset(String publicId, String resourceType) throws IOException {
+        Map<String, Object> result = (Map<String, Object>) cloudinary.uploader().destroy(
+                publicId,
+                ObjectUtils.asMap("resource_type", resourceType)
+        );
+        return String.valueOf(result.get("result"));
+    }
+
     // Upload a profile picture from a remote URL into the user's folder
     @SuppressWarnings("unchecked")
     public Map<String, Object> uploadProfilePictureFromUrl(String imageUrl, String userEmail) throws IOException {
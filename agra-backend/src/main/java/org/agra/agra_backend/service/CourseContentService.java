@@ -0,0 +1,247 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.TextContentTranslation;
+import org.agra.agra_backend.payload.ContentPatchResult;
+import org.agra.agra_backend.payload.CourseTranslationPatch;
+import org.agra.agra_backend.payload.LessonPatch;
+import org.agra.agra_backend.payload.QuizQuestionPatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * In-place edits of single lessons, quiz questions and course translations.
+ * <p>
+ * Each edit is one {@code findAndModify} that {@code $set}s only the touched paths, addressing the
+ * lesson and question through array filters ({@code textContent.$[lesson]}), so the rest of the
+ * course is never rewritten. The course {@code version} is matched in the same filter and
+ * incremented by the update: two editors holding the same version cannot both win, and the loser
+ * gets a 409 instead of silently overwriting the other's change.
+ */
+@Service
+public class CourseContentService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseContentService.class);
+    private static final String LESSON = "textContent.$[lesson].";
+    private static final String QUESTION = LESSON + "quizQuestions.$[question].";
+    // Language keys become part of a field path, so nothing but a language tag may get through
+    private static final Pattern LANGUAGE_KEY = Pattern.compile("[A-Za-z]{2,8}([-_][A-Za-z0-9]{1,8})*");
+    private static final String[] VERSIONED_CACHES = {"courses:all", "courses:detail", "courses:active", "courses:country", "courses:domain", "courses:lesson"};
+
+    private final MongoTemplate mongoTemplate;
+    private final CatalogVersionService catalogVersionService;
+    private final CacheManager cacheManager;
+
+    public CourseContentService(MongoTemplate mongoTemplate,
+                                @Nullable CatalogVersionService catalogVersionService,
+                                @Nullable CacheManager cacheManager) {
+        this.mongoTemplate = mongoTemplate;
+        this.catalogVersionService = catalogVersionService;
+        this.cacheManager = cacheManager;
+    }
+
+    public ContentPatchResult patchLesson(String courseId, String lessonId, LessonPatch patch) {
+        if (patch == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Patch body is required");
+        }
+        Update update = new Update();
+        if (patch.getType() != null) {
+            update.set(LESSON + "type", patch.getType());
+        }
+        if (patch.getOrder() != null) {
+            update.set(LESSON + "order", patch.getOrder());
+        }
+        // Same precedence as a full save: the plain maps win over the translation objects
+        mergedByLanguage(patch.getTitle(), patch.getTranslations(), TextContentTranslation::getTitle)
+                .forEach((language, title) -> update.set(LESSON + "title." + language, title)
+                        .set(LESSON + "translations." + language + ".title", title));
+        mergedByLanguage(patch.getContent(), patch.getTranslations(), TextContentTranslation::getContent)
+                .forEach((language, content) -> update.set(LESSON + "content." + language, content)
+                        .set(LESSON + "translations." + language + ".content", content));
+        requireChanges(update);
+        update.filterArray(Criteria.where("lesson._id").is(lessonId));
+
+        Criteria match = Criteria.where("_id").is(courseId).and("textContent._id").is(lessonId);
+        ContentPatchResult result = apply(match, update, patch.getVersion(), "Lesson not found");
+        if (catalogVersionService != null) {
+            catalogVersionService.courseContentChanged(courseId, lessonId);
+        }
+        return result;
+    }
+
+    public ContentPatchResult patchQuizQuestion(String courseId, String lessonId, String questionId, QuizQuestionPatch patch) {
+        if (patch == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Patch body is required");
+        }
+        Update update = new Update();
+        byLanguage(patch.getQuestion())
+                .forEach((language, text) -> update.set(QUESTION + "question." + language, text));
+        if (patch.getAnswers() != null) {
+            update.set(QUESTION + "answers", normalizeAnswers(patch.getAnswers()));
+        }
+        requireChanges(update);
+        update.filterArray(Criteria.where("lesson._id").is(lessonId))
+                .filterArray(Criteria.where("question._id").is(questionId));
+
+        Criteria match = Criteria.where("_id").is(courseId).and("textContent").elemMatch(
+                Criteria.where("_id").is(lessonId).and("quizQuestions._id").is(questionId));
+        ContentPatchResult result = apply(match, update, patch.getVersion(), "Quiz question not found");
+        if (catalogVersionService != null) {
+            catalogVersionService.courseContentChanged(courseId, lessonId);
+        }
+        return result;
+    }
+
+    public ContentPatchResult patchTranslation(String courseId, String language, CourseTranslationPatch patch) {
+        if (patch == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Patch body is required");
+        }
+        String key = requireLanguage(language);
+        Update update = new Update();
+        if (patch.getTitle() != null) {
+            update.set("translations." + key + ".title", patch.getTitle());
+        }
+        if (patch.getDescription() != null) {
+            update.set("translations." + key + ".description", patch.getDescription());
+        }
+        if (patch.getGoals() != null) {
+            update.set("translations." + key + ".goals", patch.getGoals());
+        }
+        requireChanges(update);
+
+        ContentPatchResult result = apply(Criteria.where("_id").is(courseId), update, patch.getVersion(), "Course not found");
+        // Titles and descriptions feed summaries and listings, so this is a catalog-wide change
+        if (catalogVersionService != null) {
+            catalogVersionService.courseChanged(courseId);
+        }
+        return result;
+    }
+
+    /**
+     * Courses stored before the version field existed would be treated as new by {@code save} and
+     * re-inserted; give them a starting version and drop cached copies that lack one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillVersions() {
+        try {
+            long updated = mongoTemplate.updateMulti(Query.query(Criteria.where("version").exists(false)),
+                    new Update().set("version", 0L), Course.class).getModifiedCount();
+            if (updated > 0) {
+                log.info("Initialized version on {} course(s)", updated);
+                clearVersionedCaches();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not initialize course versions: {}", e.getMessage());
+        }
+    }
+
+    private ContentPatchResult apply(Criteria match, Update update, @Nullable Long expectedVersion, String notFound) {
+        Query query = new Query(match);
+        if (expectedVersion != null) {
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        }
+        query.fields().include("version").include("updatedAt");
+        update.inc("version", 1).set("updatedAt", new Date());
+
+        Course updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Course.class);
+        if (updated == null) {
+            if (expectedVersion != null && mongoTemplate.exists(new Query(match), Course.class)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Course was modified by another editor; reload and retry");
+            }
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, notFound);
+        }
+        return new ContentPatchResult(updated.getId(), updated.getVersion(), updated.getUpdatedAt());
+    }
+
+    private static <T> Map<String, String> mergedByLanguage(@Nullable Map<String, String> values,
+                                                            @Nullable Map<String, T> translations,
+                                                            Function<T, String> field) {
+        Map<String, String> merged = byLanguage(values);
+        if (translations != null) {
+            translations.forEach((language, translation) -> {
+                String value = translation == null ? null : field.apply(translation);
+                if (value != null) {
+                    merged.putIfAbsent(requireLanguage(language), value);
+                }
+            });
+        }
+        return merged;
+    }
+
+    // Non-null values keyed by validated language
+    private static Map<String, String> byLanguage(@Nullable Map<String, String> values) {
+        Map<String, String> checked = new LinkedHashMap<>();
+        if (values != null) {
+            values.forEach((language, value) -> {
+                if (value != null) {
+                    checked.put(requireLanguage(language), value);
+                }
+            });
+        }
+        return checked;
+    }
+
+    private static List<QuizAnswer> normalizeAnswers(List<QuizAnswer> answers) {
+        List<QuizAnswer> normalized = new ArrayList<>(answers.size());
+        for (QuizAnswer answer : answers) {
+            if (answer == null) {
+                continue;
+            }
+            if (answer.getId() == null || answer.getId().isEmpty()) {
+                answer.setId(UUID.randomUUID().toString());
+            }
+            answer.setText(new HashMap<>(byLanguage(answer.getText())));
+            normalized.add(answer);
+        }
+        return normalized;
+    }
+
+    private static String requireLanguage(String language) {
+        if (language == null || !LANGUAGE_KEY.matcher(language).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid language key: " + language);
+        }
+        return language;
+    }
+
+    private static void requireChanges(Update update) {
+        if (update.getUpdateObject().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nothing to update");
+        }
+    }
+
+    private void clearVersionedCaches() {
+        if (cacheManager == null) {
+            return;
+        }
+        for (String name : VERSIONED_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
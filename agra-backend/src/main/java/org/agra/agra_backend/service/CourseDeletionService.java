@@ -0,0 +1,181 @@
+package org.agra.agra_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.agra.agra_backend.model.CertificateRecord;
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.Like;
+import org.agra.agra_backend.model.Session;
+import org.agra.agra_backend.payload.CourseDeletionProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Removes everything that belongs to a deleted course: enrollments, likes, certificates and sessions.
+ * <p>
+ * Work runs on a single background thread so the delete request returns as soon as the course
+ * document is gone. Each collection is cleared in batches of {@code batchSize} ids, one
+ * {@code deleteMany} per batch with a pause in between, and the running totals are kept per course
+ * so admins can follow the cascade. A failed cascade can be re-run; every step only deletes what is
+ * still left. Heartbeats still buffered for the course's enrollments are dropped once they are gone,
+ * and so is the course's lesson ordinal mapping, which nothing references any more.
+ */
+@Service
+public class CourseDeletionService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final Logger log = LoggerFactory.getLogger(CourseDeletionService.class);
+    private static final int MAX_TRACKED_JOBS = 200;
+
+    private final MongoTemplate mongoTemplate;
+    private final LessonOrdinalService lessonOrdinalService;
+    private final ProgressWriteBuffer progressWriteBuffer;
+    private final int batchSize;
+    private final long pauseMs;
+    private final ExecutorService executor;
+    private final Map<String, CourseDeletionProgress> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CourseDeletionProgress> eldest) {
+                    return size() > MAX_TRACKED_JOBS;
+                }
+            });
+
+    public CourseDeletionService(MongoTemplate mongoTemplate,
+                                 LessonOrdinalService lessonOrdinalService,
+                                 @Value("${courses.deletion.batch-size:1000}") int batchSize,
+                                 @Value("${courses.deletion.pause-ms:50}") long pauseMs,
+                                 @Nullable ProgressWriteBuffer progressWriteBuffer) {
+        this.mongoTemplate = mongoTemplate;
+        this.lessonOrdinalService = lessonOrdinalService;
+        this.progressWriteBuffer = progressWriteBuffer;
+        this.batchSize = Math.max(1, batchSize);
+        this.pauseMs = Math.max(0L, pauseMs);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "course-deletion-cascade");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue the cascade for a course whose document has already been deleted. Returns immediately.
+     */
+    public CourseDeletionProgress cascade(String courseId) {
+        CourseDeletionProgress progress = new CourseDeletionProgress(courseId, STATUS_QUEUED,
+                new LinkedHashMap<>(), new Date(), null, null);
+        jobs.put(courseId, progress);
+        try {
+            executor.execute(() -> run(courseId));
+        } catch (RejectedExecutionException e) {
+            finish(progress, STATUS_FAILED, "executor shut down");
+            log.warn("Course deletion cascade rejected for course {}: executor shut down", courseId);
+        }
+        return snapshot(progress);
+    }
+
+    public Optional<CourseDeletionProgress> getProgress(String courseId) {
+        CourseDeletionProgress progress = jobs.get(courseId);
+        return progress == null ? Optional.empty() : Optional.of(snapshot(progress));
+    }
+
+    void run(String courseId) {
+        CourseDeletionProgress progress = jobs.get(courseId);
+        if (progress == null) {
+            return;
+        }
+        synchronized (progress) {
+            progress.setStatus(STATUS_RUNNING);
+        }
+        try {
+            deleteInBatches(progress, "course_progress", CourseProgress.class, CourseProgress::getId,
+                    Criteria.where("courseId").is(courseId));
+            if (progressWriteBuffer != null) {
+                progressWriteBuffer.discardCourse(courseId);
+            }
+            lessonOrdinalService.forget(courseId);
+            deleteInBatches(progress, "likes", Like.class, Like::getId,
+                    Criteria.where("targetType").is(CourseLikeService.TARGET_TYPE_COURSE).and("targetId").is(courseId));
+            deleteInBatches(progress, "certificates", CertificateRecord.class, CertificateRecord::getId,
+                    Criteria.where("courseId").is(courseId));
+            deleteInBatches(progress, "sessions", Session.class, Session::getId,
+                    Criteria.where("courseId").is(courseId));
+            finish(progress, STATUS_COMPLETED, null);
+            log.info("Course deletion cascade for {} completed: {}", courseId, progress.getDeleted());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(progress, STATUS_FAILED, "interrupted");
+        } catch (Exception e) {
+            finish(progress, STATUS_FAILED, e.getMessage());
+            log.error("Course deletion cascade failed for course {}", courseId, e);
+        }
+    }
+
+    private <T> void deleteInBatches(CourseDeletionProgress progress, String label, Class<T> entityClass,
+                                     Function<T, String> idOf, Criteria criteria) throws InterruptedException {
+        synchronized (progress) {
+            progress.getDeleted().put(label, 0L);
+        }
+        while (!Thread.currentThread().isInterrupted()) {
+            Query batch = new Query(criteria).limit(batchSize);
+            batch.fields().include("_id");
+            List<String> ids = mongoTemplate.find(batch, entityClass).stream().map(idOf).toList();
+            if (ids.isEmpty()) {
+                return;
+            }
+            long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), entityClass).getDeletedCount();
+            synchronized (progress) {
+                progress.getDeleted().merge(label, removed, Long::sum);
+            }
+            if (ids.size() < batchSize) {
+                return;
+            }
+            if (pauseMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(pauseMs);
+            }
+        }
+        throw new InterruptedException();
+    }
+
+    private static void finish(CourseDeletionProgress progress, String status, String error) {
+        synchronized (progress) {
+            progress.setStatus(status);
+            progress.setError(error);
+            progress.setFinishedAt(new Date());
+        }
+    }
+
+    private static CourseDeletionProgress snapshot(CourseDeletionProgress progress) {
+        synchronized (progress) {
+            return new CourseDeletionProgress(progress.getCourseId(), progress.getStatus(),
+                    new LinkedHashMap<>(progress.getDeleted()), progress.getStartedAt(), progress.getFinishedAt(),
+                    progress.getError());
+        }
+    }
+}
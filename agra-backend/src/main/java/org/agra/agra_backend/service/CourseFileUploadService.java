@@ -0,0 +1,356 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.dao.UploadSessionRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseFile;
+import org.agra.agra_backend.model.UploadSession;
+import org.agra.agra_backend.payload.UploadInitRequest;
+import org.agra.agra_backend.payload.UploadStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable uploads for course files: init declares the file, chunks are PUT at explicit offsets
+ * into a local spool file, and complete hands the assembled file to storage as the resource type
+ * its MIME type calls for.
+ * <p>
+ * Every chunk carries its SHA-256 and is only counted once it matches, so {@code receivedBytes} is
+ * always a verified prefix. A client that loses its connection asks for the status and continues
+ * from there; resending a chunk at an earlier offset replaces everything after it.
+ */
+@Service
+public class CourseFileUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseFileUploadService.class);
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+    private static final String SPOOL_SUFFIX = ".part";
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final CourseService courseService;
+    private final CloudinaryService cloudinaryService;
+    private final Path spoolRoot;
+    private final long maxBytes;
+    private final int maxChunkBytes;
+    private final long ttlMs;
+    // Chunks of one upload are written one at a time; the spool lives on this instance anyway
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public CourseFileUploadService(UploadSessionRepository uploadSessionRepository,
+                                   CourseService courseService,
+                                   CloudinaryService cloudinaryService,
+                                   @Value("${courses.uploads.spool-dir:${java.io.tmpdir}/agra-upload-spool}") String spoolDir,
+                                   @Value("${cloudinary.upload.max-bytes:104857600}") long maxBytes,
+                                   @Value("${courses.uploads.max-chunk-bytes:8388608}") int maxChunkBytes,
+                                   @Value("${courses.uploads.ttl-hours:24}") long ttlHours) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.courseService = courseService;
+        this.cloudinaryService = cloudinaryService;
+        this.spoolRoot = Paths.get(spoolDir);
+        this.maxBytes = maxBytes;
+        this.maxChunkBytes = Math.max(1, maxChunkBytes);
+        this.ttlMs = TimeUnit.HOURS.toMillis(Math.max(1, ttlHours));
+    }
+
+    public UploadStatus start(String courseId, UploadInitRequest request) throws IOException {
+        if (courseService.getCourseById(courseId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found");
+        }
+        if (request.getSize() > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File exceeds the maximum upload size of " + maxBytes + " bytes");
+        }
+        Date now = new Date();
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setCourseId(courseId);
+        session.setFilename(request.getFilename());
+        session.setContentType(request.getContentType());
+        session.setResourceType(CloudinaryService.resourceTypeFor(request.getContentType(), request.getFilename()));
+        session.setSize(request.getSize());
+        session.setSha256(request.getSha256() == null ? null : request.getSha256().toLowerCase());
+        session.setCreatedAt(now);
+        session.setExpiresAt(new Date(now.getTime() + ttlMs));
+
+        Files.createDirectories(spoolRoot);
+        Files.createFile(spoolPath(session.getId()));
+        UploadSession saved = uploadSessionRepository.save(session);
+        log.info("Upload {} started for course {}: {} ({} bytes, {})", saved.getId(), courseId,
+                saved.getFilename(), saved.getSize(), saved.getResourceType());
+        return toStatus(saved);
+    }
+
+    public UploadStatus status(String courseId, String uploadId) {
+        return toStatus(find(courseId, uploadId));
+    }
+
+    /**
+     * Write one chunk at {@code offset}, which may not be past the bytes already received. The chunk
+     * only counts if its SHA-256 matches {@code checksum}; otherwise the upload is rolled back to
+     * {@code offset} and the chunk can be sent again.
+     */
+    public UploadStatus writeChunk(String courseId, String uploadId, long offset, InputStream body, String checksum)
+            throws IOException {
+        if (checksum == null || !SHA256_HEX.matcher(checksum).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk checksum must be a hex SHA-256");
+        }
+        synchronized (lock(uploadId)) {
+            UploadSession session = find(courseId, uploadId);
+            if (offset < 0 || offset > session.getReceivedBytes()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Chunk offset " + offset + " is past the " + session.getReceivedBytes() + " bytes received");
+            }
+            Path spool = existingSpool(uploadId);
+            long limit = Math.min(maxChunkBytes, session.getSize() - offset);
+            long written;
+            try {
+                written = write(spool, offset, body, limit, checksum);
+            } catch (IOException | RuntimeException e) {
+                truncate(spool, offset);
+                if (session.getReceivedBytes() != offset) {
+                    session.setReceivedBytes(offset);
+                    uploadSessionRepository.save(session);
+                }
+                throw e;
+            }
+            session.setReceivedBytes(offset + written);
+            session.setExpiresAt(new Date(System.currentTimeMillis() + ttlMs));
+            return toStatus(uploadSessionRepository.save(session));
+        }
+    }
+
+    /**
+     * Verify the assembled file, upload it to storage and attach it to the course. A storage
+     * failure leaves the upload in place so completion can be retried.
+     */
+    public CourseFile complete(String courseId, String uploadId) throws IOException {
+        synchronized (lock(uploadId)) {
+            UploadSession session = find(courseId, uploadId);
+            if (session.getReceivedBytes() != session.getSize()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Upload incomplete: received " + session.getReceivedBytes() + " of " + session.getSize() + " bytes");
+            }
+            Path spool = existingSpool(uploadId);
+            if (session.getSha256() != null && !session.getSha256().equals(sha256(spool))) {
+                discard(session.getId());
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Assembled file does not match the declared checksum; start the upload again");
+            }
+
+            Map<String, Object> result = cloudinaryService.uploadFileFromDisk(spool, "courses/" + courseId + "/files",
+                    session.getResourceType(), session.getFilename());
+            CourseFile courseFile = new CourseFile(
+                    UUID.randomUUID().toString(),
+                    session.getFilename(),
+                    fileType(result.get("format"), session.getFilename()),
+                    (String) result.get("secure_url"),
+                    (String) result.get("public_id"),
+                    session.getSize(),
+                    new Date()
+            );
+            Optional<Course> course;
+            try {
+                course = courseService.addFile(courseId, courseFile);
+            } catch (RuntimeException e) {
+                // The spool and session stay, so the completion can be retried
+                deleteUploaded(courseFile, session.getResourceType());
+                throw e;
+            }
+            if (course.isEmpty()) {
+                deleteUploaded(courseFile, session.getResourceType());
+                discard(session.getId());
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found");
+            }
+
+            discard(session.getId());
+            log.info("Upload {} completed for course {}: {} stored as {} at {}", uploadId, courseId,
+                    session.getFilename(), session.getResourceType(), courseFile.getUrl());
+            return courseFile;
+        }
+    }
+
+    // Best effort: an asset that could not be attached must not linger unreferenced in storage
+    private void deleteUploaded(CourseFile courseFile, String resourceType) {
+        if (courseFile.getPublicId() == null) {
+            return;
+        }
+        try {
+            cloudinaryService.deleteAsset(courseFile.getPublicId(), resourceType);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete unattached upload {}: {}", courseFile.getPublicId(), e.getMessage());
+        }
+    }
+
+    public void abort(String courseId, String uploadId) {
+        synchronized (lock(uploadId)) {
+            discard(find(courseId, uploadId).getId());
+        }
+    }
+
+    /**
+     * Delete expired upload sessions and the spool files nobody has written to within the upload TTL.
+     * Auto index creation is off, so the TTL annotation on {@link UploadSession} does not expire them.
+     */
+    @Scheduled(fixedDelayString = "${courses.uploads.sweep-ms:3600000}", initialDelayString = "${courses.uploads.sweep-ms:3600000}")
+    public void sweep() {
+        try {
+            long expired = uploadSessionRepository.deleteByExpiresAtBefore(new Date());
+            if (expired > 0) {
+                log.debug("Deleted {} expired upload session(s)", expired);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not delete expired upload sessions: {}", e.getMessage());
+        }
+        if (!Files.isDirectory(spoolRoot)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolRoot, "*" + SPOOL_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    String uploadId = file.getFileName().toString().replace(SPOOL_SUFFIX, "");
+                    Files.deleteIfExists(file);
+                    locks.remove(uploadId);
+                    log.debug("Deleted abandoned upload spool {}", file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep upload spool {}: {}", spoolRoot, e.getMessage());
+        }
+    }
+
+    private long write(Path spool, long offset, InputStream body, long limit, String checksum) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+            // Anything after the offset is unverified or about to be replaced
+            channel.truncate(offset);
+            channel.position(offset);
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (written + read > limit) {
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            "Chunk is larger than " + limit + " bytes (max chunk size or the rest of the file)");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                written += read;
+            }
+        }
+        if (written == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk is empty");
+        }
+        if (!HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(checksum)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk checksum mismatch");
+        }
+        return written;
+    }
+
+    private UploadSession find(String courseId, String uploadId) {
+        Optional<UploadSession> session = uploadSessionRepository.findById(uploadId);
+        if (session.isEmpty() || !courseId.equals(session.get().getCourseId())
+                || (session.get().getExpiresAt() != null && session.get().getExpiresAt().before(new Date()))) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found");
+        }
+        return session.get();
+    }
+
+    private Path existingSpool(String uploadId) {
+        Path spool = spoolPath(uploadId);
+        if (!Files.isRegularFile(spool)) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Upload data is no longer available; start the upload again");
+        }
+        return spool;
+    }
+
+    private void discard(String uploadId) {
+        try {
+            Files.deleteIfExists(spoolPath(uploadId));
+        } catch (IOException e) {
+            log.warn("Could not delete upload spool for {}: {}", uploadId, e.getMessage());
+        }
+        uploadSessionRepository.deleteById(uploadId);
+        locks.remove(uploadId);
+    }
+
+    private UploadStatus toStatus(UploadSession session) {
+        return new UploadStatus(session.getId(), session.getCourseId(), session.getFilename(), session.getResourceType(),
+                session.getSize(), session.getReceivedBytes(), maxChunkBytes, session.getExpiresAt());
+    }
+
+    private Object lock(String uploadId) {
+        return locks.computeIfAbsent(uploadId, id -> new Object());
+    }
+
+    private Path spoolPath(String uploadId) {
+        // Ids come from UUID.randomUUID(), so they are safe as file names
+        return spoolRoot.resolve(uploadId + SPOOL_SUFFIX);
+    }
+
+    private static void truncate(Path spool, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Storage's format when it reports one, otherwise the file's extension
+    private static String fileType(Object format, String filename) {
+        if (format != null && !format.toString().isBlank()) {
+            return format.toString().toLowerCase();
+        }
+        int dot = filename == null ? -1 : filename.lastIndexOf('.');
+        if (dot > 0 && dot < filename.length() - 1 && filename.length() - dot <= 11) {
+            return filename.substring(dot + 1).toLowerCase();
+        }
+        return "file";
+    }
+}
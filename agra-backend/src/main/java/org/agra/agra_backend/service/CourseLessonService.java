@@ -0,0 +1,181 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.QuizQuestion;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.model.TextContentTranslation;
+import org.agra.agra_backend.payload.CourseOutline;
+import org.agra.agra_backend.payload.LessonOutline;
+import org.agra.agra_backend.payload.LessonView;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Lazy course reads for the player: an outline with lesson headings only, and single lessons
+ * fetched on demand.
+ * <p>
+ * A lesson is read with an {@code $elemMatch} projection, so Mongo returns one element of
+ * {@code textContent} instead of the whole course, and the result is cached per lesson.
+ */
+@Service
+public class CourseLessonService {
+
+    static final String LESSON_CACHE = "courses:lesson";
+    private static final int WORDS_PER_MINUTE = 200;
+    private static final int SECONDS_PER_QUESTION = 30;
+    private static final Pattern TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MongoTemplate mongoTemplate;
+    private final CourseService courseService;
+
+    public CourseLessonService(MongoTemplate mongoTemplate, CourseService courseService) {
+        this.mongoTemplate = mongoTemplate;
+        this.courseService = courseService;
+    }
+
+    /**
+     * The course with only the requested lesson in {@code textContent}, plus the fields needed to
+     * localize it. Empty when the course or the lesson does not exist.
+     */
+    @Cacheable(cacheNames = LESSON_CACHE, key = "#courseId + ':' + #lessonId")
+    public Optional<Course> getLesson(String courseId, String lessonId) {
+        Query query = Query.query(Criteria.where("_id").is(courseId));
+        query.fields().include("defaultLanguage").include("version").include("updatedAt")
+                .elemMatch("textContent", Criteria.where("_id").is(lessonId));
+        Course course = mongoTemplate.findOne(query, Course.class);
+        if (course == null || course.getTextContent() == null || course.getTextContent().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(course);
+    }
+
+    public Optional<CourseOutline> getOutline(String courseId, Locale locale) {
+        return courseService.getCourseById(courseId).map(course -> outline(course, locale));
+    }
+
+    CourseOutline outline(Course course, Locale locale) {
+        Course localized = courseService.localizeCourse(course, locale);
+        List<LessonOutline> lessons = new ArrayList<>();
+        int totalMinutes = 0;
+        if (course.getTextContent() != null) {
+            for (TextContent lesson : course.getTextContent()) {
+                if (lesson == null) {
+                    continue;
+                }
+                String language = resolveLanguage(lesson, locale, course.getDefaultLanguage());
+                int minutes = estimatedMinutes(lesson, language);
+                totalMinutes += minutes;
+                lessons.add(new LessonOutline(lesson.getId(), lesson.getOrder(), lesson.getType(),
+                        text(lesson.getTitle(), lesson.getTranslations(), TextContentTranslation::getTitle, language),
+                        lesson.getQuizQuestions() == null ? 0 : lesson.getQuizQuestions().size(), minutes));
+            }
+        }
+        return new CourseOutline(course.getId(), localized.getTitle(), localized.getDescription(),
+                course.getDefaultLanguage(), course.getVersion(), course.getUpdatedAt(), totalMinutes, lessons);
+    }
+
+    /**
+     * Resolve a lesson read by {@link #getLesson} to one language, using the same fallback order as
+     * course localization.
+     */
+    public LessonView localizeLesson(String courseId, Course holder, Locale locale) {
+        TextContent lesson = holder.getTextContent().get(0);
+        String language = resolveLanguage(lesson, locale, holder.getDefaultLanguage());
+        List<LessonView.Question> questions = new ArrayList<>();
+        if (lesson.getQuizQuestions() != null) {
+            for (QuizQuestion question : lesson.getQuizQuestions()) {
+                if (question == null) {
+                    continue;
+                }
+                List<LessonView.Answer> answers = new ArrayList<>();
+                if (question.getAnswers() != null) {
+                    for (QuizAnswer answer : question.getAnswers()) {
+                        if (answer != null) {
+                            answers.add(new LessonView.Answer(answer.getId(),
+                                    pick(answer.getText(), locale, holder.getDefaultLanguage()), answer.isCorrect()));
+                        }
+                    }
+                }
+                questions.add(new LessonView.Question(question.getId(),
+                        pick(question.getQuestion(), locale, holder.getDefaultLanguage()), answers));
+            }
+        }
+        return new LessonView(lesson.getId(), courseId, lesson.getOrder(), lesson.getType(), language,
+                text(lesson.getTitle(), lesson.getTranslations(), TextContentTranslation::getTitle, language),
+                text(lesson.getContent(), lesson.getTranslations(), TextContentTranslation::getContent, language),
+                questions);
+    }
+
+    static int estimatedMinutes(TextContent lesson, @Nullable String language) {
+        String body = text(lesson.getContent(), lesson.getTranslations(), TextContentTranslation::getContent, language);
+        int words = 0;
+        if (body != null) {
+            String plain = TAGS.matcher(body).replaceAll(" ").trim();
+            words = plain.isEmpty() ? 0 : WHITESPACE.split(plain).length;
+        }
+        int questions = lesson.getQuizQuestions() == null ? 0 : lesson.getQuizQuestions().size();
+        int seconds = words * 60 / WORDS_PER_MINUTE + questions * SECONDS_PER_QUESTION;
+        return Math.max(1, (seconds + 59) / 60);
+    }
+
+    // First fallback key that has a title or body, in either the plain maps or the translation objects
+    @Nullable
+    private String resolveLanguage(TextContent lesson, Locale locale, String defaultLanguage) {
+        for (String key : courseService.buildTranslationKeys(locale, defaultLanguage)) {
+            if (key == null || key.isBlank()) {
+                continue;
+            }
+            if (text(lesson.getTitle(), lesson.getTranslations(), TextContentTranslation::getTitle, key) != null
+                    || text(lesson.getContent(), lesson.getTranslations(), TextContentTranslation::getContent, key) != null) {
+                return key;
+            }
+        }
+        return firstKey(lesson.getTitle(), firstKey(lesson.getContent(), firstKey(lesson.getTranslations(), null)));
+    }
+
+    @Nullable
+    private static String text(@Nullable Map<String, String> values,
+                               @Nullable Map<String, TextContentTranslation> translations,
+                               Function<TextContentTranslation, String> field,
+                               @Nullable String language) {
+        if (language == null) {
+            return null;
+        }
+        String value = values == null ? null : values.get(language);
+        if (value == null && translations != null && translations.get(language) != null) {
+            value = field.apply(translations.get(language));
+        }
+        return value;
+    }
+
+    @Nullable
+    private String pick(@Nullable Map<String, String> values, Locale locale, String defaultLanguage) {
+        Map<String, String> present = values == null ? Collections.emptyMap() : values;
+        for (String key : courseService.buildTranslationKeys(locale, defaultLanguage)) {
+            if (key != null && present.get(key) != null) {
+                return present.get(key);
+            }
+        }
+        return present.values().stream().filter(value -> value != null).findFirst().orElse(null);
+    }
+
+    @Nullable
+    private static String firstKey(@Nullable Map<String, ?> values, @Nullable String otherwise) {
+        return values == null || values.isEmpty() ? otherwise : values.keySet().iterator().next();
+    }
+}
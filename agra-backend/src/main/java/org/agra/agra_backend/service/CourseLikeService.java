@@ -4,26 +4,50 @@ import org.agra.agra_backend.dao.CourseRepository;
 import org.agra.agra_backend.dao.LikeRepository;
 import org.agra.agra_backend.model.ActivityType;
 import org.agra.agra_backend.model.Like;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class CourseLikeService {
     public static final String TARGET_TYPE_COURSE = "COURSE";
+    static final String LIKED_SET_PREFIX = "courses:liked:";
+    // Member present once a set has been loaded, so "no likes" is not mistaken for "not loaded"
+    static final String LOADED_MARKER = "~";
+
+    private static final Logger log = LoggerFactory.getLogger(CourseLikeService.class);
 
     private final LikeRepository likeRepository;
     private final CourseRepository courseRepository;
     private final ActivityLogService activityLogService;
+    private final CatalogVersionService catalogVersionService;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${likes.course-set.ttl-hours:168}")
+    private long likedSetTtlHours;
 
     public CourseLikeService(LikeRepository likeRepository,
                              CourseRepository courseRepository,
-                             ActivityLogService activityLogService) {
+                             ActivityLogService activityLogService,
+                             @Nullable CatalogVersionService catalogVersionService,
+                             @Nullable StringRedisTemplate redisTemplate) {
         this.likeRepository = likeRepository;
         this.courseRepository = courseRepository;
         this.activityLogService = activityLogService;
+        this.catalogVersionService = catalogVersionService;
+        this.redisTemplate = redisTemplate;
     }
 
     public boolean likeCourse(String userId, String courseId) {
@@ -39,6 +63,8 @@ public class CourseLikeService {
         like.setTargetType(TARGET_TYPE_COURSE);
         like.setTargetId(courseId);
         likeRepository.save(like);
+        updateLikedSet(userId, courseId, true);
+        likesChanged(userId);
         if (activityLogService != null) {
             activityLogService.logUserActivity(
                     userId,
@@ -58,18 +84,114 @@ public class CourseLikeService {
             return false;
         }
         likeRepository.deleteByUserIdAndTargetTypeAndTargetId(userId, TARGET_TYPE_COURSE, courseId);
+        updateLikedSet(userId, courseId, false);
+        likesChanged(userId);
         return true;
     }
 
     public boolean isLiked(String userId, String courseId) {
-        return likeRepository.existsByUserIdAndTargetTypeAndTargetId(userId, TARGET_TYPE_COURSE, courseId);
+        if (redisTemplate == null) {
+            return likeRepository.existsByUserIdAndTargetTypeAndTargetId(userId, TARGET_TYPE_COURSE, courseId);
+        }
+        return !likedAmong(userId, List.of(courseId)).isEmpty();
+    }
+
+    /**
+     * The subset of {@code courseIds} the user has liked, answered with one SMISMEMBER against the
+     * user's liked-course set. The set is built from Mongo on first use.
+     */
+    public Set<String> likedAmong(String userId, Collection<String> courseIds) {
+        if (userId == null || courseIds == null || courseIds.isEmpty()) {
+            return Set.of();
+        }
+        List<String> ids = courseIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        if (redisTemplate != null) {
+            try {
+                Object[] members = new Object[ids.size() + 1];
+                members[0] = LOADED_MARKER;
+                for (int i = 0; i < ids.size(); i++) {
+                    members[i + 1] = ids.get(i);
+                }
+                Map<Object, Boolean> flags = redisTemplate.opsForSet().isMember(likedSetKey(userId), members);
+                if (flags != null && Boolean.TRUE.equals(flags.get(LOADED_MARKER))) {
+                    Set<String> liked = new HashSet<>();
+                    for (String id : ids) {
+                        if (Boolean.TRUE.equals(flags.get(id))) {
+                            liked.add(id);
+                        }
+                    }
+                    return liked;
+                }
+                Set<String> liked = loadLikedSet(userId);
+                liked.retainAll(ids);
+                return liked;
+            } catch (RuntimeException e) {
+                log.debug("Liked-course set unavailable for user {}, reading Mongo: {}", userId, e.getMessage());
+            }
+        }
+        return likeRepository.findByUserIdAndTargetTypeAndTargetIdIn(userId, TARGET_TYPE_COURSE, ids)
+                .stream()
+                .map(Like::getTargetId)
+                .collect(Collectors.toSet());
     }
 
     public List<String> listLikedCourseIds(String userId) {
-        return likeRepository.findByUserId(userId)
+        return likeRepository.findByUserIdAndTargetType(userId, TARGET_TYPE_COURSE)
                 .stream()
                 .filter(l -> TARGET_TYPE_COURSE.equals(l.getTargetType()))
                 .map(Like::getTargetId)
                 .collect(Collectors.toList());
     }
+
+    private Set<String> loadLikedSet(String userId) {
+        Set<String> liked = new HashSet<>(listLikedCourseIds(userId));
+        String key = likedSetKey(userId);
+        String[] members = new String[liked.size() + 1];
+        members[0] = LOADED_MARKER;
+        int i = 1;
+        for (String id : liked) {
+            members[i++] = id;
+        }
+        redisTemplate.opsForSet().add(key, members);
+        if (likedSetTtlHours > 0) {
+            redisTemplate.expire(key, Duration.ofHours(likedSetTtlHours));
+        }
+        return liked;
+    }
+
+    // A set that was never loaded only gains members here; the marker is still missing, so the next read rebuilds it
+    private void updateLikedSet(String userId, String courseId, boolean liked) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            if (liked) {
+                redisTemplate.opsForSet().add(likedSetKey(userId), courseId);
+            } else {
+                redisTemplate.opsForSet().remove(likedSetKey(userId), courseId);
+            }
+        } catch (RuntimeException e) {
+            // A stale set would keep answering wrongly, so drop it and let the next read rebuild it
+            log.warn("Could not update liked-course set for user {}: {}", userId, e.getMessage());
+            try {
+                redisTemplate.delete(likedSetKey(userId));
+            } catch (RuntimeException ignored) {
+                // Redis is down; the set expires on its own
+            }
+        }
+    }
+
+    private static String likedSetKey(String userId) {
+        return LIKED_SET_PREFIX + userId;
+    }
+
+    // Liked flags are part of the catalog responses, so their ETags move with the user's likes
+    private void likesChanged(String userId) {
+        if (catalogVersionService != null) {
+            catalogVersionService.likesChanged(userId);
+        }
+    }
 }
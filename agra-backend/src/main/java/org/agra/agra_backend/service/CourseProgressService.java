@@ -1,30 +1,74 @@
 package org.agra.agra_backend.service;
 
+import com.mongodb.client.result.UpdateResult;
 import org.agra.agra_backend.dao.CourseProgressRepository;
 import org.agra.agra_backend.model.ActivityType;
+import org.agra.agra_backend.model.Course;
 import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.TextContent;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CourseProgressService {
 
     private static final String TARGET_TYPE_COURSE = "COURSE";
     private static final String META_COURSE_ID = "courseId";
+    private static final int ID_CHUNK = 1000;
+    private static final String ENROLLMENT_INDEX = "user_course_unique";
+    private static final String BITS = "completedLessonBits";
+    private static final int MIGRATION_BATCH = 500;
+    private static final int SYNC_ATTEMPTS = 3;
+    private static final Logger log = LoggerFactory.getLogger(CourseProgressService.class);
 
     private final CourseProgressRepository courseProgressRepository;
     private final ActivityLogService activityLogService;
+    private final MongoTemplate mongoTemplate;
+    private final LessonOrdinalService lessonOrdinalService;
+    private final ProgressWriteBuffer progressWriteBuffer;
 
     public CourseProgressService(CourseProgressRepository courseProgressRepository,
-                                 ActivityLogService activityLogService) {
+                                 ActivityLogService activityLogService,
+                                 MongoTemplate mongoTemplate,
+                                 LessonOrdinalService lessonOrdinalService,
+                                 @Nullable ProgressWriteBuffer progressWriteBuffer) {
         this.courseProgressRepository = courseProgressRepository;
         this.activityLogService = activityLogService;
+        this.mongoTemplate = mongoTemplate;
+        this.lessonOrdinalService = lessonOrdinalService;
+        this.progressWriteBuffer = progressWriteBuffer;
     }
 
     public boolean isUserEnrolledInCourse(String userId, String courseId) {
@@ -32,38 +76,46 @@ public class CourseProgressService {
     }
 
     public Optional<CourseProgress> getEnrollmentStatus(String userId, String courseId) {
-        System.out.println("Service: getEnrollmentStatus called for userId=" + userId + ", courseId=" + courseId);
-        
         Optional<CourseProgress> result = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
-        
-        if (result.isPresent()) {
-            CourseProgress progress = result.get();
-            System.out.println("Service: Found enrollment - Progress: " + progress.getProgressPercentage() + 
-                             "%, Completed lessons: " + (progress.getCompletedLessons() != null ? progress.getCompletedLessons().size() : 0) +
-                             ", Started: " + progress.getStartedAt());
-        } else {
-            System.out.println("Service: No enrollment found for user " + userId + " in course " + courseId);
-        }
-        
+        if (progressWriteBuffer != null) {
+            result.ifPresent(progressWriteBuffer::overlay);
+        }
+        log.debug("Enrollment of user {} in course {}: {}", userId, courseId, result.isPresent() ? "found" : "none");
         return result;
     }
 
+    /**
+     * Enroll with an upsert on the unique {@code (userId, courseId)} index, so a double-tap can never
+     * create a second enrollment. Only the request that inserted the document logs the enrollment.
+     */
     public CourseProgress enrollUserInCourse(String userId, String courseId) {
-        // Check if already enrolled
-        Optional<CourseProgress> existing = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
-        if (existing.isPresent()) {
-            return existing.get();
+        Date enrolledAt = new Date();
+        Update update = new Update()
+                .setOnInsert("enrolledAt", enrolledAt)
+                .setOnInsert("completed", false)
+                .setOnInsert("progressPercentage", 0)
+                .setOnInsert(BITS, List.of(0L));
+        UpdateResult result;
+        try {
+            result = mongoTemplate.upsert(enrollment(userId, courseId), update, CourseProgress.class);
+        } catch (DuplicateKeyException e) {
+            // Lost the insert race to a concurrent request; its document is the enrollment
+            result = null;
+        }
+        if (result == null || result.getUpsertedId() == null) {
+            return courseProgressRepository.findByUserIdAndCourseId(userId, courseId)
+                    .orElseThrow(() -> new IllegalStateException("Enrollment of user " + userId + " in course " + courseId + " disappeared"));
         }
 
-        // Create new enrollment
         CourseProgress progress = new CourseProgress();
+        BsonValue id = result.getUpsertedId();
+        progress.setId(id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue());
         progress.setUserId(userId);
         progress.setCourseId(courseId);
-        progress.setEnrolledAt(new Date());
+        progress.setEnrolledAt(enrolledAt);
         progress.setCompleted(false);
         progress.setProgressPercentage(0);
-
-        CourseProgress saved = courseProgressRepository.save(progress);
+        progress.setCompletedLessonBits(new long[1]);
         if (activityLogService != null) {
             activityLogService.logUserActivity(
                     userId,
@@ -74,185 +126,524 @@ public class CourseProgressService {
                     Map.of(META_COURSE_ID, courseId)
             );
         }
-        return saved;
+        return progress;
     }
 
     public List<CourseProgress> getUserEnrollments(String userId) {
-        return courseProgressRepository.findByUserId(userId);
+        return withBufferedHeartbeats(courseProgressRepository.findByUserId(userId));
     }
 
     public List<CourseProgress> getCourseEnrollments(String courseId) {
-        return courseProgressRepository.findByCourseId(courseId);
+        return withBufferedHeartbeats(courseProgressRepository.findByCourseId(courseId));
     }
 
+    private List<CourseProgress> withBufferedHeartbeats(List<CourseProgress> enrollments) {
+        if (progressWriteBuffer != null) {
+            enrollments.forEach(progressWriteBuffer::overlay);
+        }
+        return enrollments;
+    }
+
+    /**
+     * Raise the progress percentage. Values below 100 are heartbeats and are coalesced by the write
+     * buffer; reaching 100 completes the course and is written immediately. Progress never goes down.
+     */
     public CourseProgress updateProgress(String userId, String courseId, int progressPercentage) {
-        Optional<CourseProgress> progressOpt = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
-        
-        if (progressOpt.isPresent()) {
-            CourseProgress progress = progressOpt.get();
-            boolean wasCompleted = progress.isCompleted();
-            progress.setProgressPercentage(progressPercentage);
-
-            if (progressPercentage >= 100) {
-                progress.setCompleted(true);
+        if (progressWriteBuffer != null) {
+            if (progressPercentage < 100) {
+                return progressWriteBuffer.record(userId, courseId,
+                                () -> courseProgressRepository.findByUserIdAndCourseId(userId, courseId),
+                                pending -> pending.progressPercentage(progressPercentage))
+                        .orElseThrow(() -> new RuntimeException("User is not enrolled in this course"));
             }
-
-            CourseProgress saved = courseProgressRepository.save(progress);
-            if (!wasCompleted && saved.isCompleted() && activityLogService != null) {
-                activityLogService.logUserActivity(
-                        userId,
-                        ActivityType.COURSE_COMPLETION,
-                        "Completed course",
-                        TARGET_TYPE_COURSE,
-                        courseId,
-                        Map.of(META_COURSE_ID, courseId)
-                );
+            progressWriteBuffer.flush(userId, courseId);
+        }
+        Date now = new Date();
+        Update update = new Update().max("progressPercentage", progressPercentage);
+        if (progressPercentage >= 100) {
+            update.set("completed", true).min("completedAt", now);
+        }
+        // One conditional update, so lessons completed concurrently are never overwritten
+        CourseProgress before = mongoTemplate.findAndModify(enrollment(userId, courseId), update,
+                FindAndModifyOptions.options().returnNew(false), CourseProgress.class);
+        if (before == null) {
+            throw new RuntimeException("User is not enrolled in this course");
+        }
+        boolean wasCompleted = before.isCompleted();
+        before.setProgressPercentage(Math.max(before.getProgressPercentage(), progressPercentage));
+        if (progressPercentage >= 100) {
+            before.setCompleted(true);
+            before.setCompletedAt(earliest(before.getCompletedAt(), now));
+            if (!wasCompleted) {
+                logCourseCompletion(userId, courseId);
             }
-            return saved;
         }
-        
-        throw new RuntimeException("User is not enrolled in this course");
+        return before;
+    }
+
+    /**
+     * Delete every enrollment of a course with a single {@code deleteMany}.
+     */
+    public long deleteCourseEnrollments(String courseId) {
+        if (progressWriteBuffer != null) {
+            progressWriteBuffer.discardCourse(courseId);
+        }
+        lessonOrdinalService.forget(courseId);
+        return mongoTemplate.remove(Query.query(Criteria.where("courseId").is(courseId)), CourseProgress.class)
+                .getDeletedCount();
     }
 
     public void unenrollUser(String userId, String courseId) {
+        if (progressWriteBuffer != null) {
+            progressWriteBuffer.discard(userId, courseId);
+        }
         Optional<CourseProgress> progressOpt = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
         progressOpt.ifPresent(courseProgressRepository::delete);
     }
 
+    /**
+     * Mark a lesson complete in one atomic update: {@code $bit or} sets the lesson's bit in
+     * {@code completedLessonBits}, {@code $min} keeps the first completion date and start time. The
+     * percentage is then raised with {@code $max} from the returned bits, counting only lessons the
+     * course still has, so concurrent completions all land and the last one sets the highest value.
+     */
     public CourseProgress markLessonComplete(String userId, String courseId, String lessonId, Date completedAt) {
-        System.out.println("Service: markLessonComplete called with userId=" + userId + 
-                          ", courseId=" + courseId + ", lessonId=" + lessonId);
-        
-        Optional<CourseProgress> progressOpt = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
-        
-        if (progressOpt.isPresent()) {
-            CourseProgress progress = progressOpt.get();
-            
-            System.out.println("Service: Found existing progress. Current completed lessons: " + 
-                             progress.getCompletedLessons());
-            
-            // Ensure completedLessons list is initialized
-            if (progress.getCompletedLessons() == null) {
-                progress.setCompletedLessons(new ArrayList<>());
-                System.out.println("Service: Initialized empty completedLessons list");
+        if (progressWriteBuffer != null) {
+            progressWriteBuffer.flush(userId, courseId);
+        }
+        List<String> lessonIds = lessonIds(courseId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        if (!lessonIds.contains(lessonId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Lesson not found in this course");
+        }
+        Date when = completedAt != null ? completedAt : new Date();
+        int ordinal = lessonOrdinalService.ordinal(courseId, lessonId);
+        Update update = new Update()
+                .min("lessonCompletionDates." + lessonId, when)
+                .min("startedAt", when);
+        update.bitwise(BITS + "." + (ordinal >>> 6)).or(1L << ordinal);
+        CourseProgress progress = applyWithBits(userId, courseId, update, (ordinal >>> 6) + 1);
+        if (progress == null) {
+            log.debug("Lesson {} completed by user {} who is not enrolled in course {}", lessonId, userId, courseId);
+            throw new RuntimeException("User is not enrolled in this course");
+        }
+        return raisePercentage(userId, courseId, lessonIds, progress);
+    }
+
+    /**
+     * Apply progress recorded offline and merged per enrollment with one conditional
+     * {@code findAndModify}. The enrollment is read first and everything is computed from it: the union
+     * of the stored and synced bits, the percentage, whether the course becomes completed and whether
+     * the current lesson moves, which it only does when {@code currentLessonAt} is newer than the
+     * stored position, so a stale batch cannot undo what the user did online meanwhile. The update is
+     * filtered on the values it was computed from; when a concurrent write changed them nothing is
+     * written and it is computed again, up to {@value #SYNC_ATTEMPTS} times. Returns null when the user
+     * is not enrolled. Every lesson id must belong to the course; callers validate them per event first.
+     */
+    public CourseProgress applySyncedProgress(String userId, String courseId, Map<String, Date> completions,
+                                              @Nullable String currentLessonId, @Nullable Date currentLessonAt,
+                                              @Nullable Integer progressPercentage, @Nullable Date startedAt) {
+        List<String> courseLessons = lessonIds(courseId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+        if (!courseLessons.containsAll(completions.keySet())
+                || (currentLessonId != null && !courseLessons.contains(currentLessonId))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Lesson not found in this course");
+        }
+        if (progressWriteBuffer != null) {
+            progressWriteBuffer.flush(userId, courseId);
+        }
+        List<String> lessonIds = new ArrayList<>(completions.keySet());
+        long[] synced = new long[0];
+        if (!lessonIds.isEmpty()) {
+            for (int ordinal : lessonOrdinalService.ordinals(courseId, lessonIds)) {
+                synced = LessonOrdinalService.withBit(synced, ordinal);
             }
-            
-            // Ensure lessonCompletionDates map is initialized
-            if (progress.getLessonCompletionDates() == null) {
-                progress.setLessonCompletionDates(new HashMap<>());
-                System.out.println("Service: Initialized empty lessonCompletionDates map");
+        }
+        Date at = currentLessonAt != null ? currentLessonAt : new Date();
+        for (int attempt = 1; ; attempt++) {
+            CourseProgress stored = mongoTemplate.findOne(enrollment(userId, courseId), CourseProgress.class);
+            if (stored == null) {
+                return null;
+            }
+            Query query = enrollment(userId, courseId);
+            Update update = new Update();
+            long[] bits = stored.getCompletedLessonBits() != null ? stored.getCompletedLessonBits() : new long[0];
+            long[] union = Arrays.copyOf(bits, Math.max(bits.length, synced.length));
+            for (int word = 0; word < synced.length; word++) {
+                union[word] |= synced[word];
+            }
+            if (!Arrays.equals(union, bits)) {
+                query.addCriteria(bits.length == 0 ? Criteria.where(BITS + ".0").exists(false)
+                        : Criteria.where(BITS).is(Arrays.stream(bits).boxed().toList()));
+                update.set(BITS, Arrays.stream(union).boxed().toList());
+            }
+            for (String lessonId : lessonIds) {
+                update.min("lessonCompletionDates." + lessonId, completions.get(lessonId));
+            }
+            if (startedAt != null) {
+                update.min("startedAt", startedAt);
             }
-            
-            // Add lesson to completed list if not already completed
-            if (!progress.getCompletedLessons().contains(lessonId)) {
-                progress.getCompletedLessons().add(lessonId);
-                progress.getLessonCompletionDates().put(lessonId, completedAt != null ? completedAt : new Date());
-                System.out.println("Service: Added lesson " + lessonId + " to completed list");
-            } else {
-                System.out.println("Service: Lesson " + lessonId + " was already completed");
+            int percentage = Math.max(progressPercentage != null ? progressPercentage : 0,
+                    synced.length > 0 ? completionPercentage(courseId, courseLessons, union) : 0);
+            if (percentage > stored.getProgressPercentage()) {
+                update.max("progressPercentage", percentage);
             }
-            
-            // Set startedAt if this is the first lesson completion
-            if (progress.getStartedAt() == null) {
-                progress.setStartedAt(new Date());
-                System.out.println("Service: Set startedAt timestamp");
+            boolean completes = progressPercentage != null && progressPercentage >= 100 && !stored.isCompleted();
+            if (completes) {
+                query.addCriteria(Criteria.where("completed").ne(true));
+                update.set("completed", true).min("completedAt", new Date());
+            }
+            if (currentLessonId != null && (stored.getCurrentLessonAt() == null || stored.getCurrentLessonAt().before(at))) {
+                query.addCriteria(Criteria.where("currentLessonAt").is(stored.getCurrentLessonAt()));
+                update.set("currentLessonId", currentLessonId).set("currentLessonAt", at);
+            }
+            if (update.getUpdateObject().isEmpty()) {
+                return stored;
+            }
+            CourseProgress progress = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().returnNew(true), CourseProgress.class);
+            if (progress != null) {
+                if (completes && activityLogService != null) {
+                    // The filter required an incomplete course, so a replay or a concurrent sync logs it once
+                    activityLogService.logUserActivity(userId, ActivityType.COURSE_COMPLETION, "Completed course",
+                            TARGET_TYPE_COURSE, courseId, Map.of(META_COURSE_ID, courseId));
+                }
+                return progress;
             }
-            
-            System.out.println("Service: Saving progress with completed lessons: " + 
-                             progress.getCompletedLessons());
-            
-            CourseProgress savedProgress = courseProgressRepository.save(progress);
-            
-            System.out.println("Service: Saved progress. Final completed lessons: " + 
-                             savedProgress.getCompletedLessons());
-            
-            return savedProgress;
-        }
-        
-        System.err.println("Service: User " + userId + " is not enrolled in course " + courseId);
-        throw new RuntimeException("User is not enrolled in this course");
+            if (attempt >= SYNC_ATTEMPTS) {
+                throw new OptimisticLockingFailureException("Enrollment of user " + userId + " in course " + courseId
+                        + " kept changing while applying synced progress");
+            }
+            log.debug("Enrollment of user {} in course {} changed while applying synced progress, retrying ({}/{})",
+                    userId, courseId, attempt, SYNC_ATTEMPTS);
+        }
+    }
+
+    /**
+     * Record a graded quiz. The best score per lesson is kept with an atomic {@code $max}, which also
+     * tells whether the user is enrolled; a pass completes the lesson. Returns false when the user
+     * is not enrolled in the course.
+     */
+    public boolean recordQuizResult(String userId, String courseId, String lessonId, int percent, boolean passed,
+                                    Date submittedAt) {
+        UpdateResult result = mongoTemplate.updateFirst(enrollment(userId, courseId), new Update().max("quizScores." + lessonId, percent),
+                CourseProgress.class);
+        if (result.getMatchedCount() == 0) {
+            return false;
+        }
+        if (passed) {
+            markLessonComplete(userId, courseId, lessonId, submittedAt);
+        }
+        return true;
     }
 
+    /**
+     * Record the lesson a user is on. Players call this every few seconds, so with a write buffer the
+     * update is coalesced and written on the next flush instead of saving the whole document each time.
+     */
     public CourseProgress setCurrentLesson(String userId, String courseId, String lessonId) {
-        Optional<CourseProgress> progressOpt = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
-        
-        if (progressOpt.isPresent()) {
-            CourseProgress progress = progressOpt.get();
-            progress.setCurrentLessonId(lessonId);
-            
-            // Set startedAt if this is the first lesson interaction
-            if (progress.getStartedAt() == null) {
-                progress.setStartedAt(new Date());
-            }
-            
-            return courseProgressRepository.save(progress);
+        if (progressWriteBuffer != null) {
+            return progressWriteBuffer.record(userId, courseId,
+                            () -> courseProgressRepository.findByUserIdAndCourseId(userId, courseId),
+                            pending -> pending.currentLesson(lessonId, new Date()))
+                    .orElseThrow(() -> new RuntimeException("User is not enrolled in this course"));
         }
-        
-        throw new RuntimeException("User is not enrolled in this course");
+        Date now = new Date();
+        CourseProgress progress = mongoTemplate.findAndModify(enrollment(userId, courseId),
+                new Update().set("currentLessonId", lessonId).set("currentLessonAt", now).min("startedAt", now),
+                FindAndModifyOptions.options().returnNew(true), CourseProgress.class);
+        if (progress == null) {
+            throw new RuntimeException("User is not enrolled in this course");
+        }
+        return progress;
     }
 
     public CourseProgress markCourseComplete(String userId, String courseId, Date completedAt) {
-        Optional<CourseProgress> progressOpt = courseProgressRepository.findByUserIdAndCourseId(userId, courseId);
-        
-        if (progressOpt.isPresent()) {
-            CourseProgress progress = progressOpt.get();
-            boolean wasCompleted = progress.isCompleted();
-            progress.setCompleted(true);
-            progress.setProgressPercentage(100);
-            
-            // Set startedAt if not already set
-            if (progress.getStartedAt() == null) {
-                progress.setStartedAt(new Date());
-            }
-            
-            // Generate certificate URL (placeholder for now)
-            if (progress.getCertificateUrl() == null || progress.getCertificateUrl().isEmpty()) {
-                progress.setCertificateUrl("https://certificates.agra.com/course/" + courseId + "/user/" + userId);
-            }
-            
-            CourseProgress saved = courseProgressRepository.save(progress);
-            if (!wasCompleted && activityLogService != null) {
-                activityLogService.logUserActivity(
-                        userId,
-                        ActivityType.COURSE_COMPLETION,
-                        "Completed course",
-                        TARGET_TYPE_COURSE,
-                        courseId,
-                        Map.of(META_COURSE_ID, courseId)
-                );
+        if (progressWriteBuffer != null) {
+            progressWriteBuffer.flush(userId, courseId);
+        }
+        Date when = completedAt != null ? completedAt : new Date();
+        String certificateUrl = "https://certificates.agra.com/course/" + courseId + "/user/" + userId;
+        // The certificate URL is only set where there is none yet, as part of the same update
+        CourseProgress before = mongoTemplate.findAndModify(
+                enrollment(userId, courseId).addCriteria(Criteria.where("certificateUrl").in(null, "")),
+                courseCompletion(when).set("certificateUrl", certificateUrl),
+                FindAndModifyOptions.options().returnNew(false), CourseProgress.class);
+        if (before == null) {
+            before = mongoTemplate.findAndModify(enrollment(userId, courseId), courseCompletion(when),
+                    FindAndModifyOptions.options().returnNew(false), CourseProgress.class);
+        }
+        if (before == null) {
+            throw new RuntimeException("User is not enrolled in this course");
+        }
+
+        // The returned document is from before the update; bring it to the written state
+        boolean wasCompleted = before.isCompleted();
+        before.setCompleted(true);
+        before.setProgressPercentage(Math.max(before.getProgressPercentage(), 100));
+        before.setStartedAt(earliest(before.getStartedAt(), when));
+        before.setCompletedAt(earliest(before.getCompletedAt(), when));
+        if (before.getCertificateUrl() == null || before.getCertificateUrl().isEmpty()) {
+            before.setCertificateUrl(certificateUrl);
+        }
+        if (!wasCompleted) {
+            logCourseCompletion(userId, courseId);
+        }
+        return before;
+    }
+
+    private static Update courseCompletion(Date when) {
+        return new Update()
+                .set("completed", true)
+                .max("progressPercentage", 100)
+                .min("startedAt", when)
+                .min("completedAt", when);
+    }
+
+    private static Date earliest(Date current, Date candidate) {
+        return current == null || candidate.before(current) ? candidate : current;
+    }
+
+    private void logCourseCompletion(String userId, String courseId) {
+        if (activityLogService != null) {
+            activityLogService.logUserActivity(
+                    userId,
+                    ActivityType.COURSE_COMPLETION,
+                    "Completed course",
+                    TARGET_TYPE_COURSE,
+                    courseId,
+                    Map.of(META_COURSE_ID, courseId)
+            );
+        }
+    }
+
+    /**
+     * Remove enrollments whose course no longer exists. Runs as an anti-join: the distinct course ids
+     * referenced by progress rows, minus the ids still present in {@code courses}, deleted with
+     * {@code deleteMany} over {@code $in}. Round trips grow with the number of distinct courses, not
+     * with the number of enrollments.
+     */
+    public int cleanupOrphanedEnrollments() {
+        List<String> referenced = mongoTemplate.findDistinct(new Query(), "courseId", CourseProgress.class, String.class)
+                .stream().filter(Objects::nonNull).toList();
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : chunks(referenced)) {
+            Query query = Query.query(Criteria.where("_id").in(chunk));
+            query.fields().include("_id");
+            mongoTemplate.find(query, Course.class).forEach(course -> existing.add(course.getId()));
+        }
+        List<String> orphaned = referenced.stream().filter(courseId -> !existing.contains(courseId)).toList();
+
+        long deleted = 0;
+        for (List<String> chunk : chunks(orphaned)) {
+            deleted += mongoTemplate.remove(Query.query(Criteria.where("courseId").in(chunk)), CourseProgress.class)
+                    .getDeletedCount();
+        }
+        log.info("Orphaned enrollment cleanup: {} course id(s) referenced, {} missing, {} enrollment(s) deleted",
+                referenced.size(), orphaned.size(), deleted);
+        return (int) deleted;
+    }
+
+    /**
+     * Fold duplicate enrollments left by the old check-then-insert into one document per
+     * {@code (userId, courseId)}, then create the unique index that keeps it that way.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureEnrollmentIndex() {
+        try {
+            int merged = mergeDuplicateEnrollments();
+            if (merged > 0) {
+                log.info("Merged {} duplicate enrollment(s)", merged);
             }
-            return saved;
+            mongoTemplate.indexOps(CourseProgress.class).ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("courseId", Sort.Direction.ASC)
+                    .unique()
+                    .named(ENROLLMENT_INDEX));
+        } catch (RuntimeException e) {
+            log.warn("Could not create the unique enrollment index: {}", e.getMessage());
         }
-        
-        throw new RuntimeException("User is not enrolled in this course");
     }
 
     /**
-     * Cleanup method to remove orphaned enrollments (enrollments for deleted courses)
-     * This should be called periodically or after course deletions
+     * Rewrite enrollments that still store completed lessons as a list of ids into the bitset form,
+     * assigning ordinals to lessons that have none yet. Reads only fold in lessons that already have
+     * an ordinal, so this is the one place the legacy list causes writes.
      */
-    public int cleanupOrphanedEnrollments(CourseService courseService) {
-        System.out.println("CourseProgressService: Starting cleanup of orphaned enrollments");
-        
-        List<CourseProgress> allEnrollments = courseProgressRepository.findAll();
-        int deletedCount = 0;
-        
-        for (CourseProgress progress : allEnrollments) {
-            try {
-                // Check if the course still exists
-                if (!courseService.getCourseById(progress.getCourseId()).isPresent()) {
-                    System.out.println("CourseProgressService: Found orphaned enrollment - CourseId: " + 
-                                     progress.getCourseId() + ", UserId: " + progress.getUserId());
-                    courseProgressRepository.delete(progress);
-                    deletedCount++;
+    @EventListener(ApplicationReadyEvent.class)
+    public void compactCompletedLessons() {
+        try {
+            long compacted = 0;
+            while (true) {
+                Query legacy = Query.query(Criteria.where("completedLessons").exists(true)).limit(MIGRATION_BATCH);
+                legacy.fields().include("userId").include("courseId").include("completedLessons").include(BITS);
+                List<CourseProgress> batch = mongoTemplate.find(legacy, CourseProgress.class);
+                if (batch.isEmpty()) {
+                    break;
                 }
-            } catch (Exception e) {
-                System.err.println("CourseProgressService: Error checking course " + progress.getCourseId() + 
-                                 ": " + e.getMessage());
+                BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CourseProgress.class);
+                for (CourseProgress progress : batch) {
+                    long[] bits = progress.getCompletedLessonBits() != null ? progress.getCompletedLessonBits() : new long[0];
+                    if (progress.getCourseId() != null && progress.getCompletedLessons() != null) {
+                        bits = LessonOrdinalService.or(bits, lessonOrdinalService.bits(progress.getCourseId(), progress.getCompletedLessons()));
+                    }
+                    List<Long> words = new ArrayList<>(bits.length);
+                    for (long bitsWord : bits) {
+                        words.add(bitsWord);
+                    }
+                    operations.updateOne(Query.query(Criteria.where("_id").is(progress.getId())),
+                            new Update().set(BITS, words).unset("completedLessons"));
+                }
+                operations.execute();
+                compacted += batch.size();
+            }
+            if (compacted > 0) {
+                log.info("Converted completed lessons of {} enrollment(s) to bitsets", compacted);
             }
+        } catch (RuntimeException e) {
+            log.warn("Could not convert completed lessons to bitsets: {}", e.getMessage());
+        }
+    }
+
+    int mergeDuplicateEnrollments() {
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.group("userId", "courseId").count().as("count").push("_id").as("ids"),
+                Aggregation.match(Criteria.where("count").gt(1)));
+        int removed = 0;
+        for (Document group : mongoTemplate.aggregate(duplicates, CourseProgress.class, Document.class)) {
+            List<CourseProgress> copies = new ArrayList<>(mongoTemplate.find(
+                    Query.query(Criteria.where("_id").in(group.getList("ids", Object.class))), CourseProgress.class));
+            if (copies.size() < 2) {
+                continue;
+            }
+            copies.sort(Comparator.comparing(CourseProgress::getEnrolledAt, Comparator.nullsLast(Comparator.naturalOrder())));
+            CourseProgress keeper = copies.get(0);
+            List<CourseProgress> others = copies.subList(1, copies.size());
+            others.forEach(other -> mergeInto(keeper, other));
+            // The list is never written back, so lessons only it still holds must be in the bits first
+            if (keeper.getCourseId() != null) {
+                keeper.setCompletedLessonBits(LessonOrdinalService.or(keeper.getCompletedLessonBits(),
+                        lessonOrdinalService.bits(keeper.getCourseId(), keeper.getCompletedLessons())));
+            }
+            mongoTemplate.save(keeper);
+            removed += (int) mongoTemplate.remove(Query.query(Criteria.where("_id")
+                    .in(others.stream().map(CourseProgress::getId).toList())), CourseProgress.class).getDeletedCount();
+        }
+        return removed;
+    }
+
+    private static void mergeInto(CourseProgress keeper, CourseProgress other) {
+        Set<String> lessons = new LinkedHashSet<>(nonNull(keeper.getCompletedLessons()));
+        lessons.addAll(nonNull(other.getCompletedLessons()));
+        keeper.setCompletedLessons(new ArrayList<>(lessons));
+        keeper.setCompletedLessonBits(LessonOrdinalService.or(
+                keeper.getCompletedLessonBits() != null ? keeper.getCompletedLessonBits() : new long[0],
+                other.getCompletedLessonBits() != null ? other.getCompletedLessonBits() : new long[0]));
+        Map<String, Date> dates = keeper.getLessonCompletionDates() != null ? keeper.getLessonCompletionDates() : new HashMap<>();
+        if (other.getLessonCompletionDates() != null) {
+            other.getLessonCompletionDates().forEach((lesson, date) -> dates.merge(lesson, date, (a, b) -> a.before(b) ? a : b));
+        }
+        keeper.setLessonCompletionDates(dates);
+        Map<String, Integer> scores = keeper.getQuizScores() != null ? keeper.getQuizScores() : new HashMap<>();
+        if (other.getQuizScores() != null) {
+            other.getQuizScores().forEach((lesson, score) -> scores.merge(lesson, score, Math::max));
+        }
+        keeper.setQuizScores(scores);
+        keeper.setProgressPercentage(Math.max(keeper.getProgressPercentage(), other.getProgressPercentage()));
+        keeper.setCompleted(keeper.isCompleted() || other.isCompleted());
+        if (keeper.getStartedAt() == null || (other.getStartedAt() != null && other.getStartedAt().before(keeper.getStartedAt()))) {
+            keeper.setStartedAt(other.getStartedAt());
+        }
+        if (keeper.getCurrentLessonId() == null) {
+            keeper.setCurrentLessonId(other.getCurrentLessonId());
+        }
+        if (keeper.getCertificateUrl() == null) {
+            keeper.setCertificateUrl(other.getCertificateUrl());
+            keeper.setCertificateCode(other.getCertificateCode());
+            keeper.setCertificateIssuedAt(other.getCertificateIssuedAt());
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> values) {
+        return values != null ? values : List.of();
+    }
+
+    /**
+     * {@code findAndModify} for an update that sets bits in the first {@code words} words of
+     * {@code completedLessonBits}. {@code $bit} cannot extend an array, so when the bitset is shorter it
+     * is padded with zero words first; {@code $slice} keeps existing words, so concurrent padding is
+     * harmless. Returns null when the user is not enrolled.
+     */
+    private CourseProgress applyWithBits(String userId, String courseId, Update update, int words) {
+        Query query = enrollment(userId, courseId);
+        if (words > 0) {
+            query.addCriteria(Criteria.where(BITS + "." + (words - 1)).exists(true));
+        }
+        CourseProgress progress = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), CourseProgress.class);
+        if (progress == null && words > 0) {
+            Object[] zeros = new Object[words];
+            Arrays.fill(zeros, 0L);
+            mongoTemplate.updateFirst(enrollment(userId, courseId).addCriteria(Criteria.where(BITS + "." + (words - 1)).exists(false)),
+                    new Update().push(BITS).slice(words).each(zeros), CourseProgress.class);
+            progress = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                    CourseProgress.class);
+        }
+        return progress;
+    }
+
+    /**
+     * Raise the stored percentage with {@code $max} to what the completed bits give, counting only
+     * lessons the course still has.
+     */
+    private CourseProgress raisePercentage(String userId, String courseId, List<String> lessonIds, CourseProgress progress) {
+        int percentage = completionPercentage(courseId, lessonIds, progress.getCompletedLessonBits());
+        if (percentage > progress.getProgressPercentage()) {
+            mongoTemplate.updateFirst(enrollment(userId, courseId), new Update().max("progressPercentage", percentage),
+                    CourseProgress.class);
+            progress.setProgressPercentage(percentage);
+        }
+        return progress;
+    }
+
+    private int completionPercentage(String courseId, List<String> lessonIds, long[] completed) {
+        if (lessonIds.isEmpty() || completed == null) {
+            return 0;
+        }
+        long[] current = new long[0];
+        for (int ordinal : lessonOrdinalService.ordinals(courseId, lessonIds)) {
+            current = LessonOrdinalService.withBit(current, ordinal);
+        }
+        return Math.min(100, LessonOrdinalService.countCommon(completed, current) * 100 / lessonIds.size());
+    }
+
+    /**
+     * The lesson ids the course has now, or empty when the course does not exist. Lesson ids from
+     * clients are checked against this before they become ordinals or field paths.
+     */
+    public Optional<List<String>> lessonIds(String courseId) {
+        Query query = Query.query(Criteria.where("_id").is(courseId));
+        query.fields().include("textContent._id");
+        Course course = mongoTemplate.findOne(query, Course.class);
+        if (course == null) {
+            return Optional.empty();
+        }
+        if (course.getTextContent() == null) {
+            return Optional.of(List.of());
+        }
+        return Optional.of(course.getTextContent().stream()
+                .map(TextContent::getId).filter(LessonOrdinalService::isValidLessonId).distinct().toList());
+    }
+
+    private static Query enrollment(String userId, String courseId) {
+        return Query.query(Criteria.where("userId").is(userId).and("courseId").is(courseId));
+    }
+
+    private static List<List<String>> chunks(List<String> ids) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + ID_CHUNK)));
         }
-        
-        System.out.println("CourseProgressService: Cleanup completed. Deleted " + deletedCount + " orphaned enrollments");
-        return deletedCount;
+        return chunks;
     }
 }
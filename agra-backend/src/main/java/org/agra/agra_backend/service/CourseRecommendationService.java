@@ -0,0 +1,336 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.CourseProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Item-to-item course recommendations from co-enrollments.
+ * <p>
+ * A periodic job streams {@code course_progress} once, builds sparse user/course interaction rows
+ * (enrolled = 1, completed = {@code completionWeight}) and keeps the top-K most similar courses per
+ * course by cosine similarity. Everything is held in primitive arrays, so a full rebuild runs on one
+ * node in memory proportional to the number of enrollments. Requests only merge the precomputed
+ * neighbour lists of the user's courses.
+ */
+@Service
+public class CourseRecommendationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseRecommendationService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int topK;
+    private final int minCoEnrollments;
+    private final int completionWeight;
+    private volatile SimilarityModel model = SimilarityModel.EMPTY;
+
+    public CourseRecommendationService(MongoTemplate mongoTemplate,
+                                       @Value("${recommendations.top-k:20}") int topK,
+                                       @Value("${recommendations.min-co-enrollments:2}") int minCoEnrollments,
+                                       @Value("${recommendations.completion-weight:2}") int completionWeight) {
+        this.mongoTemplate = mongoTemplate;
+        this.topK = Math.max(1, topK);
+        this.minCoEnrollments = Math.max(1, minCoEnrollments);
+        this.completionWeight = Math.max(1, completionWeight);
+    }
+
+    @Scheduled(initialDelayString = "${recommendations.initial-delay-ms:60000}",
+            fixedDelayString = "${recommendations.refresh-interval-ms:21600000}")
+    public void refresh() {
+        long started = System.currentTimeMillis();
+        try {
+            InteractionMatrix matrix = new InteractionMatrix();
+            Query query = new Query();
+            query.fields().include("userId").include("courseId").include("completed");
+            try (Stream<CourseProgress> rows = mongoTemplate.stream(query, CourseProgress.class)) {
+                rows.forEach(p -> matrix.add(p.getUserId(), p.getCourseId(), p.isCompleted() ? completionWeight : 1));
+            }
+            model = matrix.similarities(topK, minCoEnrollments);
+            log.info("Course recommendations rebuilt: {} enrollment(s), {} course(s) in {} ms",
+                    matrix.size(), model.courseCount(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Course recommendation rebuild failed; keeping the previous model", e);
+        }
+    }
+
+    /**
+     * Courses ranked by summed similarity to the seed courses, best first. Seeds and excluded ids
+     * never appear in the result; an empty list means there is no co-enrollment signal yet.
+     */
+    public List<String> recommend(Collection<String> seedCourseIds, Set<String> excluded, int limit) {
+        return model.recommend(seedCourseIds, excluded, limit);
+    }
+
+    void setModel(SimilarityModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Enrollment rows keyed by dense integer ids. Duplicate (user, course) rows keep the larger weight.
+     */
+    static final class InteractionMatrix {
+        private final Map<String, Integer> userIndex = new HashMap<>();
+        private final Map<String, Integer> courseIndex = new HashMap<>();
+        private final List<String> courseIds = new ArrayList<>();
+        private int[] users = new int[1024];
+        private int[] courses = new int[1024];
+        private int[] weights = new int[1024];
+        private int size;
+
+        void add(String userId, String courseId, int weight) {
+            if (userId == null || courseId == null || weight <= 0) {
+                return;
+            }
+            int user = userIndex.computeIfAbsent(userId, id -> userIndex.size());
+            int course = courseIndex.computeIfAbsent(courseId, id -> {
+                courseIds.add(id);
+                return courseIds.size() - 1;
+            });
+            if (size == users.length) {
+                int grown = size * 2;
+                users = Arrays.copyOf(users, grown);
+                courses = Arrays.copyOf(courses, grown);
+                weights = Arrays.copyOf(weights, grown);
+            }
+            users[size] = user;
+            courses[size] = course;
+            weights[size] = weight;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        SimilarityModel similarities(int topK, int minCoEnrollments) {
+            int userCount = userIndex.size();
+            int courseCount = courseIds.size();
+
+            // Rows by user (courses a user enrolled in), then by course (users enrolled in a course)
+            int[] userOffsets = offsets(users, size, userCount);
+            int[] userCourses = new int[size];
+            int[] userWeights = new int[size];
+            int[] userFill = Arrays.copyOf(userOffsets, userCount);
+            for (int i = 0; i < size; i++) {
+                int u = userFill[users[i]]++;
+                userCourses[u] = courses[i];
+                userWeights[u] = weights[i];
+            }
+            dedupeRows(userOffsets, userCourses, userWeights, courseCount);
+
+            int[] courseOffsets = new int[courseCount + 1];
+            for (int i = 0; i < size; i++) {
+                if (userWeights[i] > 0) {
+                    courseOffsets[userCourses[i] + 1]++;
+                }
+            }
+            for (int c = 0; c < courseCount; c++) {
+                courseOffsets[c + 1] += courseOffsets[c];
+            }
+            int[] courseUsers = new int[courseOffsets[courseCount]];
+            int[] courseWeights = new int[courseOffsets[courseCount]];
+            int[] courseFill = Arrays.copyOf(courseOffsets, courseCount);
+            for (int u = 0; u < userCount; u++) {
+                for (int i = userOffsets[u]; i < userOffsets[u + 1]; i++) {
+                    if (userWeights[i] > 0) {
+                        int c = courseFill[userCourses[i]]++;
+                        courseUsers[c] = u;
+                        courseWeights[c] = userWeights[i];
+                    }
+                }
+            }
+
+            double[] norms = new double[courseCount];
+            for (int c = 0; c < courseCount; c++) {
+                long sum = 0;
+                for (int i = courseOffsets[c]; i < courseOffsets[c + 1]; i++) {
+                    sum += (long) courseWeights[i] * courseWeights[i];
+                }
+                norms[c] = Math.sqrt(sum);
+            }
+
+            // One scratch row reused for every course; only touched cells are reset
+            long[] dot = new long[courseCount];
+            int[] support = new int[courseCount];
+            int[] touched = new int[courseCount];
+            int[][] neighbors = new int[courseCount][];
+            float[][] scores = new float[courseCount][];
+            int k = Math.min(topK, Math.max(0, courseCount - 1));
+            int[] topIdx = new int[k];
+            float[] topScore = new float[k];
+
+            for (int a = 0; a < courseCount; a++) {
+                int touchedCount = 0;
+                for (int i = courseOffsets[a]; i < courseOffsets[a + 1]; i++) {
+                    int u = courseUsers[i];
+                    int wa = courseWeights[i];
+                    for (int j = userOffsets[u]; j < userOffsets[u + 1]; j++) {
+                        int b = userCourses[j];
+                        int wb = userWeights[j];
+                        if (b == a || wb <= 0) {
+                            continue;
+                        }
+                        if (support[b] == 0) {
+                            touched[touchedCount++] = b;
+                        }
+                        dot[b] += (long) wa * wb;
+                        support[b]++;
+                    }
+                }
+
+                int found = 0;
+                for (int t = 0; t < touchedCount; t++) {
+                    int b = touched[t];
+                    if (support[b] >= minCoEnrollments && k > 0) {
+                        float score = (float) (dot[b] / (norms[a] * norms[b]));
+                        found = offer(topIdx, topScore, found, b, score);
+                    }
+                    dot[b] = 0;
+                    support[b] = 0;
+                }
+                neighbors[a] = Arrays.copyOf(topIdx, found);
+                scores[a] = Arrays.copyOf(topScore, found);
+            }
+            return new SimilarityModel(courseIds.toArray(new String[0]), neighbors, scores);
+        }
+
+        private static int[] offsets(int[] keys, int length, int count) {
+            int[] offsets = new int[count + 1];
+            for (int i = 0; i < length; i++) {
+                offsets[keys[i] + 1]++;
+            }
+            for (int i = 0; i < count; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            return offsets;
+        }
+
+        // Keep one entry per (user, course) with the larger weight; the others get weight 0 and are skipped
+        private static void dedupeRows(int[] offsets, int[] courses, int[] weights, int courseCount) {
+            int[] seenAt = new int[courseCount];
+            Arrays.fill(seenAt, -1);
+            for (int u = 0; u + 1 < offsets.length; u++) {
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int c = courses[i];
+                    int previous = seenAt[c];
+                    if (previous >= offsets[u]) {
+                        weights[previous] = Math.max(weights[previous], weights[i]);
+                        weights[i] = 0;
+                    } else {
+                        seenAt[c] = i;
+                    }
+                }
+            }
+        }
+
+        // Insert into a descending top-K held in two parallel arrays
+        private static int offer(int[] topIdx, float[] topScore, int found, int candidate, float score) {
+            int k = topIdx.length;
+            if (found == k && score <= topScore[k - 1]) {
+                return found;
+            }
+            int pos = found < k ? found : k - 1;
+            while (pos > 0 && topScore[pos - 1] < score) {
+                topIdx[pos] = topIdx[pos - 1];
+                topScore[pos] = topScore[pos - 1];
+                pos--;
+            }
+            topIdx[pos] = candidate;
+            topScore[pos] = score;
+            return found < k ? found + 1 : found;
+        }
+    }
+
+    /**
+     * Immutable top-K neighbour lists, swapped in whole after each rebuild.
+     */
+    static final class SimilarityModel {
+        static final SimilarityModel EMPTY = new SimilarityModel(new String[0], new int[0][], new float[0][]);
+
+        private final String[] courseIds;
+        private final Map<String, Integer> index;
+        private final int[][] neighbors;
+        private final float[][] scores;
+
+        SimilarityModel(String[] courseIds, int[][] neighbors, float[][] scores) {
+            this.courseIds = courseIds;
+            this.neighbors = neighbors;
+            this.scores = scores;
+            this.index = new HashMap<>(courseIds.length * 2);
+            for (int i = 0; i < courseIds.length; i++) {
+                index.put(courseIds[i], i);
+            }
+        }
+
+        int courseCount() {
+            return courseIds.length;
+        }
+
+        List<String> similarTo(String courseId) {
+            Integer a = index.get(courseId);
+            if (a == null) {
+                return List.of();
+            }
+            List<String> similar = new ArrayList<>(neighbors[a].length);
+            for (int b : neighbors[a]) {
+                similar.add(courseIds[b]);
+            }
+            return similar;
+        }
+
+        List<String> recommend(Collection<String> seedCourseIds, Set<String> excluded, int limit) {
+            if (seedCourseIds == null || seedCourseIds.isEmpty() || limit <= 0 || courseIds.length == 0) {
+                return List.of();
+            }
+            float[] merged = new float[courseIds.length];
+            boolean[] seed = new boolean[courseIds.length];
+            for (String id : seedCourseIds) {
+                Integer a = id == null ? null : index.get(id);
+                if (a != null) {
+                    seed[a] = true;
+                }
+            }
+            int[] candidates = new int[courseIds.length];
+            int candidateCount = 0;
+            for (int a = 0; a < courseIds.length; a++) {
+                if (!seed[a]) {
+                    continue;
+                }
+                for (int n = 0; n < neighbors[a].length; n++) {
+                    int b = neighbors[a][n];
+                    if (seed[b] || (excluded != null && excluded.contains(courseIds[b]))) {
+                        continue;
+                    }
+                    if (merged[b] == 0f) {
+                        candidates[candidateCount++] = b;
+                    }
+                    merged[b] += scores[a][n];
+                }
+            }
+            Integer[] ranked = new Integer[candidateCount];
+            for (int i = 0; i < candidateCount; i++) {
+                ranked[i] = candidates[i];
+            }
+            Arrays.sort(ranked, (x, y) -> Float.compare(merged[y], merged[x]));
+            List<String> result = new ArrayList<>(Math.min(limit, candidateCount));
+            for (int i = 0; i < ranked.length && result.size() < limit; i++) {
+                result.add(courseIds[ranked[i]]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.payload.CourseSearchResult;
+import org.agra.agra_backend.payload.CourseSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * In-memory faceted search over the course catalog.
+ * <p>
+ * Each course summary gets an ordinal and every facet value keeps a {@link BitSet} of the ordinals
+ * carrying it, so a query is a handful of bitset intersections and never touches Mongo. The index is
+ * rebuilt from the summary projection when a course write moves the catalog version: local writes
+ * are seen immediately, writes on other instances within {@code versionCheckMs}.
+ */
+@Service
+public class CourseSearchService {
+
+    public static final String FACET_COUNTRY = "country";
+    public static final String FACET_DOMAIN = "domain";
+    public static final String FACET_LANG = "lang";
+    public static final String FACET_STATUS = "status";
+    public static final String STATUS_ACTIVE = "active";
+    public static final String STATUS_ARCHIVED = "archived";
+    public static final String STATUS_ALL = "all";
+
+    private static final Logger log = LoggerFactory.getLogger(CourseSearchService.class);
+    private static final List<String> FACETS = List.of(FACET_COUNTRY, FACET_DOMAIN, FACET_LANG, FACET_STATUS);
+
+    private final CourseRepository courseRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final long versionCheckMs;
+    private volatile FacetIndex index;
+
+    public CourseSearchService(CourseRepository courseRepository,
+                               @Nullable CatalogVersionService catalogVersionService,
+                               @Value("${courses.search.version-check-ms:1000}") long versionCheckMs) {
+        this.courseRepository = courseRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.versionCheckMs = Math.max(0L, versionCheckMs);
+    }
+
+    /**
+     * Filter values are matched case-insensitively; several values for one facet are OR-ed
+     * ({@code country=GH,TN}). Status defaults to active courses only.
+     */
+    public CourseSearchResult search(@Nullable Collection<String> countries,
+                                     @Nullable Collection<String> domains,
+                                     @Nullable Collection<String> languages,
+                                     @Nullable String status,
+                                     int page,
+                                     int size) {
+        FacetIndex current = current();
+        Map<String, BitSet> filters = new LinkedHashMap<>();
+        filters.put(FACET_COUNTRY, current.anyOf(FACET_COUNTRY, countries));
+        filters.put(FACET_DOMAIN, current.anyOf(FACET_DOMAIN, domains));
+        filters.put(FACET_LANG, current.anyOf(FACET_LANG, languages));
+        String normalizedStatus = status == null || status.isBlank() ? STATUS_ACTIVE : normalize(status);
+        filters.put(FACET_STATUS, STATUS_ALL.equals(normalizedStatus) ? null : current.anyOf(FACET_STATUS, List.of(normalizedStatus)));
+
+        BitSet matches = current.all();
+        for (BitSet filter : filters.values()) {
+            if (filter != null) {
+                matches.and(filter);
+            }
+        }
+
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        BitSet scratch = new BitSet(current.size());
+        for (String facet : FACETS) {
+            // Counts for a facet ignore that facet's own filter
+            BitSet base = current.all();
+            filters.forEach((name, filter) -> {
+                if (filter != null && !name.equals(facet)) {
+                    base.and(filter);
+                }
+            });
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, BitSet> value : current.values(facet).entrySet()) {
+                scratch.clear();
+                scratch.or(base);
+                scratch.and(value.getValue());
+                int count = scratch.cardinality();
+                if (count > 0) {
+                    counts.put(current.label(facet, value.getKey()), count);
+                }
+            }
+            facets.put(facet, counts);
+        }
+
+        int pageSize = Math.max(1, Math.min(size, 200));
+        int skip = Math.max(0, page) * pageSize;
+        List<CourseSummary> courses = new ArrayList<>(pageSize);
+        int seen = 0;
+        for (int i = matches.nextSetBit(0); i >= 0 && courses.size() < pageSize; i = matches.nextSetBit(i + 1)) {
+            if (seen++ >= skip) {
+                courses.add(current.course(i));
+            }
+        }
+        return new CourseSearchResult(courses, matches.cardinality(), Math.max(0, page), pageSize, facets);
+    }
+
+    private FacetIndex current() {
+        FacetIndex current = index;
+        long localVersion = catalogVersionService == null ? 0L : catalogVersionService.localVersion();
+        long now = System.currentTimeMillis();
+        if (current != null && current.localVersion == localVersion && now - current.checkedAt < versionCheckMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = index;
+            String sharedVersion = catalogVersionService == null ? null : catalogVersionService.catalogVersion();
+            if (current != null && current.localVersion == localVersion && catalogVersionService != null
+                    && Objects.equals(current.sharedVersion, sharedVersion)) {
+                current.checkedAt = now;
+                return current;
+            }
+            long started = System.nanoTime();
+            current = FacetIndex.build(courseRepository.findAllSummaries(), localVersion, sharedVersion, now);
+            index = current;
+            log.debug("Course facet index rebuilt: {} course(s) in {} us", current.size(), (System.nanoTime() - started) / 1000);
+            return current;
+        }
+    }
+
+    static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable apart from {@code checkedAt}; swapped in whole on rebuild.
+     */
+    static final class FacetIndex {
+        private final CourseSummary[] courses;
+        private final Map<String, Map<String, BitSet>> facets;
+        private final Map<String, Map<String, String>> labels;
+        private final long localVersion;
+        private final String sharedVersion;
+        private volatile long checkedAt;
+
+        private FacetIndex(CourseSummary[] courses, Map<String, Map<String, BitSet>> facets,
+                           Map<String, Map<String, String>> labels, long localVersion, String sharedVersion, long checkedAt) {
+            this.courses = courses;
+            this.facets = facets;
+            this.labels = labels;
+            this.localVersion = localVersion;
+            this.sharedVersion = sharedVersion;
+            this.checkedAt = checkedAt;
+        }
+
+        static FacetIndex build(List<CourseSummary> summaries, long localVersion, String sharedVersion, long checkedAt) {
+            List<CourseSummary> indexed = summaries == null ? List.of()
+                    : summaries.stream().filter(Objects::nonNull).filter(s -> s.getId() != null).toList();
+            Map<String, Map<String, BitSet>> facets = new HashMap<>();
+            Map<String, Map<String, String>> labels = new HashMap<>();
+            for (String facet : FACETS) {
+                facets.put(facet, new LinkedHashMap<>());
+                labels.put(facet, new HashMap<>());
+            }
+            for (int ordinal = 0; ordinal < indexed.size(); ordinal++) {
+                CourseSummary summary = indexed.get(ordinal);
+                add(facets, labels, FACET_COUNTRY, summary.getCountry(), ordinal);
+                add(facets, labels, FACET_DOMAIN, summary.getDomain(), ordinal);
+                Set<String> languages = new LinkedHashSet<>();
+                if (summary.getDefaultLanguage() != null) {
+                    languages.add(summary.getDefaultLanguage());
+                }
+                if (summary.getLanguagesAvailable() != null) {
+                    languages.addAll(summary.getLanguagesAvailable());
+                }
+                for (String language : languages) {
+                    add(facets, labels, FACET_LANG, language, ordinal);
+                }
+                add(facets, labels, FACET_STATUS, summary.isArchived() ? STATUS_ARCHIVED : STATUS_ACTIVE, ordinal);
+            }
+            return new FacetIndex(indexed.toArray(new CourseSummary[0]), facets, labels, localVersion, sharedVersion, checkedAt);
+        }
+
+        private static void add(Map<String, Map<String, BitSet>> facets, Map<String, Map<String, String>> labels,
+                                String facet, String value, int ordinal) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            String key = normalize(value);
+            facets.get(facet).computeIfAbsent(key, k -> new BitSet()).set(ordinal);
+            labels.get(facet).putIfAbsent(key, value.trim());
+        }
+
+        int size() {
+            return courses.length;
+        }
+
+        CourseSummary course(int ordinal) {
+            return courses[ordinal];
+        }
+
+        BitSet all() {
+            BitSet all = new BitSet(courses.length);
+            all.set(0, courses.length);
+            return all;
+        }
+
+        Map<String, BitSet> values(String facet) {
+            return facets.get(facet);
+        }
+
+        String label(String facet, String key) {
+            return labels.get(facet).getOrDefault(key, key);
+        }
+
+        // Union of the requested values, or null when the facet is not filtered
+        @Nullable
+        BitSet anyOf(String facet, @Nullable Collection<String> values) {
+            if (values == null) {
+                return null;
+            }
+            BitSet union = null;
+            for (String value : values) {
+                if (value == null || value.isBlank()) {
+                    continue;
+                }
+                if (union == null) {
+                    union = new BitSet(courses.length);
+                }
+                BitSet bits = facets.get(facet).get(normalize(value));
+                if (bits != null) {
+                    union.or(bits);
+                }
+            }
+            return union;
+        }
+    }
+}
@@ -4,48 +4,71 @@ package org.agra.agra_backend.service;
 
 import org.agra.agra_backend.dao.CourseRepository;
 import org.agra.agra_backend.model.Course;
-import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.CourseFile;
 import org.agra.agra_backend.model.CourseTranslation;
 import org.agra.agra_backend.model.QuizAnswer;
 import org.agra.agra_backend.model.QuizQuestion;
 import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.payload.CourseDeletionProgress;
+import org.agra.agra_backend.payload.CourseSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 @Service
 public class CourseService {
     private static final String DEFAULT_COURSE_IMAGE_URL = "https://res.cloudinary.com/dmumvupow/image/upload/v1759008723/Default_Can_you_name_the_type_of_farming_Rinjhasfamily_is_enga_2_ciduil.webp";
     private static final Logger log = LoggerFactory.getLogger(CourseService.class);
+    private static final String DETAIL_CACHE = "courses:detail";
+    private static final int FILE_UPDATE_ATTEMPTS = 3;
 
     private CloudinaryService cloudinaryService;
     private CourseProgressService courseProgressService;
+    private MediaProcessingService mediaProcessingService;
+    private CatalogVersionService catalogVersionService;
+    private CacheBatchReader cacheBatchReader;
+    private CourseDeletionService courseDeletionService;
 
     private final CourseRepository courseRepository;
 
-public CourseService(CourseRepository courseRepository, CloudinaryService cloudinaryService, CourseProgressService courseProgressService){
+    // Localized text per course id, built when the course is written and reused by every read
+    private final Map<String, CourseProjection> projections = new ConcurrentHashMap<>();
+
+public CourseService(CourseRepository courseRepository, CloudinaryService cloudinaryService, CourseProgressService courseProgressService,
+                     MediaProcessingService mediaProcessingService, @Nullable CatalogVersionService catalogVersionService,
+                     @Nullable CacheBatchReader cacheBatchReader, @Nullable CourseDeletionService courseDeletionService){
     this.cloudinaryService=cloudinaryService;
     this.courseRepository=courseRepository;
     this.courseProgressService=courseProgressService;
+    this.mediaProcessingService=mediaProcessingService;
+    this.catalogVersionService=catalogVersionService;
+    this.cacheBatchReader=cacheBatchReader;
+    this.courseDeletionService=courseDeletionService;
 
 }
     @Caching(evict = {
-            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active"}, allEntries = true)
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
     })
     public Course createCourse(Course course, MultipartFile courseImage) throws IOException {
         ensureTranslations(course, null);
@@ -67,6 +90,7 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
             course = courseRepository.save(course);
         }
 
+        onCourseWritten(course);
         return course;
     }
 
@@ -82,21 +106,83 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
     }
 
 
+    @Cacheable(cacheNames = "courses:summaries", key = "'all'")
+    public List<CourseSummary> getAllCourseSummaries() {
+        return courseRepository.findAllSummaries();
+    }
+
+    @Cacheable(cacheNames = "courses:summaries", key = "'active'")
+    public List<CourseSummary> getActiveCourseSummaries() {
+        return courseRepository.findActiveSummaries();
+    }
+
+    @Cacheable(cacheNames = "courses:summaries", key = "'country:' + #country")
+    public List<CourseSummary> getCourseSummariesByCountry(String country) {
+        return courseRepository.findSummariesByCountry(country);
+    }
+
+    @Cacheable(cacheNames = "courses:summaries", key = "'domain:' + #domain")
+    public List<CourseSummary> getCourseSummariesByDomain(String domain) {
+        return courseRepository.findSummariesByDomain(domain);
+    }
+
     @Cacheable(cacheNames = "courses:detail", key = "#id")
     public Optional<Course> getCourseById(String id) {
         return courseRepository.findById(id);
     }
 
+    /**
+     * Localized courses for the given ids, in request order, skipping ids that do not exist.
+     * Reads {@code courses:detail} with one MGET, loads the misses with one {@code findAllById}
+     * and back-fills them with one MSET.
+     */
+    public List<Course> getCoursesByIds(Collection<String> ids, Locale locale) {
+        List<String> wanted = ids == null ? List.of()
+                : ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (wanted.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Optional<Course>> cached = cacheBatchReader == null
+                ? new HashMap<>()
+                : cacheBatchReader.getAll(DETAIL_CACHE, wanted, Course.class);
+        Map<String, Course> byId = new HashMap<>();
+        cached.forEach((id, course) -> course.ifPresent(c -> byId.put(id, c)));
+        List<String> misses = wanted.stream().filter(id -> !cached.containsKey(id)).toList();
+        if (!misses.isEmpty()) {
+            Map<String, Course> loaded = new HashMap<>();
+            for (Course course : courseRepository.findAllById(misses)) {
+                loaded.put(course.getId(), course);
+            }
+            byId.putAll(loaded);
+            if (cacheBatchReader != null) {
+                cacheBatchReader.putAll(DETAIL_CACHE, loaded);
+            }
+        }
+        List<Course> courses = new java.util.ArrayList<>(wanted.size());
+        for (String id : wanted) {
+            Course course = byId.get(id);
+            if (course != null) {
+                courses.add(localizeCourse(course, locale));
+            }
+        }
+        return courses;
+    }
+
 
     @Caching(evict = {
-            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active"}, allEntries = true)
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
     })
     public Optional<Course> updateCourse(String id, Course updatedCourse, MultipartFile courseImage) throws IOException {
         return courseRepository.findById(id)
-                .map(existingCourse -> updateCourseInternal(existingCourse, updatedCourse, courseImage));
+                .map(existingCourse -> updateCourseInternal(existingCourse, updatedCourse, courseImage))
+                .map(this::onCourseWritten);
     }
 
     private Course updateCourseInternal(Course existingCourse, Course updatedCourse, MultipartFile courseImage) {
+        // Editors that send the version they loaded must not overwrite a newer revision
+        if (updatedCourse.getVersion() != null && !updatedCourse.getVersion().equals(existingCourse.getVersion())) {
+            throw new OptimisticLockingFailureException("Course " + existingCourse.getId() + " was modified by another editor");
+        }
         applyCourseUpdates(existingCourse, updatedCourse);
         existingCourse.setUpdatedAt(new java.util.Date());
         existingCourse = courseRepository.save(existingCourse);
@@ -196,6 +282,9 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
 
     private Course getCourse(MultipartFile courseImage, Course existingCourse) throws IOException {
         String folderPath = "courses/" + existingCourse.getId();
+        if (mediaProcessingService != null) {
+            return submitCourseImage(courseImage, existingCourse, folderPath);
+        }
         Map<String, Object> uploadResult = cloudinaryService.uploadImageToFolder(courseImage, folderPath);
         String imageUrl = (String) uploadResult.get("secure_url");
         String publicId = (String) uploadResult.get("public_id");
@@ -207,35 +296,60 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
         String filename = publicId.substring(publicId.lastIndexOf('/') + 1);
         existingCourse.setThumbnailUrl(baseUrl + "c_fill,w_300,h_200/" + filename);
         existingCourse.setDetailImageUrl(baseUrl + "c_fit,w_800,h_600/" + filename);
+        existingCourse.setMediaStatus(MediaProcessingService.STATUS_READY);
 
         existingCourse = courseRepository.save(existingCourse);
         return existingCourse;
     }
 
+    /**
+     * Spools the course image and hands it to the media workers. The course keeps its current
+     * image (or the default one) until the worker patches in the uploaded URLs.
+     */
+    private Course submitCourseImage(MultipartFile courseImage, Course existingCourse, String folderPath) throws IOException {
+        java.nio.file.Path spooled = mediaProcessingService.spool(courseImage);
+        if (existingCourse.getImageUrl() == null || existingCourse.getImageUrl().isEmpty()) {
+            existingCourse.setImageUrl(DEFAULT_COURSE_IMAGE_URL);
+            existingCourse.setThumbnailUrl(DEFAULT_COURSE_IMAGE_URL);
+            existingCourse.setDetailImageUrl(DEFAULT_COURSE_IMAGE_URL);
+        }
+        existingCourse.setMediaStatus(MediaProcessingService.STATUS_PENDING);
+        existingCourse = courseRepository.save(existingCourse);
+        if (!mediaProcessingService.submitCourseImage(existingCourse.getId(), existingCourse.getTrainerId(), spooled, folderPath)) {
+            existingCourse.setMediaStatus(MediaProcessingService.STATUS_FAILED);
+        }
+        return existingCourse;
+    }
+
     @Caching(evict = {
-            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active"}, allEntries = true)
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
     })
     public void deleteCourse(String id) {
-        
-        // First, delete all enrollments for this course to prevent orphaned records
+        courseRepository.deleteById(id);
+        invalidateProjection(id);
+        if (catalogVersionService != null) {
+            catalogVersionService.courseChanged(id);
+        }
+
+        // Enrollments, likes, certificates and sessions are removed in the background in batches
+        if (courseDeletionService != null) {
+            courseDeletionService.cascade(id);
+            return;
+        }
         try {
-            List<CourseProgress> enrollments = courseProgressService.getCourseEnrollments(id);
-            
-            for (CourseProgress enrollment : enrollments) {
-                courseProgressService.unenrollUser(enrollment.getUserId(), id);
-            }
+            courseProgressService.deleteCourseEnrollments(id);
         } catch (Exception e) {
             log.warn("CourseService: Error deleting enrollments for courseId={}", id, e);
-            // Continue with course deletion even if enrollment cleanup fails
         }
-        
-        // Then delete the course
-        courseRepository.deleteById(id);
+    }
+
+    public Optional<CourseDeletionProgress> getDeletionProgress(String id) {
+        return courseDeletionService == null ? Optional.empty() : courseDeletionService.getProgress(id);
     }
 
 
     @Caching(evict = {
-            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active"}, allEntries = true)
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
     })
     public void ArchiveCourse(String id) {
         Optional<Course> courseOpt = courseRepository.findById(id);
@@ -243,7 +357,7 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
             Course course = courseOpt.get();
             course.setArchived(!course.isArchived());
             course.setUpdatedAt(new Date());
-            courseRepository.save(course);
+            onCourseWritten(courseRepository.save(course));
         } else {
             throw new RuntimeException("Course not found with id: " + id);
         }
@@ -262,10 +376,65 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
     }
     
     @Caching(evict = {
-            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active"}, allEntries = true)
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
     })
     public Course save(Course course) {
-        return courseRepository.save(course);
+        return onCourseWritten(courseRepository.save(course));
+    }
+
+    /**
+     * Attach a file to the course as it is stored now rather than a cached copy, whose version would
+     * be stale. Appending commutes with any other edit, so a save that loses the version check is
+     * retried on a fresh read a few times before the conflict is reported. Empty when the course
+     * does not exist.
+     */
+    @Caching(evict = {
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
+    })
+    public Optional<Course> addFile(String courseId, CourseFile file) {
+        return updateFiles(courseId, files -> files.add(file));
+    }
+
+    /**
+     * Detach a file from the stored course, retried like {@link #addFile}. Returns the removed file,
+     * or empty when the course or the file does not exist.
+     */
+    @Caching(evict = {
+            @CacheEvict(value = {"courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries", "courses:lesson"}, allEntries = true)
+    })
+    public Optional<CourseFile> removeFile(String courseId, String fileId) {
+        CourseFile[] removed = new CourseFile[1];
+        updateFiles(courseId, files -> {
+            removed[0] = files.stream().filter(f -> f != null && fileId.equals(f.getId())).findFirst().orElse(null);
+            return removed[0] != null && files.remove(removed[0]);
+        });
+        return Optional.ofNullable(removed[0]);
+    }
+
+    private Optional<Course> updateFiles(String courseId, Predicate<List<CourseFile>> change) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<Course> stored = courseRepository.findById(courseId);
+            if (stored.isEmpty()) {
+                return stored;
+            }
+            Course course = stored.get();
+            if (course.getFiles() == null) {
+                course.setFiles(new ArrayList<>());
+            }
+            if (!change.test(course.getFiles())) {
+                return stored;
+            }
+            course.setUpdatedAt(new Date());
+            try {
+                return Optional.of(onCourseWritten(courseRepository.save(course)));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= FILE_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Course {} changed while updating its files, retrying ({}/{})", courseId, attempt,
+                        FILE_UPDATE_ATTEMPTS);
+            }
+        }
     }
     
     /**
@@ -345,23 +514,22 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
         answer.setText(normalizeMap(answer.getText()));
     }
 
+    /**
+     * Localize a course for the given locale. Text comes from the course's precomputed projection;
+     * only the scalar fields are copied per call, by hand, so the per-user {@code liked} flag can be
+     * set on the copy without touching shared state.
+     */
     public Course localizeCourse(Course course, Locale locale) {
         if (course == null) return null;
-        Course localized = new Course();
-        BeanUtils.copyProperties(course, localized);
-        ensureTextContentTranslations(localized);
-        if (course.getTranslations() == null || course.getTranslations().isEmpty()) {
-            return localized;
-        }
-
-        CourseTranslation translation = resolveTranslation(course, locale);
-
+        CourseProjection projection = projectionFor(course);
+        Course localized = copyScalarFields(course);
+        localized.setTextContent(projection.textContent);
+        CourseTranslation translation = projection.resolve(locale);
         if (translation != null) {
             if (translation.getTitle() != null) localized.setTitle(translation.getTitle());
             if (translation.getDescription() != null) localized.setDescription(translation.getDescription());
             if (translation.getGoals() != null) localized.setGoals(translation.getGoals());
         }
-
         return localized;
     }
 
@@ -374,6 +542,237 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
         return localized;
     }
 
+    /**
+     * Localized copies of catalog summaries. The translation map is resolved to one title and
+     * description and then dropped from the copy, so it is not repeated in every card.
+     */
+    public List<CourseSummary> localizeSummaries(List<CourseSummary> summaries, Locale locale) {
+        if (summaries == null || summaries.isEmpty()) return summaries;
+        List<CourseSummary> localized = new java.util.ArrayList<>(summaries.size());
+        for (CourseSummary summary : summaries) {
+            localized.add(localizeSummary(summary, locale));
+        }
+        return localized;
+    }
+
+    private CourseSummary localizeSummary(CourseSummary source, Locale locale) {
+        if (source == null) return null;
+        CourseSummary copy = new CourseSummary();
+        copy.setId(source.getId());
+        copy.setTitle(source.getTitle());
+        copy.setDescription(source.getDescription());
+        copy.setDefaultLanguage(source.getDefaultLanguage());
+        copy.setDomain(source.getDomain());
+        copy.setCountry(source.getCountry());
+        copy.setTrainerId(source.getTrainerId());
+        copy.setLanguagesAvailable(source.getLanguagesAvailable());
+        copy.setImageUrl(source.getImageUrl());
+        copy.setThumbnailUrl(source.getThumbnailUrl());
+        copy.setMediaStatus(source.getMediaStatus());
+        copy.setArchived(source.isArchived());
+        copy.setActiveCall(source.isActiveCall());
+        copy.setLiked(source.isLiked());
+        copy.setLessonCount(source.getLessonCount());
+        copy.setFileCount(source.getFileCount());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        CourseTranslation translation = resolveTranslation(source.getTranslations(), locale, source.getDefaultLanguage());
+        if (translation != null) {
+            if (translation.getTitle() != null) copy.setTitle(translation.getTitle());
+            if (translation.getDescription() != null) copy.setDescription(translation.getDescription());
+        }
+        return copy;
+    }
+
+    /**
+     * Apply the normalization {@link #createCourse} does to a course arriving through a bulk import,
+     * without saving it.
+     *
+     * @throws IllegalArgumentException when the course has no title in any language
+     */
+    Course prepareImported(Course course) {
+        ensureTranslations(course, null);
+        ensureTextContentTranslations(course);
+        generateTextContentIds(course);
+        boolean titled = course.getTranslations() != null && course.getTranslations().values().stream()
+                .anyMatch(translation -> translation != null && translation.getTitle() != null && !translation.getTitle().isBlank());
+        if (!titled) {
+            throw new IllegalArgumentException("Course has no title in any language");
+        }
+        if (course.getImageUrl() == null) {
+            course.setImageUrl(DEFAULT_COURSE_IMAGE_URL);
+            course.setThumbnailUrl(DEFAULT_COURSE_IMAGE_URL);
+            course.setDetailImageUrl(DEFAULT_COURSE_IMAGE_URL);
+        }
+        return course;
+    }
+
+    void invalidateProjection(String courseId) {
+        if (courseId != null) {
+            projections.remove(courseId);
+        }
+    }
+
+    // Rebuild the projection and move the catalog version so conditional reads see the write
+    private Course onCourseWritten(Course course) {
+        if (course != null && course.getId() != null) {
+            projections.put(course.getId(), buildProjection(course));
+            if (catalogVersionService != null) {
+                catalogVersionService.courseChanged(course);
+            }
+        }
+        return course;
+    }
+
+    /**
+     * Writes through this service refresh the projection eagerly; the updatedAt check rebuilds it
+     * when another instance (or a cached copy) carries a newer version of the course.
+     */
+    private CourseProjection projectionFor(Course course) {
+        if (course.getId() == null) {
+            return buildProjection(course);
+        }
+        CourseProjection projection = projections.get(course.getId());
+        if (projection == null || !Objects.equals(projection.sourceUpdatedAt, course.getUpdatedAt())) {
+            projection = buildProjection(course);
+            projections.put(course.getId(), projection);
+        }
+        return projection;
+    }
+
+    private CourseProjection buildProjection(Course course) {
+        Map<String, CourseTranslation> translations = new HashMap<>();
+        if (course.getTranslations() != null) {
+            course.getTranslations().forEach((language, translation) -> {
+                if (translation != null) {
+                    translations.put(language, copyTranslation(translation));
+                }
+            });
+        }
+        List<TextContent> textContent = null;
+        if (course.getTextContent() != null) {
+            List<TextContent> copies = new java.util.ArrayList<>(course.getTextContent().size());
+            for (TextContent lesson : course.getTextContent()) {
+                copies.add(copyTextContent(lesson));
+            }
+            Course holder = new Course();
+            holder.setTextContent(copies);
+            ensureTextContentTranslations(holder);
+            textContent = Collections.unmodifiableList(copies);
+        }
+        return new CourseProjection(course.getUpdatedAt(), course.getDefaultLanguage(), translations, textContent);
+    }
+
+    private static Course copyScalarFields(Course source) {
+        Course copy = new Course();
+        copy.setId(source.getId());
+        copy.setVersion(source.getVersion());
+        copy.setTitle(source.getTitle());
+        copy.setDescription(source.getDescription());
+        copy.setGoals(source.getGoals());
+        copy.setDefaultLanguage(source.getDefaultLanguage());
+        copy.setTranslations(source.getTranslations());
+        copy.setDomain(source.getDomain());
+        copy.setCountry(source.getCountry());
+        copy.setTrainerId(source.getTrainerId());
+        copy.setSessionIds(source.getSessionIds());
+        copy.setLanguagesAvailable(source.getLanguagesAvailable());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setArchived(source.isArchived());
+        copy.setActiveCall(source.isActiveCall());
+        copy.setLiked(source.isLiked());
+        copy.setImagePublicId(source.getImagePublicId());
+        copy.setImageUrl(source.getImageUrl());
+        copy.setThumbnailUrl(source.getThumbnailUrl());
+        copy.setDetailImageUrl(source.getDetailImageUrl());
+        copy.setMediaStatus(source.getMediaStatus());
+        copy.setImageRenditions(source.getImageRenditions());
+        copy.setVideoUrl(source.getVideoUrl());
+        copy.setVideoPublicId(source.getVideoPublicId());
+        copy.setFiles(source.getFiles());
+        copy.setTextContent(source.getTextContent());
+        return copy;
+    }
+
+    private static CourseTranslation copyTranslation(CourseTranslation source) {
+        CourseTranslation copy = new CourseTranslation();
+        copy.setTitle(source.getTitle());
+        copy.setDescription(source.getDescription());
+        copy.setGoals(source.getGoals() != null ? List.copyOf(source.getGoals()) : null);
+        return copy;
+    }
+
+    private static TextContent copyTextContent(TextContent source) {
+        if (source == null) {
+            return null;
+        }
+        Map<String, org.agra.agra_backend.model.TextContentTranslation> translations = null;
+        if (source.getTranslations() != null) {
+            translations = new HashMap<>();
+            for (Map.Entry<String, org.agra.agra_backend.model.TextContentTranslation> entry : source.getTranslations().entrySet()) {
+                org.agra.agra_backend.model.TextContentTranslation tr = entry.getValue();
+                translations.put(entry.getKey(), tr == null ? null
+                        : new org.agra.agra_backend.model.TextContentTranslation(tr.getTitle(), tr.getContent()));
+            }
+        }
+        List<QuizQuestion> questions = null;
+        if (source.getQuizQuestions() != null) {
+            questions = new java.util.ArrayList<>(source.getQuizQuestions().size());
+            for (QuizQuestion question : source.getQuizQuestions()) {
+                questions.add(copyQuizQuestion(question));
+            }
+        }
+        return new TextContent(source.getId(), source.getOrder(), source.getType(),
+                copyMap(source.getTitle()), copyMap(source.getContent()), translations, questions);
+    }
+
+    private static QuizQuestion copyQuizQuestion(QuizQuestion source) {
+        if (source == null) {
+            return null;
+        }
+        List<QuizAnswer> answers = null;
+        if (source.getAnswers() != null) {
+            answers = new java.util.ArrayList<>(source.getAnswers().size());
+            for (QuizAnswer answer : source.getAnswers()) {
+                answers.add(answer == null ? null : new QuizAnswer(answer.getId(), copyMap(answer.getText()), answer.isCorrect()));
+            }
+        }
+        return new QuizQuestion(source.getId(), copyMap(source.getQuestion()), answers);
+    }
+
+    private static Map<String, String> copyMap(Map<String, String> source) {
+        return source != null ? new HashMap<>(source) : null;
+    }
+
+    /**
+     * Immutable localized view of one course version. Locale resolution is memoized per locale.
+     */
+    private final class CourseProjection {
+        private final Date sourceUpdatedAt;
+        private final String defaultLanguage;
+        private final Map<String, CourseTranslation> translations;
+        private final List<TextContent> textContent;
+        private final Map<Locale, Optional<CourseTranslation>> resolved = new ConcurrentHashMap<>();
+
+        private CourseProjection(Date sourceUpdatedAt, String defaultLanguage,
+                                 Map<String, CourseTranslation> translations, List<TextContent> textContent) {
+            this.sourceUpdatedAt = sourceUpdatedAt;
+            this.defaultLanguage = defaultLanguage;
+            this.translations = translations;
+            this.textContent = textContent;
+        }
+
+        private CourseTranslation resolve(Locale locale) {
+            if (translations.isEmpty()) {
+                return null;
+            }
+            Locale key = locale != null ? locale : Locale.ROOT;
+            return resolved.computeIfAbsent(key,
+                    l -> Optional.ofNullable(resolveTranslation(translations, locale, defaultLanguage))).orElse(null);
+        }
+    }
+
     private void ensureTranslations(Course target, Course source) {
         if (target == null) return;
         String defaultLanguage = resolveDefaultLanguage(source != null ? source.getDefaultLanguage() : null,
@@ -433,11 +832,6 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
         merged.put(key, existing);
     }
 
-    private CourseTranslation resolveTranslation(Course course, Locale locale) {
-        if (course == null || course.getTranslations() == null || course.getTranslations().isEmpty()) return null;
-        return resolveTranslation(course.getTranslations(), locale, course.getDefaultLanguage());
-    }
-
     private void mergeTranslationMapsIntoFields(
             Map<String, org.agra.agra_backend.model.TextContentTranslation> translations,
             Map<String, String> title,
@@ -504,7 +898,7 @@ public CourseService(CourseRepository courseRepository, CloudinaryService cloudi
         return translations.values().stream().findFirst().orElse(null);
     }
 
-    private List<String> buildTranslationKeys(Locale locale, String defaultLanguage) {
+    List<String> buildTranslationKeys(Locale locale, String defaultLanguage) {
         List<String> keys = new java.util.ArrayList<>();
         if (locale != null) {
             String language = locale.getLanguage();
@@ -0,0 +1,272 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.agra.agra_backend.model.Course;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-rendered, gzip-compressed JSON for the anonymous course reads: both catalog listings and every
+ * course detail, once per supported locale, written to a local directory.
+ * <p>
+ * A snapshot is tied to the catalog version it was rendered at. Writes on this instance make it
+ * unusable at once; writes elsewhere are noticed by the periodic check. Either way a new generation
+ * is rendered into a fresh directory and swapped in whole, reusing (hard-linking) the files of
+ * courses whose {@code updatedAt} did not move. Requests fall back to the controllers whenever no
+ * current snapshot exists.
+ */
+@Service
+public class CourseSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseSnapshotService.class);
+    public static final String CATALOG_ALL = "all";
+    public static final String CATALOG_ACTIVE = "active";
+    // Ids end up in file names
+    private static final Pattern SAFE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    // The generation being served and the one before it, which a request may still be sending
+    private static final int KEPT_GENERATIONS = 2;
+
+    private final CourseService courseService;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersionService catalogVersionService;
+    private final boolean enabled;
+    private final Path root;
+    private final List<Locale> locales;
+    private final AtomicLong generation = new AtomicLong();
+    private final Deque<Path> generations = new ArrayDeque<>();
+    private volatile Snapshot published;
+    // Last generation rendered, served or not; its files are reused by the next one
+    private volatile Snapshot lastRendered;
+
+    public CourseSnapshotService(CourseService courseService,
+                                 MongoTemplate mongoTemplate,
+                                 ObjectMapper objectMapper,
+                                 @Nullable CatalogVersionService catalogVersionService,
+                                 @Value("${courses.snapshots.enabled:true}") boolean enabled,
+                                 @Value("${courses.snapshots.dir:${java.io.tmpdir}/agra-course-snapshots}") String directory,
+                                 @Value("${courses.snapshots.locales:en,fr,ar}") List<String> locales) {
+        this.courseService = courseService;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.catalogVersionService = catalogVersionService;
+        // Without version tracking there is no way to tell a stale snapshot from a current one
+        this.enabled = enabled && catalogVersionService != null;
+        this.root = Paths.get(directory);
+        this.locales = locales.stream().map(String::trim).filter(tag -> !tag.isEmpty()).map(Locale::forLanguageTag).toList();
+    }
+
+    /**
+     * Pre-rendered listing ({@link #CATALOG_ALL} or {@link #CATALOG_ACTIVE}), if a current one exists.
+     */
+    public Optional<SnapshotFile> catalog(String kind, Locale locale) {
+        Snapshot snapshot = current();
+        return snapshot == null ? Optional.empty() : Optional.ofNullable(snapshot.files.get(catalogKey(kind, locale)));
+    }
+
+    /**
+     * Pre-rendered course detail, if a current snapshot contains the course.
+     */
+    public Optional<SnapshotFile> course(String courseId, Locale locale) {
+        Snapshot snapshot = current();
+        return snapshot == null ? Optional.empty() : Optional.ofNullable(snapshot.files.get(courseKey(courseId, locale)));
+    }
+
+    @Scheduled(fixedDelayString = "${courses.snapshots.version-check-ms:1000}",
+            initialDelayString = "${courses.snapshots.version-check-ms:1000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long localVersion = catalogVersionService.localVersion();
+            String sharedVersion = catalogVersionService.catalogVersion();
+            Snapshot snapshot = published;
+            if (snapshot != null && snapshot.localVersion == localVersion && Objects.equals(snapshot.sharedVersion, sharedVersion)) {
+                return;
+            }
+            // Stop serving before rendering, so a write elsewhere is never answered from the old files
+            published = null;
+            long started = System.nanoTime();
+            Snapshot rendered = render(lastRendered, localVersion, sharedVersion);
+            if (catalogVersionService.localVersion() != localVersion
+                    || !Objects.equals(catalogVersionService.catalogVersion(), sharedVersion)) {
+                // Written to while rendering; discard and try again on the next check
+                discard(rendered.directory);
+                return;
+            }
+            retire(rendered.directory);
+            lastRendered = rendered;
+            published = rendered;
+            log.debug("Course snapshots rendered: {} file(s) in {} ms", rendered.files.size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not render course snapshots: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        published = null;
+        lastRendered = null;
+        synchronized (generations) {
+            while (!generations.isEmpty()) {
+                discard(generations.poll());
+            }
+        }
+    }
+
+    @Nullable
+    private Snapshot current() {
+        Snapshot snapshot = published;
+        if (snapshot == null || snapshot.localVersion != catalogVersionService.localVersion()) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    private Snapshot render(@Nullable Snapshot previous, long localVersion, String sharedVersion) throws IOException {
+        Path directory = Files.createDirectories(root.resolve("gen-" + System.currentTimeMillis() + "-" + generation.incrementAndGet()));
+        Map<String, SnapshotFile> files = new HashMap<>();
+        Map<String, Date> rendered = new HashMap<>();
+        try {
+            for (Locale locale : locales) {
+                String etag = catalogVersionService.catalogEtag(locale, null);
+                files.put(catalogKey(CATALOG_ALL, locale), write(directory.resolve("catalog-all-" + tag(locale) + ".json.gz"),
+                        courseService.localizeSummaries(courseService.getAllCourseSummaries(), locale), etag));
+                files.put(catalogKey(CATALOG_ACTIVE, locale), write(directory.resolve("catalog-active-" + tag(locale) + ".json.gz"),
+                        courseService.localizeSummaries(courseService.getActiveCourseSummaries(), locale), etag));
+            }
+            try (Stream<Course> courses = mongoTemplate.stream(new Query(), Course.class)) {
+                Iterator<Course> iterator = courses.iterator();
+                while (iterator.hasNext()) {
+                    Course course = iterator.next();
+                    if (course.getId() == null || !SAFE_ID.matcher(course.getId()).matches()) {
+                        continue;
+                    }
+                    boolean unchanged = previous != null && previous.rendered.containsKey(course.getId())
+                            && Objects.equals(previous.rendered.get(course.getId()), course.getUpdatedAt());
+                    for (Locale locale : locales) {
+                        String key = courseKey(course.getId(), locale);
+                        Path target = directory.resolve("course-" + course.getId() + "-" + tag(locale) + ".json.gz");
+                        SnapshotFile reused = unchanged ? previous.files.get(key) : null;
+                        files.put(key, reused != null ? link(reused, target) : write(target,
+                                courseService.localizeCourse(course, locale), courseEtag(course, locale)));
+                    }
+                    rendered.put(course.getId(), course.getUpdatedAt());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            discard(directory);
+            throw e;
+        }
+        return new Snapshot(directory, files, rendered, localVersion, sharedVersion);
+    }
+
+    // Same validator the detail endpoint would send, so clients can move between the two paths
+    private String courseEtag(Course course, Locale locale) {
+        String stored = catalogVersionService.courseEtag(course.getId(), locale, null);
+        return stored != null ? stored : catalogVersionService.courseEtag(course, locale, null);
+    }
+
+    private SnapshotFile write(Path target, Object body, String etag) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 8192)) {
+            objectMapper.writeValue(out, body);
+        }
+        return new SnapshotFile(target, etag, Files.size(target));
+    }
+
+    private static SnapshotFile link(SnapshotFile source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source.getPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source.getPath(), target);
+        }
+        return new SnapshotFile(target, source.getEtag(), source.getLength());
+    }
+
+    private void retire(Path directory) {
+        synchronized (generations) {
+            generations.addLast(directory);
+            while (generations.size() > KEPT_GENERATIONS) {
+                discard(generations.pollFirst());
+            }
+        }
+    }
+
+    private static void discard(Path directory) {
+        try {
+            FileSystemUtils.deleteRecursively(directory);
+        } catch (IOException e) {
+            log.debug("Could not delete snapshot directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static String catalogKey(String kind, Locale locale) {
+        return "catalog:" + kind + ":" + tag(locale);
+    }
+
+    private static String courseKey(String courseId, Locale locale) {
+        return "course:" + courseId + ":" + tag(locale);
+    }
+
+    private static String tag(Locale locale) {
+        return locale == null ? "und" : locale.toLanguageTag();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class SnapshotFile {
+        private final Path path;
+        private final String etag;
+        private final long length;
+    }
+
+    private static final class Snapshot {
+        private final Path directory;
+        private final Map<String, SnapshotFile> files;
+        // updatedAt of every rendered course, to reuse its files in the next generation
+        private final Map<String, Date> rendered;
+        private final long localVersion;
+        private final String sharedVersion;
+
+        private Snapshot(Path directory, Map<String, SnapshotFile> files, Map<String, Date> rendered,
+                         long localVersion, String sharedVersion) {
+            this.directory = directory;
+            this.files = files;
+            this.rendered = rendered;
+            this.localVersion = localVersion;
+            this.sharedVersion = sharedVersion;
+        }
+    }
+}
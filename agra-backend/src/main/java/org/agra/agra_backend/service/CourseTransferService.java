@@ -0,0 +1,259 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.payload.CourseImportReport;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * NDJSON export and import of the whole course catalog, one course per line.
+ * <p>
+ * Both directions stream: export reads through a Mongo cursor and import reads line by line, holding
+ * at most one batch of courses at a time. Imported courses get the same normalization as courses
+ * created through {@link CourseService}, are written with one ordered bulk upsert per batch, and the
+ * course caches are invalidated once when the whole file has been applied.
+ */
+@Service
+public class CourseTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseTransferService.class);
+    static final String ACTION_CREATE = "CREATE";
+    static final String ACTION_UPDATE = "UPDATE";
+    // Entries and errors kept in the report; the counters keep going past this
+    static final int MAX_REPORTED = 1000;
+    // Bookkeeping fields an import always rewrites, plus transient ones that are never stored
+    private static final Set<String> NOT_COMPARED = Set.of(
+            "id", "version", "createdAt", "updatedAt", "liked", "title", "description", "goals");
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+
+    private final MongoTemplate mongoTemplate;
+    private final CourseService courseService;
+    private final CatalogVersionService catalogVersionService;
+    private final int batchSize;
+
+    public CourseTransferService(MongoTemplate mongoTemplate,
+                                 CourseService courseService,
+                                 @Nullable CatalogVersionService catalogVersionService,
+                                 @Value("${courses.transfer.batch-size:200}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.courseService = courseService;
+        this.catalogVersionService = catalogVersionService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Write every course to {@code output} as one JSON document per line, in id order.
+     *
+     * @return the number of courses written
+     */
+    public long exportCourses(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+        long count = 0;
+        try (Stream<Course> courses = mongoTemplate.stream(query, Course.class)) {
+            Iterator<Course> iterator = courses.iterator();
+            while (iterator.hasNext()) {
+                writer.write(MAPPER.writeValueAsString(iterator.next()));
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Apply an NDJSON file of courses. Lines that do not parse or fail validation are reported and
+     * skipped; the rest are upserted by id, or created with a fresh id when they have none. With
+     * {@code dryRun} nothing is written and the report lists what would change.
+     */
+    public CourseImportReport importCourses(InputStream input, boolean dryRun) throws IOException {
+        CourseImportReport report = new CourseImportReport();
+        report.setDryRun(dryRun);
+        Map<String, Pending> batch = new LinkedHashMap<>();
+        Set<String> written = new LinkedHashSet<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try {
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                report.setProcessed(report.getProcessed() + 1);
+                Course course;
+                try {
+                    course = courseService.prepareImported(MAPPER.readValue(text, Course.class));
+                } catch (JsonProcessingException e) {
+                    reject(report, line, "Invalid JSON: " + e.getOriginalMessage());
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    reject(report, line, e.getMessage());
+                    continue;
+                }
+                if (course.getId() == null || course.getId().isBlank()) {
+                    course.setId(new ObjectId().toHexString());
+                }
+                // A repeated id goes into the next batch so the later line wins
+                if (batch.containsKey(course.getId())) {
+                    flush(batch, report, dryRun, written);
+                }
+                batch.put(course.getId(), new Pending(line, course));
+                if (batch.size() >= batchSize) {
+                    flush(batch, report, dryRun, written);
+                }
+            }
+            flush(batch, report, dryRun, written);
+        } finally {
+            if (!written.isEmpty()) {
+                log.info("Imported {} course(s)", written.size());
+                if (catalogVersionService != null) {
+                    catalogVersionService.coursesChanged(written);
+                }
+            }
+        }
+        return report;
+    }
+
+    private void flush(Map<String, Pending> batch, CourseImportReport report, boolean dryRun, Set<String> written) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Course> existing = new HashMap<>();
+        for (Course course : mongoTemplate.find(Query.query(Criteria.where("_id").in(batch.keySet())), Course.class)) {
+            existing.put(course.getId(), course);
+        }
+
+        Date now = new Date();
+        BulkOperations operations = null;
+        List<String> batchIds = new ArrayList<>(batch.size());
+        for (Pending pending : batch.values()) {
+            Course course = pending.course;
+            Course current = existing.get(course.getId());
+            List<String> changed = current == null ? List.of() : changedFields(current, course);
+            if (current != null && changed.isEmpty()) {
+                report.setUnchanged(report.getUnchanged() + 1);
+                continue;
+            }
+            if (current == null) {
+                report.setCreated(report.getCreated() + 1);
+            } else {
+                report.setUpdated(report.getUpdated() + 1);
+            }
+            record(report, new CourseImportReport.Entry(pending.line, course.getId(),
+                    current == null ? ACTION_CREATE : ACTION_UPDATE, changed));
+            if (dryRun) {
+                continue;
+            }
+
+            if (current != null && current.getCreatedAt() != null) {
+                course.setCreatedAt(current.getCreatedAt());
+            } else if (course.getCreatedAt() == null) {
+                course.setCreatedAt(now);
+            }
+            course.setUpdatedAt(now);
+            course.setVersion(current == null || current.getVersion() == null ? 0L : current.getVersion() + 1);
+            if (operations == null) {
+                operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Course.class);
+            }
+            operations.replaceOne(Query.query(Criteria.where("_id").is(course.getId())), course,
+                    FindAndReplaceOptions.options().upsert());
+            batchIds.add(course.getId());
+        }
+        if (operations != null) {
+            // Recorded before executing so a failed batch still gets its partial writes invalidated
+            written.addAll(batchIds);
+            operations.execute();
+        }
+        batch.clear();
+    }
+
+    // Top-level stored fields whose JSON differs between the stored and the imported course
+    static List<String> changedFields(Course current, Course incoming) {
+        JsonNode before = MAPPER.valueToTree(current);
+        JsonNode after = MAPPER.valueToTree(incoming);
+        Set<String> names = new TreeSet<>();
+        before.fieldNames().forEachRemaining(names::add);
+        after.fieldNames().forEachRemaining(names::add);
+        List<String> changed = new ArrayList<>();
+        for (String name : names) {
+            if (!NOT_COMPARED.contains(name) && !Objects.equals(before.get(name), after.get(name))) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+    private static void record(CourseImportReport report, CourseImportReport.Entry entry) {
+        if (report.getChanges().size() < MAX_REPORTED) {
+            report.getChanges().add(entry);
+        } else {
+            report.setTruncated(true);
+        }
+    }
+
+    private static void reject(CourseImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED) {
+            report.getErrors().add(new CourseImportReport.LineError(line, message));
+        } else {
+            report.setTruncated(true);
+        }
+    }
+
+    private static final class Pending {
+        private final long line;
+        private final Course course;
+
+        private Pending(long line, Course course) {
+            this.line = line;
+            this.course = course;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package org.agra.agra_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes uploaded images locally and writes bounded renditions (thumb, medium, full) before they
+ * go to storage, so clients on slow connections never download the camera original.
+ * <p>
+ * Decoding is the expensive and memory-hungry part, so it runs on a small fixed pool with a bounded
+ * queue; callers get an IOException when the pool is saturated and can retry later. Large sources
+ * are subsampled while decoding so the raster held in memory is never much bigger than the largest
+ * rendition. Renditions are cascaded (full, then medium from full, then thumb from medium) and
+ * encoded as WebP when an ImageIO WebP writer is registered, JPEG otherwise. Metadata is dropped,
+ * after the EXIF orientation has been applied to the pixels.
+ */
+@Service
+public class ImageRenditionService {
+
+    public static final String THUMB = "thumb";
+    public static final String MEDIUM = "medium";
+    public static final String FULL = "full";
+
+    private static final Logger log = LoggerFactory.getLogger(ImageRenditionService.class);
+    private static final String WEBP_MIME = "image/webp";
+    private static final String JPEG_MIME = "image/jpeg";
+
+    private final Map<String, Integer> maxEdges = new LinkedHashMap<>();
+    private final float quality;
+    private final long maxSourcePixels;
+    private final String contentType;
+    private final ThreadPoolExecutor executor;
+
+    public ImageRenditionService(@Value("${media.renditions.thumb-px:320}") int thumbPx,
+                                 @Value("${media.renditions.medium-px:960}") int mediumPx,
+                                 @Value("${media.renditions.full-px:1920}") int fullPx,
+                                 @Value("${media.renditions.quality:0.8}") float quality,
+                                 @Value("${media.renditions.format:auto}") String format,
+                                 @Value("${media.renditions.max-source-pixels:100000000}") long maxSourcePixels,
+                                 @Value("${media.renditions.threads:2}") int threads,
+                                 @Value("${media.renditions.queue-capacity:50}") int queueCapacity) {
+        maxEdges.put(FULL, Math.max(1, fullPx));
+        maxEdges.put(MEDIUM, Math.max(1, mediumPx));
+        maxEdges.put(THUMB, Math.max(1, thumbPx));
+        this.quality = Math.min(1f, Math.max(0.1f, quality));
+        this.maxSourcePixels = Math.max(1L, maxSourcePixels);
+        this.contentType = resolveContentType(format);
+        int poolSize = Math.max(1, threads);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "image-rendition-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Image renditions: {} encoded as {}", maxEdges, contentType);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Render every configured rendition of {@code source} into {@code outputDir} on the rendition pool.
+     */
+    public List<Rendition> render(Path source, Path outputDir) throws IOException {
+        return render(source, outputDir, List.copyOf(maxEdges.keySet()));
+    }
+
+    /**
+     * Render the named renditions on the rendition pool and wait for the result. Returns an empty
+     * list when no ImageIO reader understands the source (e.g. HEIC), so callers can keep the original.
+     */
+    public List<Rendition> render(Path source, Path outputDir, List<String> names) throws IOException {
+        Future<List<Rendition>> result;
+        try {
+            result = executor.submit(() -> renderNow(source, outputDir, names));
+        } catch (RejectedExecutionException e) {
+            throw new IOException("Image processing is busy, try again later", e);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering " + source, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to render " + source + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Render on the calling thread. Renditions whose bounded size matches a larger one share its file.
+     */
+    List<Rendition> renderNow(Path source, Path outputDir, List<String> names) throws IOException {
+        List<String> ordered = names.stream()
+                .filter(maxEdges::containsKey)
+                .sorted(Comparator.comparing((String name) -> maxEdges.get(name)).reversed())
+                .toList();
+        if (ordered.isEmpty()) {
+            return List.of();
+        }
+        BufferedImage current = decode(source, maxEdges.get(ordered.get(0)));
+        if (current == null) {
+            return List.of();
+        }
+        Files.createDirectories(outputDir);
+        String stem = stemOf(source);
+        List<Rendition> renditions = new ArrayList<>(ordered.size());
+        Rendition previous = null;
+        for (String name : ordered) {
+            int[] size = fit(current.getWidth(), current.getHeight(), maxEdges.get(name));
+            if (previous != null && previous.getWidth() == size[0] && previous.getHeight() == size[1]) {
+                renditions.add(new Rendition(name, previous.getPath(), size[0], size[1], contentType, previous.getSizeBytes()));
+                continue;
+            }
+            current = downscale(current, size[0], size[1]);
+            Path target = outputDir.resolve(stem + "-" + name + extension());
+            encode(current, target);
+            previous = new Rendition(name, target, size[0], size[1], contentType, Files.size(target));
+            renditions.add(previous);
+        }
+        return renditions;
+    }
+
+    private BufferedImage decode(Path source, int largestEdge) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image is too large to process: " + width + "x" + height);
+                }
+                // Decode at no less than twice the largest rendition; the scaler does the rest
+                int subsampling = Math.max(1, Math.max(width, height) / (largestEdge * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                int orientation = exifOrientation(reader.getImageMetadata(0));
+                return orient(toRgb(decoded), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void encode(BufferedImage image, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(contentType);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + contentType);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(Files.newOutputStream(target))) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0 && param.getCompressionType() == null) {
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            if (param.canWriteProgressive()) {
+                // Progressive scans let slow clients show a preview before the whole file arrives
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Halve with bilinear filtering until close to the target, then finish with one bicubic pass.
+     * Much sharper than a single bilinear step and much cheaper than area averaging.
+     */
+    static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = draw(current, width, height, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        if (width != targetWidth || height != targetHeight) {
+            current = draw(current, targetWidth, targetHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        }
+        return current;
+    }
+
+    static int[] fit(int width, int height, int maxEdge) {
+        int longest = Math.max(width, height);
+        if (longest <= maxEdge) {
+            return new int[]{width, height};
+        }
+        double scale = (double) maxEdge / longest;
+        return new int[]{
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // JPEG has no alpha channel, so transparent PNGs are flattened onto white
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    // Only the rotations cameras actually write (3, 6, 8) are applied
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation != 3 && orientation != 6 && orientation != 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation != 3;
+        BufferedImage rotated = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        AffineTransform transform = new AffineTransform();
+        if (orientation == 3) {
+            transform.translate(width, height);
+            transform.rotate(Math.PI);
+        } else if (orientation == 6) {
+            transform.translate(height, 0);
+            transform.rotate(Math.PI / 2);
+        } else {
+            transform.translate(0, width);
+            transform.rotate(-Math.PI / 2);
+        }
+        Graphics2D g = rotated.createGraphics();
+        try {
+            g.drawImage(image, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return rotated;
+    }
+
+    /**
+     * Read the EXIF orientation tag from the APP1 segment of a JPEG, or 1 when absent.
+     */
+    static int exifOrientation(IIOMetadata metadata) {
+        if (metadata == null || !"javax_imageio_jpeg_image_1.0".equals(metadata.getNativeMetadataFormatName())) {
+            return 1;
+        }
+        Node root = metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+        for (Node sequence = root.getFirstChild(); sequence != null; sequence = sequence.getNextSibling()) {
+            if (!"markerSequence".equals(sequence.getNodeName())) {
+                continue;
+            }
+            for (Node marker = sequence.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                Node tag = marker.getAttributes() != null ? marker.getAttributes().getNamedItem("MarkerTag") : null;
+                if (tag != null && "225".equals(tag.getNodeValue())
+                        && ((IIOMetadataNode) marker).getUserObject() instanceof byte[] app1) {
+                    return orientationFromExif(app1);
+                }
+            }
+        }
+        return 1;
+    }
+
+    static int orientationFromExif(byte[] app1) {
+        // "Exif\0\0" header followed by a TIFF structure
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 1;
+        }
+        int tiff = 6;
+        boolean littleEndian = app1[tiff] == 'I';
+        int ifd = tiff + readInt(app1, tiff + 4, littleEndian);
+        if (ifd + 2 > app1.length) {
+            return 1;
+        }
+        int entries = readShort(app1, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                break;
+            }
+            if (readShort(app1, entry, littleEndian) == 0x0112) {
+                return readShort(app1, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return littleEndian ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        if (littleEndian) {
+            return (readShort(data, offset + 2, true) << 16) | readShort(data, offset, true);
+        }
+        return (readShort(data, offset, false) << 16) | readShort(data, offset + 2, false);
+    }
+
+    private String extension() {
+        return WEBP_MIME.equals(contentType) ? ".webp" : ".jpg";
+    }
+
+    private static String stemOf(Path source) {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String resolveContentType(String format) {
+        boolean webpAvailable = ImageIO.getImageWritersByMIMEType(WEBP_MIME).hasNext();
+        String requested = format == null ? "auto" : format.trim().toLowerCase();
+        if ("jpeg".equals(requested) || "jpg".equals(requested)) {
+            return JPEG_MIME;
+        }
+        if ("webp".equals(requested) && !webpAvailable) {
+            log.warn("WebP renditions requested but no ImageIO WebP writer is registered, using JPEG");
+        }
+        return webpAvailable ? WEBP_MIME : JPEG_MIME;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Rendition {
+        private final String name;
+        private final Path path;
+        private final int width;
+        private final int height;
+        private final String contentType;
+        private final long sizeBytes;
+    }
+}
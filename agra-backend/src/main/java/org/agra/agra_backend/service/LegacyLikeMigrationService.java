@@ -0,0 +1,256 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.CommentLike;
+import org.agra.agra_backend.model.PostLike;
+import org.agra.agra_backend.payload.LikeMigrationProgress;
+import org.agra.agra_backend.payload.LikeMigrationReport;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Copies POST and COMMENT likes from the legacy {@code likes} collection into {@code post_likes} and
+ * {@code comment_likes}. Runs in {@code _id} order in fixed-size batches, upserting with
+ * {@code $setOnInsert} so modern likes always win and a re-run of a half-finished batch is harmless.
+ * The last copied {@code _id} is checkpointed after every batch so the job can be stopped and resumed.
+ * Copied legacy documents get a {@code migrated_at} stamp, which keeps the legacy read fallback in
+ * PostService from counting them twice while both collections are live.
+ */
+@Service
+public class LegacyLikeMigrationService {
+
+    static final String LEGACY_COLLECTION = "likes";
+    static final String CHECKPOINT_COLLECTION = "migration_checkpoints";
+    static final String CHECKPOINT_ID = "legacy-likes";
+
+    private static final Logger log = LoggerFactory.getLogger(LegacyLikeMigrationService.class);
+    private static final List<String> MIGRATED_TYPES = List.of(PostService.TARGET_TYPE_POST, PostService.TARGET_TYPE_COMMENT);
+    private static final int VERIFY_CHUNK = 500;
+    private static final int MAX_REPORTED_MISMATCHES = 200;
+
+    private final MongoTemplate mongoTemplate;
+    private final int defaultBatchSize;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public LegacyLikeMigrationService(MongoTemplate mongoTemplate,
+                                      @Value("${likes.migration.batch-size:1000}") int defaultBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.defaultBatchSize = Math.max(1, defaultBatchSize);
+    }
+
+    /**
+     * Copy up to {@code maxBatches} batches (0 = until done), resuming from the stored checkpoint.
+     */
+    public LikeMigrationProgress migrate(Integer batchSize, int maxBatches) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Legacy like migration is already running");
+        }
+        try {
+            int size = batchSize != null && batchSize > 0 ? batchSize : defaultBatchSize;
+            Document checkpoint = loadCheckpoint();
+            Object lastId = checkpoint.get("lastId");
+            long processed = checkpoint.get("processed", Number.class) != null ? checkpoint.get("processed", Number.class).longValue() : 0L;
+            long upserted = checkpoint.get("upserted", Number.class) != null ? checkpoint.get("upserted", Number.class).longValue() : 0L;
+            int batches = 0;
+            boolean completed = false;
+
+            while (maxBatches <= 0 || batches < maxBatches) {
+                List<Document> batch = nextBatch(lastId, size);
+                if (batch.isEmpty()) {
+                    completed = true;
+                    break;
+                }
+                upserted += copyBatch(batch);
+                processed += batch.size();
+                lastId = batch.get(batch.size() - 1).get("_id");
+                batches++;
+                saveCheckpoint(lastId, processed, upserted, false);
+            }
+            if (completed) {
+                saveCheckpoint(lastId, processed, upserted, true);
+            }
+            log.info("Legacy like migration: {} batch(es) this run, processed={}, upserted={}, completed={}",
+                    batches, processed, upserted, completed);
+            return new LikeMigrationProgress(lastId != null ? lastId.toString() : null, processed, upserted, batches, completed);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Compare, per legacy target, how many legacy likers also have a modern like for the same target.
+     */
+    public LikeMigrationReport verify() {
+        LikeMigrationReport report = new LikeMigrationReport();
+        report.setLegacyPostLikes(mongoTemplate.count(legacyQuery(PostService.TARGET_TYPE_POST), LEGACY_COLLECTION));
+        report.setLegacyCommentLikes(mongoTemplate.count(legacyQuery(PostService.TARGET_TYPE_COMMENT), LEGACY_COLLECTION));
+        report.setPendingLegacyLikes(mongoTemplate.count(
+                new Query(Criteria.where("target_type").in(MIGRATED_TYPES).and("migrated_at").exists(false)),
+                LEGACY_COLLECTION));
+
+        Aggregation byTarget = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("target_type").in(MIGRATED_TYPES)),
+                Aggregation.group("target_type", "target_id").addToSet("user_id").as("users")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        List<Document> chunk = new ArrayList<>(VERIFY_CHUNK);
+        try (Stream<Document> groups = mongoTemplate.aggregateStream(byTarget, LEGACY_COLLECTION, Document.class)) {
+            Iterator<Document> iterator = groups.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == VERIFY_CHUNK) {
+                    verifyChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            verifyChunk(chunk, report);
+        }
+        return report;
+    }
+
+    public Document getCheckpoint() {
+        return loadCheckpoint();
+    }
+
+    private List<Document> nextBatch(Object lastId, int size) {
+        Query query = new Query(Criteria.where("target_type").in(MIGRATED_TYPES));
+        if (lastId != null) {
+            query.addCriteria(Criteria.where("_id").gt(lastId));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(size);
+        query.fields().include("user_id").include("target_type").include("target_id").include("created_at");
+        return mongoTemplate.find(query, Document.class, LEGACY_COLLECTION);
+    }
+
+    private long copyBatch(List<Document> batch) {
+        BulkOperations postOps = null;
+        BulkOperations commentOps = null;
+        List<Object> copiedIds = new ArrayList<>(batch.size());
+
+        for (Document legacy : batch) {
+            String userId = legacy.getString("user_id");
+            String targetId = legacy.getString("target_id");
+            if (userId == null || targetId == null) {
+                continue;
+            }
+            Date createdAt = legacy.getDate("created_at") != null ? legacy.getDate("created_at") : new Date();
+            if (PostService.TARGET_TYPE_POST.equals(legacy.getString("target_type"))) {
+                if (postOps == null) {
+                    postOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostLike.class);
+                }
+                postOps.upsert(
+                        Query.query(Criteria.where("userId").is(userId).and("postId").is(targetId)),
+                        new Update().setOnInsert("active", true)
+                                // the legacy like already notified the author when it was created
+                                .setOnInsert("notified", true)
+                                .setOnInsert("createdAt", createdAt));
+            } else {
+                if (commentOps == null) {
+                    commentOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CommentLike.class);
+                }
+                commentOps.upsert(
+                        Query.query(Criteria.where("userId").is(userId).and("commentId").is(targetId)),
+                        new Update().setOnInsert("active", true)
+                                .setOnInsert("createdAt", createdAt));
+            }
+            copiedIds.add(legacy.get("_id"));
+        }
+
+        long upserted = 0;
+        if (postOps != null) {
+            upserted += postOps.execute().getUpserts().size();
+        }
+        if (commentOps != null) {
+            upserted += commentOps.execute().getUpserts().size();
+        }
+        if (!copiedIds.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(copiedIds)),
+                    new Update().set("migrated_at", new Date()), LEGACY_COLLECTION);
+        }
+        return upserted;
+    }
+
+    private void verifyChunk(List<Document> groups, LikeMigrationReport report) {
+        Map<String, Set<String>> modernPostLikers = modernLikers(groups, PostService.TARGET_TYPE_POST, "post_likes", "postId");
+        Map<String, Set<String>> modernCommentLikers = modernLikers(groups, PostService.TARGET_TYPE_COMMENT, "comment_likes", "commentId");
+
+        for (Document group : groups) {
+            Document key = (Document) group.get("_id");
+            String targetType = key.getString("target_type");
+            String targetId = key.getString("target_id");
+            Collection<?> legacyUsers = group.getList("users", Object.class);
+            Set<String> modern = (PostService.TARGET_TYPE_POST.equals(targetType) ? modernPostLikers : modernCommentLikers)
+                    .getOrDefault(targetId, Set.of());
+            long migrated = legacyUsers.stream().filter(modern::contains).count();
+            report.setTargetsChecked(report.getTargetsChecked() + 1);
+            if (migrated != legacyUsers.size() && report.getMismatches().size() < MAX_REPORTED_MISMATCHES) {
+                report.getMismatches().add(new LikeMigrationReport.TargetMismatch(targetType, targetId, legacyUsers.size(), migrated));
+            }
+        }
+    }
+
+    private Map<String, Set<String>> modernLikers(List<Document> groups, String targetType, String collection, String targetField) {
+        List<String> targetIds = new ArrayList<>();
+        for (Document group : groups) {
+            Document key = (Document) group.get("_id");
+            if (targetType.equals(key.getString("target_type"))) {
+                targetIds.add(key.getString("target_id"));
+            }
+        }
+        Map<String, Set<String>> likers = new HashMap<>();
+        if (targetIds.isEmpty()) {
+            return likers;
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(targetField).in(targetIds)),
+                Aggregation.group(targetField).addToSet("userId").as("users")
+        );
+        for (Document row : mongoTemplate.aggregate(aggregation, collection, Document.class).getMappedResults()) {
+            likers.put(row.getString("_id"), new HashSet<>(row.getList("users", String.class)));
+        }
+        return likers;
+    }
+
+    private Query legacyQuery(String targetType) {
+        return new Query(Criteria.where("target_type").is(targetType));
+    }
+
+    private Document loadCheckpoint() {
+        Document checkpoint = mongoTemplate.findById(CHECKPOINT_ID, Document.class, CHECKPOINT_COLLECTION);
+        return checkpoint != null ? checkpoint : new Document("_id", CHECKPOINT_ID);
+    }
+
+    private void saveCheckpoint(Object lastId, long processed, long upserted, boolean completed) {
+        Update update = new Update()
+                .set("lastId", lastId)
+                .set("processed", processed)
+                .set("upserted", upserted)
+                .set("completed", completed)
+                .set("updatedAt", new Date());
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(CHECKPOINT_ID)), update, CHECKPOINT_COLLECTION);
+    }
+}
@@ -0,0 +1,268 @@
+package org.agra.agra_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.LessonOrdinals;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lesson ordinals per course and the bitset form of lesson completion built on them.
+ * <p>
+ * Ordinals are handed out append-only with a compare-and-set on {@code next}, so concurrent
+ * assigners never give two lessons the same bit. Because a mapping only ever grows, a cached copy is
+ * always a correct prefix and is reloaded only when a lesson or bit beyond it turns up.
+ * <p>
+ * Every {@link CourseProgress} read through {@link MongoTemplate} or a repository gets its
+ * {@code completedLessons} list derived here from the bits. Documents still carrying the old stored
+ * list have it folded in using the ordinals that already exist; the hook never assigns ordinals, so a
+ * read never writes. Lessons without one stay in the list until
+ * {@link CourseProgressService#compactCompletedLessons()} assigns them and rewrites the document.
+ */
+@Service
+public class LessonOrdinalService implements AfterConvertCallback<CourseProgress> {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, Mapping> mappings;
+
+    public LessonOrdinalService(MongoTemplate mongoTemplate,
+                                @Value("${progress.lesson-ordinals.max-courses:5000}") long maxCourses) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappings = Caffeine.newBuilder().maximumSize(Math.max(1, maxCourses)).build();
+    }
+
+    /**
+     * Ordinal of each lesson id, in the order given, assigning new ones as needed.
+     */
+    public int[] ordinals(String courseId, List<String> lessonIds) {
+        for (String lessonId : lessonIds) {
+            if (!isValidLessonId(lessonId)) {
+                throw new IllegalArgumentException("Invalid lesson id: " + lessonId);
+            }
+        }
+        Mapping mapping = mapping(courseId);
+        if (!mapping.containsAll(lessonIds)) {
+            mapping = assign(courseId, lessonIds);
+        }
+        int[] ordinals = new int[lessonIds.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = mapping.byId.get(lessonIds.get(i));
+        }
+        return ordinals;
+    }
+
+    public int ordinal(String courseId, String lessonId) {
+        return ordinals(courseId, List.of(lessonId))[0];
+    }
+
+    /**
+     * Lesson ids of the set bits, in ordinal order.
+     */
+    public List<String> lessonIds(String courseId, long[] bits) {
+        Mapping mapping = mapping(courseId);
+        int highest = highestBit(bits);
+        if (highest >= mapping.byOrdinal.length) {
+            mappings.invalidate(courseId);
+            mapping = mapping(courseId);
+        }
+        List<String> lessonIds = new ArrayList<>();
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                if (ordinal < mapping.byOrdinal.length && mapping.byOrdinal[ordinal] != null) {
+                    lessonIds.add(mapping.byOrdinal[ordinal]);
+                }
+            }
+        }
+        return lessonIds;
+    }
+
+    public long[] bits(String courseId, Collection<String> lessonIds) {
+        long[] bits = new long[0];
+        if (lessonIds == null || lessonIds.isEmpty()) {
+            return bits;
+        }
+        // Stored lists predate any validation; ids that cannot be field names are dropped
+        List<String> valid = lessonIds.stream().filter(LessonOrdinalService::isValidLessonId).distinct().toList();
+        for (int ordinal : ordinals(courseId, valid)) {
+            bits = withBit(bits, ordinal);
+        }
+        return bits;
+    }
+
+    public void forget(String courseId) {
+        mappings.invalidate(courseId);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(courseId)), LessonOrdinals.class);
+    }
+
+    @Override
+    public CourseProgress onAfterConvert(CourseProgress progress, Document document, String collection) {
+        if (progress.getCourseId() == null) {
+            return progress;
+        }
+        boolean hasBits = document.containsKey("completedLessonBits");
+        boolean hasLegacyList = document.containsKey("completedLessons");
+        if (!hasBits && !hasLegacyList) {
+            // Projected reads that did not ask for completion
+            return progress;
+        }
+        long[] bits = hasBits && progress.getCompletedLessonBits() != null ? progress.getCompletedLessonBits() : new long[0];
+        if (!hasLegacyList || progress.getCompletedLessons() == null) {
+            progress.setCompletedLessons(lessonIds(progress.getCourseId(), bits));
+            return progress;
+        }
+        Mapping mapping = mapping(progress.getCourseId());
+        List<String> unassigned = new ArrayList<>();
+        for (String lessonId : progress.getCompletedLessons()) {
+            Integer ordinal = isValidLessonId(lessonId) ? mapping.byId.get(lessonId) : null;
+            if (ordinal != null) {
+                bits = withBit(bits, ordinal);
+            } else if (isValidLessonId(lessonId) && !unassigned.contains(lessonId)) {
+                unassigned.add(lessonId);
+            }
+        }
+        progress.setCompletedLessonBits(bits);
+        List<String> lessonIds = lessonIds(progress.getCourseId(), bits);
+        lessonIds.addAll(unassigned);
+        progress.setCompletedLessons(lessonIds);
+        return progress;
+    }
+
+    /**
+     * Whether a lesson id can be used in a field path such as {@code ordinals.<id>}.
+     */
+    public static boolean isValidLessonId(String lessonId) {
+        return lessonId != null && !lessonId.isBlank() && lessonId.indexOf('.') < 0 && !lessonId.startsWith("$")
+                && lessonId.indexOf('\u0000') < 0;
+    }
+
+    public static long[] withBit(long[] bits, int ordinal) {
+        int word = ordinal >>> 6;
+        long[] result = word < bits.length ? bits : Arrays.copyOf(bits, word + 1);
+        result[word] |= 1L << ordinal;
+        return result;
+    }
+
+    public static long[] or(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, Math.max(a.length, b.length));
+        for (int i = 0; i < b.length; i++) {
+            result[i] |= b[i];
+        }
+        return result;
+    }
+
+    /**
+     * Number of bits set in both, i.e. completed lessons that are still part of the course.
+     */
+    public static int countCommon(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0, n = Math.min(a.length, b.length); i < n; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    private static int highestBit(long[] bits) {
+        for (int word = bits.length - 1; word >= 0; word--) {
+            if (bits[word] != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(bits[word]);
+            }
+        }
+        return -1;
+    }
+
+    private Mapping mapping(String courseId) {
+        return mappings.get(courseId, id -> Mapping.of(mongoTemplate.findById(id, LessonOrdinals.class)));
+    }
+
+    private Mapping assign(String courseId, List<String> lessonIds) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            LessonOrdinals stored = mongoTemplate.findById(courseId, LessonOrdinals.class);
+            Mapping current = Mapping.of(stored);
+            Set<String> missing = new LinkedHashSet<>();
+            for (String lessonId : lessonIds) {
+                if (!current.byId.containsKey(lessonId)) {
+                    missing.add(lessonId);
+                }
+            }
+            if (missing.isEmpty()) {
+                mappings.put(courseId, current);
+                return current;
+            }
+            int next = stored == null ? 0 : stored.getNext();
+            Update update = new Update();
+            for (String lessonId : missing) {
+                update.set("ordinals." + lessonId, next++);
+            }
+            update.set("next", next);
+            try {
+                boolean applied = stored == null
+                        ? mongoTemplate.upsert(Query.query(Criteria.where("_id").is(courseId).and("next").exists(false)),
+                                update, LessonOrdinals.class).getUpsertedId() != null
+                        : mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(courseId).and("next").is(stored.getNext())),
+                                update, LessonOrdinals.class).getModifiedCount() > 0;
+                if (applied) {
+                    mappings.invalidate(courseId);
+                    return mapping(courseId);
+                }
+            } catch (DuplicateKeyException e) {
+                // Another instance created the mapping first; retry against it
+            }
+        }
+        throw new IllegalStateException("Could not assign lesson ordinals for course " + courseId);
+    }
+
+    /**
+     * Immutable snapshot of one course's ordinals, both ways.
+     */
+    private static final class Mapping {
+        private final Map<String, Integer> byId;
+        private final String[] byOrdinal;
+
+        private Mapping(Map<String, Integer> byId, String[] byOrdinal) {
+            this.byId = byId;
+            this.byOrdinal = byOrdinal;
+        }
+
+        static Mapping of(LessonOrdinals stored) {
+            Map<String, Integer> byId = stored == null || stored.getOrdinals() == null ? Map.of() : new HashMap<>(stored.getOrdinals());
+            int size = stored == null ? 0 : stored.getNext();
+            for (int ordinal : byId.values()) {
+                size = Math.max(size, ordinal + 1);
+            }
+            String[] byOrdinal = new String[size];
+            byId.forEach((lessonId, ordinal) -> byOrdinal[ordinal] = lessonId);
+            return new Mapping(byId, byOrdinal);
+        }
+
+        boolean containsAll(List<String> lessonIds) {
+            for (String lessonId : lessonIds) {
+                if (!byId.containsKey(lessonId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package org.agra.agra_backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.Post;
+import org.agra.agra_backend.payload.MediaStatusEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background pipeline for post and course images. Request threads only spool the upload to
+ * local disk; a bounded worker pool renders bounded renditions, pushes them to storage, patches
+ * the owning document with the final URLs and notifies the author. Failed uploads are retried with exponential backoff
+ * and end in a FAILED (dead-letter) state whose spool file is kept for manual replay.
+ */
+@Service
+public class MediaProcessingService {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_READY = "READY";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String TARGET_POST = "POST";
+    public static final String TARGET_COURSE = "COURSE";
+    public static final String MEDIA_QUEUE = "/queue/media";
+
+    private static final Logger log = LoggerFactory.getLogger(MediaProcessingService.class);
+    private static final String[] FEED_CACHES = {"feed:recent", "feed:topPosts"};
+    private static final String[] COURSE_CACHES = {
+            "courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries"
+    };
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+
+    private final MediaUploader mediaUploader;
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final CacheManager cacheManager;
+    private final ImageRenditionService renditionService;
+    private final CatalogVersionService catalogVersionService;
+    private final Path spoolRoot;
+    private final int workers;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ScheduledExecutorService executor;
+
+    public MediaProcessingService(MediaUploader mediaUploader,
+                                  MongoTemplate mongoTemplate,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  @Nullable CacheManager cacheManager,
+                                  @Value("${media.processing.spool-dir:${java.io.tmpdir}/agra-media-spool}") String spoolDir,
+                                  @Value("${media.processing.workers:2}") int workers,
+                                  @Value("${media.processing.queue-capacity:200}") int queueCapacity,
+                                  @Value("${media.processing.max-attempts:4}") int maxAttempts,
+                                  @Value("${media.processing.initial-backoff-ms:2000}") long initialBackoffMs,
+                                  @Nullable ImageRenditionService renditionService,
+                                  @Nullable CatalogVersionService catalogVersionService) {
+        this.mediaUploader = mediaUploader;
+        this.mongoTemplate = mongoTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.cacheManager = cacheManager;
+        this.renditionService = renditionService;
+        this.catalogVersionService = catalogVersionService;
+        this.spoolRoot = Paths.get(spoolDir);
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(0L, initialBackoffMs);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(deadLetterRoot());
+        AtomicInteger threadIds = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "media-worker-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newScheduledThreadPool(workers, threadFactory);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Copy an upload to the local spool so the request can return before storage is involved.
+     */
+    public Path spool(MultipartFile file) throws IOException {
+        Files.createDirectories(spoolRoot);
+        Path target = spoolRoot.resolve(UUID.randomUUID() + ".upload");
+        file.transferTo(target);
+        return target;
+    }
+
+    /**
+     * Queue a spooled post image. Returns false if the queue is full, in which case the post
+     * has already been moved to FAILED.
+     */
+    public boolean submitPostImage(String postId, String ownerId, Path spooled, String folderPath) {
+        return submit(new MediaJob(TARGET_POST, postId, ownerId, spooled, folderPath));
+    }
+
+    /**
+     * Queue a spooled course image. Returns false if the queue is full, in which case the course
+     * has already been moved to FAILED.
+     */
+    public boolean submitCourseImage(String courseId, String ownerId, Path spooled, String folderPath) {
+        return submit(new MediaJob(TARGET_COURSE, courseId, ownerId, spooled, folderPath));
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Derive a Cloudinary delivery URL with a named transformation inserted before the file name.
+     */
+    public static String transformedUrl(String imageUrl, String publicId, String transformation) {
+        String baseUrl = imageUrl.substring(0, imageUrl.lastIndexOf('/') + 1);
+        String filename = publicId.substring(publicId.lastIndexOf('/') + 1);
+        return baseUrl + transformation + "/" + filename;
+    }
+
+    private boolean submit(MediaJob job) {
+        if (inFlight.incrementAndGet() > queueCapacity) {
+            inFlight.decrementAndGet();
+            log.warn("Media queue full (capacity={}), rejecting {} {}", queueCapacity, job.targetType, job.targetId);
+            deadLetter(job, "Media processing queue is full");
+            return false;
+        }
+        try {
+            executor.execute(() -> process(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            deadLetter(job, "Media processing is shutting down");
+            return false;
+        }
+    }
+
+    private void process(MediaJob job) {
+        job.attempt++;
+        try {
+            if (renditionService != null && job.renditions == null) {
+                job.renditions = renditionService.render(job.spooled, renditionRoot());
+            }
+            String imageUrl;
+            String publicId;
+            if (job.renditions == null || job.renditions.isEmpty()) {
+                // Not decodable locally (or no renditions configured): store the original as before
+                Map<String, Object> result = upload(job.spooled, job.folderPath);
+                imageUrl = (String) result.get("secure_url");
+                publicId = (String) result.get("public_id");
+            } else {
+                uploadRenditions(job);
+                imageUrl = job.renditionUrls.get(ImageRenditionService.FULL);
+                publicId = job.fullPublicId;
+            }
+            applyResult(job, imageUrl, publicId);
+            Files.deleteIfExists(job.spooled);
+            deleteRenditions(job);
+            inFlight.decrementAndGet();
+            notifyOwner(job, STATUS_READY, imageUrl, null);
+            log.info("Media ready for {} {} after {} attempt(s)", job.targetType, job.targetId, job.attempt);
+        } catch (Exception e) {
+            if (job.attempt < maxAttempts) {
+                long delay = backoffFor(job.attempt);
+                log.warn("Media upload failed for {} {} (attempt {}/{}), retrying in {} ms: {}",
+                        job.targetType, job.targetId, job.attempt, maxAttempts, delay, e.getMessage());
+                try {
+                    executor.schedule(() -> process(job), delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException rejected) {
+                    log.warn("Media retry rejected for {} {}: executor shut down", job.targetType, job.targetId);
+                }
+            }
+            inFlight.decrementAndGet();
+            deadLetter(job, e.getMessage());
+        }
+    }
+
+    /**
+     * Upload each rendition file once, remembering finished ones so a retry only sends what is missing.
+     */
+    private void uploadRenditions(MediaJob job) throws IOException {
+        Map<Path, String> uploadedFiles = new HashMap<>();
+        for (ImageRenditionService.Rendition rendition : job.renditions) {
+            if (job.renditionUrls.containsKey(rendition.getName())) {
+                uploadedFiles.putIfAbsent(rendition.getPath(), job.renditionUrls.get(rendition.getName()));
+                continue;
+            }
+            String url = uploadedFiles.get(rendition.getPath());
+            if (url == null) {
+                Map<String, Object> result = upload(rendition.getPath(), job.folderPath);
+                url = (String) result.get("secure_url");
+                uploadedFiles.put(rendition.getPath(), url);
+                if (ImageRenditionService.FULL.equals(rendition.getName())) {
+                    job.fullPublicId = (String) result.get("public_id");
+                }
+            }
+            job.renditionUrls.put(rendition.getName(), url);
+        }
+    }
+
+    private Map<String, Object> upload(Path file, String folderPath) throws IOException {
+        Map<String, Object> result = mediaUploader.uploadImageFromDisk(file, folderPath);
+        if (result == null || result.get("secure_url") == null) {
+            throw new IOException("Storage returned no secure_url");
+        }
+        return result;
+    }
+
+    private void deleteRenditions(MediaJob job) {
+        if (job.renditions == null) {
+            return;
+        }
+        for (ImageRenditionService.Rendition rendition : job.renditions) {
+            try {
+                Files.deleteIfExists(rendition.getPath());
+            } catch (IOException e) {
+                log.warn("Could not delete rendition {}: {}", rendition.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    long backoffFor(int attempt) {
+        long delay = initialBackoffMs << Math.min(attempt - 1, 20);
+        return Math.min(delay, MAX_BACKOFF_MS);
+    }
+
+    private void applyResult(MediaJob job, String imageUrl, String publicId) {
+        Query query = Query.query(Criteria.where("_id").is(job.targetId));
+        if (TARGET_POST.equals(job.targetType)) {
+            Update update = new Update()
+                    .set("image_url", imageUrl)
+                    .set("media_status", STATUS_READY);
+            if (!job.renditionUrls.isEmpty()) {
+                update.set("image_renditions", new LinkedHashMap<>(job.renditionUrls));
+            }
+            mongoTemplate.updateFirst(query, update, Post.class);
+            evict(FEED_CACHES);
+        } else {
+            Update update = new Update()
+                    .set("imageUrl", imageUrl)
+                    .set("imagePublicId", publicId)
+                    .set("mediaStatus", STATUS_READY)
+                    .set("updatedAt", new java.util.Date());
+            if (!job.renditionUrls.isEmpty()) {
+                // Cards use the medium rendition, detail pages the full one
+                update.set("imageUrl", job.renditionUrls.get(ImageRenditionService.MEDIUM))
+                        .set("thumbnailUrl", job.renditionUrls.get(ImageRenditionService.THUMB))
+                        .set("detailImageUrl", imageUrl)
+                        .set("imageRenditions", new LinkedHashMap<>(job.renditionUrls));
+            } else if (publicId != null) {
+                update.set("thumbnailUrl", transformedUrl(imageUrl, publicId, "c_fill,w_300,h_200"))
+                        .set("detailImageUrl", transformedUrl(imageUrl, publicId, "c_fit,w_800,h_600"));
+            }
+            mongoTemplate.updateFirst(query, update, Course.class);
+            evict(COURSE_CACHES);
+            courseChanged(job.targetId);
+        }
+    }
+
+    private void deadLetter(MediaJob job, String reason) {
+        log.error("Media processing dead-lettered for {} {} after {} attempt(s): {}",
+                job.targetType, job.targetId, job.attempt, reason);
+        try {
+            Query query = Query.query(Criteria.where("_id").is(job.targetId));
+            if (TARGET_POST.equals(job.targetType)) {
+                mongoTemplate.updateFirst(query, new Update().set("media_status", STATUS_FAILED), Post.class);
+                evict(FEED_CACHES);
+            } else {
+                mongoTemplate.updateFirst(query, new Update().set("mediaStatus", STATUS_FAILED), Course.class);
+                evict(COURSE_CACHES);
+                courseChanged(job.targetId);
+            }
+        } catch (Exception e) {
+            log.error("Failed to mark {} {} as FAILED", job.targetType, job.targetId, e);
+        }
+        try {
+            if (Files.exists(job.spooled)) {
+                Files.move(job.spooled, deadLetterRoot().resolve(job.spooled.getFileName()),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Could not move {} to the dead-letter directory: {}", job.spooled, e.getMessage());
+        }
+        deleteRenditions(job);
+        notifyOwner(job, STATUS_FAILED, null, reason);
+    }
+
+    private void notifyOwner(MediaJob job, String status, String imageUrl, String error) {
+        if (job.ownerId == null || messagingTemplate == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(job.ownerId, MEDIA_QUEUE,
+                    new MediaStatusEvent(job.targetType, job.targetId, status, imageUrl, error));
+        } catch (Exception e) {
+            log.warn("Failed to notify user {} about media status: {}", job.ownerId, e.getMessage());
+        }
+    }
+
+    private void courseChanged(String courseId) {
+        if (catalogVersionService != null) {
+            catalogVersionService.courseChanged(courseId);
+        }
+    }
+
+    private void evict(String[] cacheNames) {
+        if (cacheManager == null) {
+            return;
+        }
+        for (String name : cacheNames) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private Path renditionRoot() {
+        return spoolRoot.resolve("renditions");
+    }
+
+    private Path deadLetterRoot() {
+        return spoolRoot.resolve("dead-letter");
+    }
+
+    private static final class MediaJob {
+        private final String targetType;
+        private final String targetId;
+        private final String ownerId;
+        private final Path spooled;
+        private final String folderPath;
+        private final Map<String, String> renditionUrls = new LinkedHashMap<>();
+        private List<ImageRenditionService.Rendition> renditions;
+        private String fullPublicId;
+        private int attempt;
+
+        private MediaJob(String targetType, String targetId, String ownerId, Path spooled, String folderPath) {
+            this.targetType = targetType;
+            this.targetId = targetId;
+            this.ownerId = ownerId;
+            this.spooled = spooled;
+            this.folderPath = folderPath;
+        }
+    }
+}
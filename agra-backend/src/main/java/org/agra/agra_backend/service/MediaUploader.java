@@ -0,0 +1,22 @@
+package org.agra.agra_backend.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Minimal storage contract used by background media processing, so the Cloudinary client can be
+ * replaced by a local stub in tests.
+ */
+public interface MediaUploader {
+
+    /**
+     * Upload an image that is already on local disk.
+     *
+     * @param file       path of the spooled image
+     * @param folderPath target folder in storage
+     * @return Map containing upload details (at least secure_url and public_id)
+     * @throws IOException if upload fails
+     */
+    Map<String, Object> uploadImageFromDisk(Path file, String folderPath) throws IOException;
+}
@@ -3,6 +3,7 @@ package org.agra.agra_backend.service;
 import org.agra.agra_backend.dao.*;
 import org.agra.agra_backend.model.*;
 import org.agra.agra_backend.payload.UserInfo;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
@@ -29,10 +30,15 @@ public class PostService {
     private final CommentLikeRepository commentLikeRepository;
     private final UserRepository userRepository;
     private final ActivityLogService activityLogService;
+    private final MediaProcessingService mediaProcessingService;
 
     public static final String TARGET_TYPE_POST = "POST";
     public static final String TARGET_TYPE_COMMENT = "COMMENT";
 
+    // Turn off once LegacyLikeMigrationService has copied and verified every legacy comment like
+    @Value("${likes.legacy-fallback.enabled:true}")
+    private boolean legacyLikeFallback = true;
+
     public PostService(PostRepository postRepository,
                        CloudinaryService cloudinaryService,
                        CommentRepository commentRepository,
@@ -40,7 +46,8 @@ public class PostService {
                        PostLikeRepository postLikeRepository,
                        CommentLikeRepository commentLikeRepository,
                        UserRepository userRepository,
-                       ActivityLogService activityLogService) {
+                       ActivityLogService activityLogService,
+                       MediaProcessingService mediaProcessingService) {
         this.postRepository = postRepository;
         this.cloudinaryService = cloudinaryService;
         this.commentRepository = commentRepository;
@@ -49,6 +56,7 @@ public class PostService {
         this.commentLikeRepository = commentLikeRepository;
         this.userRepository = userRepository;
         this.activityLogService = activityLogService;
+        this.mediaProcessingService = mediaProcessingService;
     }
 
     /* ============================================================
@@ -71,8 +79,8 @@ public class PostService {
         // Lightweight in-memory cache to avoid repeated user lookups
         Map<String, UserInfo> userCache = new HashMap<>();
 
-        // Enrich post author info
-        posts.forEach(post -> post.setUserInfo(buildUserSummaryCached(post.getUserId(), userCache)));
+        // Author info is embedded at write time; only resolve posts that predate it
+        fillMissingAuthors(posts, Post::getUserId, Post::getUserInfo, Post::setUserInfo, userCache);
 
         // Optionally load comments with user info
         if (loadComments) {
@@ -98,7 +106,7 @@ public class PostService {
         }
 
         Map<String, UserInfo> userCache = new HashMap<>();
-        posts.getContent().forEach(post -> post.setUserInfo(buildUserSummaryCached(post.getUserId(), userCache)));
+        fillMissingAuthors(posts.getContent(), Post::getUserId, Post::getUserInfo, Post::setUserInfo, userCache);
         return posts;
     }
 
@@ -134,12 +142,11 @@ public class PostService {
         }
 
         // Enrich author info and replies
+        fillMissingAuthors(comments, Comment::getUserId, Comment::getUserInfo, Comment::setUserInfo, userCache);
         comments.forEach(comment -> {
-            comment.setUserInfo(buildUserSummaryCached(comment.getUserId(), userCache));
-
             List<Comment> replies = commentRepository.findByParentCommentIdOrderByCreatedAtAsc(comment.getId());
             replies.forEach(this::ensureCommentDefaults);
-            replies.forEach(reply -> reply.setUserInfo(buildUserSummaryCached(reply.getUserId(), userCache)));
+            fillMissingAuthors(replies, Comment::getUserId, Comment::getUserInfo, Comment::setUserInfo, userCache);
 
             if (currentUserId != null && !replies.isEmpty()) {
                 List<String> replyIds = replies.stream().map(Comment::getId).collect(Collectors.toList());
@@ -307,7 +314,8 @@ public class PostService {
                 isLiked = true;
             }
             commentLikeRepository.save(like);
-        } else if (likeRepository.existsByUserIdAndTargetTypeAndTargetId(userId, TARGET_TYPE_COMMENT, commentId)) {
+        } else if (legacyLikeFallback
+                && likeRepository.existsUnmigratedByUserIdAndTargetTypeAndTargetId(userId, TARGET_TYPE_COMMENT, commentId)) {
             // Legacy like stored in the generic collection: delete to emulate an "unlike"
             likeRepository.deleteByUserIdAndTargetTypeAndTargetId(userId, TARGET_TYPE_COMMENT, commentId);
             isLiked = false;
@@ -322,7 +330,9 @@ public class PostService {
 
         commentRepository.findById(commentId).ifPresent(comment -> {
             long modernLikes = commentLikeRepository.countActiveByCommentId(commentId);
-            long legacyLikes = likeRepository.countByTargetTypeAndTargetId(TARGET_TYPE_COMMENT, commentId);
+            long legacyLikes = legacyLikeFallback
+                    ? likeRepository.countUnmigratedByTargetTypeAndTargetId(TARGET_TYPE_COMMENT, commentId)
+                    : 0L;
             comment.setLikesCount(modernLikes + legacyLikes);
             commentRepository.save(comment);
         });
@@ -383,14 +393,28 @@ public class PostService {
             post.setContent(content.trim());
         }
 
+        java.nio.file.Path spooled = null;
         if (imageFile != null && !imageFile.isEmpty() && user != null && user.getEmail() != null) {
             String sanitizedEmail = createUserFolderName(user.getEmail());
             String publicId = "posts/" + sanitizedEmail + "/" + post.getId();
-            Map<String, Object> uploadResult = cloudinaryService.uploadImageToFolder(imageFile, publicId);
-            post.setImageUrl((String) uploadResult.get("secure_url")); // keep original resolution from upload
+            if (mediaProcessingService != null) {
+                spooled = mediaProcessingService.spool(imageFile);
+                post.setMediaStatus(MediaProcessingService.STATUS_PENDING);
+            } else {
+                Map<String, Object> uploadResult = cloudinaryService.uploadImageToFolder(imageFile, publicId);
+                post.setImageUrl((String) uploadResult.get("secure_url")); // keep original resolution from upload
+                post.setMediaStatus(MediaProcessingService.STATUS_READY);
+            }
         }
         post.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
-        return postRepository.save(post);
+        post = postRepository.save(post);
+        if (spooled != null) {
+            String folderPath = "posts/" + createUserFolderName(user.getEmail()) + "/" + post.getId();
+            if (!mediaProcessingService.submitPostImage(post.getId(), userId, spooled, folderPath)) {
+                post.setMediaStatus(MediaProcessingService.STATUS_FAILED);
+            }
+        }
+        return post;
     }
 
     public List<Post> getAllPostsSortedByDate() {
@@ -409,13 +433,28 @@ public class PostService {
         post.setIsCoursePost(isCoursePost);
         post.setCourseId(courseId);
         post.setCreatedAt(LocalDateTime.now(ZoneOffset.UTC));
+
+        boolean hasImage = imageFile != null && !imageFile.isEmpty() && user != null && user.getEmail() != null;
+        if (hasImage && mediaProcessingService != null) {
+            // Spool locally and let the media workers upload; the client is notified over WebSocket
+            java.nio.file.Path spooled = mediaProcessingService.spool(imageFile);
+            post.setMediaStatus(MediaProcessingService.STATUS_PENDING);
+            post = postRepository.save(post);
+            String folderPath = "posts/" + createUserFolderName(user.getEmail()) + "/" + post.getId();
+            if (!mediaProcessingService.submitPostImage(post.getId(), userId, spooled, folderPath)) {
+                post.setMediaStatus(MediaProcessingService.STATUS_FAILED);
+            }
+            return post;
+        }
+
         post = postRepository.save(post);
 
-        if (imageFile != null && !imageFile.isEmpty() && user != null && user.getEmail() != null) {
+        if (hasImage) {
             String sanitizedEmail = createUserFolderName(user.getEmail());
             String publicId = "posts/" + sanitizedEmail + "/" + post.getId();
             Map<String, Object> uploadResult = cloudinaryService.uploadImageToFolder(imageFile, publicId);
             post.setImageUrl((String) uploadResult.get("secure_url"));
+            post.setMediaStatus(MediaProcessingService.STATUS_READY);
             post = postRepository.save(post);
         }
 
@@ -455,8 +494,10 @@ public class PostService {
         List<CommentLike> commentLikes = commentLikeRepository.findActiveByUserIdAndCommentIdIn(userId, commentIds);
         likedIds.addAll(commentLikes.stream().map(CommentLike::getCommentId).collect(Collectors.toSet()));
 
-        List<Like> legacyLikes = likeRepository.findByUserIdAndTargetTypeAndTargetIdIn(userId, TARGET_TYPE_COMMENT, commentIds);
-        likedIds.addAll(legacyLikes.stream().map(Like::getTargetId).collect(Collectors.toSet()));
+        if (legacyLikeFallback) {
+            List<Like> legacyLikes = likeRepository.findUnmigratedByUserIdAndTargetTypeAndTargetIdIn(userId, TARGET_TYPE_COMMENT, commentIds);
+            likedIds.addAll(legacyLikes.stream().map(Like::getTargetId).collect(Collectors.toSet()));
+        }
 
         return commentIds.stream().collect(Collectors.toMap(id -> id, likedIds::contains));
     }
@@ -475,13 +516,32 @@ public class PostService {
        ===============  USER INFO ENRICHMENT HELPERS  ==============
        ============================================================ */
 
-    private UserInfo buildUserSummaryCached(String userId, Map<String, UserInfo> cache) {
-        if (userId == null) return null;
-        return cache.computeIfAbsent(userId, id ->
-                userRepository.findById(id)
-                        .map(this::toUserInfo)
-                        .orElse(null)
-        );
+    /**
+     * Embedded author summaries are kept current by AuthorInfoPropagationService, so they are used as
+     * stored. Only documents without one (written before denormalization) are resolved, with a single
+     * batched user lookup per call.
+     */
+    private <T> void fillMissingAuthors(List<T> items,
+                                        java.util.function.Function<T, String> userIdOf,
+                                        java.util.function.Function<T, UserInfo> userInfoOf,
+                                        java.util.function.BiConsumer<T, UserInfo> setUserInfo,
+                                        Map<String, UserInfo> cache) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (T item : items) {
+            String userId = userIdOf.apply(item);
+            if (userInfoOf.apply(item) == null && userId != null && !cache.containsKey(userId)) {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            userRepository.findAllById(new ArrayList<>(missing))
+                    .forEach(user -> cache.put(user.getId(), toUserInfo(user)));
+        }
+        for (T item : items) {
+            if (userInfoOf.apply(item) == null && userIdOf.apply(item) != null) {
+                setUserInfo.accept(item, cache.get(userIdOf.apply(item)));
+            }
+        }
     }
 
     private UserInfo toUserInfo(User user) {
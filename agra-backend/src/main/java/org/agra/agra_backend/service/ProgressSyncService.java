@@ -0,0 +1,316 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.ProgressSyncKey;
+import org.agra.agra_backend.payload.ProgressSyncEvent;
+import org.agra.agra_backend.payload.ProgressSyncEventResult;
+import org.agra.agra_backend.payload.ProgressSyncResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch sync of progress recorded offline.
+ * <p>
+ * Events already applied are recognised by their idempotency key in {@code progress_sync_keys} and
+ * answered with their original outcome. The rest are merged per course in memory and written with one
+ * conditional update per enrollment ({@link CourseProgressService#applySyncedProgress}); keys are
+ * recorded only after that update succeeds. Applying the same merged events again changes nothing, so
+ * a batch interrupted between the two steps is safe to send again.
+ */
+@Service
+public class ProgressSyncService {
+
+    public static final String LESSON_COMPLETE = "LESSON_COMPLETE";
+    public static final String CURRENT_LESSON = "CURRENT_LESSON";
+    public static final String PROGRESS = "PROGRESS";
+
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final String KEY_TTL_INDEX = "expires_ttl";
+    private static final Logger log = LoggerFactory.getLogger(ProgressSyncService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CourseProgressService courseProgressService;
+    private final int maxEvents;
+    private final Duration keyTtl;
+
+    public ProgressSyncService(MongoTemplate mongoTemplate,
+                               CourseProgressService courseProgressService,
+                               @Value("${progress.sync.max-events:500}") int maxEvents,
+                               @Value("${progress.sync.key-ttl-hours:168}") long keyTtlHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.courseProgressService = courseProgressService;
+        this.maxEvents = maxEvents;
+        this.keyTtl = Duration.ofHours(Math.max(1, keyTtlHours));
+    }
+
+    public ProgressSyncResult sync(String userId, List<ProgressSyncEvent> events) {
+        if (events == null || events.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "events are required");
+        }
+        if (events.size() > maxEvents) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + maxEvents + " events can be synced at once");
+        }
+        Date now = new Date();
+        ProgressSyncEventResult[] results = new ProgressSyncEventResult[events.size()];
+
+        // First occurrence of each key in the batch; repeats share its result
+        Map<String, Integer> firstByKey = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            ProgressSyncEvent event = events.get(i);
+            String key = event != null ? event.getIdempotencyKey() : null;
+            if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+                results[i] = result(key, event, ProgressSyncEventResult.REJECTED,
+                        "idempotencyKey is required and at most " + MAX_KEY_LENGTH + " characters");
+            } else {
+                firstByKey.putIfAbsent(key, i);
+            }
+        }
+
+        Map<String, ProgressSyncKey> recorded = recorded(userId, firstByKey.keySet());
+        Map<String, List<Integer>> byCourse = new LinkedHashMap<>();
+        for (int i : firstByKey.values()) {
+            ProgressSyncEvent event = events.get(i);
+            ProgressSyncKey previous = recorded.get(keyId(userId, event.getIdempotencyKey()));
+            if (previous != null) {
+                ProgressSyncEventResult replay = result(event.getIdempotencyKey(), event, ProgressSyncEventResult.APPLIED, null);
+                replay.setDuplicate(true);
+                replay.setCourseId(previous.getCourseId());
+                replay.setProgressPercentage(previous.getProgressPercentage());
+                results[i] = replay;
+                continue;
+            }
+            String error = validate(event);
+            if (error != null) {
+                results[i] = result(event.getIdempotencyKey(), event, ProgressSyncEventResult.REJECTED, error);
+                continue;
+            }
+            byCourse.computeIfAbsent(event.getCourseId(), courseId -> new ArrayList<>()).add(i);
+        }
+
+        // Lesson ids are checked against the course before they can become ordinals or field paths
+        Map<String, Merge> merges = new LinkedHashMap<>();
+        byCourse.forEach((courseId, indexes) -> {
+            Optional<List<String>> lessonIds = courseProgressService.lessonIds(courseId);
+            for (int i : indexes) {
+                ProgressSyncEvent event = events.get(i);
+                if (lessonIds.isEmpty()) {
+                    results[i] = result(event.getIdempotencyKey(), event, ProgressSyncEventResult.REJECTED, "Course not found");
+                } else if (event.getLessonId() != null && !PROGRESS.equals(event.getType())
+                        && !lessonIds.get().contains(event.getLessonId())) {
+                    results[i] = result(event.getIdempotencyKey(), event, ProgressSyncEventResult.REJECTED,
+                            "Lesson not found in this course");
+                } else {
+                    merges.computeIfAbsent(courseId, id -> new Merge()).add(i, event, occurredAt(event, now));
+                }
+            }
+        });
+
+        List<ProgressSyncKey> applied = new ArrayList<>();
+        merges.forEach((courseId, merge) -> {
+            CourseProgress progress;
+            try {
+                progress = courseProgressService.applySyncedProgress(userId, courseId, merge.completions,
+                        merge.currentLessonId, merge.currentLessonAt, merge.progressPercentage, merge.startedAt);
+            } catch (RuntimeException e) {
+                log.warn("Failed to sync {} progress event(s) of user {} for course {}: {}",
+                        merge.events.size(), userId, courseId, e.getMessage());
+                for (int i : merge.events) {
+                    results[i] = result(events.get(i).getIdempotencyKey(), events.get(i), ProgressSyncEventResult.FAILED,
+                            "Could not apply the event; retry with the same key");
+                }
+                return;
+            }
+            for (int i : merge.events) {
+                ProgressSyncEvent event = events.get(i);
+                if (progress == null) {
+                    // Not remembered: the same event can be sent again once the user is enrolled
+                    results[i] = result(event.getIdempotencyKey(), event, ProgressSyncEventResult.REJECTED,
+                            "User is not enrolled in this course");
+                    continue;
+                }
+                ProgressSyncEventResult result = result(event.getIdempotencyKey(), event, ProgressSyncEventResult.APPLIED, null);
+                result.setProgressPercentage(progress.getProgressPercentage());
+                results[i] = result;
+                applied.add(key(userId, event, progress.getProgressPercentage(), now));
+            }
+        });
+        record(applied);
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                ProgressSyncEventResult first = results[firstByKey.get(events.get(i).getIdempotencyKey())];
+                results[i] = new ProgressSyncEventResult(first.getIdempotencyKey(), first.getStatus(), true,
+                        first.getError(), first.getCourseId(), first.getProgressPercentage());
+            }
+        }
+        return summarize(List.of(results));
+    }
+
+    /**
+     * Boot does not create annotated indexes here, so create the TTL index that expires old keys.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureKeyIndex() {
+        try {
+            mongoTemplate.indexOps(ProgressSyncKey.class).ensureIndex(new Index()
+                    .on("expiresAt", Sort.Direction.ASC)
+                    .expire(0, TimeUnit.SECONDS)
+                    .named(KEY_TTL_INDEX));
+        } catch (RuntimeException e) {
+            log.warn("Could not create the progress sync key TTL index: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, ProgressSyncKey> recorded(String userId, Iterable<String> keys) {
+        List<String> ids = new ArrayList<>();
+        keys.forEach(key -> ids.add(keyId(userId, key)));
+        Map<String, ProgressSyncKey> recorded = new HashMap<>();
+        if (ids.isEmpty()) {
+            return recorded;
+        }
+        for (ProgressSyncKey key : mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), ProgressSyncKey.class)) {
+            recorded.put(key.getId(), key);
+        }
+        return recorded;
+    }
+
+    private void record(List<ProgressSyncKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProgressSyncKey.class).insert(keys).execute();
+        } catch (DataAccessException e) {
+            // A concurrent replay of the same batch recorded them first, or the keys are lost and a
+            // retry re-applies events whose updates are idempotent anyway
+            log.debug("Some progress sync keys were not recorded: {}", e.getMessage());
+        }
+    }
+
+    private ProgressSyncKey key(String userId, ProgressSyncEvent event, int progressPercentage, Date now) {
+        ProgressSyncKey key = new ProgressSyncKey();
+        key.setId(keyId(userId, event.getIdempotencyKey()));
+        key.setUserId(userId);
+        key.setCourseId(event.getCourseId());
+        key.setLessonId(event.getLessonId());
+        key.setType(event.getType());
+        key.setProgressPercentage(progressPercentage);
+        key.setAppliedAt(now);
+        key.setExpiresAt(new Date(now.getTime() + keyTtl.toMillis()));
+        return key;
+    }
+
+    private static String validate(ProgressSyncEvent event) {
+        if (event.getCourseId() == null || event.getCourseId().isBlank()) {
+            return "courseId is required";
+        }
+        if (event.getType() == null) {
+            return "type is required";
+        }
+        switch (event.getType()) {
+            case LESSON_COMPLETE, CURRENT_LESSON -> {
+                if (event.getLessonId() == null || event.getLessonId().isBlank()) {
+                    return "lessonId is required";
+                }
+            }
+            case PROGRESS -> {
+                Integer percentage = event.getProgressPercentage();
+                if (percentage == null || percentage < 0 || percentage > 100) {
+                    return "progressPercentage must be between 0 and 100";
+                }
+            }
+            default -> {
+                return "Unknown event type: " + event.getType();
+            }
+        }
+        return null;
+    }
+
+    // Device clocks drift; never let an event claim to be from the future
+    private static Date occurredAt(ProgressSyncEvent event, Date now) {
+        return event.getOccurredAt() == null || event.getOccurredAt().after(now) ? now : event.getOccurredAt();
+    }
+
+    private static String keyId(String userId, String idempotencyKey) {
+        return userId + ':' + idempotencyKey;
+    }
+
+    private static ProgressSyncEventResult result(String key, ProgressSyncEvent event, String status, String error) {
+        return new ProgressSyncEventResult(key, status, false, error, event != null ? event.getCourseId() : null, null);
+    }
+
+    private static ProgressSyncResult summarize(List<ProgressSyncEventResult> results) {
+        int applied = 0;
+        int duplicates = 0;
+        int rejected = 0;
+        int failed = 0;
+        for (ProgressSyncEventResult result : results) {
+            if (result.isDuplicate()) {
+                duplicates++;
+            } else if (ProgressSyncEventResult.APPLIED.equals(result.getStatus())) {
+                applied++;
+            } else if (ProgressSyncEventResult.REJECTED.equals(result.getStatus())) {
+                rejected++;
+            } else {
+                failed++;
+            }
+        }
+        return new ProgressSyncResult(results, applied, duplicates, rejected, failed);
+    }
+
+    /**
+     * The events of one enrollment folded into a single update: earliest date per completed lesson,
+     * the newest current lesson (later in the batch wins ties) and the highest percentage.
+     */
+    private static final class Merge {
+        private final List<Integer> events = new ArrayList<>();
+        private final Map<String, Date> completions = new LinkedHashMap<>();
+        private String currentLessonId;
+        private Date currentLessonAt;
+        private Integer progressPercentage;
+        private Date startedAt;
+
+        void add(int index, ProgressSyncEvent event, Date at) {
+            events.add(index);
+            switch (event.getType()) {
+                case LESSON_COMPLETE -> completions.merge(event.getLessonId(), at, (a, b) -> a.before(b) ? a : b);
+                case CURRENT_LESSON -> {
+                    if (currentLessonAt == null || !at.before(currentLessonAt)) {
+                        currentLessonId = event.getLessonId();
+                        currentLessonAt = at;
+                    }
+                }
+                default -> progressPercentage = progressPercentage == null
+                        ? event.getProgressPercentage()
+                        : Math.max(progressPercentage, event.getProgressPercentage());
+            }
+            if (startedAt == null || at.before(startedAt)) {
+                startedAt = at;
+            }
+        }
+    }
+}
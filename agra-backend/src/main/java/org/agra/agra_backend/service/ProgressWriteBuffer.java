@@ -0,0 +1,232 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.annotation.PreDestroy;
+import org.agra.agra_backend.model.CourseProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces progress heartbeats (current lesson, progress percentage) per enrollment.
+ * <p>
+ * Players report every few seconds; the current lesson is last-write-wins and the percentage only
+ * goes up, so only the newest state of each {@code (userId, courseId)} pair is kept in memory and written with one unordered bulk
+ * update every {@code progress.heartbeats.flush-ms}. The first heartbeat of a window reads the
+ * enrollment once to check it exists; the rest are answered from that snapshot. Completions flush
+ * their enrollment synchronously before they read it, and everything left is flushed on shutdown.
+ */
+@Service
+public class ProgressWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ProgressWriteBuffer.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    public ProgressWriteBuffer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Buffer a heartbeat. {@code loader} is only called when nothing is buffered for the enrollment
+     * yet; an empty result means the user is not enrolled and nothing is buffered. Returns a copy of
+     * the enrollment as it will be after the next flush, taken under the entry's lock.
+     */
+    public Optional<CourseProgress> record(String userId, String courseId,
+                                           Supplier<Optional<CourseProgress>> loader,
+                                           Consumer<Pending> change) {
+        String key = key(userId, courseId);
+        Pending entry = pending.get(key);
+        if (entry == null) {
+            Optional<CourseProgress> stored = loader.get();
+            if (stored.isEmpty()) {
+                return Optional.empty();
+            }
+            entry = pending.computeIfAbsent(key, k -> new Pending(stored.get()));
+        }
+        while (true) {
+            synchronized (entry) {
+                if (!entry.flushed) {
+                    change.accept(entry);
+                    return Optional.of(entry.snapshot());
+                }
+            }
+            // Drained by a flush between lookup and lock; carry its state over into a fresh entry
+            Pending drained = entry;
+            entry = pending.computeIfAbsent(key, k -> new Pending(drained.progress));
+        }
+    }
+
+    /**
+     * Apply anything buffered for the enrollment to a document just read from the database, so reads
+     * between flushes see the latest heartbeat.
+     */
+    public CourseProgress overlay(CourseProgress progress) {
+        Pending entry = pending.get(key(progress.getUserId(), progress.getCourseId()));
+        if (entry != null) {
+            synchronized (entry) {
+                entry.applyTo(progress);
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * Write the enrollment's buffered heartbeat now. Called before any read-modify-write of the same
+     * document, such as a lesson or course completion.
+     */
+    public void flush(String userId, String courseId) {
+        Pending entry = drain(key(userId, courseId));
+        if (entry != null && entry.update != null) {
+            mongoTemplate.updateFirst(enrollment(entry), entry.update, CourseProgress.class);
+        }
+    }
+
+    /**
+     * Drop a buffered heartbeat whose enrollment is being deleted.
+     */
+    public void discard(String userId, String courseId) {
+        drain(key(userId, courseId));
+    }
+
+    public void discardCourse(String courseId) {
+        String suffix = '\u0000' + courseId;
+        pending.keySet().stream().filter(key -> key.endsWith(suffix)).toList().forEach(this::drain);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${progress.heartbeats.flush-ms:5000}", initialDelayString = "${progress.heartbeats.flush-ms:5000}")
+    public void flushAll() {
+        List<Pending> drained = new ArrayList<>();
+        for (Iterator<String> keys = pending.keySet().iterator(); keys.hasNext(); ) {
+            Pending entry = drain(keys.next());
+            if (entry != null && entry.update != null) {
+                drained.add(entry);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CourseProgress.class);
+        for (Pending entry : drained) {
+            operations.updateOne(enrollment(entry), entry.update);
+        }
+        try {
+            BulkWriteResult result = operations.execute();
+            log.debug("Flushed {} progress heartbeat(s), {} enrollment(s) modified", drained.size(), result.getModifiedCount());
+        } catch (RuntimeException e) {
+            // Heartbeats are last-write-wins; the next one from each player carries the same state
+            log.warn("Failed to flush {} progress heartbeat(s): {}", drained.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flushAll();
+    }
+
+    private Pending drain(String key) {
+        Pending entry = pending.remove(key);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.flushed = true;
+            }
+        }
+        return entry;
+    }
+
+    private static Query enrollment(Pending entry) {
+        return Query.query(Criteria.where("userId").is(entry.progress.getUserId())
+                .and("courseId").is(entry.progress.getCourseId()));
+    }
+
+    private static String key(String userId, String courseId) {
+        return userId + '\u0000' + courseId;
+    }
+
+    /**
+     * The newest buffered state of one enrollment, kept both as the snapshot returned to callers and as
+     * the update to write.
+     */
+    public static final class Pending {
+        private final CourseProgress progress;
+        private Update update;
+        private boolean flushed;
+
+        private Pending(CourseProgress progress) {
+            this.progress = progress;
+        }
+
+        public void currentLesson(String lessonId, Date now) {
+            progress.setCurrentLessonId(lessonId);
+            progress.setCurrentLessonAt(now);
+            update().set("currentLessonId", lessonId).set("currentLessonAt", now);
+            if (progress.getStartedAt() == null) {
+                progress.setStartedAt(now);
+                // $min keeps a start time written meanwhile by a completion or another instance
+                update().min("startedAt", now);
+            }
+        }
+
+        public void progressPercentage(int percentage) {
+            progress.setProgressPercentage(Math.max(progress.getProgressPercentage(), percentage));
+            // $max, so a late flush never lowers what a completion wrote meanwhile
+            update().max("progressPercentage", progress.getProgressPercentage());
+        }
+
+        private Update update() {
+            if (update == null) {
+                update = new Update();
+            }
+            return update;
+        }
+
+        private CourseProgress snapshot() {
+            CourseProgress copy = new CourseProgress();
+            BeanUtils.copyProperties(progress, copy);
+            copy.setCompletedLessonBits(progress.getCompletedLessonBits() == null ? null : progress.getCompletedLessonBits().clone());
+            copy.setCompletedLessons(progress.getCompletedLessons() == null ? null : new ArrayList<>(progress.getCompletedLessons()));
+            copy.setLessonCompletionDates(progress.getLessonCompletionDates() == null ? null : new HashMap<>(progress.getLessonCompletionDates()));
+            copy.setQuizScores(progress.getQuizScores() == null ? null : new HashMap<>(progress.getQuizScores()));
+            return copy;
+        }
+
+        private void applyTo(CourseProgress target) {
+            if (update == null) {
+                return;
+            }
+            if (update.modifies("currentLessonId")) {
+                target.setCurrentLessonId(progress.getCurrentLessonId());
+                target.setCurrentLessonAt(progress.getCurrentLessonAt());
+            }
+            if (update.modifies("progressPercentage")) {
+                target.setProgressPercentage(Math.max(target.getProgressPercentage(), progress.getProgressPercentage()));
+            }
+            if (target.getStartedAt() == null) {
+                target.setStartedAt(progress.getStartedAt());
+            }
+        }
+    }
+}
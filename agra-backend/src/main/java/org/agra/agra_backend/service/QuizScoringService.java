@@ -0,0 +1,317 @@
+package org.agra.agra_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.agra.agra_backend.dao.QuizAttemptRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.QuizAttempt;
+import org.agra.agra_backend.model.QuizQuestion;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.payload.QuizResult;
+import org.agra.agra_backend.payload.QuizSubmission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Grades quiz submissions on the server, so answer keys never have to reach the client.
+ * <p>
+ * Keys are extracted once per course version into flat arrays (question ids, answer ids and a
+ * bit mask of the correct answers per question) held in Caffeine. A cached key is trusted for
+ * {@code quiz.answer-keys.version-check-ms}; after that one projected read of the course version
+ * decides whether it is still current. Grading itself walks those arrays and allocates nothing
+ * unless a question is wrong.
+ */
+@Service
+public class QuizScoringService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuizScoringService.class);
+    // One bit per answer in the correct-answer mask
+    private static final int MAX_ANSWERS = Long.SIZE;
+    private static final String USER_ATTEMPTS_INDEX = "user_course_lesson_submitted";
+    private static final String QUIZ_ATTEMPTS_INDEX = "course_lesson_submitted";
+
+    private final CourseService courseService;
+    private final CourseProgressService courseProgressService;
+    private final QuizAttemptRepository quizAttemptRepository;
+    private final MongoTemplate mongoTemplate;
+    private final int passPercent;
+    private final long versionCheckMs;
+    private final Cache<String, AnswerKey> answerKeys;
+
+    public QuizScoringService(CourseService courseService,
+                              CourseProgressService courseProgressService,
+                              QuizAttemptRepository quizAttemptRepository,
+                              MongoTemplate mongoTemplate,
+                              @Value("${quiz.pass-percent:70}") int passPercent,
+                              @Value("${quiz.answer-keys.max-courses:1000}") long maxCourses,
+                              @Value("${quiz.answer-keys.version-check-ms:1000}") long versionCheckMs) {
+        this.courseService = courseService;
+        this.courseProgressService = courseProgressService;
+        this.quizAttemptRepository = quizAttemptRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.passPercent = passPercent;
+        this.versionCheckMs = versionCheckMs;
+        this.answerKeys = Caffeine.newBuilder().maximumSize(Math.max(1, maxCourses)).build();
+    }
+
+    /**
+     * Grade a submission, record the attempt and then pass the result on to the user's course
+     * progress, so a score is never kept without its attempt. Only answers to the quiz's own questions
+     * are stored.
+     */
+    public QuizResult submit(String userId, QuizSubmission submission) {
+        AnswerKey key = answerKey(submission.getCourseId());
+        if (key == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found");
+        }
+        LessonKey lesson = key.lesson(submission.getLessonId());
+        if (lesson == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Quiz not found");
+        }
+        List<String> wrong = new ArrayList<>();
+        int correct = lesson.grade(submission.getAnswers(), wrong);
+        int total = lesson.size();
+        int percent = total == 0 ? 100 : correct * 100 / total;
+        boolean passed = percent >= passPercent;
+        Date submittedAt = new Date();
+
+        QuizAttempt attempt = new QuizAttempt();
+        attempt.setUserId(userId);
+        attempt.setCourseId(submission.getCourseId());
+        attempt.setLessonId(submission.getLessonId());
+        attempt.setCourseVersion(key.version);
+        attempt.setCorrect(correct);
+        attempt.setTotal(total);
+        attempt.setPercent(percent);
+        attempt.setPassed(passed);
+        attempt.setAnswers(lesson.known(submission.getAnswers()));
+        attempt.setWrongQuestionIds(wrong);
+        attempt.setSubmittedAt(submittedAt);
+        QuizAttempt saved = quizAttemptRepository.save(attempt);
+        if (!courseProgressService.recordQuizResult(userId, submission.getCourseId(), submission.getLessonId(),
+                percent, passed, submittedAt)) {
+            quizAttemptRepository.deleteById(saved.getId());
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User is not enrolled in this course");
+        }
+        return new QuizResult(saved.getId(), saved.getCourseId(), saved.getLessonId(), correct, total, percent, passed,
+                passPercent, wrong);
+    }
+
+    public List<QuizAttempt> getAttempts(String userId, String courseId, String lessonId) {
+        return quizAttemptRepository.findByUserIdAndCourseIdAndLessonIdOrderBySubmittedAtDesc(userId, courseId, lessonId);
+    }
+
+    /**
+     * Boot does not create annotated indexes here, so create the two attempt indexes: a user's
+     * history for one quiz, and all attempts on a quiz for reporting.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureAttemptIndexes() {
+        try {
+            IndexOperations indexes = mongoTemplate.indexOps(QuizAttempt.class);
+            indexes.ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("courseId", Sort.Direction.ASC)
+                    .on("lessonId", Sort.Direction.ASC)
+                    .on("submittedAt", Sort.Direction.DESC)
+                    .named(USER_ATTEMPTS_INDEX));
+            indexes.ensureIndex(new Index()
+                    .on("courseId", Sort.Direction.ASC)
+                    .on("lessonId", Sort.Direction.ASC)
+                    .on("submittedAt", Sort.Direction.DESC)
+                    .named(QUIZ_ATTEMPTS_INDEX));
+        } catch (RuntimeException e) {
+            log.warn("Could not create the quiz attempt indexes: {}", e.getMessage());
+        }
+    }
+
+    AnswerKey answerKey(String courseId) {
+        long now = System.currentTimeMillis();
+        AnswerKey cached = answerKeys.getIfPresent(courseId);
+        if (cached != null) {
+            if (now - cached.checkedAt < versionCheckMs) {
+                return cached;
+            }
+            Query versionOnly = Query.query(Criteria.where("_id").is(courseId));
+            versionOnly.fields().include("version");
+            Course stored = mongoTemplate.findOne(versionOnly, Course.class);
+            if (stored != null && Objects.equals(stored.getVersion(), cached.version)) {
+                cached.checkedAt = now;
+                return cached;
+            }
+            answerKeys.invalidate(courseId);
+        }
+        return answerKeys.get(courseId, id -> courseService.getCourseById(id).map(course -> AnswerKey.of(course, now)).orElse(null));
+    }
+
+    /**
+     * Answer keys of every quiz in one course version.
+     */
+    static final class AnswerKey {
+        private final Long version;
+        private final Map<String, LessonKey> lessons;
+        private volatile long checkedAt;
+
+        private AnswerKey(Long version, Map<String, LessonKey> lessons, long checkedAt) {
+            this.version = version;
+            this.lessons = lessons;
+            this.checkedAt = checkedAt;
+        }
+
+        static AnswerKey of(Course course, long now) {
+            Map<String, LessonKey> lessons = new HashMap<>();
+            if (course.getTextContent() != null) {
+                for (TextContent lesson : course.getTextContent()) {
+                    if (lesson != null && lesson.getId() != null && lesson.getQuizQuestions() != null
+                            && !lesson.getQuizQuestions().isEmpty()) {
+                        lessons.put(lesson.getId(), LessonKey.of(course.getId(), lesson.getQuizQuestions()));
+                    }
+                }
+            }
+            return new AnswerKey(course.getVersion(), lessons, now);
+        }
+
+        LessonKey lesson(String lessonId) {
+            return lessons.get(lessonId);
+        }
+    }
+
+    /**
+     * One quiz as parallel arrays: question ids, each question's answer ids in order, and a mask with
+     * bit {@code i} set when answer {@code i} is correct.
+     */
+    static final class LessonKey {
+        private final String[] questionIds;
+        private final String[][] answerIds;
+        private final long[] correctMasks;
+
+        private LessonKey(String[] questionIds, String[][] answerIds, long[] correctMasks) {
+            this.questionIds = questionIds;
+            this.answerIds = answerIds;
+            this.correctMasks = correctMasks;
+        }
+
+        static LessonKey of(String courseId, List<QuizQuestion> questions) {
+            List<QuizQuestion> gradable = new ArrayList<>(questions.size());
+            for (QuizQuestion question : questions) {
+                if (question != null && question.getId() != null) {
+                    gradable.add(question);
+                }
+            }
+            String[] questionIds = new String[gradable.size()];
+            String[][] answerIds = new String[gradable.size()][];
+            long[] correctMasks = new long[gradable.size()];
+            for (int q = 0; q < gradable.size(); q++) {
+                QuizQuestion question = gradable.get(q);
+                List<QuizAnswer> answers = question.getAnswers() == null ? List.of() : question.getAnswers();
+                if (answers.size() > MAX_ANSWERS) {
+                    log.warn("Question {} of course {} has {} answers; only the first {} are graded",
+                            question.getId(), courseId, answers.size(), MAX_ANSWERS);
+                }
+                int count = Math.min(answers.size(), MAX_ANSWERS);
+                String[] ids = new String[count];
+                long mask = 0L;
+                for (int a = 0; a < count; a++) {
+                    QuizAnswer answer = answers.get(a);
+                    ids[a] = answer == null ? null : answer.getId();
+                    if (answer != null && answer.isCorrect()) {
+                        mask |= 1L << a;
+                    }
+                }
+                questionIds[q] = question.getId();
+                answerIds[q] = ids;
+                correctMasks[q] = mask;
+            }
+            return new LessonKey(questionIds, answerIds, correctMasks);
+        }
+
+        int size() {
+            return questionIds.length;
+        }
+
+        /**
+         * Number of questions whose selection is exactly the set of correct answers. Ids of the other
+         * questions are added to {@code wrong}. Unknown question or answer ids never count as correct.
+         */
+        int grade(Map<String, List<String>> submitted, List<String> wrong) {
+            int correct = 0;
+            for (int q = 0; q < questionIds.length; q++) {
+                List<String> selected = submitted == null ? null : submitted.get(questionIds[q]);
+                if (selectionMask(answerIds[q], selected) == correctMasks[q] && selected != null) {
+                    correct++;
+                } else {
+                    wrong.add(questionIds[q]);
+                }
+            }
+            return correct;
+        }
+
+        /**
+         * The submitted selections restricted to this quiz's question and answer ids, so nothing the
+         * client made up is stored with the attempt.
+         */
+        Map<String, List<String>> known(Map<String, List<String>> submitted) {
+            Map<String, List<String>> known = new HashMap<>();
+            if (submitted == null) {
+                return known;
+            }
+            for (int q = 0; q < questionIds.length; q++) {
+                List<String> selected = submitted.get(questionIds[q]);
+                if (selected == null) {
+                    continue;
+                }
+                List<String> answers = new ArrayList<>();
+                for (String answerId : answerIds[q]) {
+                    if (answerId != null && selected.contains(answerId)) {
+                        answers.add(answerId);
+                    }
+                }
+                known.put(questionIds[q], answers);
+            }
+            return known;
+        }
+
+        // -1 (every bit set) for a selection naming an unknown answer, so it can never match
+        private static long selectionMask(String[] ids, List<String> selected) {
+            if (selected == null) {
+                return 0L;
+            }
+            long mask = 0L;
+            for (int s = 0, n = selected.size(); s < n; s++) {
+                String answerId = selected.get(s);
+                int index = -1;
+                for (int a = 0; a < ids.length; a++) {
+                    if (ids[a] != null && ids[a].equals(answerId)) {
+                        index = a;
+                        break;
+                    }
+                }
+                if (index < 0) {
+                    return -1L;
+                }
+                mask |= 1L << index;
+            }
+            return mask;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package org.agra.agra_backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.dao.PostRepository;
+import org.agra.agra_backend.dao.TicketRepository;
+import org.agra.agra_backend.dao.UserRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.Post;
+import org.agra.agra_backend.model.Ticket;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.SignedUploadCompleteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Issues short-lived signed parameters so clients upload media straight to Cloudinary, and links
+ * the finished upload to its post, course, ticket or profile once the client reports back.
+ * <p>
+ * Nothing is stored between the two calls: the signed public id embeds the target folder, the
+ * issue timestamp and the resource type chosen here from the declared content type, and Cloudinary's
+ * response signature proves the reported public id and version are genuine. Both checks are local
+ * hashes, so no storage API call is made on either path. Cloudinary leaves resource_type out of the
+ * upload signature, which is why it travels in the public id rather than as a field of its own.
+ */
+@Service
+public class SignedUploadService {
+
+    public static final String TARGET_POST = "POST";
+    public static final String TARGET_COURSE = "COURSE";
+    public static final String TARGET_TICKET = "TICKET";
+    public static final String TARGET_PROFILE = "PROFILE";
+
+    private static final Logger log = LoggerFactory.getLogger(SignedUploadService.class);
+    private static final String DIRECT_PREFIX = "direct_";
+    private static final Set<String> ATTACHMENT_TYPES = Set.of(CloudinaryService.RESOURCE_IMAGE, CloudinaryService.RESOURCE_RAW);
+    // Tolerated difference between our clock and the storage provider's when checking the upload time
+    private static final long CLOCK_SKEW_SECONDS = 60L;
+
+    private final Cloudinary cloudinary;
+    private final String cloudName;
+    private final String apiKey;
+    private final String apiSecret;
+    private final String uploadPreset;
+    private final long ttlSeconds;
+    private final long maxBytes;
+    private final List<String> imageFormats;
+    private final List<String> attachmentFormats;
+
+    private final PostRepository postRepository;
+    private final CourseRepository courseRepository;
+    private final TicketRepository ticketRepository;
+    private final UserRepository userRepository;
+    private final CacheManager cacheManager;
+    private final AuthorInfoPropagationService authorInfoPropagationService;
+    private final CatalogVersionService catalogVersionService;
+
+    public SignedUploadService(@Value("${cloudinary.cloud-name}") String cloudName,
+                               @Value("${cloudinary.api-key}") String apiKey,
+                               @Value("${cloudinary.api-secret}") String apiSecret,
+                               @Value("${cloudinary.direct.upload-preset:}") String uploadPreset,
+                               @Value("${cloudinary.direct.ttl-seconds:600}") long ttlSeconds,
+                               @Value("${cloudinary.upload.max-bytes:104857600}") long maxBytes,
+                               @Value("${cloudinary.direct.image-formats:jpg,jpeg,png,webp,gif}") String imageFormats,
+                               @Value("${cloudinary.direct.attachment-formats:jpg,jpeg,png,webp,gif,pdf}") String attachmentFormats,
+                               PostRepository postRepository,
+                               CourseRepository courseRepository,
+                               TicketRepository ticketRepository,
+                               UserRepository userRepository,
+                               @Nullable CacheManager cacheManager,
+                               @Nullable AuthorInfoPropagationService authorInfoPropagationService,
+                               @Nullable CatalogVersionService catalogVersionService) {
+        this.cloudName = cloudName;
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+        this.uploadPreset = uploadPreset;
+        this.ttlSeconds = Math.max(1L, ttlSeconds);
+        this.maxBytes = maxBytes;
+        this.imageFormats = splitFormats(imageFormats);
+        this.attachmentFormats = splitFormats(attachmentFormats);
+        this.postRepository = postRepository;
+        this.courseRepository = courseRepository;
+        this.ticketRepository = ticketRepository;
+        this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
+        this.authorInfoPropagationService = authorInfoPropagationService;
+        this.catalogVersionService = catalogVersionService;
+        this.cloudinary = new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", cloudName,
+                "api_key", apiKey,
+                "api_secret", apiSecret
+        ));
+    }
+
+    /**
+     * Build the signed form fields a client posts to the storage upload URL for the given target,
+     * plus the folder, size cap and expiry the client should respect. The resource type comes from
+     * the declared content type, which must name one of the target's allowed formats.
+     */
+    public Map<String, Object> issue(User actor, String targetType, String targetId, String contentType, long size) {
+        return issue(actor, targetType, targetId, contentType, size, System.currentTimeMillis() / 1000L);
+    }
+
+    Map<String, Object> issue(User actor, String targetType, String targetId, String contentType, long size, long timestamp) {
+        String type = normalizeTargetType(targetType);
+        String folder = authorizeAndResolveFolder(actor, type, targetId);
+        String resourceType = resolveResourceType(type, contentType);
+        enforceSizeLimit(size);
+        String nonce = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        String publicId = folder + "/" + DIRECT_PREFIX + timestamp + "_" + resourceType + "_" + nonce;
+
+        Map<String, Object> signed = new LinkedHashMap<>();
+        signed.put("public_id", publicId);
+        signed.put("timestamp", timestamp);
+        signed.put("allowed_formats", String.join(",", formatsFor(type)));
+        if (uploadPreset != null && !uploadPreset.isBlank()) {
+            signed.put("upload_preset", uploadPreset);
+        }
+
+        // Exactly the fields to post alongside the file; anything extra would break the signature
+        Map<String, Object> fields = new LinkedHashMap<>(signed);
+        fields.put("signature", sign(signed));
+        fields.put("api_key", apiKey);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("upload_url", "https://api.cloudinary.com/v1_1/" + cloudName + "/" + resourceType + "/upload");
+        response.put("fields", fields);
+        response.put("cloud_name", cloudName);
+        response.put("resource_type", resourceType);
+        response.put("folder", folder);
+        response.put("max_file_size", maxBytes);
+        response.put("expires_at", timestamp + ttlSeconds);
+        return response;
+    }
+
+    /**
+     * Verify a finished upload and attach its delivery URL to the target. Returns the linked URL.
+     */
+    public Map<String, Object> complete(User actor, SignedUploadCompleteRequest request) {
+        String type = normalizeTargetType(request.getTargetType());
+        String folder = authorizeAndResolveFolder(actor, type, request.getTargetId());
+        String publicId = request.getPublicId();
+
+        String[] issued = parsePublicId(folder, publicId);
+        long issuedAt = Long.parseLong(issued[0]);
+        String resourceType = issued[1];
+        long version = parseVersion(request.getVersion());
+        if (!verifyResponseSignature(publicId, request.getVersion(), request.getSignature())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload signature does not match");
+        }
+        if (version < issuedAt - CLOCK_SKEW_SECONDS || version > issuedAt + ttlSeconds + CLOCK_SKEW_SECONDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload parameters have expired");
+        }
+        String format = request.getFormat() != null ? request.getFormat().toLowerCase(Locale.ROOT) : null;
+        if (format != null && !formatsFor(type).contains(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format not allowed: " + format);
+        }
+        if (request.getBytes() != null) {
+            enforceSizeLimit(request.getBytes());
+        }
+
+        String url = deliveryUrl(resourceType, version, publicId, format);
+        link(type, request.getTargetId(), url, publicId);
+        log.info("Linked direct upload {} to {} {}", publicId, type, request.getTargetId());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("url", url);
+        response.put("public_id", publicId);
+        response.put("target_type", type);
+        response.put("target_id", request.getTargetId());
+        return response;
+    }
+
+    /**
+     * Signature over the upload parameters, as computed by Cloudinary on receipt. Pure function of the
+     * parameters and the API secret.
+     */
+    String sign(Map<String, Object> params) {
+        return cloudinary.apiSignRequest(params, apiSecret);
+    }
+
+    boolean verifyResponseSignature(String publicId, String version, String signature) {
+        return cloudinary.verifyApiResponseSignature(publicId, version, signature);
+    }
+
+    private String authorizeAndResolveFolder(User actor, String type, String targetId) {
+        if (actor == null || actor.getId() == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        if (targetId == null || targetId.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "targetId is required");
+        }
+        switch (type) {
+            case TARGET_POST -> {
+                Post post = postRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+                if (!actor.getId().equals(post.getUserId())) {
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to upload media for this post");
+                }
+                if (actor.getEmail() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User email is required for post uploads");
+                }
+                return "posts/" + actor.getEmail().toLowerCase().replace("@", "_").replace(".", "_") + "/" + targetId;
+            }
+            case TARGET_COURSE -> {
+                if (!isAdmin(actor)) {
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access only");
+                }
+                if (!courseRepository.existsById(targetId)) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found");
+                }
+                return "courses/" + targetId;
+            }
+            case TARGET_TICKET -> {
+                Ticket ticket = ticketRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found"));
+                String ownerId = ticket.getUserInfo() != null ? ticket.getUserInfo().getId() : null;
+                if (!isAdmin(actor) && !actor.getId().equals(ownerId)) {
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to upload media for this ticket");
+                }
+                return "tickets/" + sanitizeIdentifier(ownerId != null ? ownerId : "unknown-user") + "/" + sanitizeIdentifier(targetId);
+            }
+            case TARGET_PROFILE -> {
+                if (!isAdmin(actor) && !actor.getId().equals(targetId)) {
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to change this profile");
+                }
+                User owner = userRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+                if (owner.getEmail() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User email is required for profile uploads");
+                }
+                return "users/" + owner.getEmail().replaceAll("[^a-zA-Z0-9]", "_").toLowerCase();
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported target type: " + type);
+        }
+    }
+
+    private void link(String type, String targetId, String url, String publicId) {
+        switch (type) {
+            case TARGET_POST -> {
+                Post post = postRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+                post.setImageUrl(url);
+                post.setMediaStatus(MediaProcessingService.STATUS_READY);
+                postRepository.save(post);
+                evict("feed:recent", "feed:topPosts");
+            }
+            case TARGET_COURSE -> {
+                Course course = courseRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Course not found"));
+                course.setImageUrl(url);
+                course.setImagePublicId(publicId);
+                course.setThumbnailUrl(MediaProcessingService.transformedUrl(url, publicId, "c_fill,w_300,h_200"));
+                course.setDetailImageUrl(MediaProcessingService.transformedUrl(url, publicId, "c_fit,w_800,h_600"));
+                course.setMediaStatus(MediaProcessingService.STATUS_READY);
+                course.setUpdatedAt(new Date());
+                courseRepository.save(course);
+                evict("courses:all", "courses:detail", "courses:country", "courses:domain", "courses:featured", "courses:active", "courses:summaries");
+                if (catalogVersionService != null) {
+                    catalogVersionService.courseChanged(course);
+                }
+            }
+            case TARGET_TICKET -> {
+                Ticket ticket = ticketRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket not found"));
+                ticket.setAttachmentUrl(url);
+                ticket.setUpdatedAt(LocalDateTime.now());
+                ticketRepository.save(ticket);
+            }
+            case TARGET_PROFILE -> {
+                User user = userRepository.findById(targetId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+                user.setPicture(url);
+                userRepository.save(user);
+                if (authorInfoPropagationService != null) {
+                    authorInfoPropagationService.propagate(user);
+                }
+                evictKey("users:profile", targetId);
+                evict("users:dashboard");
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported target type: " + type);
+        }
+    }
+
+    /**
+     * Split a public id issued for this folder into its issue timestamp and resource type.
+     */
+    private String[] parsePublicId(String folder, String publicId) {
+        String expectedPrefix = folder + "/" + DIRECT_PREFIX;
+        if (publicId == null || !publicId.startsWith(expectedPrefix)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Public id does not belong to this target");
+        }
+        String[] parts = publicId.substring(expectedPrefix.length()).split("_", -1);
+        if (parts.length != 3 || parts[2].isEmpty() || parts[2].indexOf('/') >= 0 || !ATTACHMENT_TYPES.contains(parts[1])) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed public id");
+        }
+        try {
+            Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed public id");
+        }
+        return new String[] {parts[0], parts[1]};
+    }
+
+    private long parseVersion(String version) {
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed version");
+        }
+    }
+
+    private String deliveryUrl(String resourceType, long version, String publicId, String format) {
+        String url = "https://res.cloudinary.com/" + cloudName + "/" + resourceType + "/upload/v" + version + "/" + publicId;
+        return format != null && !"raw".equals(resourceType) ? url + "." + format : url;
+    }
+
+    /**
+     * Resource type for a declared content type. Images go everywhere; ticket attachments may also
+     * be raw documents. The subtype must be one of the target's allowed formats.
+     */
+    private String resolveResourceType(String type, String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid contentType");
+        }
+        String resourceType = CloudinaryService.resourceTypeFor(mediaType.toString(), null);
+        boolean allowedType = TARGET_TICKET.equals(type)
+                ? ATTACHMENT_TYPES.contains(resourceType)
+                : CloudinaryService.RESOURCE_IMAGE.equals(resourceType);
+        if (!allowedType || !formatsFor(type).contains(mediaType.getSubtype().toLowerCase(Locale.ROOT))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Content type not allowed: " + mediaType);
+        }
+        return resourceType;
+    }
+
+    private void enforceSizeLimit(long size) {
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        if (size > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File exceeds the upload limit of " + maxBytes + " bytes");
+        }
+    }
+
+    private List<String> formatsFor(String type) {
+        return TARGET_TICKET.equals(type) ? attachmentFormats : imageFormats;
+    }
+
+    private String normalizeTargetType(String targetType) {
+        if (targetType == null || targetType.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "targetType is required");
+        }
+        return targetType.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private boolean isAdmin(User actor) {
+        return actor != null && "ADMIN".equalsIgnoreCase(actor.getRole());
+    }
+
+    private String sanitizeIdentifier(String value) {
+        return value.replaceAll("[^a-zA-Z0-9_-]", "_").toLowerCase();
+    }
+
+    private static List<String> splitFormats(String formats) {
+        return Arrays.stream(formats.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> s.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+    }
+
+    private void evict(String... cacheNames) {
+        if (cacheManager == null) {
+            return;
+        }
+        for (String name : cacheNames) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private void evictKey(String cacheName, String key) {
+        if (cacheManager == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+}
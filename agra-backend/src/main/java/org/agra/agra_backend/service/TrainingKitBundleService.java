@@ -0,0 +1,386 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.agra.agra_backend.dao.TrainingKitRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseFile;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.model.TrainingKit;
+import org.agra.agra_backend.payload.TrainingKitBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Offline bundles: one zip per course and language holding the localized course, every lesson with
+ * its quiz, the course's attached files and the matching training kits.
+ * <p>
+ * Bundles are stored under the SHA-256 of the course content hash, the language and the kit list,
+ * so an unchanged course is served from disk (across restarts too) and any edit simply produces a
+ * new name. Builds run on a small bounded pool; when it is full callers get a 503 and retry.
+ * <p>
+ * A bundle's modification time is refreshed whenever it is reported as the current one. Bundles an
+ * edit has superseded are kept for {@code training-kits.superseded-retention-hours} after that, so
+ * clients can still resume a download of the immutable URL they were given, and the sweep then
+ * deletes them by scanning the cache directory.
+ */
+@Service
+public class TrainingKitBundleService {
+
+    public static final String STATUS_READY = "READY";
+    public static final String STATUS_BUILDING = "BUILDING";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final Logger log = LoggerFactory.getLogger(TrainingKitBundleService.class);
+    // Bump when the bundle layout changes so existing bundles are rebuilt
+    private static final int FORMAT_VERSION = 1;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern UNSAFE_NAME = Pattern.compile("[^A-Za-z0-9._-]+");
+
+    /**
+     * Where attached files and kit files are read from; remote URLs in production, local files in tests.
+     */
+    @FunctionalInterface
+    public interface AssetSource {
+        InputStream open(String url) throws IOException;
+    }
+
+    private final CourseService courseService;
+    private final CourseLessonService courseLessonService;
+    private final TrainingKitRepository trainingKitRepository;
+    private final ObjectMapper objectMapper;
+    private final AssetSource assetSource;
+    private final Path cacheDir;
+    private final int fetchTimeoutMs;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Future<?>> builds = new ConcurrentHashMap<>();
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+    private final long retentionMs;
+
+    public TrainingKitBundleService(CourseService courseService,
+                                    CourseLessonService courseLessonService,
+                                    TrainingKitRepository trainingKitRepository,
+                                    ObjectMapper objectMapper,
+                                    @Nullable AssetSource assetSource,
+                                    @Value("${training-kits.cache-dir:${java.io.tmpdir}/agra-training-kits}") String cacheDir,
+                                    @Value("${training-kits.workers:2}") int workers,
+                                    @Value("${training-kits.queue-capacity:8}") int queueCapacity,
+                                    @Value("${training-kits.fetch-timeout-ms:30000}") int fetchTimeoutMs,
+                                    @Value("${training-kits.superseded-retention-hours:48}") long retentionHours) {
+        this.courseService = courseService;
+        this.courseLessonService = courseLessonService;
+        this.trainingKitRepository = trainingKitRepository;
+        this.objectMapper = objectMapper;
+        this.assetSource = assetSource != null ? assetSource : this::openRemote;
+        this.cacheDir = Paths.get(cacheDir);
+        this.fetchTimeoutMs = Math.max(1, fetchTimeoutMs);
+        this.retentionMs = TimeUnit.HOURS.toMillis(Math.max(1, retentionHours));
+        int poolSize = Math.max(1, workers);
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "training-kit-bundle-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * State of the bundle for a course and language, queueing a build when the current content has
+     * none yet. Empty when the course does not exist. A FAILED state is reported once; the next
+     * request builds again.
+     */
+    public Optional<TrainingKitBundle> requestBundle(String courseId, Locale locale) {
+        Optional<Course> found = courseService.getCourseById(courseId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Course course = found.get();
+        String language = locale == null || locale.getLanguage().isBlank() ? "en" : locale.getLanguage();
+        List<TrainingKit> kits = kitsFor(courseId, language);
+        String hash = bundleHash(course, language, kits);
+        Path bundle = bundlePath(hash);
+        if (Files.exists(bundle)) {
+            touch(bundle);
+            return Optional.of(ready(courseId, language, hash, bundle));
+        }
+        String error = failures.remove(hash);
+        if (error != null) {
+            return Optional.of(new TrainingKitBundle(courseId, language, STATUS_FAILED, hash, null, null, error));
+        }
+        Locale bundleLocale = Locale.forLanguageTag(language);
+        builds.computeIfAbsent(hash, key -> submit(() -> build(key, course, language, bundleLocale, kits)));
+        return Optional.of(new TrainingKitBundle(courseId, language, STATUS_BUILDING, hash, null, null, null));
+    }
+
+    /**
+     * The stored bundle with this content hash, if it exists.
+     */
+    public Optional<Path> bundleFile(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path bundle = bundlePath(hash);
+        return Files.isRegularFile(bundle) ? Optional.of(bundle) : Optional.empty();
+    }
+
+    /**
+     * Delete bundles that have not been current for the retention period, and partial files left by
+     * builds that did not finish. Works from the directory alone, so bundles from before a restart
+     * are cleaned up too.
+     */
+    @Scheduled(fixedDelayString = "${training-kits.sweep-ms:3600000}", initialDelayString = "${training-kits.sweep-ms:3600000}")
+    public void sweep() {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, "*.{zip,part}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean building = name.length() >= 64 && builds.containsKey(name.substring(0, 64));
+                if (!building && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep offline bundles in {}: {}", cacheDir, e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} superseded offline bundle file(s)", deleted);
+        }
+    }
+
+    static String bundleHash(Course course, String language, List<TrainingKit> kits) {
+        StringBuilder key = new StringBuilder("v").append(FORMAT_VERSION)
+                .append('|').append(CatalogVersionService.contentHash(course))
+                .append('|').append(language);
+        for (TrainingKit kit : kits) {
+            key.append('|').append(kit.getId()).append('@').append(kit.getFileUrl())
+                    .append('@').append(kit.getUploadDate() == null ? 0 : kit.getUploadDate().getTime());
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Future<?> submit(Runnable build) {
+        try {
+            return executor.submit(build);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Bundle builder is busy, try again later");
+        }
+    }
+
+    private void build(String hash, Course course, String language, Locale locale, List<TrainingKit> kits) {
+        Path partial = null;
+        try {
+            Files.createDirectories(cacheDir);
+            partial = Files.createTempFile(cacheDir, hash, ".part");
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+                writeBundle(zip, hash, course, language, locale, kits);
+            }
+            long size = Files.size(partial);
+            Files.move(partial, bundlePath(hash), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Built offline bundle for course {} ({}): {} bytes", course.getId(), language, size);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(partial);
+            log.warn("Offline bundle for course {} ({}) failed: {}", course.getId(), language, e.getMessage());
+            failures.put(hash, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        } finally {
+            builds.remove(hash);
+        }
+    }
+
+    private void writeBundle(ZipOutputStream zip, String hash, Course course, String language, Locale locale,
+                             List<TrainingKit> kits) throws IOException {
+        List<String> entries = new ArrayList<>();
+        Course localized = courseService.localizeCourse(course, locale);
+        // Lessons get their own entries below
+        localized.setTextContent(null);
+        writeJson(zip, "course.json", localized, entries);
+
+        List<TextContent> lessons = new ArrayList<>(course.getTextContent() == null ? List.of() : course.getTextContent());
+        lessons.removeIf(lesson -> lesson == null);
+        lessons.sort(Comparator.comparingInt(TextContent::getOrder));
+        for (int i = 0; i < lessons.size(); i++) {
+            Course holder = new Course();
+            holder.setDefaultLanguage(course.getDefaultLanguage());
+            holder.setTextContent(List.of(lessons.get(i)));
+            writeJson(zip, String.format("lessons/%03d-%s.json", i + 1, safeName(lessons.get(i).getId())),
+                    courseLessonService.localizeLesson(course.getId(), holder, locale), entries);
+        }
+
+        Set<String> names = new HashSet<>();
+        if (course.getFiles() != null) {
+            for (CourseFile file : course.getFiles()) {
+                if (file != null && file.getUrl() != null) {
+                    copyAsset(zip, "files/" + uniqueName(names, file.getName(), file.getUrl()), file.getUrl(), entries);
+                }
+            }
+        }
+        for (TrainingKit kit : kits) {
+            copyAsset(zip, "kits/" + uniqueName(names, null, kit.getFileUrl()), kit.getFileUrl(), entries);
+        }
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("courseId", course.getId());
+        manifest.put("language", language);
+        manifest.put("hash", hash);
+        manifest.put("builtAt", new Date());
+        manifest.put("lessons", lessons.size());
+        manifest.put("entries", entries);
+        writeJson(zip, "manifest.json", manifest, null);
+    }
+
+    private void writeJson(ZipOutputStream zip, String name, Object value, @Nullable List<String> entries) throws IOException {
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(objectMapper.writeValueAsBytes(value));
+        zip.closeEntry();
+        if (entries != null) {
+            entries.add(name);
+        }
+    }
+
+    private void copyAsset(ZipOutputStream zip, String name, String url, List<String> entries) throws IOException {
+        // Documents and media are already compressed; deflating them again only costs CPU
+        zip.setLevel(Deflater.BEST_SPEED);
+        zip.putNextEntry(new ZipEntry(name));
+        try (InputStream in = assetSource.open(url)) {
+            in.transferTo(zip);
+        }
+        zip.closeEntry();
+        entries.add(name);
+    }
+
+    private InputStream openRemote(String url) throws IOException {
+        URI uri = URI.create(url);
+        if (!"https".equalsIgnoreCase(uri.getScheme()) && !"http".equalsIgnoreCase(uri.getScheme())) {
+            throw new IOException("Unsupported asset URL: " + url);
+        }
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(fetchTimeoutMs);
+        connection.setReadTimeout(fetchTimeoutMs);
+        return connection.getInputStream();
+    }
+
+    private List<TrainingKit> kitsFor(String courseId, String language) {
+        List<TrainingKit> kits = new ArrayList<>();
+        for (TrainingKit kit : trainingKitRepository.findByCourseId(courseId)) {
+            if (kit.getFileUrl() != null
+                    && (kit.getLanguage() == null || kit.getLanguage().isBlank() || kit.getLanguage().equalsIgnoreCase(language))) {
+                kits.add(kit);
+            }
+        }
+        kits.sort(Comparator.comparing(kit -> kit.getId() == null ? "" : kit.getId()));
+        return kits;
+    }
+
+    private static void touch(Path bundle) {
+        try {
+            Files.setLastModifiedTime(bundle, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Could not touch {}: {}", bundle, e.getMessage());
+        }
+    }
+
+    private TrainingKitBundle ready(String courseId, String language, String hash, Path bundle) {
+        long size;
+        try {
+            size = Files.size(bundle);
+        } catch (IOException e) {
+            size = -1;
+        }
+        return new TrainingKitBundle(courseId, language, STATUS_READY, hash, size,
+                "/api/courses/" + courseId + "/bundle/" + hash, null);
+    }
+
+    private Path bundlePath(String hash) {
+        return cacheDir.resolve(hash + ".zip");
+    }
+
+    private static String uniqueName(Set<String> taken, @Nullable String preferred, String url) {
+        String base = preferred;
+        if (base == null || base.isBlank()) {
+            String path = URI.create(url.replace(" ", "%20")).getPath();
+            base = path == null || path.isBlank() ? "file" : path.substring(path.lastIndexOf('/') + 1);
+        }
+        String name = safeName(base);
+        String candidate = name;
+        for (int i = 2; !taken.add(candidate); i++) {
+            candidate = i + "-" + name;
+        }
+        return candidate;
+    }
+
+    private static String safeName(@Nullable String value) {
+        String name = value == null ? "" : UNSAFE_NAME.matcher(value).replaceAll("_");
+        return name.isEmpty() || name.startsWith(".") ? "file" + name : name;
+    }
+
+    private static void deleteQuietly(@Nullable Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.agra.agra_backend.service;
+
+import java.io.IOException;
+
+/**
+ * Raised when an upload is refused before any bytes are read because the file is larger than
+ * the configured limit.
+ */
+public class UploadLimitExceededException extends IOException {
+    public UploadLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package org.agra.agra_backend.service;
+
+import java.io.IOException;
+
+/**
+ * Raised when an upload is refused before any bytes are read because every upload slot stayed
+ * busy for the configured wait. The request itself is fine and can be retried after
+ * {@link #getRetryAfterSeconds()}.
+ */
+public class UploadSlotUnavailableException extends IOException {
+    private final long retryAfterSeconds;
+
+    public UploadSlotUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
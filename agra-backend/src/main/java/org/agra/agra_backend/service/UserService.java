@@ -13,10 +13,13 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,15 +37,21 @@ public class UserService implements IUserService {
     private final PasswordEncoder passwordEncoder;
     private final CloudinaryService cloudinaryService;
     private final ActivityLogService activityLogService;
+    private final AuthorInfoPropagationService authorInfoPropagationService;
+    private final ImageRenditionService imageRenditionService;
 
     public UserService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
                        CloudinaryService cloudinaryService,
-                       ActivityLogService activityLogService) {
+                       ActivityLogService activityLogService,
+                       AuthorInfoPropagationService authorInfoPropagationService,
+                       ImageRenditionService imageRenditionService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.cloudinaryService = cloudinaryService;
         this.activityLogService = activityLogService;
+        this.authorInfoPropagationService = authorInfoPropagationService;
+        this.imageRenditionService = imageRenditionService;
     }
 
 
@@ -136,6 +145,7 @@ public class UserService implements IUserService {
                     buildProfileUpdateMetadata(existingUser, user, false)
             );
         }
+        propagateAuthorInfo(existingUser, saved);
         return saved;
     }
 
@@ -151,7 +161,7 @@ public class UserService implements IUserService {
         logUserUpdateRequested(existingUser, user, profilePicProvided);
         if (profilePicture != null && !profilePicture.isEmpty()) {
             try {
-                Map<String, Object> uploadResult = cloudinaryService.uploadProfilePicture(profilePicture, user.getEmail());
+                Map<String, Object> uploadResult = uploadProfilePicture(profilePicture, user.getEmail());
 
                 String pictureUrl = uploadResult.get("secure_url").toString();
                 user.setPicture(pictureUrl);
@@ -208,9 +218,38 @@ public class UserService implements IUserService {
                     buildProfileUpdateMetadata(existingUser, user, profilePicProvided)
             );
         }
+        propagateAuthorInfo(existingUser, saved);
         return saved;
     }
 
+    // Posts and comments embed the author summary; refresh them in the background when it changes
+    /**
+     * Profile pictures are shown small, so only the medium rendition is stored. Falls back to the
+     * original bytes when the image cannot be decoded locally.
+     */
+    private Map<String, Object> uploadProfilePicture(MultipartFile file, String email) throws IOException {
+        if (imageRenditionService == null) {
+            return cloudinaryService.uploadProfilePicture(file, email);
+        }
+        Path workDir = Files.createTempDirectory("profile-picture-");
+        try {
+            Path source = workDir.resolve("source.upload");
+            file.transferTo(source);
+            List<ImageRenditionService.Rendition> renditions =
+                    imageRenditionService.render(source, workDir, List.of(ImageRenditionService.MEDIUM));
+            Path upload = renditions.isEmpty() ? source : renditions.get(0).getPath();
+            return cloudinaryService.uploadProfilePictureFromDisk(upload, email);
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    private void propagateAuthorInfo(User before, User saved) {
+        if (authorInfoPropagationService != null && AuthorInfoPropagationService.summaryChanged(before, saved)) {
+            authorInfoPropagationService.propagate(saved);
+        }
+    }
+
     private void logUserUpdateRequested(User oldUser, User newUser, boolean profilePicProvided) {
         StringBuilder sb = new StringBuilder();
         sb.append("User update request for ")
@@ -0,0 +1,114 @@
+package org.agra.agra_backend.config;
+
+import org.agra.agra_backend.service.CourseSnapshotService;
+import org.agra.agra_backend.service.CourseSnapshotService.SnapshotFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseSnapshotInterceptorTest {
+
+    @Mock
+    private CourseSnapshotService courseSnapshotService;
+    @TempDir
+    Path directory;
+
+    private CourseSnapshotInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new CourseSnapshotInterceptor(courseSnapshotService);
+        LocaleContextHolder.setLocale(Locale.FRENCH);
+    }
+
+    @AfterEach
+    void tearDown() {
+        LocaleContextHolder.resetLocaleContext();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void anonymousCatalogReadIsAnsweredFromTheSnapshotFile() throws IOException {
+        SnapshotFile file = file(new byte[]{31, -117, 8, 0, 1, 2, 3});
+        when(courseSnapshotService.catalog(CourseSnapshotService.CATALOG_ALL, Locale.FRENCH)).thenReturn(Optional.of(file));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean proceed = interceptor.preHandle(request("/api/courses/getAllCourses"), response, new Object());
+
+        assertThat(proceed).isFalse();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getHeader("ETag")).isEqualTo("\"c7-fr\"");
+        assertThat(response.getHeader("Vary")).contains("Accept-Language", "Accept-Encoding");
+        assertThat(response.getContentAsByteArray()).isEqualTo(Files.readAllBytes(file.getPath()));
+    }
+
+    @Test
+    void matchingValidatorIsNotModified() throws IOException {
+        when(courseSnapshotService.course("c1", Locale.FRENCH)).thenReturn(Optional.of(file(new byte[]{1})));
+        MockHttpServletRequest request = request("/api/courses/c1");
+        request.addHeader("If-None-Match", "W/\"c7-fr\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, new Object())).isFalse();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentLength()).isZero();
+    }
+
+    @Test
+    void largeFilesAreHandedToTheConnectorWhenItSupportsSendfile() throws IOException {
+        SnapshotFile file = file(new byte[(int) CourseSnapshotInterceptor.SENDFILE_MIN_BYTES]);
+        when(courseSnapshotService.course("c1", Locale.FRENCH)).thenReturn(Optional.of(file));
+        MockHttpServletRequest request = request("/api/courses/c1");
+        request.setAttribute(CourseSnapshotInterceptor.SENDFILE_SUPPORT, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, new Object())).isFalse();
+        assertThat(request.getAttribute(CourseSnapshotInterceptor.SENDFILE_FILENAME)).isEqualTo(file.getPath().toRealPath().toString());
+        assertThat(request.getAttribute(CourseSnapshotInterceptor.SENDFILE_END)).isEqualTo(file.getLength());
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void signedInUsersAndClientsWithoutGzipGoToTheController() throws IOException {
+        MockHttpServletRequest plain = new MockHttpServletRequest("GET", "/api/courses/getAllCourses");
+        assertThat(interceptor.preHandle(plain, new MockHttpServletResponse(), new Object())).isTrue();
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("u1", null, List.of()));
+        assertThat(interceptor.preHandle(request("/api/courses/getAllCourses"), new MockHttpServletResponse(), new Object())).isTrue();
+
+        verifyNoInteractions(courseSnapshotService);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("Accept-Encoding", "gzip, deflate, br");
+        return request;
+    }
+
+    private SnapshotFile file(byte[] content) throws IOException {
+        Path path = Files.write(directory.resolve("snapshot-" + content.length + ".json.gz"), content);
+        return new SnapshotFile(path, "\"c7-fr\"", content.length);
+    }
+}
@@ -0,0 +1,44 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.payload.LikeMigrationProgress;
+import org.agra.agra_backend.service.LegacyLikeMigrationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdminMigrationControllerTest {
+
+    @Mock
+    private LegacyLikeMigrationService legacyLikeMigrationService;
+
+    @InjectMocks
+    private AdminMigrationController controller;
+
+    @Test
+    void migrateLegacyLikesReturnsProgress() {
+        LikeMigrationProgress progress = new LikeMigrationProgress("abc", 10, 8, 1, false);
+        when(legacyLikeMigrationService.migrate(500, 1)).thenReturn(progress);
+
+        assertThat(controller.migrateLegacyLikes(500, 1)).isSameAs(progress);
+    }
+
+    @Test
+    void migrateLegacyLikesReturnsConflictWhenAlreadyRunning() {
+        when(legacyLikeMigrationService.migrate(null, 0))
+                .thenThrow(new IllegalStateException("Legacy like migration is already running"));
+
+        assertThatThrownBy(() -> controller.migrateLegacyLikes(null, 0))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+}
@@ -1,11 +1,14 @@
 package org.agra.agra_backend.controller;
 
 import org.agra.agra_backend.service.CloudinaryService;
+import org.agra.agra_backend.service.UploadLimitExceededException;
+import org.agra.agra_backend.service.UploadSlotUnavailableException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
@@ -102,6 +105,33 @@ class CloudinaryControllerTest {
         assertThat(response.getBody()).containsEntry("status", "error");
     }
 
+    @Test
+    void uploadImageReturnsPayloadTooLargeWhenLimitExceeded() throws Exception {
+        MultipartFile file = new MockMultipartFile("file", "pic.png", "image/png", "data".getBytes());
+        when(cloudinaryService.uploadImage(file)).thenThrow(new UploadLimitExceededException("too big"));
+
+        ResponseEntity<Map<String, Object>> response = controller.uploadImage(file);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(response.getBody()).containsEntry("message", "too big");
+    }
+
+    @Test
+    void uploadImageAsksToRetryWhenNoUploadSlotIsFree() throws Exception {
+        MultipartFile file = new MockMultipartFile("file", "pic.png", "image/png", "data".getBytes());
+        when(cloudinaryService.uploadImage(file)).thenThrow(new UploadSlotUnavailableException("busy", 30));
+        when(cloudinaryService.uploadImage(file, "preset")).thenThrow(new UploadSlotUnavailableException("busy", 30));
+
+        ResponseEntity<Map<String, Object>> plain = controller.uploadImage(file);
+        ResponseEntity<Map<String, Object>> preset = controller.uploadImageWithPreset(file, "preset");
+
+        assertThat(plain.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        assertThat(plain.getBody()).containsEntry("message", "busy");
+        assertThat(preset.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(preset.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+    }
+
     @Test
     void uploadImageWithPresetRejectsEmptyFile() {
         MultipartFile file = org.mockito.Mockito.mock(MultipartFile.class);
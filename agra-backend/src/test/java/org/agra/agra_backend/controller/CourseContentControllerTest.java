@@ -0,0 +1,122 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.payload.ContentPatchResult;
+import org.agra.agra_backend.payload.CourseOutline;
+import org.agra.agra_backend.payload.LessonView;
+import org.agra.agra_backend.payload.CourseTranslationPatch;
+import org.agra.agra_backend.payload.LessonPatch;
+import org.agra.agra_backend.payload.QuizQuestionPatch;
+import org.agra.agra_backend.service.CatalogVersionService;
+import org.agra.agra_backend.service.CourseContentService;
+import org.agra.agra_backend.service.CourseLessonService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseContentControllerTest {
+
+    @Mock
+    private CourseContentService courseContentService;
+    @Mock
+    private CourseLessonService courseLessonService;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    @InjectMocks
+    private CourseContentController controller;
+
+    @Test
+    void patchLessonReturnsNewVersion() {
+        LessonPatch patch = new LessonPatch();
+        when(courseContentService.patchLesson("c1", "l1", patch)).thenReturn(new ContentPatchResult("c1", 4L, new Date()));
+
+        ResponseEntity<ContentPatchResult> response = controller.patchLesson("c1", "l1", patch);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void patchQuizQuestionDelegates() {
+        QuizQuestionPatch patch = new QuizQuestionPatch();
+        when(courseContentService.patchQuizQuestion("c1", "l1", "q1", patch)).thenReturn(new ContentPatchResult("c1", 2L, new Date()));
+
+        assertThat(controller.patchQuizQuestion("c1", "l1", "q1", patch).getBody().getCourseId()).isEqualTo("c1");
+    }
+
+    @Test
+    void patchTranslationPropagatesConflicts() {
+        CourseTranslationPatch patch = new CourseTranslationPatch();
+        when(courseContentService.patchTranslation("c1", "fr", patch))
+                .thenThrow(new ResponseStatusException(HttpStatus.CONFLICT, "stale"));
+
+        assertThatThrownBy(() -> controller.patchTranslation("c1", "fr", patch))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void outlineRevalidatesAgainstTheStoredContentTagWithoutLoadingTheCourse() {
+        when(catalogVersionService.courseEtag(eq("c1"), any(Locale.class), eq(null))).thenReturn("\"abc-en\"");
+
+        ResponseEntity<CourseOutline> response = controller.getOutline("c1", "\"abc-en\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        verify(courseLessonService, never()).getOutline(anyString(), any(Locale.class));
+    }
+
+    @Test
+    void outlineOfMissingCourseIsNotFound() {
+        when(courseLessonService.getOutline(eq("missing"), any(Locale.class))).thenReturn(Optional.empty());
+
+        assertThat(controller.getOutline("missing", null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void lessonUsesTheLangParameterAndSendsAnEtag() {
+        Course holder = new Course();
+        holder.setDefaultLanguage("en");
+        TextContent lesson = new TextContent();
+        holder.setTextContent(List.of(lesson));
+        when(courseLessonService.getLesson("c1", "l1")).thenReturn(Optional.of(holder));
+        when(catalogVersionService.lessonEtag("c1", "en", lesson, Locale.FRENCH)).thenReturn("\"sdef-fr\"");
+        LessonView view = new LessonView();
+        when(courseLessonService.localizeLesson("c1", holder, Locale.FRENCH)).thenReturn(view);
+
+        ResponseEntity<LessonView> response = controller.getLesson("c1", "l1", "fr", null);
+        ResponseEntity<LessonView> revalidated = controller.getLesson("c1", "l1", "fr", "W/\"sdef-fr\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isSameAs(view);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"sdef-fr\"");
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void missingLessonIsNotFound() {
+        when(courseLessonService.getLesson("c1", "nope")).thenReturn(Optional.empty());
+
+        assertThat(controller.getLesson("c1", "nope", null, null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
@@ -5,16 +5,25 @@ import org.agra.agra_backend.model.Course;
 import org.agra.agra_backend.model.CourseFile;
 import org.agra.agra_backend.model.CourseProgress;
 import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.CourseDeletionProgress;
+import org.agra.agra_backend.payload.CourseSearchResult;
+import org.agra.agra_backend.payload.CourseSummary;
+import org.agra.agra_backend.service.CatalogVersionService;
 import org.agra.agra_backend.service.CloudinaryService;
 import org.agra.agra_backend.service.CourseLikeService;
 import org.agra.agra_backend.service.CourseProgressService;
+import org.agra.agra_backend.service.CourseRecommendationService;
+import org.agra.agra_backend.service.CourseSearchService;
 import org.agra.agra_backend.service.CourseService;
 import org.agra.agra_backend.service.NotificationService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -36,11 +45,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -60,6 +73,12 @@ class CourseControllerTest {
     private NotificationRepository notificationRepository;
     @Mock
     private NotificationService notificationService;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CourseRecommendationService recommendationService;
+    @Mock
+    private CourseSearchService courseSearchService;
 
     @InjectMocks
     private CourseController controller;
@@ -106,15 +125,15 @@ class CourseControllerTest {
 
     @Test
     void getAllCoursesSetsLikedWhenAuthenticated() {
-        Course c1 = new Course();
+        CourseSummary c1 = new CourseSummary();
         c1.setId("c1");
-        Course c2 = new Course();
+        CourseSummary c2 = new CourseSummary();
         c2.setId("c2");
-        when(courseService.getAllCourses()).thenReturn(List.of(c1, c2));
-        when(courseLikeService.listLikedCourseIds("u1")).thenReturn(List.of("c2"));
-        when(courseService.localizeCourses(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseService.getAllCourseSummaries()).thenReturn(List.of(c1, c2));
+        when(courseLikeService.likedAmong("u1", List.of("c1", "c2"))).thenReturn(java.util.Set.of("c2"));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        ResponseEntity<List<Course>> response = controller.getAllCourses(authWithUser("u1"));
+        ResponseEntity<List<CourseSummary>> response = controller.getAllCourses(null, authWithUser("u1"));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).hasSize(2);
@@ -124,34 +143,119 @@ class CourseControllerTest {
 
     @Test
     void getAllCoursesWithoutAuthReturnsCourses() {
-        when(courseService.getAllCourses()).thenReturn(List.of(new Course()));
-        when(courseService.localizeCourses(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseService.getAllCourseSummaries()).thenReturn(List.of(new CourseSummary()));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        ResponseEntity<List<Course>> response = controller.getAllCourses(null);
+        ResponseEntity<List<CourseSummary>> response = controller.getAllCourses(null, null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
     @Test
     void getActiveCoursesSetsLikedWhenAuthenticated() {
-        Course c1 = new Course();
+        CourseSummary c1 = new CourseSummary();
         c1.setId("c1");
-        when(courseService.getActiveCourses()).thenReturn(List.of(c1));
-        when(courseLikeService.listLikedCourseIds("u1")).thenReturn(List.of("c1"));
-        when(courseService.localizeCourses(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseService.getActiveCourseSummaries()).thenReturn(List.of(c1));
+        when(courseLikeService.likedAmong("u1", List.of("c1"))).thenReturn(java.util.Set.of("c1"));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        ResponseEntity<List<Course>> response = controller.getActiveCourses(authWithUser("u1"));
+        ResponseEntity<List<CourseSummary>> response = controller.getActiveCourses(null, authWithUser("u1"));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).hasSize(1);
         assertThat(response.getBody().get(0).isLiked()).isTrue();
     }
 
+    @Test
+    void getAllCoursesReturnsNotModifiedWithoutHydrating() {
+        when(catalogVersionService.catalogEtag(any(Locale.class), anyString())).thenReturn("\"c7-en-u1-l2\"");
+
+        ResponseEntity<List<CourseSummary>> response = controller.getAllCourses("W/\"c7-en-u1-l2\"", authWithUser("u1"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"c7-en-u1-l2\"");
+        verifyNoInteractions(courseService, courseLikeService);
+    }
+
+    @Test
+    void getAllCoursesSendsPrivateEtagForSignedInUser() {
+        when(catalogVersionService.catalogEtag(any(Locale.class), anyString())).thenReturn("\"c8-en-u1-l2\"");
+        when(courseService.getAllCourseSummaries()).thenReturn(List.of(new CourseSummary()));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<List<CourseSummary>> response = controller.getAllCourses("\"c7-en-u1-l2\"", authWithUser("u1"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"c8-en-u1-l2\"");
+        assertThat(response.getHeaders().getCacheControl()).contains("no-cache").contains("private");
+        assertThat(response.getHeaders().getVary()).contains(HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.AUTHORIZATION);
+    }
+
+    @Test
+    void getCoursesByCountryUsesPublicCatalogEtag() {
+        when(catalogVersionService.catalogEtag(any(Locale.class), nullable(String.class))).thenReturn("\"c3-en\"");
+
+        ResponseEntity<List<CourseSummary>> response = controller.getCoursesByCountry("GH", "\"c3-en\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getCacheControl()).doesNotContain("private");
+        verifyNoInteractions(courseService);
+    }
+
+    @Test
+    void getCourseByIdReturnsNotModifiedFromStoredTag() {
+        when(catalogVersionService.courseEtag(anyString(), any(Locale.class), nullable(String.class))).thenReturn("\"abc-en\"");
+
+        ResponseEntity<Course> response = controller.getCourseById("c1", "\"other\", \"abc-en\"", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        verifyNoInteractions(courseService, courseLikeService);
+    }
+
+    @Test
+    void getCourseByIdHashesHydratedCourseWhenNoTagIsStored() {
+        Course course = new Course();
+        course.setId("c1");
+        when(catalogVersionService.courseEtag(anyString(), any(Locale.class), nullable(String.class))).thenReturn(null);
+        when(catalogVersionService.courseEtag(any(Course.class), any(Locale.class), nullable(String.class))).thenReturn("\"def-en\"");
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(course));
+        when(courseService.localizeCourse(any(Course.class), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<Course> response = controller.getCourseById("c1", "\"abc-en\"", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"def-en\"");
+        verify(courseLikeService, never()).isLiked(anyString(), anyString());
+    }
+
+    @Test
+    void searchCoursesLocalizesPageAndSetsLikedFlags() {
+        CourseSummary c1 = new CourseSummary();
+        c1.setId("c1");
+        CourseSearchResult result = new CourseSearchResult(List.of(c1), 1, 0, 50, Map.of());
+        when(courseSearchService.search(List.of("GH"), null, List.of("fr"), null, 0, 50)).thenReturn(result);
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> {
+            CourseSummary copy = new CourseSummary();
+            copy.setId("c1");
+            return List.of(copy);
+        });
+        when(courseLikeService.likedAmong("u1", List.of("c1"))).thenReturn(java.util.Set.of("c1"));
+
+        ResponseEntity<CourseSearchResult> response =
+                controller.searchCourses(List.of("GH"), null, List.of("fr"), null, 0, 50, authWithUser("u1"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getCourses()).singleElement().satisfies(c -> assertThat(c.isLiked()).isTrue());
+        assertThat(c1.isLiked()).isFalse();
+    }
+
     @Test
     void getCourseByIdReturnsNotFoundWhenMissing() {
         when(courseService.getCourseById("c1")).thenReturn(Optional.empty());
 
-        ResponseEntity<Course> response = controller.getCourseById("c1", null);
+        ResponseEntity<Course> response = controller.getCourseById("c1", null, null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
@@ -164,7 +268,7 @@ class CourseControllerTest {
         when(courseLikeService.isLiked("u1", "c1")).thenReturn(true);
         when(courseService.localizeCourse(any(Course.class), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        ResponseEntity<Course> response = controller.getCourseById("c1", authWithUser("u1"));
+        ResponseEntity<Course> response = controller.getCourseById("c1", null, authWithUser("u1"));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody().isLiked()).isTrue();
@@ -199,6 +303,16 @@ class CourseControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    void updateCourseReturnsConflictForStaleVersion() throws IOException {
+        when(courseService.updateCourse(anyString(), any(Course.class), nullable(MultipartFile.class)))
+                .thenThrow(new org.springframework.dao.OptimisticLockingFailureException("stale"));
+
+        ResponseEntity<Course> response = controller.updateCourse("c1", "{\"version\":3}", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void updateCourseReturnsServerErrorOnIOException() throws IOException {
         when(courseService.updateCourse(anyString(), any(Course.class), nullable(MultipartFile.class)))
@@ -227,20 +341,20 @@ class CourseControllerTest {
 
     @Test
     void getCoursesByCountryReturnsLocalized() {
-        when(courseService.getCoursesByCountry("GH")).thenReturn(List.of(new Course()));
-        when(courseService.localizeCourses(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseService.getCourseSummariesByCountry("GH")).thenReturn(List.of(new CourseSummary()));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        ResponseEntity<List<Course>> response = controller.getCoursesByCountry("GH");
+        ResponseEntity<List<CourseSummary>> response = controller.getCoursesByCountry("GH", null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
     @Test
     void getCoursesByDomainReturnsLocalized() {
-        when(courseService.getCoursesByDomain("agri")).thenReturn(List.of(new Course()));
-        when(courseService.localizeCourses(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseService.getCourseSummariesByDomain("agri")).thenReturn(List.of(new CourseSummary()));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        ResponseEntity<List<Course>> response = controller.getCoursesByDomain("agri");
+        ResponseEntity<List<CourseSummary>> response = controller.getCoursesByDomain("agri", null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
@@ -297,31 +411,54 @@ class CourseControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
     }
 
+    @Test
+    void getOtherUnenrolledCoursesRanksCoEnrolledCoursesFirst() {
+        CourseProgress enrollment = new CourseProgress();
+        enrollment.setCourseId("c1");
+        when(courseProgressService.getUserEnrollments("u1")).thenReturn(List.of(enrollment));
+        List<CourseSummary> catalog = new ArrayList<>();
+        for (String id : List.of("c1", "c2", "c3", "c4")) {
+            CourseSummary summary = new CourseSummary();
+            summary.setId(id);
+            catalog.add(summary);
+        }
+        when(courseService.getAllCourseSummaries()).thenReturn(catalog);
+        when(recommendationService.recommend(java.util.Set.of("c1", "course-1"), java.util.Set.of("c1", "course-1"), 3))
+                .thenReturn(List.of("c4", "c3"));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ResponseEntity<Object> response = controller.getOtherUnenrolledCourses("course-1", authWithUser("u1"));
+
+        @SuppressWarnings("unchecked")
+        List<CourseSummary> result = (List<CourseSummary>) response.getBody();
+        assertThat(result).extracting(CourseSummary::getId).containsExactly("c4", "c3", "c2");
+    }
+
     @Test
     void getOtherUnenrolledCoursesReturnsFilteredCourses() {
         CourseProgress enrollment = new CourseProgress();
         enrollment.setCourseId("c1");
         when(courseProgressService.getUserEnrollments("u1")).thenReturn(List.of(enrollment));
 
-        Course enrolled = new Course();
+        CourseSummary enrolled = new CourseSummary();
         enrolled.setId("c1");
-        Course available = new Course();
+        CourseSummary available = new CourseSummary();
         available.setId("c2");
-        Course archived = new Course();
+        CourseSummary archived = new CourseSummary();
         archived.setId("c3");
         archived.setArchived(true);
-        Course current = new Course();
+        CourseSummary current = new CourseSummary();
         current.setId("course-1");
-        Course noId = new Course();
-        when(courseService.getAllCourses()).thenReturn(List.of(enrolled, available, archived, current, noId));
-        when(courseLikeService.listLikedCourseIds("u1")).thenReturn(List.of("c2"));
-        when(courseService.localizeCourses(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        CourseSummary noId = new CourseSummary();
+        when(courseService.getAllCourseSummaries()).thenReturn(List.of(enrolled, available, archived, current, noId));
+        when(courseLikeService.likedAmong("u1", List.of("c2"))).thenReturn(java.util.Set.of("c2"));
+        when(courseService.localizeSummaries(anyList(), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         ResponseEntity<Object> response = controller.getOtherUnenrolledCourses("course-1", authWithUser("u1"));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         @SuppressWarnings("unchecked")
-        List<Course> result = (List<Course>) response.getBody();
+        List<CourseSummary> result = (List<CourseSummary>) response.getBody();
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getId()).isEqualTo("c2");
         assertThat(result.get(0).isLiked()).isTrue();
@@ -458,10 +595,8 @@ class CourseControllerTest {
         archived.setId("archived");
         archived.setArchived(true);
 
-        when(courseService.getCourseById("c1")).thenReturn(Optional.of(okCourse));
-        when(courseService.getCourseById("missing")).thenReturn(Optional.empty());
-        when(courseService.getCourseById("archived")).thenReturn(Optional.of(archived));
-        when(courseService.localizeCourse(any(Course.class), any(Locale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(courseService.getCoursesByIds(eq(List.of("c1", "missing", "archived")), any(Locale.class)))
+                .thenReturn(List.of(okCourse, archived));
 
         ResponseEntity<Object> response = controller.getEnrolledCourses(authWithUser("u1"));
 
@@ -472,7 +607,8 @@ class CourseControllerTest {
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> courses = (List<Map<String, Object>>) payload.get("courses");
         assertThat(courses).hasSize(1);
-        assertThat(courses.get(0)).containsEntry("id", "c1");
+        assertThat(courses.get(0)).containsEntry("id", "c1").containsEntry("progressPercentage", 10);
+        verify(courseService, never()).getCourseById(anyString());
     }
 
     @Test
@@ -486,7 +622,7 @@ class CourseControllerTest {
 
     @Test
     void cleanupOrphanedEnrollmentsReturnsOk() {
-        when(courseProgressService.cleanupOrphanedEnrollments(courseService)).thenReturn(2);
+        when(courseProgressService.cleanupOrphanedEnrollments()).thenReturn(2);
 
         ResponseEntity<Object> response = controller.cleanupOrphanedEnrollments();
 
@@ -495,13 +631,32 @@ class CourseControllerTest {
 
     @Test
     void cleanupOrphanedEnrollmentsReturnsError() {
-        when(courseProgressService.cleanupOrphanedEnrollments(courseService)).thenThrow(new RuntimeException("fail"));
+        when(courseProgressService.cleanupOrphanedEnrollments()).thenThrow(new RuntimeException("fail"));
 
         ResponseEntity<Object> response = controller.cleanupOrphanedEnrollments();
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @Test
+    void getDeletionProgressReturnsTrackedCascade() {
+        CourseDeletionProgress progress = new CourseDeletionProgress("c1", "RUNNING", Map.of("course_progress", 500L),
+                new java.util.Date(), null, null);
+        when(courseService.getDeletionProgress("c1")).thenReturn(Optional.of(progress));
+
+        ResponseEntity<CourseDeletionProgress> response = controller.getDeletionProgress("c1");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getDeleted()).containsEntry("course_progress", 500L);
+    }
+
+    @Test
+    void getDeletionProgressReturnsNotFoundForUnknownCourse() {
+        when(courseService.getDeletionProgress("c1")).thenReturn(Optional.empty());
+
+        assertThat(controller.getDeletionProgress("c1").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
     @Test
     void testCloudinaryConnectionReturnsOk() {
         ResponseEntity<Object> response = controller.testCloudinaryConnection();
@@ -521,7 +676,10 @@ class CourseControllerTest {
                 courseProgressService,
                 courseLikeService,
                 notificationRepository,
-                notificationService));
+                notificationService,
+                catalogVersionService,
+                recommendationService,
+                courseSearchService));
         doThrow(new RuntimeException("fail")).when(spyController).buildCloudinaryConfig();
 
         ResponseEntity<Object> response = spyController.testCloudinaryConnection();
@@ -569,6 +727,7 @@ class CourseControllerTest {
                 "bytes", 5L,
                 "resource_type", "image"
         ));
+        when(courseService.addFile(eq("c1"), any(CourseFile.class))).thenReturn(Optional.of(course));
 
         ResponseEntity<Object> response = controller.uploadCourseFile("c1", file);
 
@@ -576,7 +735,23 @@ class CourseControllerTest {
         assertThat(response.getBody()).isInstanceOf(CourseFile.class);
         CourseFile courseFile = (CourseFile) response.getBody();
         assertThat(courseFile.getType()).isEqualTo("pdf");
-        verify(courseService).save(any(Course.class));
+        verify(courseService).addFile("c1", courseFile);
+        verify(courseService, never()).save(any(Course.class));
+    }
+
+    @Test
+    void uploadCourseFileReportsAConflictThatOutlastsTheRetries() throws IOException {
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(new Course()));
+        MockMultipartFile file = new MockMultipartFile("file", "doc.pdf", "application/pdf", "content".getBytes(StandardCharsets.UTF_8));
+        when(cloudinaryService.uploadImageToFolder(any(MultipartFile.class), anyString())).thenReturn(Map.of(
+                "secure_url", "https://cdn.example.com/doc.pdf",
+                "public_id", "courses/c1/files/doc"));
+        when(courseService.addFile(eq("c1"), any(CourseFile.class)))
+                .thenThrow(new OptimisticLockingFailureException("modified by another editor"));
+
+        ResponseEntity<Object> response = controller.uploadCourseFile("c1", file);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
     }
 
     @Test
@@ -630,12 +805,26 @@ class CourseControllerTest {
         CourseFile file = new CourseFile("f1", "doc.pdf", "pdf", "url", "pid", 1L, new Date());
         course.setFiles(new ArrayList<>(List.of(file)));
         when(courseService.getCourseById("c1")).thenReturn(Optional.of(course));
+        when(courseService.removeFile("c1", "f1")).thenReturn(Optional.of(file));
 
         ResponseEntity<Object> response = controller.deleteCourseFile("c1", "f1");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
-        verify(cloudinaryService).deleteRaw("pid");
-        verify(courseService).save(course);
+        InOrder order = inOrder(courseService, cloudinaryService);
+        order.verify(courseService).removeFile("c1", "f1");
+        order.verify(cloudinaryService).deleteRaw("pid");
+        verify(courseService, never()).save(any(Course.class));
+    }
+
+    @Test
+    void deleteCourseFileReportsAConflictThatOutlastsTheRetries() throws IOException {
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(new Course()));
+        when(courseService.removeFile("c1", "f1")).thenThrow(new OptimisticLockingFailureException("modified by another editor"));
+
+        ResponseEntity<Object> response = controller.deleteCourseFile("c1", "f1");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        verify(cloudinaryService, never()).deleteRaw(anyString());
     }
 
     @Test
@@ -644,6 +833,7 @@ class CourseControllerTest {
         CourseFile file = new CourseFile("f1", "doc.pdf", "pdf", "url", "pid", 1L, new Date());
         course.setFiles(new ArrayList<>(List.of(file)));
         when(courseService.getCourseById("c1")).thenReturn(Optional.of(course));
+        when(courseService.removeFile("c1", "f1")).thenReturn(Optional.of(file));
         doThrow(new IOException("fail")).when(cloudinaryService).deleteRaw("pid");
 
         ResponseEntity<Object> response = controller.deleteCourseFile("c1", "f1");
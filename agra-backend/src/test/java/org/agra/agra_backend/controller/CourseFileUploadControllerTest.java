@@ -0,0 +1,71 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.model.CourseFile;
+import org.agra.agra_backend.payload.UploadInitRequest;
+import org.agra.agra_backend.payload.UploadStatus;
+import org.agra.agra_backend.service.CourseFileUploadService;
+import org.agra.agra_backend.service.UploadLimitExceededException;
+import org.agra.agra_backend.service.UploadSlotUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseFileUploadControllerTest {
+
+    @Mock
+    private CourseFileUploadService courseFileUploadService;
+
+    @InjectMocks
+    private CourseFileUploadController controller;
+
+    @Test
+    void startIsCreatedAndChunksReportProgress() throws IOException {
+        UploadInitRequest request = new UploadInitRequest("clip.mp4", "video/mp4", 10, null);
+        UploadStatus status = new UploadStatus("u1", "c1", "clip.mp4", "video", 10, 0, 4, null);
+        InputStream body = new ByteArrayInputStream(new byte[4]);
+        when(courseFileUploadService.start("c1", request)).thenReturn(status);
+        when(courseFileUploadService.writeChunk("c1", "u1", 0, body, "ab")).thenReturn(status);
+
+        assertThat(controller.start("c1", request).getStatusCode().value()).isEqualTo(201);
+        ResponseEntity<UploadStatus> chunk = controller.writeChunk("c1", "u1", 0, "ab", body);
+
+        assertThat(chunk.getStatusCode().value()).isEqualTo(200);
+        assertThat(chunk.getBody()).isSameAs(status);
+    }
+
+    @Test
+    void completionMapsStorageFailures() throws IOException {
+        CourseFile file = new CourseFile();
+        when(courseFileUploadService.complete("c1", "u1")).thenReturn(file);
+        when(courseFileUploadService.complete("c1", "busy")).thenThrow(new UploadSlotUnavailableException("Too many concurrent uploads", 2));
+        when(courseFileUploadService.complete("c1", "huge")).thenThrow(new UploadLimitExceededException("File exceeds the maximum upload size"));
+        when(courseFileUploadService.complete("c1", "down")).thenThrow(new IOException("storage down"));
+        when(courseFileUploadService.complete("c1", "edited")).thenThrow(new OptimisticLockingFailureException("stale"));
+
+        assertThat(controller.complete("c1", "u1").getBody()).isSameAs(file);
+        ResponseEntity<CourseFile> busy = controller.complete("c1", "busy");
+        assertThat(busy.getStatusCode().value()).isEqualTo(503);
+        assertThat(busy.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThatThrownBy(() -> controller.complete("c1", "huge"))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(413));
+        assertThatThrownBy(() -> controller.complete("c1", "down"))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(502));
+        assertThatThrownBy(() -> controller.complete("c1", "edited"))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(409));
+    }
+}
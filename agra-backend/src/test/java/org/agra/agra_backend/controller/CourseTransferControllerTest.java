@@ -0,0 +1,60 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.payload.CourseImportReport;
+import org.agra.agra_backend.service.CourseTransferService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseTransferControllerTest {
+
+    @Mock
+    private CourseTransferService courseTransferService;
+
+    @InjectMocks
+    private CourseTransferController controller;
+
+    @Test
+    void exportStreamsNdjsonAsAnAttachment() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = controller.exportCourses();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(response.getHeaders().getFirst("Content-Disposition")).contains("courses.ndjson");
+        verify(courseTransferService).exportCourses(output);
+    }
+
+    @Test
+    void importPassesDryRunThroughAndUnreadableBodyIsBadRequest() throws IOException {
+        InputStream body = mock(InputStream.class);
+        CourseImportReport report = new CourseImportReport();
+        when(courseTransferService.importCourses(body, true)).thenReturn(report);
+        when(courseTransferService.importCourses(any(InputStream.class), org.mockito.ArgumentMatchers.eq(false)))
+                .thenThrow(new IOException("connection reset"));
+
+        assertThat(controller.importCourses(body, true).getBody()).isSameAs(report);
+        assertThatThrownBy(() -> controller.importCourses(body, false))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
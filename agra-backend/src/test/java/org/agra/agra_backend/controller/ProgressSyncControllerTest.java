@@ -0,0 +1,55 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.ProgressSyncEvent;
+import org.agra.agra_backend.payload.ProgressSyncEventResult;
+import org.agra.agra_backend.payload.ProgressSyncRequest;
+import org.agra.agra_backend.payload.ProgressSyncResult;
+import org.agra.agra_backend.service.ProgressSyncService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProgressSyncControllerTest {
+
+    @Mock
+    private ProgressSyncService progressSyncService;
+
+    @InjectMocks
+    private ProgressSyncController controller;
+
+    @Test
+    void syncsTheEventsOfTheAuthenticatedUser() {
+        User user = new User();
+        user.setId("u1");
+        List<ProgressSyncEvent> events = List.of(new ProgressSyncEvent("k1", "LESSON_COMPLETE", "c1", "l1", null, null));
+        ProgressSyncResult result = new ProgressSyncResult(
+                List.of(new ProgressSyncEventResult("k1", ProgressSyncEventResult.APPLIED, false, null, "c1", 10)), 1, 0, 0, 0);
+        when(progressSyncService.sync("u1", events)).thenReturn(result);
+
+        assertThat(controller.sync(new ProgressSyncRequest(events), new UsernamePasswordAuthenticationToken(user, null, List.of()))
+                .getBody()).isSameAs(result);
+    }
+
+    @Test
+    void anonymousRequestsAreUnauthorized() {
+        assertThatThrownBy(() -> controller.sync(new ProgressSyncRequest(List.of()), null))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(401));
+        verify(progressSyncService, never()).sync(anyString(), any());
+    }
+}
@@ -0,0 +1,54 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.QuizResult;
+import org.agra.agra_backend.payload.QuizSubmission;
+import org.agra.agra_backend.service.QuizScoringService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QuizControllerTest {
+
+    @Mock
+    private QuizScoringService quizScoringService;
+
+    @InjectMocks
+    private QuizController controller;
+
+    @Test
+    void submitGradesForTheAuthenticatedUser() {
+        User user = new User();
+        user.setId("u1");
+        QuizSubmission submission = new QuizSubmission("c1", "l1", Map.of("q1", List.of("a1")));
+        QuizResult result = new QuizResult("a1", "c1", "l1", 1, 1, 100, true, 70, List.of());
+        when(quizScoringService.submit("u1", submission)).thenReturn(result);
+
+        assertThat(controller.submit(submission, new UsernamePasswordAuthenticationToken(user, null, List.of())).getBody())
+                .isSameAs(result);
+    }
+
+    @Test
+    void anonymousRequestsAreUnauthorized() {
+        assertThatThrownBy(() -> controller.attempts("c1", "l1", null))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(401));
+        verify(quizScoringService, never()).getAttempts(anyString(), anyString(), anyString());
+        verify(quizScoringService, never()).submit(anyString(), any());
+    }
+}
@@ -0,0 +1,72 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.SignedUploadCompleteRequest;
+import org.agra.agra_backend.payload.SignedUploadRequest;
+import org.agra.agra_backend.service.SignedUploadService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SignedUploadControllerTest {
+
+    @Mock
+    private SignedUploadService signedUploadService;
+
+    @InjectMocks
+    private SignedUploadController controller;
+
+    @Test
+    void issueRejectsMissingAuth() {
+        assertThatThrownBy(() -> controller.issue(new SignedUploadRequest("POST", "post-1", "image/png", 1_000L), null))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        verifyNoInteractions(signedUploadService);
+    }
+
+    @Test
+    void issueReturnsSignedParams() {
+        User user = new User();
+        user.setId("user-1");
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(user);
+        Map<String, Object> params = Map.of("upload_url", "https://api.cloudinary.com/v1_1/demo/image/upload");
+        when(signedUploadService.issue(user, "POST", "post-1", "image/png", 1_000L)).thenReturn(params);
+
+        ResponseEntity<Map<String, Object>> response = controller.issue(new SignedUploadRequest("POST", "post-1", "image/png", 1_000L), authentication);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(params);
+    }
+
+    @Test
+    void completeDelegatesToService() {
+        User user = new User();
+        user.setId("user-1");
+        Authentication authentication = mock(Authentication.class);
+        when(authentication.getPrincipal()).thenReturn(user);
+        SignedUploadCompleteRequest request = new SignedUploadCompleteRequest(
+                "POST", "post-1", "posts/u/post-1/direct_1_image_a", "2", "sig", "png", 1_000L);
+        when(signedUploadService.complete(user, request)).thenReturn(Map.of("url", "https://cdn/x.png"));
+
+        ResponseEntity<Map<String, Object>> response = controller.complete(request, authentication);
+
+        assertThat(response.getBody()).containsEntry("url", "https://cdn/x.png");
+    }
+}
@@ -0,0 +1,75 @@
+package org.agra.agra_backend.controller;
+
+import org.agra.agra_backend.payload.TrainingKitBundle;
+import org.agra.agra_backend.service.TrainingKitBundleService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrainingKitControllerTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @Mock
+    private TrainingKitBundleService trainingKitBundleService;
+
+    @InjectMocks
+    private TrainingKitController controller;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bundleBeingBuiltIsAcceptedWithRetryAfter() {
+        when(trainingKitBundleService.requestBundle("c1", Locale.forLanguageTag("ar"))).thenReturn(Optional.of(
+                new TrainingKitBundle("c1", "ar", TrainingKitBundleService.STATUS_BUILDING, HASH, null, null, null)));
+
+        ResponseEntity<TrainingKitBundle> response = controller.getBundle("c1", "ar", Locale.ENGLISH);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(202);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    }
+
+    @Test
+    void readyBundleFallsBackToTheRequestLocaleAndUnknownCourseIsNotFound() {
+        when(trainingKitBundleService.requestBundle("c1", Locale.FRENCH)).thenReturn(Optional.of(
+                new TrainingKitBundle("c1", "fr", TrainingKitBundleService.STATUS_READY, HASH, 10L, "/api/courses/c1/bundle/" + HASH, null)));
+        when(trainingKitBundleService.requestBundle("gone", Locale.FRENCH)).thenReturn(Optional.empty());
+
+        assertThat(controller.getBundle("c1", null, Locale.FRENCH).getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.getBundle("gone", null, Locale.FRENCH).getStatusCode().value()).isEqualTo(404);
+    }
+
+    @Test
+    void downloadIsAnImmutableZipResourceSoRangeRequestsWork() throws IOException {
+        Path zip = Files.write(directory.resolve(HASH + ".zip"), new byte[]{'P', 'K', 3, 4});
+        when(trainingKitBundleService.bundleFile(HASH)).thenReturn(Optional.of(zip));
+        when(trainingKitBundleService.bundleFile("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<Resource> response = controller.downloadBundle("c1", HASH);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + HASH + "\"");
+        assertThat(response.getHeaders().getCacheControl()).contains("immutable");
+        assertThat(response.getHeaders().getContentType()).hasToString("application/zip");
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).contains("c1-offline.zip");
+        assertThat(response.getBody().contentLength()).isEqualTo(4);
+        assertThat(controller.downloadBundle("c1", "missing").getStatusCode().value()).isEqualTo(404);
+    }
+}
@@ -257,6 +257,8 @@ class ModelCoverageTest {
                 new UserInfo("u1", "User", "e", "pic", new Date()),
                 "content",
                 "img",
+                "READY",
+                null,
                 LocalDateTime.now(),
                 LocalDateTime.now(),
                 true,
@@ -443,7 +445,7 @@ class ModelCoverageTest {
 
     @Test
     void likeAllArgsConstructorStoresFields() {
-        Like like = new Like("id", "user-1", new User(), "POST", "p1", LocalDateTime.now());
+        Like like = new Like("id", "user-1", new User(), "POST", "p1", LocalDateTime.now(), null);
 
         assertThat(like.getId()).isEqualTo("id");
         assertThat(like.getUserId()).isEqualTo("user-1");
@@ -0,0 +1,134 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.client.result.UpdateResult;
+import org.agra.agra_backend.model.Comment;
+import org.agra.agra_backend.model.Post;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.UserInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthorInfoPropagationServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private AuthorInfoPropagationService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void authorIndexesAreCreatedOnPostsAndComments() {
+        service = new AuthorInfoPropagationService(mongoTemplate, null, 2, 0L);
+        IndexOperations posts = mock(IndexOperations.class);
+        IndexOperations comments = mock(IndexOperations.class);
+        when(mongoTemplate.indexOps(Post.class)).thenReturn(posts);
+        when(mongoTemplate.indexOps(Comment.class)).thenReturn(comments);
+
+        service.ensureAuthorIndexes();
+
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(posts).ensureIndex(index.capture());
+        verify(comments).ensureIndex(index.capture());
+        assertThat(index.getAllValues()).extracting(created -> created.getIndexKeys().toJson())
+                .containsOnly("{\"user_id\": 1}");
+    }
+
+    @Test
+    void runRewritesStalePostsAndCommentsInBatches() {
+        service = new AuthorInfoPropagationService(mongoTemplate, null, 2, 0L);
+        when(mongoTemplate.find(any(Query.class), eq(Post.class)))
+                .thenReturn(List.of(post("p1"), post("p2")))
+                .thenReturn(List.of(post("p3")));
+        when(mongoTemplate.find(any(Query.class), eq(Comment.class))).thenReturn(List.of());
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Post.class)))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        service.propagate(user("user-1", "New Name"));
+
+        verify(mongoTemplate, timeout(2000)).find(any(Query.class), eq(Comment.class));
+        ArgumentCaptor<Query> batchQuery = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(batchQuery.capture(), eq(Post.class));
+        assertThat(batchQuery.getAllValues().get(0).getLimit()).isEqualTo(2);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateMulti(any(Query.class), update.capture(), eq(Post.class));
+        UserInfo written = (UserInfo) update.getValue().getUpdateObject().get("$set", org.bson.Document.class).get("userInfo");
+        assertThat(written.getName()).isEqualTo("New Name");
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(Comment.class));
+    }
+
+    @Test
+    void propagateCoalescesQueuedUpdatesForSameUser() throws Exception {
+        service = new AuthorInfoPropagationService(mongoTemplate, null, 10, 0L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Occupy the worker so the next updates queue up behind it
+        when(mongoTemplate.find(any(Query.class), eq(Post.class)))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return List.of();
+                })
+                .thenReturn(List.of());
+        when(mongoTemplate.find(any(Query.class), eq(Comment.class))).thenReturn(List.of());
+
+        service.propagate(user("blocker", "Blocker"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        service.propagate(user("user-1", "First"));
+        service.propagate(user("user-1", "Second"));
+        release.countDown();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, timeout(2000).times(2)).find(queries.capture(), eq(Comment.class));
+        assertThat(queries.getAllValues().get(1).getQueryObject().toJson()).contains("Second").doesNotContain("First");
+    }
+
+    @Test
+    void summaryChangedDetectsEmbeddedFieldsOnly() {
+        User before = user("user-1", "Name");
+        before.setPhone("1");
+        User samePhoneChanged = user("user-1", "Name");
+        samePhoneChanged.setPhone("2");
+        User renamed = user("user-1", "Other");
+
+        assertThat(AuthorInfoPropagationService.summaryChanged(before, samePhoneChanged)).isFalse();
+        assertThat(AuthorInfoPropagationService.summaryChanged(before, renamed)).isTrue();
+    }
+
+    private static User user(String id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        return user;
+    }
+
+    private static Post post(String id) {
+        Post post = new Post();
+        post.setId(id);
+        return post;
+    }
+}
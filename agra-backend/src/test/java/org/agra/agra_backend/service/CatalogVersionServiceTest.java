@@ -0,0 +1,159 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.TextContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogVersionServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOps;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private Cache cache;
+
+    private CatalogVersionService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        lenient().when(cacheManager.getCache(anyString())).thenReturn(cache);
+        service = new CatalogVersionService(redisTemplate, cacheManager);
+    }
+
+    @Test
+    void catalogEtagReadsVersionAndLikesInOneRoundTrip() {
+        when(valueOps.multiGet(List.of(CatalogVersionService.CATALOG_KEY, CatalogVersionService.LIKES_PREFIX + "u1")))
+                .thenReturn(List.of("5", "2"));
+
+        String etag = service.catalogEtag(Locale.FRENCH, "u1");
+
+        assertThat(etag).isEqualTo("\"c5-fr-u" + Integer.toHexString("u1".hashCode()) + "-l2\"");
+    }
+
+    @Test
+    void anonymousCatalogEtagIgnoresLikesAndDefaultsMissingVersion() {
+        when(valueOps.multiGet(List.of(CatalogVersionService.CATALOG_KEY))).thenReturn(Arrays.asList((String) null));
+
+        assertThat(service.catalogEtag(Locale.ENGLISH, null)).isEqualTo("\"c0-en\"");
+    }
+
+    @Test
+    void courseChangedClearsCachesBeforeMovingTheVersion() {
+        Course course = course("c1", "Soil basics");
+
+        service.courseChanged(course);
+
+        InOrder order = inOrder(cache, valueOps);
+        order.verify(cache, org.mockito.Mockito.atLeastOnce()).clear();
+        order.verify(valueOps).set(CatalogVersionService.COURSE_TAG_PREFIX + "c1", CatalogVersionService.contentHash(course));
+        order.verify(valueOps).increment(CatalogVersionService.CATALOG_KEY);
+    }
+
+    @Test
+    void courseContentChangedDropsOnlyThatCourseAndKeepsTheCatalogVersion() {
+        Cache summaries = org.mockito.Mockito.mock(Cache.class);
+        lenient().when(cacheManager.getCache("courses:summaries")).thenReturn(summaries);
+
+        service.courseContentChanged("c1", "l1");
+
+        org.mockito.Mockito.verify(cache).evict("c1");
+        org.mockito.Mockito.verify(cache).evict("c1:l1");
+        org.mockito.Mockito.verify(redisTemplate).delete(CatalogVersionService.COURSE_TAG_PREFIX + "c1");
+        org.mockito.Mockito.verifyNoInteractions(summaries);
+        org.mockito.Mockito.verify(valueOps, org.mockito.Mockito.never()).increment(anyString());
+    }
+
+    @Test
+    void lessonEtagMovesWithTheLessonAndTheLanguageOnly() {
+        TextContent lesson = new TextContent("l1", 1, "TEXT", new java.util.HashMap<>(java.util.Map.of("en", "Mulching")),
+                java.util.Map.of("en", "Cover the soil"), null, null);
+
+        String english = service.lessonEtag("c1", "en", lesson, Locale.ENGLISH);
+
+        assertThat(service.lessonEtag("c1", "en", lesson, Locale.ENGLISH)).isEqualTo(english);
+        assertThat(service.lessonEtag("c1", "en", lesson, Locale.FRENCH)).isNotEqualTo(english);
+        lesson.getTitle().put("fr", "Paillage");
+        assertThat(service.lessonEtag("c1", "en", lesson, Locale.ENGLISH)).isNotEqualTo(english);
+        org.mockito.Mockito.verifyNoInteractions(valueOps);
+    }
+
+    @Test
+    void courseEtagIsNullUntilATagIsStored() {
+        when(valueOps.multiGet(List.of(CatalogVersionService.COURSE_TAG_PREFIX + "c1")))
+                .thenReturn(Arrays.asList((String) null), List.of("abc"));
+
+        assertThat(service.courseEtag("c1", Locale.ENGLISH, null)).isNull();
+        assertThat(service.courseEtag("c1", Locale.ENGLISH, null)).isEqualTo("\"abc-en\"");
+    }
+
+    @Test
+    void fallsBackToLocalCountersWhenRedisIsDown() {
+        when(valueOps.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+        when(valueOps.increment(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+
+        String before = service.catalogEtag(Locale.ENGLISH, null);
+        service.courseChanged("c1");
+        String after = service.catalogEtag(Locale.ENGLISH, null);
+
+        assertThat(before).isEqualTo("\"cL0-en\"");
+        assertThat(after).isEqualTo("\"cL1-en\"");
+    }
+
+    @Test
+    void contentHashFollowsContentNotIdentity() {
+        Date updatedAt = new Date(1_760_000_000_000L);
+        Course first = course("c1", "Soil basics");
+        first.setUpdatedAt(updatedAt);
+        Course same = course("c1", "Soil basics");
+        same.setUpdatedAt(updatedAt);
+        Course edited = course("c1", "Soil basics, revised");
+        edited.setUpdatedAt(updatedAt);
+
+        assertThat(CatalogVersionService.contentHash(first)).isEqualTo(CatalogVersionService.contentHash(same));
+        assertThat(CatalogVersionService.contentHash(first)).isNotEqualTo(CatalogVersionService.contentHash(edited));
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        assertThat(CatalogVersionService.matches("W/\"c1-en\"", "\"c1-en\"")).isTrue();
+        assertThat(CatalogVersionService.matches("\"c0-en\", \"c1-en\"", "\"c1-en\"")).isTrue();
+        assertThat(CatalogVersionService.matches("*", "\"c1-en\"")).isTrue();
+        assertThat(CatalogVersionService.matches("\"c1-fr\"", "\"c1-en\"")).isFalse();
+        assertThat(CatalogVersionService.matches(null, "\"c1-en\"")).isFalse();
+        assertThat(CatalogVersionService.matches("\"c1-en\"", null)).isFalse();
+    }
+
+    private static Course course(String id, String title) {
+        Course course = new Course();
+        course.setId(id);
+        course.setTitle(title);
+        return course;
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -84,8 +85,6 @@ class CertificateServiceTest {
         when(certificateRecordRepository.findByCertificateCode(any())).thenReturn(Optional.empty());
         when(certificateRecordRepository.findByCourseIdAndUserId("course-1", "user-1"))
                 .thenReturn(Optional.empty());
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
         when(certificateRecordRepository.save(any(CertificateRecord.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -111,6 +110,9 @@ class CertificateServiceTest {
         assertThat(certificateRecord.getCourseTitle()).isEqualTo("Course Title");
         assertThat(certificateRecord.getCompletedAt()).isEqualTo(completionDate);
         assertThat(certificateRecord.getCertificateUrl()).contains("course-1").contains("user-1");
+        verify(courseProgressRepository).updateCertificate(eq("progress-1"), eq(certificateRecord.getCertificateCode()),
+                any(Date.class), eq(certificateRecord.getCertificateUrl()));
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
     }
 
     @Test
@@ -0,0 +1,187 @@
+package org.agra.agra_backend.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives {@link CloudinaryService} against a local stand-in for the Cloudinary upload API and
+ * checks that the largest request body stays bounded by the chunk size, whatever the file size.
+ */
+class CloudinaryServiceStreamingTest {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    private HttpServer server;
+    private final List<Long> requestBodySizes = new CopyOnWriteArrayList<>();
+    private final List<String> contentRanges = new CopyOnWriteArrayList<>();
+    private CloudinaryService service;
+
+    @BeforeEach
+    void startStandInServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            long received;
+            try (InputStream body = exchange.getRequestBody()) {
+                received = body.transferTo(java.io.OutputStream.nullOutputStream());
+            }
+            requestBodySizes.add(received);
+            String range = exchange.getRequestHeaders().getFirst("Content-Range");
+            if (range != null) {
+                contentRanges.add(range);
+            }
+            byte[] response = "{\"public_id\":\"stand-in\",\"secure_url\":\"https://stand-in/image.png\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        service = new CloudinaryService();
+        ReflectionTestUtils.setField(service, "cloudinary", new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", "test-cloud",
+                "api_key", "key",
+                "api_secret", "secret",
+                "upload_prefix", "http://127.0.0.1:" + server.getAddress().getPort()
+        )));
+        ReflectionTestUtils.setField(service, "chunkSizeBytes", CHUNK_SIZE);
+    }
+
+    @AfterEach
+    void stopStandInServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void smallFileIsSentFromDiskInOneRequest() throws Exception {
+        Map<String, Object> result = service.uploadImageToFolder(new GeneratedMultipartFile(64 * 1024), "posts/a");
+
+        assertThat(result).containsEntry("public_id", "stand-in");
+        assertThat(requestBodySizes).hasSize(1);
+        assertThat(contentRanges).isEmpty();
+    }
+
+    @Test
+    void largestRequestStaysBoundedByChunkSizeRegardlessOfFileSize() throws Exception {
+        service.uploadRawToFolder(new GeneratedMultipartFile(2L * 1024 * 1024), "courses/1/files");
+        long maxForSmallerFile = maxRequestBody();
+        int requestsForSmallerFile = requestBodySizes.size();
+        requestBodySizes.clear();
+        contentRanges.clear();
+
+        service.uploadRawToFolder(new GeneratedMultipartFile(8L * 1024 * 1024), "courses/1/files");
+        long maxForLargerFile = maxRequestBody();
+
+        assertThat(requestsForSmallerFile).isEqualTo(8);
+        assertThat(requestBodySizes).hasSize(32);
+        assertThat(contentRanges).hasSize(32);
+        // Multipart framing adds a few hundred bytes on top of one chunk
+        assertThat(maxForLargerFile).isLessThan(CHUNK_SIZE + 4_096L);
+        assertThat(maxForLargerFile).isCloseTo(maxForSmallerFile, org.assertj.core.data.Offset.offset(1_024L));
+    }
+
+    private long maxRequestBody() {
+        return requestBodySizes.stream().mapToLong(Long::longValue).max().orElse(0L);
+    }
+
+    /**
+     * Multipart stand-in whose bytes are generated on the fly, so the test itself never holds
+     * the file in memory and any attempt to buffer it via {@link #getBytes()} fails loudly.
+     */
+    private static final class GeneratedMultipartFile implements MultipartFile {
+        private final long size;
+
+        private GeneratedMultipartFile(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "training-video.mp4";
+        }
+
+        @Override
+        public String getContentType() {
+            return "video/mp4";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new AssertionError("upload must not buffer the whole file");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long remaining = size;
+
+                @Override
+                public int read() {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    remaining--;
+                    return 'x';
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int n = (int) Math.min(len, remaining);
+                    java.util.Arrays.fill(b, off, off + n, (byte) 'x');
+                    remaining -= n;
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            try (InputStream in = getInputStream()) {
+                Files.copy(in, dest, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
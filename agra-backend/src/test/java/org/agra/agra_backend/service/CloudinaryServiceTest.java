@@ -13,7 +13,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.Map;
 
@@ -52,9 +54,8 @@ class CloudinaryServiceTest {
     @Test
     void uploadImageUsesUploader() throws Exception {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getBytes()).thenReturn("data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
@@ -66,25 +67,23 @@ class CloudinaryServiceTest {
     @Test
     void uploadImageWithPresetUsesProvidedPreset() throws Exception {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getBytes()).thenReturn("data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadImage(file, "preset-1");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("upload_preset", "preset-1");
     }
 
     @Test
     void uploadImageRethrowsIOException() throws Exception {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getBytes()).thenReturn("data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class))).thenThrow(new IOException("boom"));
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
         setField(service, "cloudinary", cloudinary);
 
         assertThatThrownBy(() -> service.uploadImage(file))
@@ -95,41 +94,38 @@ class CloudinaryServiceTest {
     @Test
     void uploadImageToFolderAddsFolderParam() throws Exception {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getBytes()).thenReturn("data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadImageToFolder(file, "/courses/123/");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("folder", "courses/123");
     }
 
     @Test
     void uploadImageToFolderSkipsEmptyFolder() throws Exception {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getBytes()).thenReturn("data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadImageToFolder(file, "   ");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).doesNotContainKey("folder");
     }
 
     @Test
     void uploadImageToFolderRethrowsIOException() throws Exception {
         MultipartFile file = mock(MultipartFile.class);
-        when(file.getBytes()).thenReturn("data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class))).thenThrow(new IOException("boom"));
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
         setField(service, "cloudinary", cloudinary);
 
         assertThatThrownBy(() -> service.uploadImageToFolder(file, "/courses/123/"))
@@ -205,14 +201,14 @@ class CloudinaryServiceTest {
     void uploadProfilePictureUsesSanitizedFolder() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "pic.png", "image/png", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadProfilePicture(file, "User+Test@example.com");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("folder", "users/user_test_example_com");
         assertThat(captor.getValue()).containsEntry("public_id", "profilepic");
     }
@@ -221,7 +217,7 @@ class CloudinaryServiceTest {
     void uploadProfilePictureRethrowsIOException() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "pic.png", "image/png", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class))).thenThrow(new IOException("boom"));
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
         setField(service, "cloudinary", cloudinary);
 
         assertThatThrownBy(() -> service.uploadProfilePicture(file, "user@example.com"))
@@ -233,14 +229,14 @@ class CloudinaryServiceTest {
     void uploadTicketAttachmentBuildsFolderAndPublicId() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "report.pdf", "application/pdf", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadTicketAttachment(file, "User 1", "Ticket#1");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("folder", "tickets/user_1/ticket_1");
         assertThat(captor.getValue()).containsEntry("public_id", "report.pdf");
     }
@@ -249,7 +245,7 @@ class CloudinaryServiceTest {
     void uploadTicketAttachmentRethrowsIOException() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "report.pdf", "application/pdf", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class))).thenThrow(new IOException("boom"));
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
         setField(service, "cloudinary", cloudinary);
 
         assertThatThrownBy(() -> service.uploadTicketAttachment(file, null, null))
@@ -261,14 +257,14 @@ class CloudinaryServiceTest {
     void uploadRawToFolderUsesPdfExtensionAndFolder() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "report", "application/pdf", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com", "resource_type", "raw"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadRawToFolder(file, "/docs/");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("public_id", "report.pdf");
         assertThat(captor.getValue()).containsEntry("folder", "docs");
         assertThat(captor.getValue()).containsEntry("resource_type", "raw");
@@ -278,14 +274,14 @@ class CloudinaryServiceTest {
     void uploadRawToFolderHandlesLeadingDotName() throws Exception {
         MultipartFile file = new MockMultipartFile("file", ".env", "text/plain", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com", "resource_type", "raw"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadRawToFolder(file, null);
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("public_id", "file.env");
         assertThat(captor.getValue()).doesNotContainKey("folder");
     }
@@ -294,7 +290,7 @@ class CloudinaryServiceTest {
     void uploadRawToFolderRethrowsIOException() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "report", "application/pdf", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class))).thenThrow(new IOException("boom"));
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
         setField(service, "cloudinary", cloudinary);
 
         assertThatThrownBy(() -> service.uploadRawToFolder(file, "docs"))
@@ -306,14 +302,14 @@ class CloudinaryServiceTest {
     void uploadAutoToFolderUsesNormalizedFolder() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "pic.png", "image/png", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class)))
+        when(uploader.upload(any(File.class), any(Map.class)))
                 .thenReturn(Map.of("secure_url", "http://example.com"));
         setField(service, "cloudinary", cloudinary);
 
         service.uploadAutoToFolder(file, "/auto/");
 
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(uploader).upload(any(byte[].class), captor.capture());
+        verify(uploader).upload(any(File.class), captor.capture());
         assertThat(captor.getValue()).containsEntry("folder", "auto");
         assertThat(captor.getValue()).containsEntry("resource_type", "auto");
     }
@@ -322,7 +318,7 @@ class CloudinaryServiceTest {
     void uploadAutoToFolderRethrowsIOException() throws Exception {
         MultipartFile file = new MockMultipartFile("file", "pic.png", "image/png", "data".getBytes());
         when(cloudinary.uploader()).thenReturn(uploader);
-        when(uploader.upload(any(byte[].class), any(Map.class))).thenThrow(new IOException("boom"));
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
         setField(service, "cloudinary", cloudinary);
 
         assertThatThrownBy(() -> service.uploadAutoToFolder(file, "/auto/"))
@@ -379,6 +375,105 @@ class CloudinaryServiceTest {
                 .hasMessageContaining("boom");
     }
 
+    @Test
+    void uploadAboveChunkSizeUsesChunkedStreamingUpload() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        InputStream stream = InputStream.nullInputStream();
+        when(file.getSize()).thenReturn(10_000L);
+        when(file.getInputStream()).thenReturn(stream);
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.uploadLarge(eq(stream), any(Map.class), eq(4_096)))
+                .thenReturn(Map.of("secure_url", "http://example.com"));
+        setField(service, "cloudinary", cloudinary);
+        setField(service, "chunkSizeBytes", 4_096);
+
+        Map<String, Object> result = service.uploadImageToFolder(file, "courses/1/files");
+
+        assertThat(result).containsEntry("secure_url", "http://example.com");
+        verify(uploader, never()).upload(any(), any(Map.class));
+        verify(file, never()).getBytes();
+    }
+
+    @Test
+    void uploadRejectsOversizedFileBeforeReading() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getSize()).thenReturn(2_048L);
+        setField(service, "cloudinary", cloudinary);
+        setField(service, "maxUploadBytes", 1_024L);
+
+        assertThatThrownBy(() -> service.uploadImage(file))
+                .isInstanceOf(UploadLimitExceededException.class)
+                .hasMessageContaining("maximum upload size");
+        verify(file, never()).getInputStream();
+        verify(file, never()).getBytes();
+        verifyNoInteractions(cloudinary);
+    }
+
+    @Test
+    void uploadFailsFastWhenNoUploadSlotIsFree() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        setField(service, "cloudinary", cloudinary);
+        setField(service, "uploadAcquireTimeoutMs", 10L);
+        setField(service, "uploadPermits", new java.util.concurrent.Semaphore(0));
+
+        assertThatThrownBy(() -> service.uploadImage(file))
+                .isInstanceOfSatisfying(UploadSlotUnavailableException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1L))
+                .hasMessageContaining("concurrent uploads");
+        verifyNoInteractions(cloudinary);
+    }
+
+    @Test
+    void uploadReleasesSlotWhenUploadFails() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        java.util.concurrent.Semaphore permits = new java.util.concurrent.Semaphore(1);
+        when(cloudinary.uploader()).thenReturn(uploader);
+        when(uploader.upload(any(File.class), any(Map.class))).thenThrow(new IOException("boom"));
+        setField(service, "cloudinary", cloudinary);
+        setField(service, "uploadPermits", permits);
+
+        assertThatThrownBy(() -> service.uploadImage(file)).isInstanceOf(IOException.class);
+
+        assertThat(permits.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void resourceTypeFollowsMimeAndFallsBackToTheExtension() {
+        assertThat(CloudinaryService.resourceTypeFor("image/png", "a.png")).isEqualTo("image");
+        assertThat(CloudinaryService.resourceTypeFor("video/mp4", "a.mp4")).isEqualTo("video");
+        assertThat(CloudinaryService.resourceTypeFor("audio/mpeg", "a.mp3")).isEqualTo("video");
+        assertThat(CloudinaryService.resourceTypeFor("application/pdf", "a.pdf")).isEqualTo("raw");
+        assertThat(CloudinaryService.resourceTypeFor("image/svg+xml", "a.svg")).isEqualTo("raw");
+        assertThat(CloudinaryService.resourceTypeFor("application/octet-stream", "clip.mp4")).isEqualTo("video");
+        assertThat(CloudinaryService.resourceTypeFor(null, "photo.jpg")).isEqualTo("image");
+        assertThat(CloudinaryService.resourceTypeFor("not a type", null)).isEqualTo("raw");
+    }
+
+    @Test
+    void uploadFileFromDiskKeepsTheNameOfRawFiles() throws Exception {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("upload", ".pdf");
+        try {
+            when(cloudinary.uploader()).thenReturn(uploader);
+            when(uploader.upload(any(File.class), any(Map.class))).thenReturn(Map.of("secure_url", "http://example.com"));
+            setField(service, "cloudinary", cloudinary);
+
+            service.uploadFileFromDisk(file, "/courses/1/files/", "raw", "Field guide.pdf");
+            service.uploadFileFromDisk(file, "courses/1/files", "video", "clip.mp4");
+
+            ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+            verify(uploader, times(2)).upload(any(File.class), captor.capture());
+            assertThat(captor.getAllValues().get(0))
+                    .containsEntry("resource_type", "raw")
+                    .containsEntry("public_id", "Field_guide.pdf")
+                    .containsEntry("folder", "courses/1/files");
+            assertThat(captor.getAllValues().get(1))
+                    .containsEntry("resource_type", "video")
+                    .doesNotContainKey("public_id");
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+
     private static void setField(Object target, String name, Object value) throws Exception {
         Field field = target.getClass().getDeclaredField(name);
         field.setAccessible(true);
@@ -0,0 +1,242 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.client.result.UpdateResult;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.TextContentTranslation;
+import org.agra.agra_backend.payload.ContentPatchResult;
+import org.agra.agra_backend.payload.CourseTranslationPatch;
+import org.agra.agra_backend.payload.LessonPatch;
+import org.agra.agra_backend.payload.QuizQuestionPatch;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseContentServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private CacheManager cacheManager;
+
+    private CourseContentService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CourseContentService(mongoTemplate, catalogVersionService, cacheManager);
+    }
+
+    @Test
+    void patchLessonSetsOnlyTheTouchedPathsOfOneLesson() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Course.class)))
+                .thenReturn(stored("c1", 4L));
+        LessonPatch patch = new LessonPatch();
+        patch.setVersion(3L);
+        patch.setTitle(Map.of("fr", "Irrigation goutte a goutte"));
+        patch.setTranslations(Map.of("fr", new TextContentTranslation("ignored", "Contenu corrige")));
+
+        ContentPatchResult result = service.patchLesson("c1", "l2", patch);
+
+        assertThat(result.getVersion()).isEqualTo(4L);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(Course.class));
+        assertThat(query.getValue().getQueryObject())
+                .containsEntry("_id", "c1").containsEntry("textContent._id", "l2").containsEntry("version", 3L);
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set).containsEntry("textContent.$[lesson].title.fr", "Irrigation goutte a goutte")
+                .containsEntry("textContent.$[lesson].translations.fr.title", "Irrigation goutte a goutte")
+                .containsEntry("textContent.$[lesson].content.fr", "Contenu corrige")
+                .doesNotContainKey("textContent");
+        assertThat(update.getValue().getUpdateObject().get("$inc", Document.class)).containsEntry("version", 1);
+        assertThat(update.getValue().getArrayFilters()).extracting(filter -> filter.asDocument().toJson())
+                .containsExactly(new Document("lesson._id", "l2").toJson());
+        verify(catalogVersionService).courseContentChanged("c1", "l2");
+        verify(catalogVersionService, never()).courseChanged(anyString());
+    }
+
+    @Test
+    void patchLessonWithStaleVersionIsAConflict() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Course.class)))
+                .thenReturn(null);
+        when(mongoTemplate.exists(any(Query.class), eq(Course.class))).thenReturn(true);
+        LessonPatch patch = new LessonPatch();
+        patch.setVersion(1L);
+        patch.setOrder(2);
+
+        assertThatThrownBy(() -> service.patchLesson("c1", "l2", patch))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        verifyNoInteractions(catalogVersionService);
+    }
+
+    @Test
+    void patchLessonForMissingLessonIsNotFound() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Course.class)))
+                .thenReturn(null);
+        when(mongoTemplate.exists(any(Query.class), eq(Course.class))).thenReturn(false);
+        LessonPatch patch = new LessonPatch();
+        patch.setVersion(1L);
+        patch.setType("VIDEO");
+
+        assertThatThrownBy(() -> service.patchLesson("c1", "missing", patch))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void languageKeysThatAreNotLanguageTagsAreRejected() {
+        LessonPatch patch = new LessonPatch();
+        patch.setTitle(Map.of("fr.content", "x"));
+
+        assertThatThrownBy(() -> service.patchLesson("c1", "l1", patch))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> service.patchTranslation("c1", "$where", new CourseTranslationPatch()))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> service.patchLesson("c1", "l1", new LessonPatch()))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void patchQuizQuestionTargetsOneQuestionAndFillsAnswerIds() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Course.class)))
+                .thenReturn(stored("c1", 8L));
+        QuizQuestionPatch patch = new QuizQuestionPatch();
+        patch.setQuestion(Map.of("en", "Which crop needs the least water?"));
+        patch.setAnswers(List.of(new QuizAnswer(null, Map.of("en", "Millet"), true), new QuizAnswer("a2", null, false)));
+
+        service.patchQuizQuestion("c1", "l1", "q3", patch);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Course.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set).containsEntry("textContent.$[lesson].quizQuestions.$[question].question.en", "Which crop needs the least water?");
+        @SuppressWarnings("unchecked")
+        List<QuizAnswer> answers = (List<QuizAnswer>) set.get("textContent.$[lesson].quizQuestions.$[question].answers");
+        assertThat(answers).allSatisfy(answer -> assertThat(answer.getId()).isNotBlank());
+        assertThat(answers.get(1).getText()).isEmpty();
+        assertThat(update.getValue().getArrayFilters()).hasSize(2);
+        verify(catalogVersionService).courseContentChanged("c1", "l1");
+    }
+
+    @Test
+    void patchTranslationMovesTheWholeCatalog() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Course.class)))
+                .thenReturn(stored("c1", 2L));
+        CourseTranslationPatch patch = new CourseTranslationPatch();
+        patch.setTitle("Gestion des sols");
+
+        service.patchTranslation("c1", "fr", patch);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Course.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+                .containsEntry("translations.fr.title", "Gestion des sols")
+                .doesNotContainKey("translations.fr.description");
+        verify(catalogVersionService).courseChanged("c1");
+    }
+
+    @Test
+    void twoEditorsHoldingTheSameVersionCannotBothWin() throws Exception {
+        // Stand-in for the server-side compare-and-set that findAndModify performs on the version filter
+        AtomicLong storedVersion = new AtomicLong(5);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Course.class)))
+                .thenAnswer(invocation -> {
+                    Query query = invocation.getArgument(0);
+                    long expected = ((Number) query.getQueryObject().get("version")).longValue();
+                    return storedVersion.compareAndSet(expected, expected + 1) ? stored("c1", expected + 1) : null;
+                });
+        when(mongoTemplate.exists(any(Query.class), eq(Course.class))).thenReturn(true);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService editors = Executors.newFixedThreadPool(2);
+        List<Future<ContentPatchResult>> attempts = new ArrayList<>();
+        for (String title : List.of("Editor A title", "Editor B title")) {
+            attempts.add(editors.submit(() -> {
+                start.await();
+                LessonPatch patch = new LessonPatch();
+                patch.setVersion(5L);
+                patch.setTitle(Map.of("en", title));
+                return service.patchLesson("c1", "l1", patch);
+            }));
+        }
+        start.countDown();
+
+        List<ContentPatchResult> succeeded = Collections.synchronizedList(new ArrayList<>());
+        List<HttpStatus> rejected = new ArrayList<>();
+        for (Future<ContentPatchResult> attempt : attempts) {
+            try {
+                succeeded.add(attempt.get(5, TimeUnit.SECONDS));
+            } catch (java.util.concurrent.ExecutionException e) {
+                rejected.add((HttpStatus) ((ResponseStatusException) e.getCause()).getStatusCode());
+            }
+        }
+        editors.shutdownNow();
+
+        assertThat(succeeded).hasSize(1);
+        assertThat(succeeded.get(0).getVersion()).isEqualTo(6L);
+        assertThat(rejected).containsExactly(HttpStatus.CONFLICT);
+        assertThat(storedVersion.get()).isEqualTo(6L);
+
+        // The loser reloads the new version and its retry goes through
+        LessonPatch retry = new LessonPatch();
+        retry.setVersion(6L);
+        retry.setTitle(Map.of("en", "Merged title"));
+        assertThat(service.patchLesson("c1", "l1", retry).getVersion()).isEqualTo(7L);
+    }
+
+    @Test
+    void backfillVersionsClearsCachedCopiesWhenCoursesWereUpdated() {
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache(anyString())).thenReturn(cache);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Course.class)))
+                .thenReturn(UpdateResult.acknowledged(3, 3L, null));
+
+        service.backfillVersions();
+
+        verify(cache, atLeastOnce()).clear();
+    }
+
+    private static Course stored(String id, long version) {
+        Course course = new Course();
+        course.setId(id);
+        course.setVersion(version);
+        course.setUpdatedAt(new java.util.Date());
+        return course;
+    }
+}
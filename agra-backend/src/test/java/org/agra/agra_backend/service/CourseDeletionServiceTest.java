@@ -0,0 +1,119 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.client.result.DeleteResult;
+import org.agra.agra_backend.model.CertificateRecord;
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.Like;
+import org.agra.agra_backend.model.Session;
+import org.agra.agra_backend.payload.CourseDeletionProgress;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseDeletionServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private LessonOrdinalService lessonOrdinalService;
+    @Mock
+    private ProgressWriteBuffer progressWriteBuffer;
+
+    private CourseDeletionService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void cascadeDeletesDependentsInBatchesAndReportsTotals() throws InterruptedException {
+        service = new CourseDeletionService(mongoTemplate, lessonOrdinalService, 2, 0L, progressWriteBuffer);
+        when(mongoTemplate.find(any(Query.class), eq(CourseProgress.class)))
+                .thenReturn(List.of(progress("p1"), progress("p2")))
+                .thenReturn(List.of(progress("p3")));
+        when(mongoTemplate.remove(any(Query.class), eq(CourseProgress.class)))
+                .thenReturn(DeleteResult.acknowledged(2), DeleteResult.acknowledged(1));
+        Like like = new Like();
+        like.setId("l1");
+        when(mongoTemplate.find(any(Query.class), eq(Like.class))).thenReturn(List.of(like));
+        when(mongoTemplate.remove(any(Query.class), eq(Like.class))).thenReturn(DeleteResult.acknowledged(1));
+        when(mongoTemplate.find(any(Query.class), eq(CertificateRecord.class))).thenReturn(List.of());
+        when(mongoTemplate.find(any(Query.class), eq(Session.class))).thenReturn(List.of());
+
+        CourseDeletionProgress queued = service.cascade("course-1");
+        CourseDeletionProgress done = awaitFinished("course-1");
+
+        assertThat(queued.getStatus()).isIn(CourseDeletionService.STATUS_QUEUED, CourseDeletionService.STATUS_RUNNING,
+                CourseDeletionService.STATUS_COMPLETED);
+        assertThat(done.getStatus()).isEqualTo(CourseDeletionService.STATUS_COMPLETED);
+        assertThat(done.getDeleted()).containsEntry("course_progress", 3L).containsEntry("likes", 1L)
+                .containsEntry("certificates", 0L).containsEntry("sessions", 0L);
+        assertThat(done.getFinishedAt()).isNotNull();
+
+        ArgumentCaptor<Query> batches = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(batches.capture(), eq(CourseProgress.class));
+        assertThat(batches.getAllValues().get(0).getLimit()).isEqualTo(2);
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).remove(removed.capture(), eq(CourseProgress.class));
+        assertThat(removed.getAllValues().get(0).getQueryObject().get("_id", Document.class).get("$in", List.class))
+                .containsExactly("p1", "p2");
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(CertificateRecord.class));
+        verify(progressWriteBuffer).discardCourse("course-1");
+        verify(lessonOrdinalService).forget("course-1");
+    }
+
+    @Test
+    void failedCascadeIsReportedAndLeavesLaterCollectionsUntouched() throws InterruptedException {
+        service = new CourseDeletionService(mongoTemplate, lessonOrdinalService, 100, 0L, progressWriteBuffer);
+        when(mongoTemplate.find(any(Query.class), eq(CourseProgress.class))).thenThrow(new IllegalStateException("mongo down"));
+
+        service.cascade("course-1");
+        CourseDeletionProgress done = awaitFinished("course-1");
+
+        assertThat(done.getStatus()).isEqualTo(CourseDeletionService.STATUS_FAILED);
+        assertThat(done.getError()).isEqualTo("mongo down");
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Like.class));
+        // Enrollments may still be left, and their bits still need the mapping
+        verify(lessonOrdinalService, never()).forget(any());
+    }
+
+    @Test
+    void progressIsEmptyForUnknownCourse() {
+        service = new CourseDeletionService(mongoTemplate, lessonOrdinalService, 100, 0L, progressWriteBuffer);
+
+        assertThat(service.getProgress("missing")).isEmpty();
+    }
+
+    private CourseDeletionProgress awaitFinished(String courseId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        CourseDeletionProgress progress = service.getProgress(courseId).orElseThrow();
+        while (progress.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            progress = service.getProgress(courseId).orElseThrow();
+        }
+        return progress;
+    }
+
+    private static CourseProgress progress(String id) {
+        CourseProgress progress = new CourseProgress();
+        progress.setId(id);
+        return progress;
+    }
+}
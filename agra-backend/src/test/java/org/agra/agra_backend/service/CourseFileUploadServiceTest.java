@@ -0,0 +1,267 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.dao.UploadSessionRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseFile;
+import org.agra.agra_backend.model.UploadSession;
+import org.agra.agra_backend.payload.UploadInitRequest;
+import org.agra.agra_backend.payload.UploadStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseFileUploadServiceTest {
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+    @Mock
+    private CourseService courseService;
+    @Mock
+    private CloudinaryService cloudinaryService;
+    @TempDir
+    Path spool;
+
+    private final Map<String, UploadSession> sessions = new HashMap<>();
+    private final Course course = new Course();
+    private CourseFileUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CourseFileUploadService(uploadSessionRepository, courseService, cloudinaryService,
+                spool.toString(), 1_000, 4, 24);
+        course.setId("c1");
+        lenient().when(courseService.getCourseById("c1")).thenReturn(Optional.of(course));
+        lenient().when(courseService.addFile(eq("c1"), any(CourseFile.class))).thenAnswer(invocation -> {
+            if (course.getFiles() == null) {
+                course.setFiles(new ArrayList<>());
+            }
+            course.getFiles().add(invocation.getArgument(1));
+            return Optional.of(course);
+        });
+        lenient().when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> {
+            UploadSession session = invocation.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        lenient().when(uploadSessionRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(sessions.get(invocation.<String>getArgument(0))));
+        lenient().doAnswer(invocation -> sessions.remove(invocation.<String>getArgument(0)))
+                .when(uploadSessionRepository).deleteById(anyString());
+    }
+
+    @Test
+    void interruptedChunkIsRolledBackAndTheUploadResumesToCompletion() throws Exception {
+        byte[] video = "0123456789".getBytes();
+        UploadStatus started = service.start("c1", new UploadInitRequest("field-day.mp4", "video/mp4", video.length, sha256(video)));
+        String id = started.getUploadId();
+        assertThat(started.getResourceType()).isEqualTo(CloudinaryService.RESOURCE_VIDEO);
+        assertThat(started.getMaxChunkBytes()).isEqualTo(4);
+
+        service.writeChunk("c1", id, 0, chunk(video, 0, 4), sha256(video, 0, 4));
+        assertThatThrownBy(() -> service.writeChunk("c1", id, 4, new BrokenStream(chunk(video, 4, 6)), sha256(video, 4, 8)))
+                .isInstanceOf(IOException.class);
+        UploadStatus resumed = service.status("c1", id);
+        assertThat(resumed.getReceivedBytes()).isEqualTo(4);
+        assertThat(Files.size(spool.resolve(id + ".part"))).isEqualTo(4);
+
+        service.writeChunk("c1", id, 4, chunk(video, 4, 8), sha256(video, 4, 8));
+        service.writeChunk("c1", id, 8, chunk(video, 8, 10), sha256(video, 8, 10));
+        when(cloudinaryService.uploadFileFromDisk(any(Path.class), eq("courses/c1/files"), eq("video"), eq("field-day.mp4")))
+                .thenAnswer(invocation -> {
+                    assertThat(Files.readAllBytes(invocation.<Path>getArgument(0))).isEqualTo(video);
+                    return Map.of("secure_url", "https://cdn.example.org/field-day.mp4", "public_id", "courses/c1/files/field-day",
+                            "format", "mp4");
+                });
+
+        CourseFile file = service.complete("c1", id);
+
+        assertThat(file.getType()).isEqualTo("mp4");
+        assertThat(file.getSize()).isEqualTo(10);
+        assertThat(course.getFiles()).containsExactly(file);
+        verify(courseService).addFile("c1", file);
+        verify(courseService, never()).save(any(Course.class));
+        verify(cloudinaryService, never()).deleteAsset(anyString(), anyString());
+        assertThat(sessions).isEmpty();
+        assertThat(spool.resolve(id + ".part")).doesNotExist();
+    }
+
+    @Test
+    void chunksAreCheckedForChecksumOffsetAndSize() throws Exception {
+        byte[] pdf = "%PDF-1.7 x".getBytes();
+        String id = service.start("c1", new UploadInitRequest("guide.pdf", null, pdf.length, null)).getUploadId();
+        assertThat(sessions.get(id).getResourceType()).isEqualTo(CloudinaryService.RESOURCE_RAW);
+        service.writeChunk("c1", id, 0, chunk(pdf, 0, 4), sha256(pdf, 0, 4));
+
+        assertThat(status(() -> service.writeChunk("c1", id, 4, chunk(pdf, 4, 8), sha256(pdf, 0, 4)))).isEqualTo(400);
+        assertThat(status(() -> service.writeChunk("c1", id, 8, chunk(pdf, 8, 10), sha256(pdf, 8, 10)))).isEqualTo(409);
+        assertThat(status(() -> service.writeChunk("c1", id, 4, chunk(pdf, 4, 9), sha256(pdf, 4, 9)))).isEqualTo(413);
+        assertThat(status(() -> service.writeChunk("c1", id, 4, chunk(pdf, 4, 8), "not-a-checksum"))).isEqualTo(400);
+        assertThat(service.status("c1", id).getReceivedBytes()).isEqualTo(4);
+
+        // Resending from an earlier offset replaces what came after it
+        assertThat(service.writeChunk("c1", id, 2, chunk(pdf, 2, 6), sha256(pdf, 2, 6)).getReceivedBytes()).isEqualTo(6);
+        assertThat(Files.readAllBytes(spool.resolve(id + ".part"))).isEqualTo(Arrays.copyOfRange(pdf, 0, 6));
+        assertThat(status(() -> service.status("other-course", id))).isEqualTo(404);
+    }
+
+    @Test
+    void completionNeedsEveryByteAndTheDeclaredChecksum() throws Exception {
+        byte[] data = "abcdef".getBytes();
+        String id = service.start("c1", new UploadInitRequest("notes.txt", "text/plain", data.length, sha256("other".getBytes())))
+                .getUploadId();
+        service.writeChunk("c1", id, 0, chunk(data, 0, 4), sha256(data, 0, 4));
+        assertThat(status(() -> service.complete("c1", id))).isEqualTo(409);
+
+        service.writeChunk("c1", id, 4, chunk(data, 4, 6), sha256(data, 4, 6));
+
+        assertThat(status(() -> service.complete("c1", id))).isEqualTo(422);
+        assertThat(sessions).isEmpty();
+        verify(cloudinaryService, never()).uploadFileFromDisk(any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void storageFailureKeepsTheUploadSoCompletionCanBeRetried() throws Exception {
+        byte[] image = new byte[]{1, 2, 3};
+        String id = service.start("c1", new UploadInitRequest("map.png", "application/octet-stream", image.length, null)).getUploadId();
+        service.writeChunk("c1", id, 0, chunk(image, 0, 3), sha256(image, 0, 3));
+        when(cloudinaryService.uploadFileFromDisk(any(Path.class), anyString(), eq("image"), eq("map.png")))
+                .thenThrow(new IOException("storage down"))
+                .thenReturn(Map.of("secure_url", "https://cdn.example.org/map.png", "public_id", "courses/c1/files/map"));
+
+        assertThatThrownBy(() -> service.complete("c1", id)).hasMessage("storage down");
+        assertThat(service.status("c1", id).getReceivedBytes()).isEqualTo(3);
+
+        assertThat(service.complete("c1", id).getType()).isEqualTo("png");
+    }
+
+    @Test
+    void anUploadThatCannotBeAttachedIsDeletedFromStorage() throws Exception {
+        byte[] pdf = "%PDF".getBytes();
+        String id = service.start("c1", new UploadInitRequest("guide.pdf", null, pdf.length, null)).getUploadId();
+        service.writeChunk("c1", id, 0, chunk(pdf, 0, 4), sha256(pdf, 0, 4));
+        when(cloudinaryService.uploadFileFromDisk(any(Path.class), anyString(), eq("raw"), eq("guide.pdf")))
+                .thenReturn(Map.of("secure_url", "https://cdn.example.org/guide.pdf", "public_id", "courses/c1/files/guide.pdf"));
+        when(courseService.addFile(eq("c1"), any(CourseFile.class)))
+                .thenThrow(new OptimisticLockingFailureException("stale"))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.complete("c1", id)).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(service.status("c1", id).getReceivedBytes()).isEqualTo(4);
+
+        // The course was deleted before the retry
+        assertThat(status(() -> service.complete("c1", id))).isEqualTo(404);
+        verify(cloudinaryService, times(2)).deleteAsset("courses/c1/files/guide.pdf", "raw");
+        assertThat(sessions).isEmpty();
+        assertThat(spool.resolve(id + ".part")).doesNotExist();
+    }
+
+    @Test
+    void sweepDeletesExpiredSessionsAndAbandonedSpoolFiles() throws Exception {
+        Path abandoned = Files.writeString(spool.resolve("old.part"), "0123");
+        Files.setLastModifiedTime(abandoned, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25)));
+        Path active = Files.writeString(spool.resolve("new.part"), "0123");
+
+        service.sweep();
+
+        verify(uploadSessionRepository).deleteByExpiresAtBefore(any(Date.class));
+        assertThat(abandoned).doesNotExist();
+        assertThat(active).exists();
+    }
+
+    @Test
+    void startRejectsMissingCoursesAndOversizedFiles() {
+        when(courseService.getCourseById("gone")).thenReturn(Optional.empty());
+
+        assertThat(status(() -> service.start("gone", new UploadInitRequest("a.pdf", null, 10, null)))).isEqualTo(404);
+        assertThat(status(() -> service.start("c1", new UploadInitRequest("a.mp4", "video/mp4", 1_001, null)))).isEqualTo(413);
+        assertThat(sessions).isEmpty();
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static int status(Call call) {
+        try {
+            call.run();
+        } catch (ResponseStatusException e) {
+            return e.getStatusCode().value();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        throw new AssertionError("Expected a ResponseStatusException");
+    }
+
+    private static InputStream chunk(byte[] data, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(data, from, to));
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return sha256(data, 0, data.length);
+    }
+
+    private static String sha256(byte[] data, int from, int to) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(data, from, to)));
+    }
+
+    // Delivers its bytes and then fails, like a connection dropped mid-chunk
+    private static final class BrokenStream extends InputStream {
+        private final InputStream delegate;
+
+        private BrokenStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = delegate.read();
+            if (value == -1) {
+                throw new IOException("connection reset");
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = delegate.read(buffer, offset, length);
+            if (read == -1) {
+                throw new IOException("connection reset");
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.QuizQuestion;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.model.TextContentTranslation;
+import org.agra.agra_backend.payload.CourseOutline;
+import org.agra.agra_backend.payload.LessonView;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseLessonServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CourseRepository courseRepository;
+
+    private CourseLessonService service;
+
+    @BeforeEach
+    void setUp() {
+        CourseService courseService = new CourseService(courseRepository, null, null, null, null, null, null);
+        service = new CourseLessonService(mongoTemplate, courseService);
+    }
+
+    @Test
+    void getLessonProjectsOneArrayElementInsteadOfTheWholeCourse() {
+        Course holder = new Course();
+        holder.setId("c1");
+        holder.setTextContent(List.of(lesson("l2", 120, 0)));
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(holder);
+
+        Optional<Course> result = service.getLesson("c1", "l2");
+
+        assertThat(result).containsSame(holder);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findOne(query.capture(), eq(Course.class));
+        assertThat(query.getValue().getQueryObject()).containsEntry("_id", "c1");
+        Document fields = query.getValue().getFieldsObject();
+        assertThat(fields.get("textContent", Document.class).get("$elemMatch", Document.class)).containsEntry("_id", "l2");
+        assertThat(fields).containsKeys("defaultLanguage", "version", "updatedAt").doesNotContainKeys("title", "translations");
+    }
+
+    @Test
+    void getLessonIsEmptyWhenNoLessonMatched() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(new Course());
+
+        assertThat(service.getLesson("c1", "missing")).isEmpty();
+    }
+
+    @Test
+    void localizeLessonServesOneLanguageWithDefaultLanguageFallback() {
+        TextContent lesson = new TextContent("l1", 3, "QUIZ", Map.of("en", "Composting"), Map.of("en", "Mix greens and browns"),
+                Map.of("fr", new TextContentTranslation("Compostage", "Melanger le vert et le brun")),
+                List.of(new QuizQuestion("q1", Map.of("en", "What speeds it up?", "fr", "Qu'est-ce qui accelere ?"),
+                        List.of(new QuizAnswer("a1", Map.of("en", "Turning", "fr", "Retourner"), true)))));
+        Course holder = new Course();
+        holder.setDefaultLanguage("fr");
+        holder.setTextContent(List.of(lesson));
+
+        LessonView arabic = service.localizeLesson("c1", holder, Locale.forLanguageTag("ar"));
+        LessonView english = service.localizeLesson("c1", holder, Locale.ENGLISH);
+
+        assertThat(arabic.getLanguage()).isEqualTo("fr");
+        assertThat(arabic.getTitle()).isEqualTo("Compostage");
+        assertThat(arabic.getContent()).isEqualTo("Melanger le vert et le brun");
+        assertThat(arabic.getQuizQuestions()).singleElement().satisfies(question -> {
+            assertThat(question.getQuestion()).isEqualTo("Qu'est-ce qui accelere ?");
+            assertThat(question.getAnswers()).singleElement()
+                    .satisfies(answer -> assertThat(answer.getText()).isEqualTo("Retourner"));
+        });
+        assertThat(english.getLanguage()).isEqualTo("en");
+        assertThat(english.getTitle()).isEqualTo("Composting");
+        assertThat(english.getCourseId()).isEqualTo("c1");
+        assertThat(english.getOrder()).isEqualTo(3);
+    }
+
+    @Test
+    void estimatedMinutesCountsWordsWithoutMarkupAndQuizTime() {
+        TextContent lesson = lesson("l1", 400, 2);
+        lesson.setContent(Map.of("en", "<p>" + String.join(" ", java.util.Collections.nCopies(400, "word")) + "</p>"));
+
+        // 400 words at 200 wpm, plus two questions at 30 seconds
+        assertThat(CourseLessonService.estimatedMinutes(lesson, "en")).isEqualTo(3);
+        assertThat(CourseLessonService.estimatedMinutes(new TextContent(), "en")).isEqualTo(1);
+    }
+
+    @Test
+    void outlineCarriesHeadingsOnlyAndIsAFractionOfTheFullCourse() throws Exception {
+        Course course = new Course();
+        course.setId("c1");
+        course.setTitle("Soil health");
+        course.setDefaultLanguage("en");
+        course.setUpdatedAt(new Date(1_000L));
+        List<TextContent> lessons = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            lessons.add(lesson("l" + i, 600, 5));
+        }
+        course.setTextContent(lessons);
+        when(courseRepository.findById("c1")).thenReturn(Optional.of(course));
+
+        CourseOutline outline = service.getOutline("c1", Locale.ENGLISH).orElseThrow();
+
+        assertThat(outline.getTitle()).isEqualTo("Soil health");
+        assertThat(outline.getLessons()).hasSize(40);
+        assertThat(outline.getLessons().get(7).getTitle()).isEqualTo("Lesson l7");
+        assertThat(outline.getLessons().get(7).getQuestionCount()).isEqualTo(5);
+        assertThat(outline.getLessons().get(7).getEstimatedMinutes()).isEqualTo(6);
+        assertThat(outline.getTotalMinutes()).isEqualTo(240);
+
+        ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+        int outlineBytes = mapper.writeValueAsBytes(outline).length;
+        int courseBytes = mapper.writeValueAsBytes(course).length;
+        assertThat(outlineBytes).isLessThan(courseBytes / 20);
+    }
+
+    private static TextContent lesson(String id, int words, int questions) {
+        String body = String.join(" ", java.util.Collections.nCopies(words, "soil"));
+        List<QuizQuestion> quiz = new ArrayList<>();
+        for (int q = 0; q < questions; q++) {
+            quiz.add(new QuizQuestion("q" + q, Map.of("en", "Question " + q),
+                    List.of(new QuizAnswer("a", Map.of("en", "Yes"), true), new QuizAnswer("b", Map.of("en", "No"), false))));
+        }
+        return new TextContent(id, 0, questions > 0 ? "QUIZ" : "TEXT", Map.of("en", "Lesson " + id), Map.of("en", body), null, quiz);
+    }
+}
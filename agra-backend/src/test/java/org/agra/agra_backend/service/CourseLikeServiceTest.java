@@ -12,13 +12,23 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -34,6 +44,9 @@ class CourseLikeServiceTest {
     @Mock
     private ActivityLogService activityLogService;
 
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
     @InjectMocks
     private CourseLikeService service;
 
@@ -57,6 +70,7 @@ class CourseLikeServiceTest {
 
         assertThat(result).isTrue();
         verify(likeRepository).existsByUserIdAndTargetTypeAndTargetId("u1", CourseLikeService.TARGET_TYPE_COURSE, "c1");
+        verifyNoInteractions(catalogVersionService);
     }
 
     @Test
@@ -79,6 +93,7 @@ class CourseLikeServiceTest {
                 "c1",
                 Map.of("courseId", "c1")
         );
+        verify(catalogVersionService).likesChanged("u1");
     }
 
     @Test
@@ -90,6 +105,7 @@ class CourseLikeServiceTest {
 
         assertThat(result).isTrue();
         verify(likeRepository).deleteByUserIdAndTargetTypeAndTargetId("u1", CourseLikeService.TARGET_TYPE_COURSE, "c1");
+        verify(catalogVersionService).likesChanged("u1");
     }
 
     @Test
@@ -99,10 +115,79 @@ class CourseLikeServiceTest {
         courseLike.setTargetId("c1");
         Like otherLike = new Like();
         otherLike.setTargetType("POST");
-        when(likeRepository.findByUserId("u1")).thenReturn(List.of(courseLike, otherLike));
+        when(likeRepository.findByUserIdAndTargetType("u1", CourseLikeService.TARGET_TYPE_COURSE)).thenReturn(List.of(courseLike, otherLike));
 
         List<String> result = service.listLikedCourseIds("u1");
 
         assertThat(result).containsExactly("c1");
     }
+
+    @Test
+    void likedAmongAnswersFromLoadedSetWithOneLookup() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        SetOperations<String, String> setOps = mockSetOps(redisTemplate);
+        when(setOps.isMember("courses:liked:u1", "~", "c1", "c2"))
+                .thenReturn(Map.of("~", true, "c1", false, "c2", true));
+        CourseLikeService cached = new CourseLikeService(likeRepository, courseRepository, activityLogService, null, redisTemplate);
+
+        Set<String> liked = cached.likedAmong("u1", List.of("c1", "c2", "c1"));
+
+        assertThat(liked).containsExactly("c2");
+        verifyNoInteractions(likeRepository);
+    }
+
+    @Test
+    void likedAmongBuildsSetFromCourseLikesOnFirstUse() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        SetOperations<String, String> setOps = mockSetOps(redisTemplate);
+        when(setOps.isMember("courses:liked:u1", "~", "c1", "c2"))
+                .thenReturn(Map.of("~", false, "c1", false, "c2", false));
+        Like like = new Like();
+        like.setTargetType(CourseLikeService.TARGET_TYPE_COURSE);
+        like.setTargetId("c1");
+        when(likeRepository.findByUserIdAndTargetType("u1", CourseLikeService.TARGET_TYPE_COURSE)).thenReturn(List.of(like));
+        CourseLikeService cached = new CourseLikeService(likeRepository, courseRepository, activityLogService, null, redisTemplate);
+        ReflectionTestUtils.setField(cached, "likedSetTtlHours", 168L);
+
+        Set<String> liked = cached.likedAmong("u1", List.of("c1", "c2"));
+
+        assertThat(liked).containsExactly("c1");
+        verify(setOps).add("courses:liked:u1", "~", "c1");
+        verify(redisTemplate).expire("courses:liked:u1", Duration.ofHours(168));
+        verify(likeRepository, never()).findByUserId("u1");
+    }
+
+    @Test
+    void likeAndUnlikeKeepLikedSetInSync() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        SetOperations<String, String> setOps = mockSetOps(redisTemplate);
+        when(courseRepository.findById("c1")).thenReturn(Optional.of(new Course()));
+        CourseLikeService cached = new CourseLikeService(likeRepository, courseRepository, activityLogService, null, redisTemplate);
+
+        cached.likeCourse("u1", "c1");
+        cached.unlikeCourse("u1", "c1");
+
+        verify(setOps).add("courses:liked:u1", "c1");
+        verify(setOps).remove("courses:liked:u1", "c1");
+    }
+
+    @Test
+    void likedAmongFallsBackToMongoWhenRedisIsDown() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForSet()).thenThrow(new RedisConnectionFailureException("down"));
+        Like like = new Like();
+        like.setTargetId("c2");
+        when(likeRepository.findByUserIdAndTargetTypeAndTargetIdIn("u1", CourseLikeService.TARGET_TYPE_COURSE, List.of("c1", "c2")))
+                .thenReturn(List.of(like));
+        CourseLikeService cached = new CourseLikeService(likeRepository, courseRepository, activityLogService, null, redisTemplate);
+
+        assertThat(cached.likedAmong("u1", List.of("c1", "c2"))).containsExactly("c2");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SetOperations<String, String> mockSetOps(StringRedisTemplate redisTemplate) {
+        SetOperations<String, String> setOps = mock(SetOperations.class);
+        when(redisTemplate.opsForSet()).thenReturn(setOps);
+        return setOps;
+    }
 }
@@ -0,0 +1,129 @@
+package org.agra.agra_backend.service;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.agra.agra_backend.dao.CourseProgressRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.LessonOrdinals;
+import org.agra.agra_backend.model.TextContent;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("integration")
+@DataMongoTest(properties = "eureka.client.enabled=false")
+@Import({CourseProgressService.class, LessonOrdinalService.class})
+@ActiveProfiles("test")
+class CourseProgressConcurrencyIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int LESSONS = 40;
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> embeddedMongo;
+    private static int mongoPort;
+
+    @BeforeAll
+    static void startEmbeddedMongo() {
+        embeddedMongo = Mongod.instance().start(Version.V6_0_5);
+        mongoPort = embeddedMongo.current().getServerAddress().getPort();
+    }
+
+    @AfterAll
+    static void stopEmbeddedMongo() {
+        if (embeddedMongo != null) {
+            embeddedMongo.close();
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureMongoUri(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> "mongodb://localhost:" + mongoPort + "/agra-backend-test");
+    }
+
+    @Autowired
+    private CourseProgressService service;
+
+    @Autowired
+    private CourseProgressRepository courseProgressRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @MockBean
+    private ActivityLogService activityLogService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(CourseProgress.class);
+        mongoTemplate.dropCollection(Course.class);
+        mongoTemplate.dropCollection(LessonOrdinals.class);
+        service.ensureEnrollmentIndex();
+        List<TextContent> lessons = new ArrayList<>();
+        for (int i = 0; i < LESSONS; i++) {
+            TextContent lesson = new TextContent();
+            lesson.setId("lesson-" + i);
+            lessons.add(lesson);
+        }
+        Course course = new Course();
+        course.setId("course-1");
+        course.setTextContent(lessons);
+        mongoTemplate.save(course);
+    }
+
+    @Test
+    void concurrentEnrollmentsAndCompletionsKeepOneDocumentWithEveryLesson() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                service.enrollUserInCourse("user-1", "course-1");
+                for (int lesson = worker; lesson < LESSONS; lesson += THREADS) {
+                    service.markLessonComplete("user-1", "course-1", "lesson-" + lesson, new Date());
+                    service.markLessonComplete("user-1", "course-1", "lesson-" + lesson, new Date());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<CourseProgress> enrollments = courseProgressRepository.findByUserId("user-1");
+        assertThat(enrollments).hasSize(1);
+        CourseProgress progress = enrollments.get(0);
+        assertThat(progress.getCompletedLessons()).hasSize(LESSONS).doesNotHaveDuplicates();
+        assertThat(progress.completedLessonCount()).isEqualTo(LESSONS);
+        assertThat(progress.getLessonCompletionDates()).hasSize(LESSONS);
+        assertThat(progress.getProgressPercentage()).isEqualTo(100);
+        assertThat(progress.getEnrolledAt()).isNotNull();
+    }
+}
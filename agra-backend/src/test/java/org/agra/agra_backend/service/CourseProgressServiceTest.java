@@ -1,13 +1,27 @@
 package org.agra.agra_backend.service;
 
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
 import org.agra.agra_backend.dao.CourseProgressRepository;
 import org.agra.agra_backend.model.ActivityType;
+import org.agra.agra_backend.model.Course;
 import org.agra.agra_backend.model.CourseProgress;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
 
 import java.util.Date;
 import java.util.List;
@@ -17,8 +31,10 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,14 +46,31 @@ class CourseProgressServiceTest {
     @Mock
     private ActivityLogService activityLogService;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private LessonOrdinalService lessonOrdinalService;
+
     @InjectMocks
     private CourseProgressService service;
 
+    @BeforeEach
+    void setUp() {
+        // "lesson-N" has ordinal N
+        lenient().when(lessonOrdinalService.ordinal(anyString(), anyString()))
+                .thenAnswer(invocation -> ordinalOf(invocation.getArgument(1)));
+        lenient().when(lessonOrdinalService.ordinals(anyString(), anyList())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(1).stream().mapToInt(CourseProgressServiceTest::ordinalOf).toArray());
+    }
+
     @Test
     void enrollUserReturnsExistingWhenAlreadyEnrolled() {
         CourseProgress existing = new CourseProgress();
         existing.setUserId("user-1");
         existing.setCourseId("course-1");
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 0L, null));
         when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
                 .thenReturn(Optional.of(existing));
 
@@ -45,22 +78,33 @@ class CourseProgressServiceTest {
 
         assertThat(result).isSameAs(existing);
         verify(courseProgressRepository, never()).save(any(CourseProgress.class));
+        verify(activityLogService, never()).logUserActivity(anyString(), any(ActivityType.class), anyString(),
+                anyString(), anyString(), anyMap());
     }
 
     @Test
     void enrollUserCreatesProgressWhenMissing() {
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.empty());
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        ObjectId id = new ObjectId();
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, new BsonObjectId(id)));
 
         CourseProgress created = service.enrollUserInCourse("user-1", "course-1");
 
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(CourseProgress.class));
+        assertThat(query.getValue().getQueryObject()).containsEntry("userId", "user-1").containsEntry("courseId", "course-1");
+        assertThat(update.getValue().getUpdateObject().get("$setOnInsert", Document.class))
+                .containsKey("enrolledAt")
+                .containsEntry("completedLessonBits", List.of(0L));
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
+        assertThat(created.getId()).isEqualTo(id.toHexString());
         assertThat(created.getUserId()).isEqualTo("user-1");
         assertThat(created.getCourseId()).isEqualTo("course-1");
         assertThat(created.isCompleted()).isFalse();
         assertThat(created.getProgressPercentage()).isZero();
         assertThat(created.getEnrolledAt()).isNotNull();
+        assertThat(created.completedLessonCount()).isZero();
         verify(activityLogService).logUserActivity(
                 "user-1",
                 ActivityType.COURSE_ENROLLMENT,
@@ -71,6 +115,103 @@ class CourseProgressServiceTest {
         );
     }
 
+    @Test
+    void enrollUserReturnsTheWinnerWhenAConcurrentInsertHitsTheUniqueIndex() {
+        CourseProgress winner = new CourseProgress();
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1")).thenReturn(Optional.of(winner));
+
+        assertThat(service.enrollUserInCourse("user-1", "course-1")).isSameAs(winner);
+        verify(activityLogService, never()).logUserActivity(anyString(), any(ActivityType.class), anyString(),
+                anyString(), anyString(), anyMap());
+    }
+
+    @Test
+    void concurrentEnrollmentsInsertOnceAndConcurrentCompletionsAreAllKept() throws Exception {
+        // Stands in for the collection: one document per (userId, courseId), each operation atomic
+        Map<String, CourseProgress> collection = new java.util.HashMap<>();
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenAnswer(invocation -> {
+                    synchronized (collection) {
+                        if (collection.containsKey("user-1/course-1")) {
+                            return UpdateResult.acknowledged(1, 0L, null);
+                        }
+                        CourseProgress inserted = new CourseProgress();
+                        inserted.setId(new ObjectId().toHexString());
+                        collection.put("user-1/course-1", inserted);
+                        return UpdateResult.acknowledged(0, 0L, new BsonObjectId(new ObjectId(inserted.getId())));
+                    }
+                });
+        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
+                .thenAnswer(invocation -> Optional.ofNullable(collection.get("user-1/course-1")));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenAnswer(invocation -> {
+                    Document bit = invocation.<UpdateDefinition>getArgument(1).getUpdateObject().get("$bit", Document.class);
+                    String field = bit.keySet().iterator().next();
+                    int word = Integer.parseInt(field.substring(field.indexOf('.') + 1));
+                    synchronized (collection) {
+                        CourseProgress stored = collection.get("user-1/course-1");
+                        if (word >= stored.getCompletedLessonBits().length) {
+                            return null;
+                        }
+                        stored.getCompletedLessonBits()[word] |= bit.get(field, Document.class).getLong("or");
+                        CourseProgress copy = new CourseProgress();
+                        copy.setCompletedLessonBits(stored.getCompletedLessonBits().clone());
+                        copy.setProgressPercentage(stored.getProgressPercentage());
+                        return copy;
+                    }
+                });
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(20));
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenAnswer(invocation -> {
+                    Document update = invocation.<UpdateDefinition>getArgument(1).getUpdateObject();
+                    synchronized (collection) {
+                        CourseProgress stored = collection.get("user-1/course-1");
+                        if (update.containsKey("$push")) {
+                            int words = (Integer) modifiers(update.get("$push", Document.class).get("completedLessonBits")).get("$slice");
+                            stored.setCompletedLessonBits(java.util.Arrays.copyOf(stored.getCompletedLessonBits(),
+                                    Math.max(words, stored.getCompletedLessonBits().length)));
+                        } else {
+                            int percentage = update.get("$max", Document.class).getInteger("progressPercentage");
+                            stored.setProgressPercentage(Math.max(stored.getProgressPercentage(), percentage));
+                        }
+                    }
+                    return UpdateResult.acknowledged(1, 1L, null);
+                });
+
+        int threads = 8;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                service.enrollUserInCourse("user-1", "course-1");
+                for (int lesson = worker; lesson < 20; lesson += threads) {
+                    service.markLessonComplete("user-1", "course-1", "lesson-" + lesson, new Date());
+                    // Double-tap
+                    service.markLessonComplete("user-1", "course-1", "lesson-" + lesson, new Date());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (java.util.concurrent.Future<?> future : futures) {
+            future.get(10, java.util.concurrent.TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(collection).hasSize(1);
+        verify(activityLogService, times(1)).logUserActivity(eq("user-1"), eq(ActivityType.COURSE_ENROLLMENT),
+                anyString(), anyString(), anyString(), anyMap());
+        CourseProgress stored = collection.get("user-1/course-1");
+        assertThat(stored.completedLessonCount()).isEqualTo(20);
+        assertThat(stored.getProgressPercentage()).isEqualTo(100);
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
+    }
+
     @Test
     void isUserEnrolledDelegatesToRepository() {
         when(courseProgressRepository.existsByUserIdAndCourseId("user-1", "course-1")).thenReturn(true);
@@ -102,17 +243,24 @@ class CourseProgressServiceTest {
 
     @Test
     void updateProgressSetsCompletedWhen100() {
-        CourseProgress progress = new CourseProgress();
-        progress.setProgressPercentage(10);
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        CourseProgress before = new CourseProgress();
+        before.setProgressPercentage(10);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(before);
 
         CourseProgress updated = service.updateProgress("user-1", "course-1", 100);
 
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        Document operations = update.getValue().getUpdateObject();
+        assertThat(operations.get("$max", Document.class)).containsEntry("progressPercentage", 100);
+        assertThat(operations.get("$set", Document.class)).containsEntry("completed", true);
+        assertThat(operations.get("$min", Document.class)).containsKey("completedAt");
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
         assertThat(updated.getProgressPercentage()).isEqualTo(100);
         assertThat(updated.isCompleted()).isTrue();
+        assertThat(updated.getCompletedAt()).isNotNull();
         verify(activityLogService).logUserActivity(
                 "user-1",
                 ActivityType.COURSE_COMPLETION,
@@ -125,13 +273,11 @@ class CourseProgressServiceTest {
 
     @Test
     void updateProgressSkipsLoggingWhenAlreadyCompleted() {
-        CourseProgress progress = new CourseProgress();
-        progress.setProgressPercentage(100);
-        progress.setCompleted(true);
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        CourseProgress before = new CourseProgress();
+        before.setProgressPercentage(100);
+        before.setCompleted(true);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(before);
 
         CourseProgress updated = service.updateProgress("user-1", "course-1", 100);
 
@@ -148,8 +294,8 @@ class CourseProgressServiceTest {
 
     @Test
     void updateProgressThrowsWhenMissing() {
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null);
 
         assertThatThrownBy(() -> service.updateProgress("user-1", "course-1", 10))
                 .isInstanceOf(RuntimeException.class)
@@ -168,67 +314,223 @@ class CourseProgressServiceTest {
     }
 
     @Test
-    void markLessonCompleteInitializesCollections() {
-        CourseProgress progress = new CourseProgress();
-        progress.setUserId("user-1");
-        progress.setCourseId("course-1");
-        progress.setCompletedLessons(null);
-        progress.setLessonCompletionDates(null);
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+    void markLessonCompleteIsOneAtomicUpdateAndRaisesThePercentage() {
+        CourseProgress updated = new CourseProgress();
+        // lesson-0, lesson-1 and lesson-9, which is no longer part of the course
+        updated.setCompletedLessonBits(new long[] {0b10_0000_0011L});
+        updated.setProgressPercentage(10);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(updated);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4));
+
+        CourseProgress result = service.markLessonComplete("user-1", "course-1", "lesson-1", new Date());
+
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        Document operations = update.getValue().getUpdateObject();
+        assertThat(operations.get("$bit", Document.class).get("completedLessonBits.0", Document.class)).containsEntry("or", 2L);
+        assertThat(operations.get("$min", Document.class)).containsKeys("lessonCompletionDates.lesson-1", "startedAt");
+        ArgumentCaptor<UpdateDefinition> percentage = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), percentage.capture(), eq(CourseProgress.class));
+        assertThat(percentage.getValue().getUpdateObject().get("$max", Document.class)).containsEntry("progressPercentage", 50);
+        assertThat(result.getProgressPercentage()).isEqualTo(50);
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
+    }
 
-        CourseProgress updated = service.markLessonComplete("user-1", "course-1", "lesson-1", new Date());
+    @Test
+    void markLessonCompleteSkipsThePercentageWriteWhenUnchanged() {
+        CourseProgress updated = new CourseProgress();
+        updated.setCompletedLessonBits(new long[] {0b10L});
+        updated.setCompletedLessons(new java.util.ArrayList<>(List.of("lesson-1")));
+        updated.setProgressPercentage(25);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(updated);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4));
+
+        CourseProgress result = service.markLessonComplete("user-1", "course-1", "lesson-1", new Date());
+
+        assertThat(result.getCompletedLessons()).containsExactly("lesson-1");
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class));
+    }
 
-        assertThat(updated.getCompletedLessons()).contains("lesson-1");
-        assertThat(updated.getLessonCompletionDates()).containsKey("lesson-1");
-        assertThat(updated.getStartedAt()).isNotNull();
+    @Test
+    void markLessonCompletePadsTheBitsetWhenTheLessonIsInANewWord() {
+        CourseProgress updated = new CourseProgress();
+        // lesson-128 to lesson-191
+        updated.setCompletedLessonBits(new long[] {0L, 0L, -1L});
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null, updated);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(200));
+
+        service.markLessonComplete("user-1", "course-1", "lesson-134", new Date());
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).updateFirst(queries.capture(), updates.capture(), eq(CourseProgress.class));
+        assertThat(queries.getAllValues().get(0).getQueryObject().get("completedLessonBits.2", Document.class))
+                .containsEntry("$exists", false);
+        Map<String, Object> push = modifiers(updates.getAllValues().get(0).getUpdateObject().get("$push", Document.class)
+                .get("completedLessonBits"));
+        assertThat(push).containsEntry("$slice", 3);
+        assertThat((Object[]) push.get("$each")).containsExactly(0L, 0L, 0L);
+        assertThat(updates.getAllValues().get(1).getUpdateObject().get("$max", Document.class)).containsEntry("progressPercentage", 32);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(CourseProgress.class));
     }
 
     @Test
-    void markLessonCompleteSkipsDuplicateLesson() {
-        CourseProgress progress = new CourseProgress();
-        progress.setCompletedLessons(new java.util.ArrayList<>(List.of("lesson-1")));
-        progress.setLessonCompletionDates(new java.util.HashMap<>());
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+    void syncedProgressIsOneConditionalUpdateAcrossBitsetWords() {
+        CourseProgress stored = new CourseProgress();
+        stored.setCompletedLessonBits(new long[] {0b10L});
+        stored.setCurrentLessonAt(new Date(500));
+        CourseProgress updated = new CourseProgress();
+        updated.setCompletedLessonBits(new long[] {0b11L, 1L << 6});
+        updated.setProgressPercentage(100);
+        updated.setCompleted(true);
+        when(mongoTemplate.findOne(any(Query.class), eq(CourseProgress.class))).thenReturn(stored);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(updated);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(80));
+        Map<String, Date> completions = new java.util.LinkedHashMap<>();
+        completions.put("lesson-0", new Date(1_000));
+        completions.put("lesson-70", new Date(2_000));
+
+        CourseProgress result = service.applySyncedProgress("user-1", "course-1", completions, "lesson-70", new Date(2_000), 100,
+                new Date(1_000));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(1)).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class));
+        // Filtered on what the update was computed from
+        Document filter = query.getValue().getQueryObject();
+        assertThat(filter.get("completedLessonBits")).isEqualTo(List.of(0b10L));
+        assertThat(filter.get("completed", Document.class)).containsEntry("$ne", true);
+        assertThat(filter.get("currentLessonAt")).isEqualTo(new Date(500));
+        Document operations = update.getValue().getUpdateObject();
+        assertThat(operations.get("$set", Document.class))
+                .containsEntry("completedLessonBits", List.of(0b11L, 1L << 6))
+                .containsEntry("completed", true)
+                .containsEntry("currentLessonId", "lesson-70")
+                .containsEntry("currentLessonAt", new Date(2_000));
+        assertThat(operations.get("$min", Document.class))
+                .containsEntry("lessonCompletionDates.lesson-0", new Date(1_000))
+                .containsEntry("lessonCompletionDates.lesson-70", new Date(2_000))
+                .containsEntry("startedAt", new Date(1_000))
+                .containsKey("completedAt");
+        assertThat(operations.get("$max", Document.class)).containsEntry("progressPercentage", 100);
+        verify(activityLogService).logUserActivity("user-1", ActivityType.COURSE_COMPLETION, "Completed course",
+                "COURSE", "course-1", Map.of("courseId", "course-1"));
+        assertThat(result.isCompleted()).isTrue();
+    }
 
-        CourseProgress updated = service.markLessonComplete("user-1", "course-1", "lesson-1", new Date());
+    @Test
+    void syncedProgressIsComputedAgainWhenTheEnrollmentChangedMeanwhile() {
+        CourseProgress before = new CourseProgress();
+        CourseProgress after = new CourseProgress();
+        after.setCompletedLessonBits(new long[] {0b100L});
+        after.setProgressPercentage(25);
+        CourseProgress updated = new CourseProgress();
+        updated.setCompletedLessonBits(new long[] {0b101L});
+        updated.setProgressPercentage(50);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4));
+        when(mongoTemplate.findOne(any(Query.class), eq(CourseProgress.class))).thenReturn(before, after);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null, updated);
+
+        CourseProgress result = service.applySyncedProgress("user-1", "course-1", Map.of("lesson-0", new Date(1_000)),
+                null, null, null, null);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        // The lesson completed concurrently is kept in the second attempt
+        assertThat(query.getAllValues().get(1).getQueryObject().get("completedLessonBits")).isEqualTo(List.of(0b100L));
+        assertThat(update.getAllValues().get(1).getUpdateObject().get("$set", Document.class))
+                .containsEntry("completedLessonBits", List.of(0b101L));
+        assertThat(update.getAllValues().get(1).getUpdateObject().get("$max", Document.class))
+                .containsEntry("progressPercentage", 50);
+        assertThat(result).isSameAs(updated);
+        verifyNoInteractions(activityLogService);
+    }
 
-        assertThat(updated.getCompletedLessons()).containsExactly("lesson-1");
+    @Test
+    void syncedProgressGivesUpWhenTheEnrollmentKeepsChanging() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4));
+        when(mongoTemplate.findOne(any(Query.class), eq(CourseProgress.class))).thenReturn(new CourseProgress());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null);
+
+        assertThatThrownBy(() -> service.applySyncedProgress("user-1", "course-1", Map.of("lesson-0", new Date(1_000)),
+                null, null, null, null))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(CourseProgress.class));
     }
 
     @Test
     void markLessonCompleteThrowsWhenMissing() {
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.empty());
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null);
 
         assertThatThrownBy(() -> service.markLessonComplete("user-1", "course-1", "lesson-1", null))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessageContaining("not enrolled");
     }
 
+    @Test
+    void lessonsOutsideTheCourseAreRejectedBeforeTheyGetAnOrdinal() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4), (Course) null);
+
+        assertThatThrownBy(() -> service.markLessonComplete("user-1", "course-1", "made-up.$lesson", null))
+                .isInstanceOfSatisfying(org.springframework.web.server.ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(404));
+        assertThatThrownBy(() -> service.markLessonComplete("user-1", "gone", "lesson-1", null))
+                .isInstanceOfSatisfying(org.springframework.web.server.ResponseStatusException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("Course not found"));
+        verifyNoInteractions(lessonOrdinalService);
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(CourseProgress.class));
+    }
+
+    @Test
+    void syncedProgressWithALessonOutsideTheCourseIsRefused() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(4));
+
+        assertThatThrownBy(() -> service.applySyncedProgress("user-1", "course-1", Map.of("lesson-9", new Date()),
+                null, null, null, new Date()))
+                .isInstanceOfSatisfying(org.springframework.web.server.ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+        verifyNoInteractions(lessonOrdinalService);
+    }
+
     @Test
     void setCurrentLessonSetsStartedAt() {
         CourseProgress progress = new CourseProgress();
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        progress.setCurrentLessonId("lesson-1");
+        progress.setStartedAt(new Date());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(progress);
 
         CourseProgress updated = service.setCurrentLesson("user-1", "course-1", "lesson-1");
 
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class)).containsEntry("currentLessonId", "lesson-1");
+        assertThat(update.getValue().getUpdateObject().get("$min", Document.class)).containsKey("startedAt");
         assertThat(updated.getCurrentLessonId()).isEqualTo("lesson-1");
         assertThat(updated.getStartedAt()).isNotNull();
     }
 
     @Test
     void setCurrentLessonThrowsWhenNotEnrolled() {
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null);
 
         assertThatThrownBy(() -> service.setCurrentLesson("user-1", "course-1", "lesson-1"))
                 .isInstanceOf(RuntimeException.class)
@@ -237,17 +539,24 @@ class CourseProgressServiceTest {
 
     @Test
     void markCourseCompleteSetsCompletionAndCertificate() {
-        CourseProgress progress = new CourseProgress();
-        progress.setUserId("user-1");
-        progress.setCourseId("course-1");
-        progress.setCertificateUrl(null);
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        CourseProgress before = new CourseProgress();
+        before.setUserId("user-1");
+        before.setCourseId("course-1");
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(before);
 
         CourseProgress updated = service.markCourseComplete("user-1", "course-1", new Date());
 
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(1)).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        assertThat(query.getValue().getQueryObject().get("certificateUrl", Document.class)).containsKey("$in");
+        Document operations = update.getValue().getUpdateObject();
+        assertThat(operations.get("$set", Document.class)).containsEntry("completed", true).containsKey("certificateUrl");
+        assertThat(operations.get("$max", Document.class)).containsEntry("progressPercentage", 100);
+        assertThat(operations.get("$min", Document.class)).containsKeys("startedAt", "completedAt");
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
         assertThat(updated.isCompleted()).isTrue();
         assertThat(updated.getProgressPercentage()).isEqualTo(100);
         assertThat(updated.getCertificateUrl()).contains("course-1").contains("user-1");
@@ -264,54 +573,267 @@ class CourseProgressServiceTest {
 
     @Test
     void markCourseCompleteKeepsExistingCertificate() {
-        CourseProgress progress = new CourseProgress();
-        progress.setUserId("user-1");
-        progress.setCourseId("course-1");
-        progress.setCertificateUrl("existing");
-        progress.setStartedAt(new Date());
-        when(courseProgressRepository.findByUserIdAndCourseId("user-1", "course-1"))
-                .thenReturn(Optional.of(progress));
-        when(courseProgressRepository.save(any(CourseProgress.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        CourseProgress before = new CourseProgress();
+        before.setUserId("user-1");
+        before.setCourseId("course-1");
+        before.setCertificateUrl("existing");
+        before.setStartedAt(new Date(1_000));
+        before.setCompleted(true);
+        // No match without a certificate, then the plain completion update
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(null, before);
 
         CourseProgress updated = service.markCourseComplete("user-1", "course-1", new Date());
 
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        assertThat(update.getAllValues().get(1).getUpdateObject().get("$set", Document.class)).doesNotContainKey("certificateUrl");
         assertThat(updated.getCertificateUrl()).isEqualTo("existing");
+        assertThat(updated.getStartedAt()).isEqualTo(new Date(1_000));
+        verify(activityLogService, never()).logUserActivity(anyString(), any(ActivityType.class), anyString(),
+                anyString(), anyString(), anyMap());
     }
 
     @Test
-    void cleanupOrphanedEnrollmentsDeletesMissingCourses() {
-        CourseProgress progress1 = new CourseProgress();
-        progress1.setCourseId("course-1");
-        progress1.setUserId("user-1");
-        CourseProgress progress2 = new CourseProgress();
-        progress2.setCourseId("course-2");
-        progress2.setUserId("user-2");
-        when(courseProgressRepository.findAll()).thenReturn(List.of(progress1, progress2));
+    void courseCompletionRacingLessonCompletionsKeepsEveryLesson() throws Exception {
+        // Stands in for the enrollment document; each findAndModify is applied atomically
+        CourseProgress stored = new CourseProgress();
+        stored.setUserId("user-1");
+        stored.setCourseId("course-1");
+        stored.setCompletedLessonBits(new long[1]);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(20));
+        // Only reached when a lesson completion raises the percentage, which depends on the interleaving
+        lenient().when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenAnswer(invocation -> {
+                    Document query = invocation.<Query>getArgument(0).getQueryObject();
+                    Document update = invocation.<UpdateDefinition>getArgument(1).getUpdateObject();
+                    synchronized (stored) {
+                        CourseProgress before = copy(stored);
+                        if (update.containsKey("$bit")) {
+                            Document bit = update.get("$bit", Document.class);
+                            stored.getCompletedLessonBits()[0] |= bit.get("completedLessonBits.0", Document.class).getLong("or");
+                            update.get("$min", Document.class).forEach((key, value) -> {
+                                if (key.startsWith("lessonCompletionDates.")) {
+                                    stored.getLessonCompletionDates().putIfAbsent(key.substring(22), (Date) value);
+                                }
+                            });
+                            return copy(stored);
+                        }
+                        if (query.containsKey("certificateUrl") && stored.getCertificateUrl() != null) {
+                            return null;
+                        }
+                        Document set = update.get("$set", Document.class);
+                        stored.setCompleted(true);
+                        stored.setProgressPercentage(100);
+                        if (set.containsKey("certificateUrl")) {
+                            stored.setCertificateUrl(set.getString("certificateUrl"));
+                        }
+                        return before;
+                    }
+                });
+
+        int threads = 4;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads + 1);
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int lesson = worker; lesson < 20; lesson += threads) {
+                    service.markLessonComplete("user-1", "course-1", "lesson-" + lesson, new Date());
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < 5; i++) {
+                service.markCourseComplete("user-1", "course-1", new Date());
+                service.updateProgress("user-1", "course-1", 100);
+            }
+            return null;
+        }));
+        start.countDown();
+        for (java.util.concurrent.Future<?> future : futures) {
+            future.get(10, java.util.concurrent.TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(stored.completedLessonCount()).isEqualTo(20);
+        assertThat(stored.getLessonCompletionDates()).hasSize(20);
+        assertThat(stored.isCompleted()).isTrue();
+        assertThat(stored.getCertificateUrl()).contains("course-1");
+        verify(activityLogService, times(1)).logUserActivity(eq("user-1"), eq(ActivityType.COURSE_COMPLETION),
+                anyString(), anyString(), anyString(), anyMap());
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
+    }
 
-        CourseService courseService = mock(CourseService.class);
-        when(courseService.getCourseById("course-1")).thenReturn(Optional.empty());
-        when(courseService.getCourseById("course-2")).thenReturn(Optional.of(new org.agra.agra_backend.model.Course()));
+    @Test
+    void cleanupOrphanedEnrollmentsDeletesMissingCoursesWithOneDeleteMany() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("courseId"), eq(CourseProgress.class), eq(String.class)))
+                .thenReturn(new java.util.ArrayList<>(java.util.Arrays.asList("course-1", "course-2", "course-3", null)));
+        when(mongoTemplate.find(any(Query.class), eq(Course.class))).thenReturn(List.of(course("course-2")));
+        when(mongoTemplate.remove(any(Query.class), eq(CourseProgress.class))).thenReturn(DeleteResult.acknowledged(7));
+
+        int deleted = service.cleanupOrphanedEnrollments();
+
+        assertThat(deleted).isEqualTo(7);
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).remove(removed.capture(), eq(CourseProgress.class));
+        assertThat(removed.getValue().getQueryObject().get("courseId", Document.class).get("$in", List.class))
+                .containsExactly("course-1", "course-3");
+        verify(courseProgressRepository, never()).findAll();
+    }
 
-        int deleted = service.cleanupOrphanedEnrollments(courseService);
+    @Test
+    void cleanupOrphanedEnrollmentsSkipsDeleteWhenEveryCourseExists() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("courseId"), eq(CourseProgress.class), eq(String.class)))
+                .thenReturn(List.of("course-1"));
+        when(mongoTemplate.find(any(Query.class), eq(Course.class))).thenReturn(List.of(course("course-1")));
 
-        assertThat(deleted).isEqualTo(1);
-        verify(courseProgressRepository).delete(progress1);
+        assertThat(service.cleanupOrphanedEnrollments()).isZero();
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(CourseProgress.class));
     }
 
     @Test
-    void cleanupOrphanedEnrollmentsIgnoresErrors() {
+    void deleteCourseEnrollmentsRemovesByCourseId() {
+        when(mongoTemplate.remove(any(Query.class), eq(CourseProgress.class))).thenReturn(DeleteResult.acknowledged(3));
+
+        assertThat(service.deleteCourseEnrollments("course-1")).isEqualTo(3);
+        verify(courseProgressRepository, never()).delete(any(CourseProgress.class));
+        verify(lessonOrdinalService).forget("course-1");
+    }
+
+    @Test
+    void recordQuizResultKeepsTheBestScoreAndCompletesTheLessonOnPass() {
         CourseProgress progress = new CourseProgress();
-        progress.setCourseId("course-1");
-        progress.setUserId("user-1");
-        when(courseProgressRepository.findAll()).thenReturn(List.of(progress));
+        progress.setCompletedLessonBits(new long[] {0b10L});
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(progress);
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(courseWithLessons(200));
+
+        assertThat(service.recordQuizResult("user-1", "course-1", "lesson-1", 80, true, new Date())).isTrue();
+
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(CourseProgress.class));
+        assertThat(update.getValue().getUpdateObject().get("$max", Document.class).get("quizScores.lesson-1")).isEqualTo(80);
+        verify(mongoTemplate).findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+    }
 
-        CourseService courseService = mock(CourseService.class);
-        when(courseService.getCourseById("course-1")).thenThrow(new RuntimeException("boom"));
+    @Test
+    void recordQuizResultReportsMissingEnrollmentAndSkipsCompletionOnFail() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 0L, null));
+
+        assertThat(service.recordQuizResult("user-1", "course-1", "lesson-1", 90, true, new Date())).isFalse();
+        assertThat(service.recordQuizResult("user-1", "course-1", "lesson-1", 40, false, new Date())).isTrue();
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(CourseProgress.class));
+    }
 
-        int deleted = service.cleanupOrphanedEnrollments(courseService);
+    @Test
+    void duplicateEnrollmentsAreMergedIntoTheEarliest() {
+        CourseProgress first = new CourseProgress();
+        first.setId("p1");
+        first.setCourseId("course-1");
+        first.setEnrolledAt(new Date(1_000));
+        first.setCompletedLessons(new java.util.ArrayList<>(List.of("lesson-1")));
+        first.setCompletedLessonBits(new long[] {0b10L});
+        first.setLessonCompletionDates(new java.util.HashMap<>(Map.of("lesson-1", new Date(5_000))));
+        CourseProgress second = new CourseProgress();
+        second.setId("p2");
+        second.setCourseId("course-1");
+        second.setEnrolledAt(new Date(2_000));
+        // lesson-3 is only in the legacy list, without an ordinal yet
+        second.setCompletedLessons(new java.util.ArrayList<>(List.of("lesson-1", "lesson-2", "lesson-3")));
+        second.setCompletedLessonBits(new long[] {0b110L, 1L});
+        second.setLessonCompletionDates(new java.util.HashMap<>(Map.of("lesson-1", new Date(3_000), "lesson-2", new Date(4_000))));
+        second.setProgressPercentage(40);
+        when(mongoTemplate.aggregate(any(org.springframework.data.mongodb.core.aggregation.Aggregation.class),
+                eq(CourseProgress.class), eq(Document.class)))
+                .thenReturn(new org.springframework.data.mongodb.core.aggregation.AggregationResults<>(
+                        List.of(new Document("ids", List.of("p1", "p2")).append("count", 2)), new Document()));
+        when(mongoTemplate.find(any(Query.class), eq(CourseProgress.class))).thenReturn(List.of(second, first));
+        when(mongoTemplate.remove(any(Query.class), eq(CourseProgress.class))).thenReturn(DeleteResult.acknowledged(1));
+        when(lessonOrdinalService.bits("course-1", List.of("lesson-1", "lesson-2", "lesson-3"))).thenReturn(new long[] {0b1110L});
+
+        assertThat(service.mergeDuplicateEnrollments()).isEqualTo(1);
+
+        verify(mongoTemplate).save(first);
+        assertThat(first.getCompletedLessons()).containsExactly("lesson-1", "lesson-2", "lesson-3");
+        assertThat(first.getCompletedLessonBits()).containsExactly(0b1110L, 1L);
+        assertThat(first.getLessonCompletionDates()).containsEntry("lesson-1", new Date(3_000));
+        assertThat(first.getProgressPercentage()).isEqualTo(40);
+    }
 
-        assertThat(deleted).isZero();
-        verify(courseProgressRepository, never()).delete(any(CourseProgress.class));
+    @Test
+    void legacyCompletedLessonListsAreRewrittenAsBitsInBatches() {
+        CourseProgress legacy = new CourseProgress();
+        legacy.setId("p1");
+        legacy.setCourseId("course-1");
+        legacy.setCompletedLessons(new java.util.ArrayList<>(List.of("lesson-0", "lesson-65")));
+        org.springframework.data.mongodb.core.BulkOperations bulk = mock(org.springframework.data.mongodb.core.BulkOperations.class);
+        when(mongoTemplate.find(any(Query.class), eq(CourseProgress.class))).thenReturn(List.of(legacy), List.of());
+        when(mongoTemplate.bulkOps(org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED, CourseProgress.class))
+                .thenReturn(bulk);
+        when(lessonOrdinalService.bits("course-1", legacy.getCompletedLessons())).thenReturn(new long[] {1L, 2L});
+
+        service.compactCompletedLessons();
+
+        ArgumentCaptor<org.springframework.data.mongodb.core.query.Update> update =
+                ArgumentCaptor.forClass(org.springframework.data.mongodb.core.query.Update.class);
+        verify(bulk).updateOne(any(Query.class), update.capture());
+        verify(bulk).execute();
+        Document operations = update.getValue().getUpdateObject();
+        assertThat(operations.get("$set", Document.class)).containsEntry("completedLessonBits", List.of(1L, 2L));
+        assertThat(operations.get("$unset", Document.class)).containsKey("completedLessons");
+    }
+
+    private static CourseProgress copy(CourseProgress source) {
+        CourseProgress copy = new CourseProgress();
+        copy.setUserId(source.getUserId());
+        copy.setCourseId(source.getCourseId());
+        copy.setCompleted(source.isCompleted());
+        copy.setProgressPercentage(source.getProgressPercentage());
+        copy.setCertificateUrl(source.getCertificateUrl());
+        copy.setCompletedLessonBits(source.getCompletedLessonBits().clone());
+        copy.setLessonCompletionDates(new java.util.HashMap<>(source.getLessonCompletionDates()));
+        return copy;
+    }
+
+    private static Map<String, Object> modifiers(Object push) {
+        Map<String, Object> modifiers = new java.util.HashMap<>();
+        ((org.springframework.data.mongodb.core.query.Update.Modifiers) push).getModifiers()
+                .forEach(modifier -> modifiers.put(modifier.getKey(), modifier.getValue()));
+        return modifiers;
+    }
+
+    private static int ordinalOf(String lessonId) {
+        return Integer.parseInt(lessonId.substring(lessonId.indexOf('-') + 1));
+    }
+
+    private static Course courseWithLessons(int lessons) {
+        List<org.agra.agra_backend.model.TextContent> content = new java.util.ArrayList<>();
+        for (int i = 0; i < lessons; i++) {
+            org.agra.agra_backend.model.TextContent lesson = new org.agra.agra_backend.model.TextContent();
+            lesson.setId("lesson-" + i);
+            content.add(lesson);
+        }
+        Course course = course("course-1");
+        course.setTextContent(content);
+        return course;
+    }
+
+    private static Course course(String id) {
+        Course course = new Course();
+        course.setId(id);
+        return course;
     }
 }
@@ -0,0 +1,168 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.CourseProgress;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseRecommendationServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void similarCoursesNeedEnoughCoEnrollments() {
+        CourseRecommendationService.InteractionMatrix matrix = new CourseRecommendationService.InteractionMatrix();
+        for (String user : List.of("u1", "u2", "u3")) {
+            matrix.add(user, "soil", 1);
+            matrix.add(user, "irrigation", 1);
+        }
+        matrix.add("u4", "soil", 1);
+        matrix.add("u4", "poultry", 1);
+
+        CourseRecommendationService.SimilarityModel model = matrix.similarities(10, 2);
+
+        assertThat(model.similarTo("soil")).containsExactly("irrigation");
+        assertThat(model.similarTo("poultry")).isEmpty();
+    }
+
+    @Test
+    void completionsOutweighEnrollmentsAndDuplicatesCountOnce() {
+        CourseRecommendationService.InteractionMatrix matrix = new CourseRecommendationService.InteractionMatrix();
+        for (int i = 0; i < 4; i++) {
+            matrix.add("a" + i, "soil", 2);
+            matrix.add("a" + i, "irrigation", 2);
+            matrix.add("b" + i, "soil", 1);
+            matrix.add("b" + i, "poultry", 1);
+            // Re-enrollment rows must not inflate the pair
+            matrix.add("b" + i, "poultry", 1);
+        }
+
+        CourseRecommendationService.SimilarityModel model = matrix.similarities(10, 1);
+
+        assertThat(model.similarTo("soil")).containsExactly("irrigation", "poultry");
+        assertThat(model.similarTo("poultry")).containsExactly("soil");
+    }
+
+    @Test
+    void recommendMergesNeighbourListsAndSkipsSeedsAndExcluded() {
+        CourseRecommendationService.InteractionMatrix matrix = new CourseRecommendationService.InteractionMatrix();
+        for (int i = 0; i < 5; i++) {
+            matrix.add("x" + i, "soil", 1);
+            matrix.add("x" + i, "compost", 1);
+            matrix.add("y" + i, "irrigation", 1);
+            matrix.add("y" + i, "compost", 1);
+            matrix.add("z" + i, "irrigation", 1);
+            matrix.add("z" + i, "pumps", 1);
+        }
+        matrix.add("w", "soil", 1);
+        matrix.add("w", "pumps", 1);
+        matrix.add("w2", "soil", 1);
+        matrix.add("w2", "pumps", 1);
+        CourseRecommendationService service = new CourseRecommendationService(mongoTemplate, 10, 2, 2);
+        service.setModel(matrix.similarities(10, 2));
+
+        // compost is similar to both seeds, so it outranks pumps
+        assertThat(service.recommend(List.of("soil", "irrigation"), Set.of(), 5)).containsExactly("compost", "pumps");
+        assertThat(service.recommend(List.of("soil", "irrigation"), Set.of("compost"), 5)).containsExactly("pumps");
+        assertThat(service.recommend(List.of("unknown"), Set.of(), 5)).isEmpty();
+    }
+
+    @Test
+    void refreshBuildsModelFromCourseProgress() {
+        when(mongoTemplate.stream(any(Query.class), eq(CourseProgress.class))).thenReturn(Stream.of(
+                progress("u1", "soil", false), progress("u1", "compost", true),
+                progress("u2", "soil", true), progress("u2", "compost", false)));
+        CourseRecommendationService service = new CourseRecommendationService(mongoTemplate, 10, 2, 2);
+
+        service.refresh();
+
+        assertThat(service.recommend(List.of("soil"), Set.of(), 5)).containsExactly("compost");
+    }
+
+    @Test
+    void failedRefreshKeepsPreviousModel() {
+        when(mongoTemplate.stream(any(Query.class), eq(CourseProgress.class)))
+                .thenReturn(Stream.of(progress("u1", "soil", false), progress("u1", "compost", false),
+                        progress("u2", "soil", false), progress("u2", "compost", false)))
+                .thenThrow(new IllegalStateException("mongo down"));
+        CourseRecommendationService service = new CourseRecommendationService(mongoTemplate, 10, 2, 2);
+
+        service.refresh();
+        service.refresh();
+
+        assertThat(service.recommend(List.of("soil"), Set.of(), 5)).containsExactly("compost");
+    }
+
+    @Test
+    void benchmarkHundredThousandUsersFiveHundredCourses() {
+        int users = 100_000;
+        int courses = 500;
+        int domains = 25;
+        int perDomain = courses / domains;
+        Random random = new Random(42);
+        CourseRecommendationService.InteractionMatrix matrix = new CourseRecommendationService.InteractionMatrix();
+        // Each learner sticks mostly to one domain, with the occasional course from elsewhere
+        for (int u = 0; u < users; u++) {
+            int domain = random.nextInt(domains);
+            int enrollments = 3 + random.nextInt(10);
+            for (int e = 0; e < enrollments; e++) {
+                int course = random.nextInt(10) < 8
+                        ? domain * perDomain + random.nextInt(perDomain)
+                        : random.nextInt(courses);
+                matrix.add("user-" + u, "course-" + course, random.nextInt(4) == 0 ? 2 : 1);
+            }
+        }
+
+        long started = System.nanoTime();
+        CourseRecommendationService.SimilarityModel model = matrix.similarities(20, 2);
+        double buildMs = (System.nanoTime() - started) / 1e6;
+
+        CourseRecommendationService service = new CourseRecommendationService(mongoTemplate, 20, 2, 2);
+        service.setModel(model);
+        int requests = 10_000;
+        long served = System.nanoTime();
+        for (int r = 0; r < requests; r++) {
+            int domain = r % domains;
+            service.recommend(List.of("course-" + (domain * perDomain), "course-" + (domain * perDomain + 1)), Set.of(), 10);
+        }
+        double perRequestUs = (System.nanoTime() - served) / 1e3 / requests;
+
+        int sameDomain = 0;
+        int total = 0;
+        for (int c = 0; c < courses; c++) {
+            for (String similar : model.similarTo("course-" + c)) {
+                int other = Integer.parseInt(similar.substring("course-".length()));
+                sameDomain += other / perDomain == c / perDomain ? 1 : 0;
+                total++;
+            }
+        }
+        System.out.printf("Similarity build for %d users x %d courses (%d enrollments): %.0f ms; recommend: %.1f us/request; same-domain neighbours %d%%%n",
+                users, courses, matrix.size(), buildMs, perRequestUs, sameDomain * 100 / Math.max(1, total));
+        assertThat(model.courseCount()).isEqualTo(courses);
+        assertThat(sameDomain).isGreaterThan(total * 9 / 10);
+        assertThat(buildMs).isLessThan(30_000);
+    }
+
+    private static CourseProgress progress(String userId, String courseId, boolean completed) {
+        CourseProgress progress = new CourseProgress();
+        progress.setUserId(userId);
+        progress.setCourseId(courseId);
+        progress.setCompleted(completed);
+        return progress;
+    }
+}
@@ -0,0 +1,149 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.payload.CourseSearchResult;
+import org.agra.agra_backend.payload.CourseSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CourseSearchServiceTest {
+
+    @Mock
+    private CourseRepository courseRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+
+    @Test
+    void combinesFiltersCaseInsensitivelyAndDefaultsToActive() {
+        when(courseRepository.findAllSummaries()).thenReturn(catalog());
+        CourseSearchService service = new CourseSearchService(courseRepository, catalogVersionService, 60_000L);
+
+        CourseSearchResult result = service.search(List.of("gh", "TN"), List.of("Crops"), List.of("fr"), null, 0, 50);
+
+        assertThat(result.getCourses()).extracting(CourseSummary::getId).containsExactly("c1", "c4");
+        assertThat(result.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void facetCountsIgnoreTheirOwnFilter() {
+        when(courseRepository.findAllSummaries()).thenReturn(catalog());
+        CourseSearchService service = new CourseSearchService(courseRepository, catalogVersionService, 60_000L);
+
+        CourseSearchResult result = service.search(List.of("GH"), null, null, CourseSearchService.STATUS_ALL, 0, 50);
+
+        Map<String, Map<String, Integer>> facets = result.getFacets();
+        assertThat(facets.get(CourseSearchService.FACET_COUNTRY)).containsEntry("GH", 3).containsEntry("TN", 2);
+        assertThat(facets.get(CourseSearchService.FACET_DOMAIN)).containsEntry("Crops", 2).containsEntry("Livestock", 1);
+        assertThat(facets.get(CourseSearchService.FACET_LANG)).containsEntry("en", 3).containsEntry("fr", 1);
+        assertThat(facets.get(CourseSearchService.FACET_STATUS)).containsEntry("active", 2).containsEntry("archived", 1);
+    }
+
+    @Test
+    void pagesThroughMatchesInCatalogOrder() {
+        when(courseRepository.findAllSummaries()).thenReturn(catalog());
+        CourseSearchService service = new CourseSearchService(courseRepository, catalogVersionService, 60_000L);
+
+        CourseSearchResult second = service.search(null, null, null, CourseSearchService.STATUS_ALL, 1, 2);
+
+        assertThat(second.getCourses()).extracting(CourseSummary::getId).containsExactly("c3", "c4");
+        assertThat(second.getTotal()).isEqualTo(5);
+    }
+
+    @Test
+    void rebuildsOnlyWhenTheCatalogVersionMoves() {
+        when(courseRepository.findAllSummaries()).thenReturn(catalog());
+        when(catalogVersionService.localVersion()).thenReturn(1L, 1L, 2L);
+        when(catalogVersionService.catalogVersion()).thenReturn("7");
+        CourseSearchService service = new CourseSearchService(courseRepository, catalogVersionService, 60_000L);
+
+        service.search(null, null, null, null, 0, 10);
+        service.search(null, null, null, null, 0, 10);
+        verify(courseRepository, times(1)).findAllSummaries();
+
+        service.search(null, null, null, null, 0, 10);
+        verify(courseRepository, times(2)).findAllSummaries();
+    }
+
+    @Test
+    void picksUpWritesFromOtherInstancesAfterTheCheckInterval() {
+        when(courseRepository.findAllSummaries()).thenReturn(catalog());
+        when(catalogVersionService.catalogVersion()).thenReturn("7", "7", "8");
+        CourseSearchService service = new CourseSearchService(courseRepository, catalogVersionService, 0L);
+
+        service.search(null, null, null, null, 0, 10);
+        service.search(null, null, null, null, 0, 10);
+        service.search(null, null, null, null, 0, 10);
+
+        verify(courseRepository, times(2)).findAllSummaries();
+    }
+
+    @Test
+    void benchmarkCombinedQueriesOverFiveThousandCourses() {
+        String[] countries = {"GH", "TN", "KE", "NG", "SN", "MA", "EG", "RW"};
+        String[] domains = {"Crops", "Livestock", "Irrigation", "Soil", "Finance", "Markets"};
+        String[] languages = {"en", "fr", "ar"};
+        Random random = new Random(7);
+        List<CourseSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            CourseSummary summary = summary("c" + i, countries[random.nextInt(countries.length)],
+                    domains[random.nextInt(domains.length)], languages[random.nextInt(languages.length)], random.nextInt(10) == 0);
+            summary.setLanguagesAvailable(List.of(languages[random.nextInt(languages.length)]));
+            summaries.add(summary);
+        }
+        when(courseRepository.findAllSummaries()).thenReturn(summaries);
+        CourseSearchService service = new CourseSearchService(courseRepository, catalogVersionService, 60_000L);
+        service.search(null, null, null, null, 0, 20);
+
+        int queries = 20_000;
+        long total = 0;
+        long started = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            CourseSearchResult result = service.search(List.of(countries[q % countries.length]),
+                    List.of(domains[q % domains.length]), List.of(languages[q % languages.length]), null, 0, 20);
+            total += result.getTotal();
+        }
+        double perQueryUs = (System.nanoTime() - started) / 1e3 / queries;
+
+        System.out.printf("Faceted search over %d courses: %.1f us/query with facet counts (avg %d matches)%n",
+                summaries.size(), perQueryUs, total / queries);
+        assertThat(total).isPositive();
+        assertThat(perQueryUs).isLessThan(5_000);
+    }
+
+    private static List<CourseSummary> catalog() {
+        List<CourseSummary> catalog = new ArrayList<>();
+        CourseSummary c1 = summary("c1", "GH", "Crops", "en", false);
+        c1.setLanguagesAvailable(List.of("en", "fr"));
+        catalog.add(c1);
+        catalog.add(summary("c2", "gh", "Livestock", "en", false));
+        catalog.add(summary("c3", "GH", "crops", "en", true));
+        CourseSummary c4 = summary("c4", "TN", "Crops", "fr", false);
+        c4.setLanguagesAvailable(List.of("ar"));
+        catalog.add(c4);
+        catalog.add(summary("c5", "TN", "Livestock", "ar", false));
+        return catalog;
+    }
+
+    private static CourseSummary summary(String id, String country, String domain, String language, boolean archived) {
+        CourseSummary summary = new CourseSummary();
+        summary.setId(id);
+        summary.setCountry(country);
+        summary.setDomain(domain);
+        summary.setDefaultLanguage(language);
+        summary.setArchived(archived);
+        return summary;
+    }
+}
@@ -1,5 +1,6 @@
 package org.agra.agra_backend.service;
 
+import org.agra.agra_backend.config.RedisConfig;
 import org.agra.agra_backend.dao.CourseRepository;
 import org.agra.agra_backend.model.Course;
 import org.agra.agra_backend.model.CourseFile;
@@ -9,23 +10,32 @@ import org.agra.agra_backend.model.QuizAnswer;
 import org.agra.agra_backend.model.QuizQuestion;
 import org.agra.agra_backend.model.TextContent;
 import org.agra.agra_backend.model.TextContentTranslation;
+import org.agra.agra_backend.payload.CourseSummary;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -41,6 +51,8 @@ class CourseServiceTest {
     private CloudinaryService cloudinaryService;
     @Mock
     private CourseProgressService courseProgressService;
+    @Mock
+    private CatalogVersionService catalogVersionService;
 
     @InjectMocks
     private CourseService service;
@@ -62,6 +74,32 @@ class CourseServiceTest {
         assertThat(created.getImageUrl()).isEqualTo(DEFAULT_IMAGE);
         assertThat(created.getThumbnailUrl()).isEqualTo(DEFAULT_IMAGE);
         assertThat(created.getDetailImageUrl()).isEqualTo(DEFAULT_IMAGE);
+        verify(catalogVersionService).courseChanged(created);
+    }
+
+    @Test
+    void createCourseQueuesImageAndKeepsDefaultUntilProcessed() throws IOException {
+        MediaProcessingService mediaProcessingService = mock(MediaProcessingService.class);
+        CourseService asyncService = new CourseService(courseRepository, cloudinaryService, courseProgressService, mediaProcessingService, null, null, null);
+        MultipartFile image = mock(MultipartFile.class);
+        when(image.isEmpty()).thenReturn(false);
+        java.nio.file.Path spooled = java.nio.file.Path.of("spool", "course.upload");
+        when(mediaProcessingService.spool(image)).thenReturn(spooled);
+        when(courseRepository.save(any(Course.class))).thenAnswer(invocation -> {
+            Course saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId("course-1");
+            }
+            return saved;
+        });
+        when(mediaProcessingService.submitCourseImage("course-1", null, spooled, "courses/course-1")).thenReturn(true);
+
+        Course created = asyncService.createCourse(new Course(), image);
+
+        assertThat(created.getMediaStatus()).isEqualTo(MediaProcessingService.STATUS_PENDING);
+        assertThat(created.getImageUrl()).isEqualTo(DEFAULT_IMAGE);
+        assertThat(created.getThumbnailUrl()).isEqualTo(DEFAULT_IMAGE);
+        verifyNoInteractions(cloudinaryService);
     }
 
     @Test
@@ -81,20 +119,83 @@ class CourseServiceTest {
     }
 
     @Test
-    void deleteCourseUnenrollsUsersAndDeletesCourse() {
-        CourseProgress progress1 = new CourseProgress();
-        progress1.setUserId("user-1");
-        CourseProgress progress2 = new CourseProgress();
-        progress2.setUserId("user-2");
+    void updateCourseRejectsAStaleVersionWithoutSaving() {
+        Course existing = new Course();
+        existing.setId("course-1");
+        existing.setVersion(4L);
+        Course update = new Course();
+        update.setVersion(3L);
+        when(courseRepository.findById("course-1")).thenReturn(Optional.of(existing));
 
-        when(courseProgressService.getCourseEnrollments("course-1"))
-                .thenReturn(List.of(progress1, progress2));
+        assertThatThrownBy(() -> service.updateCourse("course-1", update, null))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(courseRepository, never()).save(any(Course.class));
+    }
 
+    @Test
+    void deleteCourseDeletesEnrollmentsInOneCallWithoutCascadeService() {
         service.deleteCourse("course-1");
 
-        verify(courseProgressService).unenrollUser("user-1", "course-1");
-        verify(courseProgressService).unenrollUser("user-2", "course-1");
         verify(courseRepository).deleteById("course-1");
+        verify(catalogVersionService).courseChanged("course-1");
+        verify(courseProgressService).deleteCourseEnrollments("course-1");
+        verify(courseProgressService, never()).unenrollUser(anyString(), anyString());
+    }
+
+    @Test
+    void deleteCourseHandsDependentsToBackgroundCascade() {
+        CourseDeletionService deletionService = mock(CourseDeletionService.class);
+        CourseService cascading = new CourseService(courseRepository, cloudinaryService, courseProgressService, null, null,
+                null, deletionService);
+
+        cascading.deleteCourse("course-1");
+
+        verify(courseRepository).deleteById("course-1");
+        verify(deletionService).cascade("course-1");
+        verifyNoInteractions(courseProgressService);
+    }
+
+    @Test
+    void filesAreAttachedToAFreshReadAndRetriedOnAVersionConflict() {
+        Course stale = new Course();
+        stale.setId("course-1");
+        stale.setVersion(1L);
+        Course fresh = new Course();
+        fresh.setId("course-1");
+        fresh.setVersion(2L);
+        fresh.setFiles(new ArrayList<>(List.of(new CourseFile("f0", "a.pdf", "pdf", "url", "pid", 1L, null))));
+        when(courseRepository.findById("course-1")).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(courseRepository.save(any(Course.class)))
+                .thenThrow(new OptimisticLockingFailureException("stale"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        CourseFile added = new CourseFile("f1", "b.pdf", "pdf", "url", "pid", 1L, null);
+
+        Optional<Course> saved = service.addFile("course-1", added);
+
+        assertThat(saved).get().extracting(Course::getVersion).isEqualTo(2L);
+        assertThat(saved.get().getFiles()).extracting(CourseFile::getId).containsExactly("f0", "f1");
+        assertThat(saved.get().getUpdatedAt()).isNotNull();
+        verify(courseRepository, times(2)).save(any(Course.class));
+    }
+
+    @Test
+    void removingAFileReportsWhatWasRemovedAndGivesUpAfterRepeatedConflicts() {
+        when(courseRepository.findById("course-1")).thenAnswer(invocation -> {
+            Course course = new Course();
+            course.setId("course-1");
+            course.setFiles(new ArrayList<>(List.of(new CourseFile("f0", "a.pdf", "pdf", "url", "pid", 1L, null))));
+            return Optional.of(course);
+        });
+        when(courseRepository.findById("gone")).thenReturn(Optional.empty());
+
+        assertThat(service.removeFile("course-1", "missing")).isEmpty();
+        assertThat(service.removeFile("gone", "f0")).isEmpty();
+        verify(courseRepository, never()).save(any(Course.class));
+
+        when(courseRepository.save(any(Course.class))).thenThrow(new OptimisticLockingFailureException("stale"));
+        assertThatThrownBy(() -> service.removeFile("course-1", "f0"))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(courseRepository, times(3)).save(any(Course.class));
     }
 
     @Test
@@ -286,7 +387,7 @@ class CourseServiceTest {
         when(cloudinaryService.uploadImageToFolder(eq(file), anyString()))
                 .thenThrow(new IOException("upload failed"));
 
-        org.assertj.core.api.Assertions.assertThatThrownBy(() -> service.updateCourse("course-1", update, file))
+        assertThatThrownBy(() -> service.updateCourse("course-1", update, file))
                 .isInstanceOf(CourseImageUploadException.class)
                 .hasMessageContaining("courseId=course-1");
     }
@@ -416,6 +517,274 @@ class CourseServiceTest {
         assertThat(localized.getTitle()).isEqualTo("Arabic");
     }
 
+    @Test
+    void localizeCourseReusesProjectionUntilCourseChanges() {
+        Course course = translatedCourse("course-1", "Titre", new java.util.Date(1_000L));
+
+        Course first = service.localizeCourse(course, Locale.FRENCH);
+        Course second = service.localizeCourse(course, Locale.FRENCH);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getTextContent()).isSameAs(first.getTextContent());
+
+        Course edited = translatedCourse("course-1", "Nouveau titre", new java.util.Date(2_000L));
+        Course afterEdit = service.localizeCourse(edited, Locale.FRENCH);
+
+        assertThat(afterEdit.getTitle()).isEqualTo("Nouveau titre");
+        assertThat(afterEdit.getTextContent()).isNotSameAs(first.getTextContent());
+    }
+
+    @Test
+    void updateCourseRefreshesProjectionEagerly() throws IOException {
+        java.util.Date version = new java.util.Date(1_000L);
+        Course stored = translatedCourse("course-1", "Titre", version);
+        service.localizeCourse(stored, Locale.FRENCH);
+        when(courseRepository.findById("course-1")).thenReturn(Optional.of(stored));
+        when(courseRepository.save(any(Course.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Course update = translatedCourse("course-1", "Mis a jour", null);
+        stored.setImageUrl(DEFAULT_IMAGE);
+
+        Course updated = service.updateCourse("course-1", update, null).orElseThrow();
+        // Same timestamp as the stored projection: only the eager refresh can make the new title visible
+        updated.setUpdatedAt(version);
+
+        assertThat(service.localizeCourse(updated, Locale.FRENCH).getTitle()).isEqualTo("Mis a jour");
+    }
+
+    @Test
+    void localizeCourseSetsLikedOnCopyOnly() {
+        Course liked = translatedCourse("course-1", "Titre", new java.util.Date(1_000L));
+        liked.setLiked(true);
+        Course notLiked = translatedCourse("course-1", "Titre", new java.util.Date(1_000L));
+
+        assertThat(service.localizeCourse(liked, Locale.FRENCH).isLiked()).isTrue();
+        assertThat(service.localizeCourse(notLiked, Locale.FRENCH).isLiked()).isFalse();
+    }
+
+    @Test
+    void localizeCourseCopiesEveryCourseField() throws Exception {
+        Course source = new Course();
+        for (java.lang.reflect.Field field : Course.class.getDeclaredFields()) {
+            if (java.lang.reflect.Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            field.set(source, sampleValue(field));
+        }
+
+        Course localized = service.localizeCourse(source, Locale.ENGLISH);
+
+        for (java.lang.reflect.Field field : Course.class.getDeclaredFields()) {
+            if (!java.lang.reflect.Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                assertThat(field.get(localized)).as(field.getName()).isEqualTo(field.get(source));
+            }
+        }
+    }
+
+    @Test
+    void benchmarkProjectionAgainstPerRequestLocalization() {
+        List<Course> catalog = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            catalog.add(largeCourse("course-" + i));
+        }
+        int rounds = 10;
+
+        long reflective = time(rounds, () -> {
+            for (Course course : catalog) {
+                Course copy = new Course();
+                org.springframework.beans.BeanUtils.copyProperties(course, copy);
+                // Old path: re-normalize lessons on every request
+                service.invalidateProjection(course.getId());
+                service.localizeCourse(course, Locale.FRENCH);
+            }
+        });
+        service.localizeCourses(catalog, Locale.FRENCH);
+        long projected = time(rounds, () -> service.localizeCourses(catalog, Locale.FRENCH));
+
+        System.out.printf("Localizing %d courses x %d rounds: per-request %d ms, projected %d ms%n",
+                catalog.size(), rounds, reflective / 1_000_000, projected / 1_000_000);
+        assertThat(projected).isLessThan(reflective);
+    }
+
+    @Test
+    void localizeSummariesResolvesTextAndDropsTranslations() {
+        CourseSummary cached = new CourseSummary();
+        cached.setId("course-1");
+        cached.setDefaultLanguage("en");
+        cached.setLessonCount(12);
+        CourseTranslation fr = new CourseTranslation();
+        fr.setTitle("Titre");
+        fr.setDescription("Resume");
+        CourseTranslation en = new CourseTranslation();
+        en.setTitle("Title");
+        cached.setTranslations(Map.of("fr", fr, "en", en));
+
+        CourseSummary localized = service.localizeSummaries(List.of(cached), Locale.FRENCH).get(0);
+
+        assertThat(localized).isNotSameAs(cached);
+        assertThat(localized.getTitle()).isEqualTo("Titre");
+        assertThat(localized.getDescription()).isEqualTo("Resume");
+        assertThat(localized.getLessonCount()).isEqualTo(12);
+        assertThat(localized.getTranslations()).isNull();
+        assertThat(cached.getTranslations()).hasSize(2);
+        assertThat(cached.getTitle()).isNull();
+    }
+
+    @Test
+    void summaryProjectionIsValidPipelineStage() {
+        org.bson.Document stage = org.bson.Document.parse(org.agra.agra_backend.dao.CourseRepository.SUMMARY_PROJECTION);
+
+        org.bson.Document project = stage.get("$project", org.bson.Document.class);
+        assertThat(project).containsKeys("translations", "imageUrl", "lessonCount", "fileCount")
+                .doesNotContainKeys("textContent", "files");
+    }
+
+    @Test
+    void benchmarkSummaryAgainstFullDocumentCacheEntries() {
+        List<Course> courses = new ArrayList<>();
+        List<CourseSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Course course = largeCourse("course-" + i);
+            course.setFiles(List.of(new org.agra.agra_backend.model.CourseFile("f", "guide.pdf", "pdf",
+                    "https://cdn/guide.pdf", "courses/guide", 1024L, new java.util.Date())));
+            courses.add(course);
+            summaries.add(summaryOf(course));
+        }
+        org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer serializer =
+                new org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer();
+
+        byte[] fullEntry = serializer.serialize(courses);
+        byte[] summaryEntry = serializer.serialize(summaries);
+        long fullNanos = time(5, () -> serializer.deserialize(fullEntry));
+        long summaryNanos = time(5, () -> serializer.deserialize(summaryEntry));
+
+        System.out.printf("Catalog cache entry for %d courses: full %d KB / %d ms, summary %d KB / %d ms (5 reads)%n",
+                courses.size(), fullEntry.length / 1024, fullNanos / 1_000_000,
+                summaryEntry.length / 1024, summaryNanos / 1_000_000);
+        assertThat(summaryEntry.length * 10).isLessThan(fullEntry.length);
+        assertThat(summaryNanos).isLessThan(fullNanos);
+    }
+
+    private static CourseSummary summaryOf(Course course) {
+        CourseSummary summary = new CourseSummary();
+        summary.setId(course.getId());
+        summary.setDefaultLanguage(course.getDefaultLanguage());
+        summary.setTranslations(course.getTranslations());
+        summary.setDomain(course.getDomain());
+        summary.setCountry(course.getCountry());
+        summary.setImageUrl(course.getImageUrl());
+        summary.setLessonCount(course.getTextContent().size());
+        summary.setFileCount(course.getFiles().size());
+        summary.setUpdatedAt(course.getUpdatedAt());
+        return summary;
+    }
+
+    private static long time(int rounds, Runnable body) {
+        long started = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            body.run();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static Course translatedCourse(String id, String frenchTitle, java.util.Date updatedAt) {
+        Course course = new Course();
+        course.setId(id);
+        course.setDefaultLanguage("en");
+        course.setUpdatedAt(updatedAt);
+        CourseTranslation fr = new CourseTranslation();
+        fr.setTitle(frenchTitle);
+        course.setTranslations(new java.util.HashMap<>(Map.of("fr", fr)));
+        TextContent lesson = new TextContent();
+        lesson.setTitle(Map.of("fr", "Lecon"));
+        course.setTextContent(List.of(lesson));
+        return course;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getCoursesByIdsUsesOneCacheReadOneQueryAndOneBackFill() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        RedisCacheConfiguration cacheConfiguration = new RedisConfig().redisCacheConfiguration();
+        CourseService batched = new CourseService(courseRepository, cloudinaryService, courseProgressService, null, null,
+                new CacheBatchReader(redisTemplate, cacheConfiguration), null);
+        // 40 enrollments: the first 25 courses are cached, the other 15 are not
+        List<String> ids = new ArrayList<>();
+        List<String> cachedValues = new ArrayList<>();
+        List<Course> stored = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Course course = translatedCourse("c" + i, "Titre " + i, new java.util.Date(1_000L + i));
+            ids.add("c" + i);
+            if (i < 25) {
+                java.nio.ByteBuffer buffer = cacheConfiguration.getValueSerializationPair().write(course);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                cachedValues.add(new String(bytes, java.nio.charset.StandardCharsets.UTF_8));
+            } else {
+                cachedValues.add(null);
+                stored.add(course);
+            }
+        }
+        when(valueOps.multiGet(anyList())).thenReturn(cachedValues);
+        when(courseRepository.findAllById(ids.subList(25, 40))).thenReturn(stored);
+
+        List<Course> courses = batched.getCoursesByIds(ids, Locale.FRENCH);
+
+        assertThat(courses).extracting(Course::getId).containsExactlyElementsOf(ids);
+        assertThat(courses.get(0).getTitle()).isEqualTo("Titre 0");
+        verify(valueOps, times(1)).multiGet(anyList());
+        verify(courseRepository, times(1)).findAllById(any());
+        verify(valueOps, times(1)).multiSet(argThat(entries -> entries.size() == 15
+                && entries.containsKey("courses:detail::c39")));
+        verify(courseRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void getCoursesByIdsWithoutRedisLoadsEverythingInOneQuery() {
+        Course course = translatedCourse("c1", "Titre", new java.util.Date(1_000L));
+        when(courseRepository.findAllById(List.of("c1", "gone"))).thenReturn(List.of(course));
+
+        List<Course> courses = service.getCoursesByIds(List.of("c1", "gone", "c1"), Locale.ENGLISH);
+
+        assertThat(courses).extracting(Course::getId).containsExactly("c1");
+        verify(courseRepository, never()).findById(anyString());
+    }
+
+    private static Course largeCourse(String id) {
+        Course course = translatedCourse(id, "Titre " + id, new java.util.Date(1_000L));
+        List<TextContent> lessons = new ArrayList<>();
+        for (int l = 0; l < 20; l++) {
+            TextContent lesson = new TextContent();
+            lesson.setId(id + "-l" + l);
+            lesson.setTitle(Map.of("en", "Lesson " + l, "fr", "Lecon " + l));
+            lesson.setContent(Map.of("en", "Body " + l, "fr", "Corps " + l));
+            List<QuizQuestion> questions = new ArrayList<>();
+            for (int q = 0; q < 5; q++) {
+                questions.add(new QuizQuestion("q" + q, Map.of("en", "Q" + q, "fr", "Q" + q),
+                        List.of(new QuizAnswer("a", Map.of("en", "A", "fr", "A"), true),
+                                new QuizAnswer("b", Map.of("en", "B", "fr", "B"), false))));
+            }
+            lesson.setQuizQuestions(questions);
+            lessons.add(lesson);
+        }
+        course.setTextContent(lessons);
+        return course;
+    }
+
+    private static Object sampleValue(java.lang.reflect.Field field) {
+        Class<?> type = field.getType();
+        if (type == String.class) return "value-" + field.getName();
+        if (type == boolean.class) return true;
+        if (type == Long.class) return 42L;
+        if (type == java.util.Date.class) return new java.util.Date(42L);
+        if (type == List.class) return List.of();
+        if (type == Map.class) return Map.of();
+        throw new IllegalStateException("Add a sample value for Course." + field.getName());
+    }
+
     @Test
     void localizeCoursesReturnsEmptyWhenNoCourses() {
         List<Course> result = service.localizeCourses(List.of(), Locale.ENGLISH);
@@ -0,0 +1,177 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseTranslation;
+import org.agra.agra_backend.payload.CourseSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseSnapshotServiceTest {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().findAndAddModules().build();
+
+    @Mock
+    private CourseRepository courseRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @TempDir
+    Path root;
+
+    private final AtomicLong localVersion = new AtomicLong(3);
+    private CourseSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        CourseService courseService = new CourseService(courseRepository, null, null, null, null, null, null);
+        service = new CourseSnapshotService(courseService, mongoTemplate, JSON, catalogVersionService,
+                true, root.toString(), List.of("en", "fr"));
+        lenient().when(catalogVersionService.localVersion()).thenAnswer(invocation -> localVersion.get());
+        lenient().when(catalogVersionService.catalogEtag(any(Locale.class), isNull()))
+                .thenAnswer(invocation -> "\"c7-" + ((Locale) invocation.getArgument(0)).toLanguageTag() + "\"");
+        lenient().when(catalogVersionService.courseEtag(any(Course.class), any(Locale.class), isNull()))
+                .thenAnswer(invocation -> "\"h1-" + ((Locale) invocation.getArgument(1)).toLanguageTag() + "\"");
+        lenient().when(courseRepository.findAllSummaries()).thenReturn(List.of(summary()));
+        lenient().when(courseRepository.findActiveSummaries()).thenReturn(List.of());
+        lenient().when(mongoTemplate.stream(any(Query.class), eq(Course.class))).thenAnswer(invocation -> Stream.of(course()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void refreshRendersGzipJsonPerLocaleWithTheControllersValidators() throws IOException {
+        when(catalogVersionService.catalogVersion()).thenReturn("7");
+
+        service.refresh();
+
+        CourseSnapshotService.SnapshotFile catalog = service.catalog(CourseSnapshotService.CATALOG_ALL, Locale.FRENCH).orElseThrow();
+        assertThat(catalog.getEtag()).isEqualTo("\"c7-fr\"");
+        assertThat(catalog.getLength()).isEqualTo(Files.size(catalog.getPath()));
+        assertThat(read(catalog).get(0).get("title").asText()).isEqualTo("Sols vivants");
+        assertThat(read(service.catalog(CourseSnapshotService.CATALOG_ACTIVE, Locale.ENGLISH).orElseThrow())).isEmpty();
+
+        CourseSnapshotService.SnapshotFile detail = service.course("c1", Locale.ENGLISH).orElseThrow();
+        assertThat(detail.getEtag()).isEqualTo("\"h1-en\"");
+        assertThat(read(detail).get("title").asText()).isEqualTo("Living soils");
+        assertThat(service.course("other", Locale.ENGLISH)).isEmpty();
+    }
+
+    @Test
+    void localWriteStopsServingAndTheNextGenerationReusesUnchangedCourses() throws IOException {
+        when(catalogVersionService.catalogVersion()).thenReturn("7", "7", "8", "8", "9", "9");
+        service.refresh();
+        Path first = service.course("c1", Locale.FRENCH).orElseThrow().getPath();
+        byte[] rendered = Files.readAllBytes(first);
+
+        localVersion.incrementAndGet();
+        assertThat(service.catalog(CourseSnapshotService.CATALOG_ALL, Locale.FRENCH)).isEmpty();
+
+        service.refresh();
+        Path second = service.course("c1", Locale.FRENCH).orElseThrow().getPath();
+        localVersion.incrementAndGet();
+        service.refresh();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(Files.readAllBytes(second)).isEqualTo(rendered);
+        // Only the served generation and the one before it are kept
+        assertThat(first).doesNotExist();
+        // Detail files were rendered once per locale; later generations linked them
+        verify(catalogVersionService, times(2)).courseEtag(anyString(), any(Locale.class), isNull());
+        try (Stream<Path> generations = Files.list(root)) {
+            assertThat(generations.count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void generationWrittenToWhileRenderingIsDiscarded() throws IOException {
+        when(catalogVersionService.catalogVersion()).thenReturn("7", "8");
+
+        service.refresh();
+
+        assertThat(service.catalog(CourseSnapshotService.CATALOG_ALL, Locale.ENGLISH)).isEmpty();
+        try (Stream<Path> generations = Files.list(root)) {
+            assertThat(generations.count()).isZero();
+        }
+    }
+
+    @Test
+    void disabledWithoutVersionTracking() {
+        CourseSnapshotService untracked = new CourseSnapshotService(
+                new CourseService(courseRepository, null, null, null, null, null, null), mongoTemplate, JSON, null,
+                true, root.toString(), List.of("en"));
+
+        untracked.refresh();
+
+        assertThat(untracked.catalog(CourseSnapshotService.CATALOG_ALL, Locale.ENGLISH)).isEmpty();
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static JsonNode read(CourseSnapshotService.SnapshotFile file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.getPath()))) {
+            return JSON.readTree(in);
+        }
+    }
+
+    private static Map<String, CourseTranslation> translations() {
+        return Map.of("en", translation("Living soils"), "fr", translation("Sols vivants"));
+    }
+
+    private static CourseTranslation translation(String title) {
+        CourseTranslation translation = new CourseTranslation();
+        translation.setTitle(title);
+        return translation;
+    }
+
+    private static CourseSummary summary() {
+        CourseSummary summary = new CourseSummary();
+        summary.setId("c1");
+        summary.setDefaultLanguage("en");
+        summary.setTranslations(translations());
+        summary.setUpdatedAt(new Date(1_000L));
+        return summary;
+    }
+
+    private static Course course() {
+        Course course = new Course();
+        course.setId("c1");
+        course.setDefaultLanguage("en");
+        course.setTranslations(translations());
+        course.setUpdatedAt(new Date(1_000L));
+        return course;
+    }
+}
@@ -0,0 +1,142 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.payload.CourseImportReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseTransferServiceTest {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CourseRepository courseRepository;
+    @Mock
+    private CatalogVersionService catalogVersionService;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private CourseService courseService;
+    private CourseTransferService service;
+
+    @BeforeEach
+    void setUp() {
+        courseService = new CourseService(courseRepository, null, null, null, null, null, null);
+        service = new CourseTransferService(mongoTemplate, courseService, catalogVersionService, 2);
+    }
+
+    @Test
+    void importUpsertsInBatchesReportsBadLinesAndInvalidatesOnce() throws Exception {
+        Course stored = courseService.prepareImported(JSON.readValue(line("c1", "Soil basics", "Soil"), Course.class));
+        stored.setVersion(4L);
+        when(mongoTemplate.find(any(Query.class), eq(Course.class))).thenReturn(List.of(stored), List.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Course.class)).thenReturn(bulkOperations);
+        String file = String.join("\n",
+                line("c1", "Soil basics", "Water"),
+                "{not json",
+                line("c2", "Irrigation", "Water"),
+                "",
+                "{\"id\":\"c3\",\"domain\":\"Water\"}",
+                line(null, "Composting", "Soil"));
+
+        CourseImportReport report = service.importCourses(stream(file), false);
+
+        assertThat(report.getProcessed()).isEqualTo(5);
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(CourseImportReport.LineError::getLine).containsExactly(2L, 5L);
+        assertThat(report.getChanges()).filteredOn(entry -> "c1".equals(entry.getCourseId())).singleElement()
+                .satisfies(entry -> assertThat(entry.getChangedFields()).containsExactly("domain"));
+
+        ArgumentCaptor<Object> replaced = ArgumentCaptor.forClass(Object.class);
+        verify(bulkOperations, times(3)).replaceOne(any(Query.class), replaced.capture(), any(FindAndReplaceOptions.class));
+        verify(bulkOperations, times(2)).execute();
+        Course updated = (Course) replaced.getAllValues().get(0);
+        assertThat(updated.getVersion()).isEqualTo(5L);
+        assertThat(updated.getTranslations().get("en").getTitle()).isEqualTo("Soil basics");
+        assertThat(((Course) replaced.getAllValues().get(2)).getId()).isNotBlank();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> invalidated = ArgumentCaptor.forClass(Collection.class);
+        verify(catalogVersionService, times(1)).coursesChanged(invalidated.capture());
+        assertThat(invalidated.getValue()).hasSize(3).contains("c1", "c2");
+    }
+
+    @Test
+    void dryRunReportsDiffsWithoutWriting() throws Exception {
+        Course same = courseService.prepareImported(JSON.readValue(line("c1", "Soil basics", "Soil"), Course.class));
+        Course changed = courseService.prepareImported(JSON.readValue(line("c2", "Irrigation", "Soil"), Course.class));
+        when(mongoTemplate.find(any(Query.class), eq(Course.class))).thenReturn(List.of(same, changed));
+
+        CourseImportReport report = service.importCourses(
+                stream(line("c1", "Soil basics", "Soil") + "\n" + line("c2", "Drip irrigation", "Soil")), true);
+
+        assertThat(report.isDryRun()).isTrue();
+        assertThat(report.getUnchanged()).isEqualTo(1);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getChanges()).singleElement().satisfies(entry -> {
+            assertThat(entry.getCourseId()).isEqualTo("c2");
+            assertThat(entry.getAction()).isEqualTo(CourseTransferService.ACTION_UPDATE);
+            assertThat(entry.getChangedFields()).containsExactly("translations");
+        });
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Course.class));
+        verifyNoInteractions(catalogVersionService);
+    }
+
+    @Test
+    void exportWritesOneParsableLinePerCourse() throws Exception {
+        Course first = JSON.readValue(line("c1", "Soil basics", "Soil"), Course.class);
+        Course second = JSON.readValue(line("c2", "Irrigation", "Water"), Course.class);
+        when(mongoTemplate.stream(any(Query.class), eq(Course.class))).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = service.exportCourses(output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(JSON.readValue(lines[1], Course.class).getDomain()).isEqualTo("Water");
+        assertThat(lines[0]).doesNotContain("null");
+    }
+
+    private static String line(String id, String title, String domain) {
+        String idField = id == null ? "" : "\"id\":\"" + id + "\",";
+        return "{" + idField + "\"defaultLanguage\":\"en\",\"domain\":\"" + domain + "\","
+                + "\"translations\":{\"en\":{\"title\":\"" + title + "\"}},"
+                + "\"textContent\":[{\"id\":\"l1\",\"order\":1,\"type\":\"TEXT\",\"title\":{\"en\":\"Intro\"},\"content\":{\"en\":\"Body\"}}]}";
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
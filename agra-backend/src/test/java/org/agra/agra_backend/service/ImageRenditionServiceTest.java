@@ -0,0 +1,189 @@
+package org.agra.agra_backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageRenditionServiceTest {
+
+    @TempDir
+    Path workDir;
+
+    private ImageRenditionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ImageRenditionService(320, 960, 1920, 0.8f, "auto", 100_000_000L, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void rendersBoundedRenditionsSmallerThanSource() throws IOException {
+        Path source = writeSample("camera.jpg", 4000, 3000, "jpg");
+
+        List<ImageRenditionService.Rendition> renditions = service.render(source, workDir.resolve("out"));
+
+        assertThat(renditions).extracting(ImageRenditionService.Rendition::getName)
+                .containsExactly(ImageRenditionService.FULL, ImageRenditionService.MEDIUM, ImageRenditionService.THUMB);
+        assertThat(renditions).extracting(r -> r.getWidth() + "x" + r.getHeight())
+                .containsExactly("1920x1440", "960x720", "320x240");
+        for (ImageRenditionService.Rendition rendition : renditions) {
+            BufferedImage written = ImageIO.read(rendition.getPath().toFile());
+            assertThat(written.getWidth()).isEqualTo(rendition.getWidth());
+            assertThat(rendition.getSizeBytes()).isEqualTo(Files.size(rendition.getPath()));
+        }
+        assertThat(renditions.get(0).getSizeBytes()).isLessThan(Files.size(source));
+        assertThat(renditions.get(2).getSizeBytes()).isLessThan(renditions.get(1).getSizeBytes());
+    }
+
+    @Test
+    void smallTransparentSourceIsNotUpscaledAndSharesOneFile() throws IOException {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        Path source = workDir.resolve("logo.png");
+        ImageIO.write(image, "png", source.toFile());
+
+        List<ImageRenditionService.Rendition> renditions = service.render(source, workDir.resolve("out"));
+
+        assertThat(renditions).hasSize(3)
+                .allSatisfy(r -> assertThat(r.getWidth() + "x" + r.getHeight()).isEqualTo("200x100"));
+        assertThat(renditions).extracting(ImageRenditionService.Rendition::getPath).containsOnly(renditions.get(0).getPath());
+        // Transparent pixels are flattened onto white rather than black
+        BufferedImage written = ImageIO.read(renditions.get(0).getPath().toFile());
+        assertThat(new Color(written.getRGB(100, 50)).getRed()).isGreaterThan(240);
+    }
+
+    @Test
+    void renderOnlyRequestedRenditions() throws IOException {
+        Path source = writeSample("avatar.jpg", 1200, 1600, "jpg");
+
+        List<ImageRenditionService.Rendition> renditions =
+                service.render(source, workDir.resolve("out"), List.of(ImageRenditionService.MEDIUM));
+
+        assertThat(renditions).singleElement().satisfies(r -> {
+            assertThat(r.getName()).isEqualTo(ImageRenditionService.MEDIUM);
+            assertThat(r.getWidth()).isEqualTo(720);
+            assertThat(r.getHeight()).isEqualTo(960);
+        });
+    }
+
+    @Test
+    void undecodableSourceYieldsNoRenditions() throws IOException {
+        Path source = workDir.resolve("clip.heic");
+        Files.write(source, new byte[]{0, 0, 0, 24, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c'});
+
+        assertThat(service.render(source, workDir.resolve("out"))).isEmpty();
+    }
+
+    @Test
+    void exifOrientationIsReadFromBothByteOrders() {
+        assertThat(ImageRenditionService.orientationFromExif(exif(false, 6))).isEqualTo(6);
+        assertThat(ImageRenditionService.orientationFromExif(exif(true, 8))).isEqualTo(8);
+        assertThat(ImageRenditionService.orientationFromExif(new byte[]{'J', 'F', 'I', 'F'})).isEqualTo(1);
+    }
+
+    @Test
+    void fitKeepsAspectRatioAndNeverUpscales() {
+        assertThat(ImageRenditionService.fit(4000, 3000, 1920)).containsExactly(1920, 1440);
+        assertThat(ImageRenditionService.fit(3000, 4000, 320)).containsExactly(240, 320);
+        assertThat(ImageRenditionService.fit(300, 200, 960)).containsExactly(300, 200);
+    }
+
+    @Test
+    void benchmarkPayloadSizeAndThroughput() throws Exception {
+        int samples = 4;
+        long sourceBytes = 0;
+        long mediumBytes = 0;
+        long thumbBytes = 0;
+        Path[] sources = new Path[samples];
+        for (int i = 0; i < samples; i++) {
+            sources[i] = writeSample("sample-" + i + ".jpg", 4032, 3024, "jpg");
+            sourceBytes += Files.size(sources[i]);
+        }
+
+        long started = System.nanoTime();
+        for (Path source : sources) {
+            for (ImageRenditionService.Rendition rendition : service.render(source, workDir.resolve("bench"))) {
+                if (ImageRenditionService.MEDIUM.equals(rendition.getName())) {
+                    mediumBytes += rendition.getSizeBytes();
+                } else if (ImageRenditionService.THUMB.equals(rendition.getName())) {
+                    thumbBytes += rendition.getSizeBytes();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("Rendered %d 12MP samples (%s) in %.2fs (%.1f images/s); avg source %d KB, medium %d KB, thumb %d KB%n",
+                samples, service.getContentType(), seconds, samples / seconds,
+                sourceBytes / samples / 1024, mediumBytes / samples / 1024, thumbBytes / samples / 1024);
+        // A feed card downloads the medium rendition instead of the camera original
+        assertThat(mediumBytes).isLessThan(sourceBytes / 5);
+        assertThat(thumbBytes).isLessThan(mediumBytes / 4);
+    }
+
+    // Smooth gradient plus sensor-like noise so JPEG sizes resemble real photos
+    private Path writeSample(String name, int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(40, 120, 60), width, height, new Color(200, 180, 90)));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        Random random = new Random(name.hashCode());
+        for (int y = 0; y < height; y += 2) {
+            for (int x = 0; x < width; x += 2) {
+                int rgb = image.getRGB(x, y);
+                int delta = random.nextInt(24) - 12;
+                int r = clamp(((rgb >> 16) & 0xFF) + delta);
+                int gr = clamp(((rgb >> 8) & 0xFF) + delta);
+                int b = clamp((rgb & 0xFF) + delta);
+                image.setRGB(x, y, (r << 16) | (gr << 8) | b);
+            }
+        }
+        Path path = workDir.resolve(name);
+        ImageIO.write(image, format, path.toFile());
+        return path;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static byte[] exif(boolean littleEndian, int orientation) {
+        byte[] data = new byte[6 + 8 + 2 + 12];
+        System.arraycopy(new byte[]{'E', 'x', 'i', 'f', 0, 0}, 0, data, 0, 6);
+        data[6] = (byte) (littleEndian ? 'I' : 'M');
+        data[7] = data[6];
+        writeShort(data, 8, 42, littleEndian);
+        // IFD0 starts right after the 8-byte TIFF header
+        writeShort(data, littleEndian ? 10 : 12, 8, littleEndian);
+        writeShort(data, 14, 1, littleEndian); // one entry
+        writeShort(data, 16, 0x0112, littleEndian);
+        writeShort(data, 18, 3, littleEndian);
+        writeShort(data, 24, orientation, littleEndian);
+        return data;
+    }
+
+    private static void writeShort(byte[] data, int offset, int value, boolean littleEndian) {
+        byte hi = (byte) ((value >> 8) & 0xFF);
+        byte lo = (byte) (value & 0xFF);
+        data[offset] = littleEndian ? lo : hi;
+        data[offset + 1] = littleEndian ? hi : lo;
+    }
+}
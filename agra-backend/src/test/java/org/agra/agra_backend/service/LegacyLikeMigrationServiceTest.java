@@ -0,0 +1,187 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.agra.agra_backend.model.CommentLike;
+import org.agra.agra_backend.model.PostLike;
+import org.agra.agra_backend.payload.LikeMigrationProgress;
+import org.agra.agra_backend.payload.LikeMigrationReport;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LegacyLikeMigrationServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations postOps;
+    @Mock
+    private BulkOperations commentOps;
+
+    @Test
+    void migrateCopiesBatchesAndCheckpointsLastId() {
+        LegacyLikeMigrationService service = new LegacyLikeMigrationService(mongoTemplate, 2);
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+        ObjectId third = new ObjectId();
+        when(mongoTemplate.findById(LegacyLikeMigrationService.CHECKPOINT_ID, Document.class,
+                LegacyLikeMigrationService.CHECKPOINT_COLLECTION)).thenReturn(null);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION)))
+                .thenReturn(List.of(legacy(first, "u1", "POST", "p1"), legacy(second, "u2", "COMMENT", "c1")))
+                .thenReturn(List.of(legacy(third, "u3", "POST", "p1")))
+                .thenReturn(List.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostLike.class)).thenReturn(postOps);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CommentLike.class)).thenReturn(commentOps);
+        when(postOps.execute()).thenReturn(resultWithUpserts(1));
+        when(commentOps.execute()).thenReturn(resultWithUpserts(0));
+
+        LikeMigrationProgress progress = service.migrate(null, 0);
+
+        assertThat(progress.isCompleted()).isTrue();
+        assertThat(progress.getBatches()).isEqualTo(2);
+        assertThat(progress.getProcessed()).isEqualTo(3);
+        assertThat(progress.getUpserted()).isEqualTo(2);
+        assertThat(progress.getLastId()).isEqualTo(third.toHexString());
+
+        ArgumentCaptor<Update> upsert = ArgumentCaptor.forClass(Update.class);
+        verify(postOps, times(2)).upsert(any(Query.class), upsert.capture());
+        Document setOnInsert = upsert.getValue().getUpdateObject().get("$setOnInsert", Document.class);
+        assertThat(setOnInsert).containsEntry("active", true).containsEntry("notified", true);
+        verify(commentOps).upsert(any(Query.class), any(Update.class));
+        verify(mongoTemplate, times(2)).updateMulti(any(Query.class), any(Update.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION));
+        verify(mongoTemplate, times(3)).upsert(any(Query.class), any(Update.class), eq(LegacyLikeMigrationService.CHECKPOINT_COLLECTION));
+    }
+
+    @Test
+    void migrateResumesAfterCheckpointAndStopsAtMaxBatches() {
+        LegacyLikeMigrationService service = new LegacyLikeMigrationService(mongoTemplate, 100);
+        ObjectId checkpointId = new ObjectId();
+        ObjectId next = new ObjectId();
+        when(mongoTemplate.findById(LegacyLikeMigrationService.CHECKPOINT_ID, Document.class,
+                LegacyLikeMigrationService.CHECKPOINT_COLLECTION))
+                .thenReturn(new Document("_id", LegacyLikeMigrationService.CHECKPOINT_ID)
+                        .append("lastId", checkpointId).append("processed", 10L).append("upserted", 7L));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION)))
+                .thenReturn(List.of(legacy(next, "u1", "POST", "p9")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostLike.class)).thenReturn(postOps);
+        when(postOps.execute()).thenReturn(resultWithUpserts(1));
+
+        LikeMigrationProgress progress = service.migrate(5, 1);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Document.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION));
+        assertThat(query.getValue().getQueryObject().get("_id", Document.class)).containsEntry("$gt", checkpointId);
+        assertThat(query.getValue().getLimit()).isEqualTo(5);
+        assertThat(progress.isCompleted()).isFalse();
+        assertThat(progress.getProcessed()).isEqualTo(11);
+        assertThat(progress.getUpserted()).isEqualTo(8);
+    }
+
+    @Test
+    void migrateSkipsMalformedLegacyDocuments() {
+        LegacyLikeMigrationService service = new LegacyLikeMigrationService(mongoTemplate, 10);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION)))
+                .thenReturn(List.of(legacy(new ObjectId(), null, "POST", "p1")))
+                .thenReturn(List.of());
+
+        LikeMigrationProgress progress = service.migrate(null, 0);
+
+        assertThat(progress.getProcessed()).isEqualTo(1);
+        assertThat(progress.getUpserted()).isZero();
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(Class.class));
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), anyString());
+    }
+
+    @Test
+    void verifyReportsTargetsMissingModernLikes() {
+        LegacyLikeMigrationService service = new LegacyLikeMigrationService(mongoTemplate, 10);
+        when(mongoTemplate.count(any(Query.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION)))
+                .thenReturn(3L, 1L, 0L);
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION), eq(Document.class)))
+                .thenReturn(Stream.of(
+                        group("POST", "p1", List.of("u1", "u2")),
+                        group("POST", "p2", List.of("u3")),
+                        group("COMMENT", "c1", List.of("u1"))));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("post_likes"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", "p1").append("users", List.of("u1", "u2", "u9")),
+                        new Document("_id", "p2").append("users", List.of())), new Document()));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("comment_likes"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", "c1").append("users", List.of("u1"))), new Document()));
+
+        LikeMigrationReport report = service.verify();
+
+        assertThat(report.getLegacyPostLikes()).isEqualTo(3);
+        assertThat(report.getLegacyCommentLikes()).isEqualTo(1);
+        assertThat(report.getTargetsChecked()).isEqualTo(3);
+        assertThat(report.getMismatches()).singleElement().satisfies(mismatch -> {
+            assertThat(mismatch.getTargetId()).isEqualTo("p2");
+            assertThat(mismatch.getLegacyCount()).isEqualTo(1);
+            assertThat(mismatch.getMigratedCount()).isZero();
+        });
+        assertThat(report.isConsistent()).isFalse();
+    }
+
+    @Test
+    void migrateRejectsConcurrentRun() throws Exception {
+        LegacyLikeMigrationService service = new LegacyLikeMigrationService(mongoTemplate, 10);
+        java.util.concurrent.CountDownLatch inFind = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(LegacyLikeMigrationService.LEGACY_COLLECTION)))
+                .thenAnswer(invocation -> {
+                    inFind.countDown();
+                    release.await();
+                    return List.of();
+                });
+        Thread first = new Thread(() -> service.migrate(null, 0));
+        first.start();
+        inFind.await();
+
+        assertThatThrownBy(() -> service.migrate(null, 0)).isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        first.join();
+    }
+
+    private static Document legacy(ObjectId id, String userId, String targetType, String targetId) {
+        return new Document("_id", id)
+                .append("user_id", userId)
+                .append("target_type", targetType)
+                .append("target_id", targetId);
+    }
+
+    private static Document group(String targetType, String targetId, List<String> users) {
+        return new Document("_id", new Document("target_type", targetType).append("target_id", targetId))
+                .append("users", users);
+    }
+
+    private static BulkWriteResult resultWithUpserts(int upserts) {
+        List<BulkWriteUpsert> upserted = java.util.stream.IntStream.range(0, upserts)
+                .mapToObj(i -> new BulkWriteUpsert(i, new BsonObjectId(new ObjectId())))
+                .toList();
+        return BulkWriteResult.acknowledged(0, 0, 0, 0, upserted, List.of());
+    }
+}
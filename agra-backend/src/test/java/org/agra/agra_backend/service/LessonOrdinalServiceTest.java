@@ -0,0 +1,236 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.client.result.UpdateResult;
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.LessonOrdinals;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LessonOrdinalServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    // Stands in for the course_lesson_ordinals collection
+    private final Map<String, LessonOrdinals> stored = new HashMap<>();
+
+    private LessonOrdinalService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new LessonOrdinalService(mongoTemplate, 100);
+        lenient().when(mongoTemplate.findById(any(), eq(LessonOrdinals.class)))
+                .thenAnswer(invocation -> copy(stored.get(invocation.<String>getArgument(0))));
+        lenient().when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(LessonOrdinals.class)))
+                .thenAnswer(invocation -> {
+                    String courseId = invocation.<Query>getArgument(0).getQueryObject().getString("_id");
+                    if (stored.containsKey(courseId)) {
+                        return UpdateResult.acknowledged(0, 0L, null);
+                    }
+                    LessonOrdinals created = new LessonOrdinals();
+                    created.setId(courseId);
+                    apply(created, invocation.getArgument(1));
+                    stored.put(courseId, created);
+                    return UpdateResult.acknowledged(0, 0L, new BsonString(courseId));
+                });
+        lenient().when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(LessonOrdinals.class)))
+                .thenAnswer(invocation -> {
+                    Document query = invocation.<Query>getArgument(0).getQueryObject();
+                    LessonOrdinals current = stored.get(query.getString("_id"));
+                    if (current == null || current.getNext() != query.getInteger("next")) {
+                        return UpdateResult.acknowledged(0, 0L, null);
+                    }
+                    apply(current, invocation.getArgument(1));
+                    return UpdateResult.acknowledged(1, 1L, null);
+                });
+    }
+
+    @Test
+    void ordinalsAreAppendOnlyAndSurviveReorderingAndRemoval() {
+        assertThat(service.ordinals("course-1", List.of("intro", "basics", "quiz"))).containsExactly(0, 1, 2);
+
+        // Lessons reordered, "basics" removed and a new one added
+        assertThat(service.ordinals("course-1", List.of("quiz", "advanced", "intro"))).containsExactly(2, 3, 0);
+        assertThat(service.ordinal("course-1", "basics")).isEqualTo(1);
+        assertThat(stored.get("course-1").getNext()).isEqualTo(4);
+        assertThat(service.ordinals("course-2", List.of("advanced"))).containsExactly(0);
+    }
+
+    @Test
+    void lostCompareAndSetIsRetriedAgainstTheWinner() {
+        LessonOrdinals winner = new LessonOrdinals();
+        winner.setId("course-1");
+        winner.setOrdinals(new HashMap<>(Map.of("intro", 0)));
+        winner.setNext(1);
+        // Another instance assigns "intro" between our read of nothing and our upsert
+        int[] reads = {0};
+        lenient().when(mongoTemplate.findById("course-1", LessonOrdinals.class))
+                .thenAnswer(invocation -> ++reads[0] <= 2 ? null : copy(stored.get("course-1")));
+        lenient().when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq(LessonOrdinals.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        stored.put("course-1", winner);
+
+        assertThat(service.ordinals("course-1", List.of("quiz", "intro"))).containsExactly(1, 0);
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(LessonOrdinals.class));
+    }
+
+    @Test
+    void readsDeriveTheLessonListFromTheBitsAndFoldInLegacyListsWithoutWriting() {
+        service.ordinals("course-1", List.of("l0", "l1", "l2", "l3"));
+
+        CourseProgress compact = new CourseProgress();
+        compact.setCourseId("course-1");
+        compact.setCompletedLessonBits(new long[] {0b1010L});
+        service.onAfterConvert(compact, new Document("completedLessonBits", List.of(0b1010L)), "course_progress");
+        assertThat(compact.getCompletedLessons()).containsExactly("l1", "l3");
+        assertThat(compact.completedLessonCount()).isEqualTo(2);
+        assertThat(compact.isLessonCompleted(3)).isTrue();
+        assertThat(compact.isLessonCompleted(2)).isFalse();
+
+        // Written before the bitset existed, or half converted
+        CourseProgress legacy = new CourseProgress();
+        legacy.setCourseId("course-1");
+        legacy.setCompletedLessonBits(new long[] {0b1L});
+        legacy.setCompletedLessons(new ArrayList<>(List.of("l2", "new-lesson")));
+        service.onAfterConvert(legacy, new Document("completedLessons", List.of("l2", "new-lesson"))
+                .append("completedLessonBits", List.of(1L)), "course_progress");
+        // new-lesson has no ordinal yet; it stays in the list and only the migration assigns one
+        assertThat(legacy.getCompletedLessonBits()).containsExactly(0b101L);
+        assertThat(legacy.getCompletedLessons()).containsExactly("l0", "l2", "new-lesson");
+        assertThat(stored.get("course-1").getOrdinals()).doesNotContainKey("new-lesson");
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), any(UpdateDefinition.class), eq(LessonOrdinals.class));
+        verify(mongoTemplate, times(0)).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(LessonOrdinals.class));
+    }
+
+    @Test
+    void idsThatCannotBeFieldNamesNeverGetAnOrdinal() {
+        assertThatThrownBy(() -> service.ordinals("course-1", List.of("l0", "a.b")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.ordinal("course-1", "$where")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(stored).isEmpty();
+
+        // A stored legacy list with such an id keeps its valid lessons
+        assertThat(service.bits("course-1", List.of("l0", "a.b", "l1"))).containsExactly(0b11L);
+        assertThat(stored.get("course-1").getOrdinals()).containsOnlyKeys("l0", "l1");
+    }
+
+    @Test
+    void projectedReadsWithoutCompletionAreLeftAlone() {
+        CourseProgress projected = new CourseProgress();
+        projected.setCourseId("course-1");
+
+        service.onAfterConvert(projected, new Document("userId", "user-1"), "course_progress");
+
+        assertThat(projected.getCompletedLessons()).isEmpty();
+        verify(mongoTemplate, times(0)).findById(any(), eq(LessonOrdinals.class));
+    }
+
+    @Test
+    void bitsetIsSmallerAndFasterThanTheLessonIdList() {
+        int lessons = 60;
+        int enrollments = 100_000;
+        List<String> lessonIds = new ArrayList<>();
+        for (int i = 0; i < lessons; i++) {
+            lessonIds.add("65f1c0ffee" + String.format("%014d", i));
+        }
+        int[] ordinals = service.ordinals("course-1", lessonIds);
+
+        List<List<String>> lists = new ArrayList<>(enrollments);
+        long[][] bitsets = new long[enrollments][];
+        for (int e = 0; e < enrollments; e++) {
+            List<String> completed = new ArrayList<>();
+            long[] bits = new long[1];
+            for (int i = 0; i < lessons; i++) {
+                if ((e + i) % 3 != 0) {
+                    completed.add(lessonIds.get(i));
+                    bits = LessonOrdinalService.withBit(bits, ordinals[i]);
+                }
+            }
+            lists.add(completed);
+            bitsets[e] = bits;
+        }
+
+        int listSize = bsonSize(new Document("completedLessons", lists.get(0)));
+        int bitsSize = bsonSize(new Document("completedLessonBits", List.of(bitsets[0][0])));
+        System.out.printf("completion per enrollment: list %d bytes, bitset %d bytes%n", listSize, bitsSize);
+        assertThat(bitsSize).isLessThan(listSize / 10);
+
+        String probe = lessonIds.get(lessons - 1);
+        int probeOrdinal = ordinals[lessons - 1];
+        CourseProgress holder = new CourseProgress();
+        long listHits = 0;
+        long bitHits = 0;
+        long listNanos = 0;
+        long bitNanos = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (List<String> completed : lists) {
+                if (completed.contains(probe)) {
+                    listHits++;
+                }
+            }
+            listNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (long[] bits : bitsets) {
+                holder.setCompletedLessonBits(bits);
+                if (holder.isLessonCompleted(probeOrdinal)) {
+                    bitHits++;
+                }
+            }
+            bitNanos = System.nanoTime() - start;
+        }
+        System.out.printf("completion check over %d enrollments: list %.2f ms, bitset %.2f ms%n",
+                enrollments, listNanos / 1e6, bitNanos / 1e6);
+        assertThat(bitHits).isEqualTo(listHits);
+        assertThat(bitNanos).isLessThan(listNanos);
+    }
+
+    private static int bsonSize(Document document) {
+        return new RawBsonDocument(document, new org.bson.codecs.DocumentCodec()).getByteBuffer().remaining();
+    }
+
+    private static void apply(LessonOrdinals target, UpdateDefinition update) {
+        Document set = update.getUpdateObject().get("$set", Document.class);
+        set.forEach((key, value) -> {
+            if ("next".equals(key)) {
+                target.setNext((Integer) value);
+            } else {
+                target.getOrdinals().put(key.substring("ordinals.".length()), (Integer) value);
+            }
+        });
+    }
+
+    private static LessonOrdinals copy(LessonOrdinals source) {
+        if (source == null) {
+            return null;
+        }
+        LessonOrdinals copy = new LessonOrdinals();
+        copy.setId(source.getId());
+        copy.setOrdinals(new HashMap<>(source.getOrdinals()));
+        copy.setNext(source.getNext());
+        return copy;
+    }
+}
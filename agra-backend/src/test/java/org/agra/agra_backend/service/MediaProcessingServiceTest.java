@@ -0,0 +1,236 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.Post;
+import org.agra.agra_backend.payload.MediaStatusEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaProcessingServiceTest {
+
+    private static final Map<String, Object> UPLOAD_RESULT = Map.of(
+            "secure_url", "https://res.cloudinary.com/demo/image/upload/v1/courses/course-1/course_image_1",
+            "public_id", "courses/course-1/course_image_1");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @TempDir
+    Path spoolDir;
+
+    private MediaProcessingService service;
+    private ImageRenditionService renditionService;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+        if (renditionService != null) {
+            renditionService.stop();
+        }
+    }
+
+    @Test
+    void spoolCopiesUploadToDisk() throws IOException {
+        service = start((file, folder) -> UPLOAD_RESULT, 1, 2);
+
+        Path spooled = service.spool(new MockMultipartFile("file", "a.png", "image/png", new byte[]{1, 2, 3}));
+
+        assertThat(spooled.getParent()).isEqualTo(spoolDir);
+        assertThat(Files.readAllBytes(spooled)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void successfulUploadPatchesPostAndNotifiesOwner() throws IOException {
+        service = start((file, folder) -> UPLOAD_RESULT, 1, 2);
+        Path spooled = spoolFile();
+
+        assertThat(service.submitPostImage("post-1", "user-1", spooled, "posts/u/post-1")).isTrue();
+
+        ArgumentCaptor<MediaStatusEvent> event = ArgumentCaptor.forClass(MediaStatusEvent.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("user-1"), eq(MediaProcessingService.MEDIA_QUEUE), event.capture());
+        assertThat(event.getValue().getStatus()).isEqualTo(MediaProcessingService.STATUS_READY);
+        assertThat(event.getValue().getImageUrl()).isEqualTo(UPLOAD_RESULT.get("secure_url"));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Post.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", org.bson.Document.class))
+                .containsEntry("image_url", UPLOAD_RESULT.get("secure_url"))
+                .containsEntry("media_status", MediaProcessingService.STATUS_READY);
+        assertThat(spooled).doesNotExist();
+        assertThat(service.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void courseUploadDerivesTransformedUrls() throws IOException {
+        service = start((file, folder) -> UPLOAD_RESULT, 1, 2);
+
+        service.submitCourseImage("course-1", null, spoolFile(), "courses/course-1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(2000)).updateFirst(any(Query.class), update.capture(), eq(Course.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", org.bson.Document.class))
+                .containsEntry("imagePublicId", "courses/course-1/course_image_1")
+                .containsEntry("thumbnailUrl",
+                        "https://res.cloudinary.com/demo/image/upload/v1/courses/course-1/c_fill,w_300,h_200/course_image_1")
+                .containsEntry("mediaStatus", MediaProcessingService.STATUS_READY);
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void decodableUploadsAreStoredAsRenditions() throws IOException {
+        renditionService = new ImageRenditionService(100, 400, 800, 0.8f, "jpeg", 100_000_000L, 1, 4);
+        Map<String, Path> uploaded = new java.util.concurrent.ConcurrentHashMap<>();
+        service = start((file, folder) -> {
+            String name = file.getFileName().toString();
+            uploaded.put(name, file);
+            return Map.of("secure_url", "https://cdn/" + name, "public_id", folder + "/" + name);
+        }, 1, 2);
+        Path spooled = spoolDir.resolve("photo.upload");
+        ImageIO.write(new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB), "jpg", spooled.toFile());
+
+        service.submitCourseImage("course-1", null, spooled, "courses/course-1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(2000)).updateFirst(any(Query.class), update.capture(), eq(Course.class));
+        org.bson.Document set = update.getValue().getUpdateObject().get("$set", org.bson.Document.class);
+        assertThat(set)
+                .containsEntry("imageUrl", "https://cdn/photo-medium.jpg")
+                .containsEntry("thumbnailUrl", "https://cdn/photo-thumb.jpg")
+                .containsEntry("detailImageUrl", "https://cdn/photo-full.jpg")
+                .containsEntry("imagePublicId", "courses/course-1/photo-full.jpg");
+        assertThat((Map<?, ?>) set.get("imageRenditions")).hasSize(3);
+        assertThat(uploaded).containsOnlyKeys("photo-full.jpg", "photo-medium.jpg", "photo-thumb.jpg");
+        assertThat(uploaded.values()).allSatisfy(path -> assertThat(path).doesNotExist());
+        assertThat(spooled).doesNotExist();
+    }
+
+    @Test
+    void undecodableUploadFallsBackToOriginal() throws IOException {
+        renditionService = new ImageRenditionService(100, 400, 800, 0.8f, "jpeg", 100_000_000L, 1, 4);
+        service = start((file, folder) -> UPLOAD_RESULT, 1, 2);
+
+        service.submitPostImage("post-1", "user-1", spoolFile(), "posts/u/post-1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(2000)).updateFirst(any(Query.class), update.capture(), eq(Post.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", org.bson.Document.class))
+                .containsEntry("image_url", UPLOAD_RESULT.get("secure_url"))
+                .doesNotContainKey("image_renditions");
+    }
+
+    @Test
+    void transientFailuresAreRetried() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        service = start((file, folder) -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IOException("storage unavailable");
+            }
+            return UPLOAD_RESULT;
+        }, 1, 4);
+
+        service.submitPostImage("post-1", "user-1", spoolFile(), "posts/u/post-1");
+
+        ArgumentCaptor<MediaStatusEvent> event = ArgumentCaptor.forClass(MediaStatusEvent.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("user-1"), eq(MediaProcessingService.MEDIA_QUEUE), event.capture());
+        assertThat(event.getValue().getStatus()).isEqualTo(MediaProcessingService.STATUS_READY);
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void exhaustedRetriesDeadLetterTheJob() throws IOException {
+        service = start((file, folder) -> {
+            throw new IOException("storage unavailable");
+        }, 1, 3);
+        Path spooled = spoolFile();
+
+        service.submitPostImage("post-1", "user-1", spooled, "posts/u/post-1");
+
+        ArgumentCaptor<MediaStatusEvent> event = ArgumentCaptor.forClass(MediaStatusEvent.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("user-1"), eq(MediaProcessingService.MEDIA_QUEUE), event.capture());
+        assertThat(event.getValue().getStatus()).isEqualTo(MediaProcessingService.STATUS_FAILED);
+        assertThat(event.getValue().getError()).isEqualTo("storage unavailable");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Post.class));
+        assertThat(update.getValue().getUpdateObject().get("$set", org.bson.Document.class))
+                .containsEntry("media_status", MediaProcessingService.STATUS_FAILED);
+        assertThat(spooled).doesNotExist();
+        assertThat(spoolDir.resolve("dead-letter").resolve(spooled.getFileName())).exists();
+    }
+
+    @Test
+    void fullQueueRejectsAndMarksFailed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        service = start((file, folder) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return UPLOAD_RESULT;
+        }, 1, 1);
+
+        assertThat(service.submitPostImage("post-1", "user-1", spoolFile(), "posts/u/post-1")).isTrue();
+        boolean accepted = service.submitPostImage("post-2", "user-2", spoolFile(), "posts/u/post-2");
+        release.countDown();
+
+        assertThat(accepted).isFalse();
+        ArgumentCaptor<MediaStatusEvent> event = ArgumentCaptor.forClass(MediaStatusEvent.class);
+        verify(messagingTemplate, timeout(2000)).convertAndSendToUser(eq("user-2"), eq(MediaProcessingService.MEDIA_QUEUE), event.capture());
+        assertThat(event.getValue().getStatus()).isEqualTo(MediaProcessingService.STATUS_FAILED);
+    }
+
+    @Test
+    void backoffGrowsExponentiallyAndIsCapped() {
+        MediaProcessingService unstarted = new MediaProcessingService((file, folder) -> UPLOAD_RESULT, mongoTemplate,
+                messagingTemplate, null, spoolDir.toString(), 1, 1, 4, 2000L, null, null);
+
+        assertThat(unstarted.backoffFor(1)).isEqualTo(2000L);
+        assertThat(unstarted.backoffFor(2)).isEqualTo(4000L);
+        assertThat(unstarted.backoffFor(3)).isEqualTo(8000L);
+        assertThat(unstarted.backoffFor(30)).isEqualTo(5 * 60 * 1000L);
+    }
+
+    private MediaProcessingService start(MediaUploader uploader, int queueCapacity, int maxAttempts) throws IOException {
+        MediaProcessingService created = new MediaProcessingService(uploader, mongoTemplate, messagingTemplate, null,
+                spoolDir.toString(), 1, queueCapacity, maxAttempts, 1L, renditionService, null);
+        created.start();
+        return created;
+    }
+
+    private Path spoolFile() throws IOException {
+        Path file = Files.createTempFile(spoolDir, "media-", ".upload");
+        Files.write(file, new byte[]{42});
+        return file;
+    }
+}
@@ -13,6 +13,7 @@ import org.agra.agra_backend.model.Like;
 import org.agra.agra_backend.model.Post;
 import org.agra.agra_backend.model.PostLike;
 import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.UserInfo;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -145,6 +146,54 @@ class PostServiceTest {
         verify(cloudinaryService).uploadImageToFolder(eq(imageFile), contains("posts/"));
     }
 
+    @Test
+    void createPostWithImageQueuesUploadWhenMediaPipelineAvailable() throws IOException {
+        MediaProcessingService mediaProcessingService = mock(MediaProcessingService.class);
+        PostService asyncService = new PostService(postRepository, cloudinaryService, commentRepository, likeRepository,
+                postLikeRepository, commentLikeRepository, userRepository, activityLogService, mediaProcessingService);
+        MultipartFile imageFile = mock(MultipartFile.class);
+        when(imageFile.isEmpty()).thenReturn(false);
+        User user = new User();
+        user.setEmail("test@example.com");
+        java.nio.file.Path spooled = java.nio.file.Path.of("spool", "img.upload");
+        when(mediaProcessingService.spool(imageFile)).thenReturn(spooled);
+        when(postRepository.save(any(Post.class))).thenAnswer(invocation -> {
+            Post saved = invocation.getArgument(0);
+            saved.setId("post-1");
+            return saved;
+        });
+        when(mediaProcessingService.submitPostImage(eq("post-1"), eq("user-1"), eq(spooled), contains("posts/")))
+                .thenReturn(true);
+
+        Post created = asyncService.createPostWithImage("user-1", user, "Hello", imageFile, false, null);
+
+        assertThat(created.getMediaStatus()).isEqualTo(MediaProcessingService.STATUS_PENDING);
+        assertThat(created.getImageUrl()).isNull();
+        verify(postRepository, times(1)).save(any(Post.class));
+        verifyNoInteractions(cloudinaryService);
+    }
+
+    @Test
+    void createPostWithImageMarksFailedWhenMediaQueueFull() throws IOException {
+        MediaProcessingService mediaProcessingService = mock(MediaProcessingService.class);
+        PostService asyncService = new PostService(postRepository, cloudinaryService, commentRepository, likeRepository,
+                postLikeRepository, commentLikeRepository, userRepository, activityLogService, mediaProcessingService);
+        MultipartFile imageFile = mock(MultipartFile.class);
+        when(imageFile.isEmpty()).thenReturn(false);
+        User user = new User();
+        user.setEmail("test@example.com");
+        when(postRepository.save(any(Post.class))).thenAnswer(invocation -> {
+            Post saved = invocation.getArgument(0);
+            saved.setId("post-1");
+            return saved;
+        });
+        when(mediaProcessingService.submitPostImage(anyString(), anyString(), any(), anyString())).thenReturn(false);
+
+        Post created = asyncService.createPostWithImage("user-1", user, "Hello", imageFile, false, null);
+
+        assertThat(created.getMediaStatus()).isEqualTo(MediaProcessingService.STATUS_FAILED);
+    }
+
     @Test
     void getPostsWithDetailsEnrichesLikesAndComments() {
         Post post = new Post();
@@ -160,7 +209,7 @@ class PostServiceTest {
         User author = new User();
         author.setId("author-1");
         author.setName("Author");
-        when(userRepository.findById("author-1")).thenReturn(Optional.of(author));
+        when(userRepository.findAllById(List.of("author-1"))).thenReturn(List.of(author));
 
         Comment top = new Comment();
         top.setId("c1");
@@ -179,7 +228,7 @@ class PostServiceTest {
         User commenter = new User();
         commenter.setId("commenter-1");
         commenter.setName("Commenter");
-        when(userRepository.findById("commenter-1")).thenReturn(Optional.of(commenter));
+        when(userRepository.findAllById(List.of("commenter-1"))).thenReturn(List.of(commenter));
 
         when(commentRepository.findByParentCommentIdOrderByCreatedAtAsc("c1")).thenReturn(List.of());
 
@@ -192,6 +241,23 @@ class PostServiceTest {
         assertThat(result.get(0).getComments().get(0).getIsLikedByCurrentUser()).isTrue();
     }
 
+    @Test
+    void getPostsWithDetailsTrustsEmbeddedAuthorInfo() {
+        Post post = new Post();
+        post.setId("post-1");
+        post.setUserId("author-1");
+        UserInfo embedded = new UserInfo();
+        embedded.setId("author-1");
+        embedded.setName("Author");
+        post.setUserInfo(embedded);
+        when(postRepository.findByIsCoursePostOrderByCreatedAtDesc(false)).thenReturn(List.of(post));
+
+        List<Post> result = service.getPostsWithDetails(null, false, 0);
+
+        assertThat(result.get(0).getUserInfo()).isSameAs(embedded);
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void getPostsPaginatedEnrichesLikes() {
         Post post = new Post();
@@ -207,7 +273,7 @@ class PostServiceTest {
 
         User author = new User();
         author.setId("author-1");
-        when(userRepository.findById("author-1")).thenReturn(Optional.of(author));
+        when(userRepository.findAllById(List.of("author-1"))).thenReturn(List.of(author));
 
         Page<Post> result = service.getPostsPaginated("user-1", PageRequest.of(0, 1));
 
@@ -367,7 +433,7 @@ class PostServiceTest {
         existing.setActive(true);
         when(commentLikeRepository.findByUserIdAndCommentId("user-1", "c1")).thenReturn(Optional.of(existing));
         when(commentLikeRepository.countActiveByCommentId("c1")).thenReturn(1L);
-        when(likeRepository.countByTargetTypeAndTargetId(PostService.TARGET_TYPE_COMMENT, "c1")).thenReturn(0L);
+        when(likeRepository.countUnmigratedByTargetTypeAndTargetId(PostService.TARGET_TYPE_COMMENT, "c1")).thenReturn(0L);
         Comment comment = new Comment();
         comment.setId("c1");
         when(commentRepository.findById("c1")).thenReturn(Optional.of(comment));
@@ -382,10 +448,10 @@ class PostServiceTest {
     @Test
     void toggleCommentLikeRemovesLegacy() {
         when(commentLikeRepository.findByUserIdAndCommentId("user-1", "c1")).thenReturn(Optional.empty());
-        when(likeRepository.existsByUserIdAndTargetTypeAndTargetId("user-1", PostService.TARGET_TYPE_COMMENT, "c1"))
+        when(likeRepository.existsUnmigratedByUserIdAndTargetTypeAndTargetId("user-1", PostService.TARGET_TYPE_COMMENT, "c1"))
                 .thenReturn(true);
         when(commentLikeRepository.countActiveByCommentId("c1")).thenReturn(0L);
-        when(likeRepository.countByTargetTypeAndTargetId(PostService.TARGET_TYPE_COMMENT, "c1")).thenReturn(0L);
+        when(likeRepository.countUnmigratedByTargetTypeAndTargetId(PostService.TARGET_TYPE_COMMENT, "c1")).thenReturn(0L);
         when(commentRepository.findById("c1")).thenReturn(Optional.of(new Comment()));
 
         boolean liked = service.toggleCommentLike("c1", "user-1", new User());
@@ -397,10 +463,10 @@ class PostServiceTest {
     @Test
     void toggleCommentLikeCreatesNew() {
         when(commentLikeRepository.findByUserIdAndCommentId("user-1", "c1")).thenReturn(Optional.empty());
-        when(likeRepository.existsByUserIdAndTargetTypeAndTargetId("user-1", PostService.TARGET_TYPE_COMMENT, "c1"))
+        when(likeRepository.existsUnmigratedByUserIdAndTargetTypeAndTargetId("user-1", PostService.TARGET_TYPE_COMMENT, "c1"))
                 .thenReturn(false);
         when(commentLikeRepository.countActiveByCommentId("c1")).thenReturn(1L);
-        when(likeRepository.countByTargetTypeAndTargetId(PostService.TARGET_TYPE_COMMENT, "c1")).thenReturn(0L);
+        when(likeRepository.countUnmigratedByTargetTypeAndTargetId(PostService.TARGET_TYPE_COMMENT, "c1")).thenReturn(0L);
         when(commentRepository.findById("c1")).thenReturn(Optional.of(new Comment()));
 
         User user = new User();
@@ -451,7 +517,7 @@ class PostServiceTest {
         when(commentRepository.findByPostIdAndParentCommentIdIsNullOrderByCreatedAtDesc(eq("post-1"), any()))
                 .thenReturn(page);
         when(commentRepository.findByParentCommentIdOrderByCreatedAtAsc("c1")).thenReturn(List.of());
-        when(userRepository.findById("user-1")).thenReturn(Optional.empty());
+        when(userRepository.findAllById(List.of("user-1"))).thenReturn(List.of());
 
         List<Comment> result = service.getCommentsForPost("post-1", null, 1);
 
@@ -474,7 +540,7 @@ class PostServiceTest {
         post.setId("p1");
         post.setUserId("author-1");
         when(postRepository.findByIsCoursePostOrderByCreatedAtDesc(false)).thenReturn(List.of(post));
-        when(userRepository.findById("author-1")).thenReturn(Optional.empty());
+        when(userRepository.findAllById(List.of("author-1"))).thenReturn(List.of());
 
         List<Post> result = service.getPostsWithDetails(null, false, 0);
 
@@ -490,11 +556,11 @@ class PostServiceTest {
         when(commentRepository.findByPostIdAndParentCommentIdIsNullOrderByCreatedAtDesc("post-1"))
                 .thenReturn(List.of(comment));
         when(commentRepository.findByParentCommentIdOrderByCreatedAtAsc("c1")).thenReturn(List.of());
-        when(userRepository.findById("user-1")).thenReturn(Optional.empty());
+        when(userRepository.findAllById(List.of("user-1"))).thenReturn(List.of());
 
         Like legacy = new Like();
         legacy.setTargetId("c1");
-        when(likeRepository.findByUserIdAndTargetTypeAndTargetIdIn("user-1", PostService.TARGET_TYPE_COMMENT, List.of("c1")))
+        when(likeRepository.findUnmigratedByUserIdAndTargetTypeAndTargetIdIn("user-1", PostService.TARGET_TYPE_COMMENT, List.of("c1")))
                 .thenReturn(List.of(legacy));
         when(commentLikeRepository.findActiveByUserIdAndCommentIdIn("user-1", List.of("c1")))
                 .thenReturn(List.of());
@@ -504,6 +570,41 @@ class PostServiceTest {
         assertThat(result.get(0).getIsLikedByCurrentUser()).isTrue();
     }
 
+    @Test
+    void getCommentLikeStatusMapSkipsLegacyLikesWhenFallbackDisabled() {
+        ReflectionTestUtils.setField(service, "legacyLikeFallback", false);
+        Comment comment = new Comment();
+        comment.setId("c1");
+        comment.setPostId("post-1");
+        comment.setUserId("user-1");
+        when(commentRepository.findByPostIdAndParentCommentIdIsNullOrderByCreatedAtDesc("post-1"))
+                .thenReturn(List.of(comment));
+        when(commentRepository.findByParentCommentIdOrderByCreatedAtAsc("c1")).thenReturn(List.of());
+        when(userRepository.findAllById(List.of("user-1"))).thenReturn(List.of());
+        when(commentLikeRepository.findActiveByUserIdAndCommentIdIn("user-1", List.of("c1")))
+                .thenReturn(List.of());
+
+        List<Comment> result = service.getCommentsForPost("post-1", "user-1", 0);
+
+        assertThat(result.get(0).getIsLikedByCurrentUser()).isFalse();
+        verifyNoInteractions(likeRepository);
+    }
+
+    @Test
+    void toggleCommentLikeIgnoresLegacyCollectionWhenFallbackDisabled() {
+        ReflectionTestUtils.setField(service, "legacyLikeFallback", false);
+        when(commentLikeRepository.findByUserIdAndCommentId("user-1", "c1")).thenReturn(Optional.empty());
+        when(commentLikeRepository.countActiveByCommentId("c1")).thenReturn(3L);
+        Comment comment = new Comment();
+        when(commentRepository.findById("c1")).thenReturn(Optional.of(comment));
+
+        boolean liked = service.toggleCommentLike("c1", "user-1", new User());
+
+        assertThat(liked).isTrue();
+        assertThat(comment.getLikesCount()).isEqualTo(3L);
+        verifyNoInteractions(likeRepository);
+    }
+
     @Test
     void getPostLikeStatusMapHandlesNullInputs() {
         @SuppressWarnings("unchecked")
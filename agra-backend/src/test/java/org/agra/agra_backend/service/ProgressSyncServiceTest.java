@@ -0,0 +1,208 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.ProgressSyncKey;
+import org.agra.agra_backend.payload.ProgressSyncEvent;
+import org.agra.agra_backend.payload.ProgressSyncEventResult;
+import org.agra.agra_backend.payload.ProgressSyncResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProgressSyncServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CourseProgressService courseProgressService;
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private ProgressSyncService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProgressSyncService(mongoTemplate, courseProgressService, 10, 24);
+        lenient().when(mongoTemplate.find(any(Query.class), eq(ProgressSyncKey.class))).thenReturn(List.of());
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProgressSyncKey.class)).thenReturn(bulkOperations);
+        lenient().when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        lenient().when(courseProgressService.lessonIds(anyString())).thenReturn(Optional.of(List.of("l1", "l2")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsAreMergedIntoOneUpdatePerEnrollmentWithAResultEach() {
+        Date t0 = new Date(1_000);
+        Date t1 = new Date(2_000);
+        Date t2 = new Date(3_000);
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c1"), anyMap(), anyString(), any(Date.class), isNull(), any(Date.class)))
+                .thenReturn(progress(50));
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c2"), anyMap(), isNull(), isNull(), eq(40), any(Date.class)))
+                .thenReturn(progress(40));
+
+        ProgressSyncResult result = service.sync("u1", List.of(
+                event("k1", ProgressSyncService.LESSON_COMPLETE, "c1", "l1", t1),
+                event("k2", ProgressSyncService.CURRENT_LESSON, "c1", "l2", t2),
+                event("k3", ProgressSyncService.LESSON_COMPLETE, "c1", "l2", t2),
+                progressEvent("k4", "c2", 40, t1),
+                event("k5", ProgressSyncService.CURRENT_LESSON, "c1", "l1", t1),
+                progressEvent("k6", "c2", 30, t2),
+                // Completed again on a second device, earlier
+                event("k7", ProgressSyncService.LESSON_COMPLETE, "c1", "l1", t0)));
+
+        ArgumentCaptor<Map<String, Date>> completions = ArgumentCaptor.forClass(Map.class);
+        verify(courseProgressService).applySyncedProgress(eq("u1"), eq("c1"), completions.capture(), eq("l2"), eq(t2), isNull(), eq(t0));
+        assertThat(completions.getValue()).containsExactly(Map.entry("l1", t0), Map.entry("l2", t2));
+        verify(courseProgressService).applySyncedProgress(eq("u1"), eq("c2"), eq(Map.of()), isNull(), isNull(), eq(40), eq(t1));
+        assertThat(result.getApplied()).isEqualTo(7);
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::getIdempotencyKey)
+                .containsExactly("k1", "k2", "k3", "k4", "k5", "k6", "k7");
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::getProgressPercentage)
+                .containsExactly(50, 50, 50, 40, 50, 40, 50);
+
+        ArgumentCaptor<List<ProgressSyncKey>> keys = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).insert(keys.capture());
+        verify(bulkOperations).execute();
+        assertThat(keys.getValue()).extracting(ProgressSyncKey::getId).containsExactlyInAnyOrder(
+                "u1:k1", "u1:k2", "u1:k3", "u1:k4", "u1:k5", "u1:k6", "u1:k7");
+        assertThat(keys.getValue()).allSatisfy(key -> assertThat(key.getExpiresAt()).isAfter(key.getAppliedAt()));
+    }
+
+    @Test
+    void replayedKeysAnswerWithTheOriginalOutcomeAndAreNotReapplied() {
+        ProgressSyncKey previous = new ProgressSyncKey();
+        previous.setId("u1:k1");
+        previous.setCourseId("c1");
+        previous.setProgressPercentage(25);
+        when(mongoTemplate.find(any(Query.class), eq(ProgressSyncKey.class))).thenReturn(List.of(previous));
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c1"), eq(Map.of("l2", new Date(2_000))), isNull(), isNull(),
+                isNull(), any(Date.class))).thenReturn(progress(50));
+
+        ProgressSyncResult result = service.sync("u1", List.of(
+                event("k1", ProgressSyncService.LESSON_COMPLETE, "c1", "l1", new Date(1_000)),
+                event("k2", ProgressSyncService.LESSON_COMPLETE, "c1", "l2", new Date(2_000)),
+                event("k2", ProgressSyncService.LESSON_COMPLETE, "c1", "l2", new Date(2_000))));
+
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::getStatus).containsOnly(ProgressSyncEventResult.APPLIED);
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::isDuplicate).containsExactly(true, false, true);
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::getProgressPercentage).containsExactly(25, 50, 50);
+        assertThat(result.getApplied()).isEqualTo(1);
+        assertThat(result.getDuplicates()).isEqualTo(2);
+        verify(courseProgressService, times(1)).applySyncedProgress(anyString(), anyString(), anyMap(), any(), any(), any(), any());
+    }
+
+    @Test
+    void invalidAndUnenrolledEventsAreRejectedAndNotRemembered() {
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c9"), anyMap(), any(), any(), any(), any(Date.class))).thenReturn(null);
+        when(courseProgressService.lessonIds("gone")).thenReturn(Optional.empty());
+
+        ProgressSyncResult result = service.sync("u1", List.of(
+                event(null, ProgressSyncService.LESSON_COMPLETE, "c1", "l1", null),
+                event("k2", "LESSON_STARTED", "c1", "l1", null),
+                progressEvent("k3", "c1", 140, null),
+                event("k4", ProgressSyncService.LESSON_COMPLETE, "c1", " ", null),
+                event("k5", ProgressSyncService.LESSON_COMPLETE, "c9", "l1", null),
+                event("k6", ProgressSyncService.LESSON_COMPLETE, "c1", "made-up.$lesson", null),
+                event("k7", ProgressSyncService.CURRENT_LESSON, "gone", "l1", null)));
+
+        assertThat(result.getRejected()).isEqualTo(7);
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::getError).containsExactly(
+                "idempotencyKey is required and at most 128 characters",
+                "Unknown event type: LESSON_STARTED",
+                "progressPercentage must be between 0 and 100",
+                "lessonId is required",
+                "User is not enrolled in this course",
+                "Lesson not found in this course",
+                "Course not found");
+        verify(courseProgressService, times(1)).applySyncedProgress(anyString(), anyString(), anyMap(), any(), any(), any(), any());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(ProgressSyncKey.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aFailedEnrollmentIsReportedForRetryWhileOthersApply() {
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c1"), anyMap(), any(), any(), any(), any(Date.class)))
+                .thenThrow(new RuntimeException("timeout"));
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c2"), anyMap(), any(), any(), any(), any(Date.class)))
+                .thenReturn(progress(10));
+
+        ProgressSyncResult result = service.sync("u1", List.of(
+                event("k1", ProgressSyncService.LESSON_COMPLETE, "c1", "l1", null),
+                event("k2", ProgressSyncService.LESSON_COMPLETE, "c2", "l1", null)));
+
+        assertThat(result.getResults()).extracting(ProgressSyncEventResult::getStatus)
+                .containsExactly(ProgressSyncEventResult.FAILED, ProgressSyncEventResult.APPLIED);
+        assertThat(result.getFailed()).isEqualTo(1);
+        ArgumentCaptor<List<ProgressSyncKey>> keys = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).insert(keys.capture());
+        assertThat(keys.getValue()).extracting(ProgressSyncKey::getId).containsExactly("u1:k2");
+    }
+
+    @Test
+    void futureTimestampsAreClampedToTheSyncTime() {
+        Date before = new Date();
+        when(courseProgressService.applySyncedProgress(eq("u1"), eq("c1"), anyMap(), any(), any(), any(), any(Date.class)))
+                .thenReturn(progress(0));
+
+        service.sync("u1", List.of(event("k1", ProgressSyncService.CURRENT_LESSON, "c1", "l1",
+                new Date(System.currentTimeMillis() + 86_400_000L))));
+
+        ArgumentCaptor<Date> startedAt = ArgumentCaptor.forClass(Date.class);
+        verify(courseProgressService).applySyncedProgress(eq("u1"), eq("c1"), anyMap(), eq("l1"), any(Date.class), isNull(), startedAt.capture());
+        assertThat(startedAt.getValue()).isBetween(before, new Date(), true, true);
+    }
+
+    @Test
+    void oversizedAndEmptyBatchesAreRefused() {
+        List<ProgressSyncEvent> events = new ArrayList<>(Collections.nCopies(11,
+                event("k", ProgressSyncService.LESSON_COMPLETE, "c1", "l1", null)));
+
+        assertThatThrownBy(() -> service.sync("u1", events))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(413));
+        assertThatThrownBy(() -> service.sync("u1", List.of()))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+    }
+
+    private static ProgressSyncEvent event(String key, String type, String courseId, String lessonId, Date at) {
+        return new ProgressSyncEvent(key, type, courseId, lessonId, null, at);
+    }
+
+    private static ProgressSyncEvent progressEvent(String key, String courseId, int percentage, Date at) {
+        return new ProgressSyncEvent(key, ProgressSyncService.PROGRESS, courseId, null, percentage, at);
+    }
+
+    private static CourseProgress progress(int percentage) {
+        CourseProgress progress = new CourseProgress();
+        progress.setProgressPercentage(percentage);
+        return progress;
+    }
+}
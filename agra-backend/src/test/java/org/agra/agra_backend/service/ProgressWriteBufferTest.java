@@ -0,0 +1,266 @@
+package org.agra.agra_backend.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.agra.agra_backend.dao.CourseProgressRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseProgress;
+import org.agra.agra_backend.model.ProgressSyncKey;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.payload.ProgressSyncEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProgressWriteBufferTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulkOperations;
+    @Mock
+    private CourseProgressRepository courseProgressRepository;
+    @Mock
+    private ActivityLogService activityLogService;
+    @Mock
+    private LessonOrdinalService lessonOrdinalService;
+
+    private ProgressWriteBuffer buffer;
+    private CourseProgressService service;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ProgressWriteBuffer(mongoTemplate);
+        service = new CourseProgressService(courseProgressRepository, activityLogService, mongoTemplate, lessonOrdinalService, buffer);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CourseProgress.class)).thenReturn(bulkOperations);
+        lenient().when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()));
+        lenient().when(courseProgressRepository.findByUserIdAndCourseId("u1", "c1"))
+                .thenAnswer(invocation -> Optional.of(progress("u1", "c1")));
+    }
+
+    @Test
+    void heartbeatsAreCoalescedIntoOneWritePerEnrollment() {
+        when(courseProgressRepository.findByUserIdAndCourseId("u2", "c1")).thenReturn(Optional.of(progress("u2", "c1")));
+        for (int i = 0; i < 100; i++) {
+            assertThat(service.setCurrentLesson("u1", "c1", "lesson-" + i).getCurrentLessonId()).isEqualTo("lesson-" + i);
+        }
+        service.setCurrentLesson("u2", "c1", "lesson-a");
+        service.updateProgress("u2", "c1", 40);
+
+        buffer.flushAll();
+
+        verify(courseProgressRepository, times(1)).findByUserIdAndCourseId("u1", "c1");
+        verify(courseProgressRepository, never()).save(any(CourseProgress.class));
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(queries.capture(), updates.capture());
+        verify(bulkOperations).execute();
+        int u1 = "u1".equals(queries.getAllValues().get(0).getQueryObject().getString("userId")) ? 0 : 1;
+        Document set = updates.getAllValues().get(u1).getUpdateObject().get("$set", Document.class);
+        assertThat(set.getString("currentLessonId")).isEqualTo("lesson-99");
+        assertThat(updates.getAllValues().get(u1).getUpdateObject().get("$min", Document.class).get("startedAt")).isInstanceOf(Date.class);
+        assertThat(updates.getAllValues().get(1 - u1).getUpdateObject().get("$set", Document.class))
+                .containsEntry("currentLessonId", "lesson-a")
+                .doesNotContainKey("progressPercentage");
+        assertThat(updates.getAllValues().get(1 - u1).getUpdateObject().get("$max", Document.class))
+                .containsEntry("progressPercentage", 40);
+        assertThat(buffer.size()).isZero();
+
+        buffer.flushAll();
+        verify(mongoTemplate, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, CourseProgress.class);
+    }
+
+    @Test
+    void recordedStateIsACopyLaterHeartbeatsDoNotChange() {
+        CourseProgress first = service.setCurrentLesson("u1", "c1", "lesson-1");
+        service.setCurrentLesson("u1", "c1", "lesson-2");
+        service.updateProgress("u1", "c1", 60);
+
+        assertThat(first.getCurrentLessonId()).isEqualTo("lesson-1");
+        assertThat(first.getProgressPercentage()).isZero();
+        assertThat(buffer.overlay(progress("u1", "c1")).getCurrentLessonId()).isEqualTo("lesson-2");
+    }
+
+    @Test
+    void heartbeatsForMissingEnrollmentsAreRejectedAndNotBuffered() {
+        when(courseProgressRepository.findByUserIdAndCourseId("u1", "gone")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.setCurrentLesson("u1", "gone", "lesson-1")).hasMessageContaining("not enrolled");
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void completionFlushesTheBufferedHeartbeatBeforeReadingTheEnrollment() {
+        service.setCurrentLesson("u1", "c1", "lesson-2");
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenReturn(progress("u1", "c1"));
+        when(lessonOrdinalService.ordinal("c1", "lesson-2")).thenReturn(2);
+        when(lessonOrdinalService.ordinals("c1", List.of("lesson-2"))).thenReturn(new int[] {2});
+        TextContent lesson = new TextContent();
+        lesson.setId("lesson-2");
+        Course course = new Course();
+        course.setTextContent(List.of(lesson));
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(course);
+
+        service.markLessonComplete("u1", "c1", "lesson-2", new Date());
+
+        InOrder order = inOrder(mongoTemplate);
+        order.verify(mongoTemplate).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class));
+        order.verify(mongoTemplate).findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class));
+        assertThat(buffer.size()).isZero();
+        buffer.flushAll();
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(CourseProgress.class));
+    }
+
+    @Test
+    void readsSeeBufferedStateAndEachWindowChecksTheEnrollmentOnce() {
+        service.setCurrentLesson("u1", "c1", "lesson-3");
+
+        assertThat(service.getEnrollmentStatus("u1", "c1")).get()
+                .satisfies(progress -> {
+                    assertThat(progress.getCurrentLessonId()).isEqualTo("lesson-3");
+                    assertThat(progress.getStartedAt()).isNotNull();
+                });
+
+        buffer.flushAll();
+        service.setCurrentLesson("u1", "c1", "lesson-4");
+        service.setCurrentLesson("u1", "c1", "lesson-5");
+        buffer.stop();
+
+        // One heartbeat read per flush window, plus the explicit status read
+        verify(courseProgressRepository, times(3)).findByUserIdAndCourseId("u1", "c1");
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), updates.capture());
+        assertThat(updates.getAllValues().get(1).getUpdateObject().get("$set", Document.class))
+                .containsEntry("currentLessonId", "lesson-5");
+    }
+
+    @Test
+    void enrollmentListsSeeBufferedState() {
+        when(courseProgressRepository.findByUserId("u1")).thenReturn(List.of(progress("u1", "c1"), progress("u1", "c2")));
+        when(courseProgressRepository.findByCourseId("c1")).thenReturn(List.of(progress("u1", "c1")));
+        service.setCurrentLesson("u1", "c1", "lesson-7");
+
+        assertThat(service.getUserEnrollments("u1")).extracting(CourseProgress::getCurrentLessonId)
+                .containsExactly("lesson-7", null);
+        assertThat(service.getCourseEnrollments("c1")).singleElement()
+                .satisfies(progress -> {
+                    assertThat(progress.getCurrentLessonId()).isEqualTo("lesson-7");
+                    assertThat(progress.getStartedAt()).isNotNull();
+                });
+    }
+
+    @Test
+    void bufferedPercentageNeverLowersProgress() {
+        service.updateProgress("u1", "c1", 60);
+        assertThat(service.updateProgress("u1", "c1", 30).getProgressPercentage()).isEqualTo(60);
+        CourseProgress completedMeanwhile = progress("u1", "c1");
+        completedMeanwhile.setProgressPercentage(100);
+        when(courseProgressRepository.findByUserIdAndCourseId("u1", "c1")).thenReturn(Optional.of(completedMeanwhile));
+
+        assertThat(service.getEnrollmentStatus("u1", "c1")).get()
+                .extracting(CourseProgress::getProgressPercentage).isEqualTo(100);
+        buffer.flushAll();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).updateOne(any(Query.class), update.capture());
+        assertThat(update.getValue().getUpdateObject().get("$max", Document.class)).containsEntry("progressPercentage", 60);
+        assertThat(update.getValue().getUpdateObject()).doesNotContainKey("$set");
+    }
+
+    @Test
+    void aStaleOfflineBatchDoesNotMoveTheCurrentLessonBack() {
+        // Stands in for the enrollment document
+        CourseProgress stored = progress("u1", "c1");
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(CourseProgress.class)))
+                .thenAnswer(invocation -> {
+                    Document set = invocation.<UpdateDefinition>getArgument(1).getUpdateObject().get("$set", Document.class);
+                    stored.setCurrentLessonId(set.getString("currentLessonId"));
+                    stored.setCurrentLessonAt((Date) set.get("currentLessonAt"));
+                    return UpdateResult.acknowledged(1, 1L, null);
+                });
+        Course course = new Course();
+        course.setTextContent(List.of(lesson("lesson-2"), lesson("lesson-3"), lesson("lesson-5")));
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(course);
+        when(mongoTemplate.findOne(any(Query.class), eq(CourseProgress.class))).thenReturn(stored);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(CourseProgress.class))).thenAnswer(invocation -> {
+                    // Only matches the position the update was computed from
+                    Document query = invocation.<Query>getArgument(0).getQueryObject();
+                    Document set = invocation.<UpdateDefinition>getArgument(1).getUpdateObject().get("$set", Document.class);
+                    if (!Objects.equals(query.get("currentLessonAt"), stored.getCurrentLessonAt())) {
+                        return null;
+                    }
+                    stored.setCurrentLessonId(set.getString("currentLessonId"));
+                    stored.setCurrentLessonAt((Date) set.get("currentLessonAt"));
+                    return stored;
+                });
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProgressSyncKey.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        ProgressSyncService sync = new ProgressSyncService(mongoTemplate, service, 10, 24);
+        Date anHourAgo = new Date(System.currentTimeMillis() - 3_600_000L);
+
+        service.setCurrentLesson("u1", "c1", "lesson-5");
+        sync.sync("u1", List.of(new ProgressSyncEvent("k1", ProgressSyncService.CURRENT_LESSON, "c1", "lesson-2", null, anHourAgo)));
+
+        assertThat(stored.getCurrentLessonId()).isEqualTo("lesson-5");
+        assertThat(stored.getCurrentLessonAt()).isAfter(anHourAgo);
+
+        sync.sync("u1", List.of(new ProgressSyncEvent("k2", ProgressSyncService.CURRENT_LESSON, "c1", "lesson-3", null, null)));
+        assertThat(stored.getCurrentLessonId()).isEqualTo("lesson-3");
+    }
+
+    @Test
+    void unenrollingDropsTheBufferedHeartbeat() {
+        service.setCurrentLesson("u1", "c1", "lesson-1");
+
+        service.unenrollUser("u1", "c1");
+        buffer.flushAll();
+
+        assertThat(buffer.size()).isZero();
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(CourseProgress.class));
+    }
+
+    private static TextContent lesson(String id) {
+        TextContent lesson = new TextContent();
+        lesson.setId(id);
+        return lesson;
+    }
+
+    private static CourseProgress progress(String userId, String courseId) {
+        CourseProgress progress = new CourseProgress();
+        progress.setUserId(userId);
+        progress.setCourseId(courseId);
+        return progress;
+    }
+}
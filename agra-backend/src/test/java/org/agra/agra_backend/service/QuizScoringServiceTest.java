@@ -0,0 +1,272 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.dao.QuizAttemptRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.QuizAttempt;
+import org.agra.agra_backend.model.QuizQuestion;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.payload.QuizResult;
+import org.agra.agra_backend.payload.QuizSubmission;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QuizScoringServiceTest {
+
+    @Mock
+    private CourseService courseService;
+    @Mock
+    private CourseProgressService courseProgressService;
+    @Mock
+    private QuizAttemptRepository quizAttemptRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private QuizScoringService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new QuizScoringService(courseService, courseProgressService, quizAttemptRepository, mongoTemplate,
+                70, 100, 0);
+        lenient().when(quizAttemptRepository.save(any(QuizAttempt.class))).thenAnswer(invocation -> {
+            QuizAttempt attempt = invocation.getArgument(0);
+            attempt.setId("a1");
+            return attempt;
+        });
+    }
+
+    @Test
+    void gradesExactSelectionsAndCompletesTheLessonOnPass() {
+        Course course = course("c1", 1L, 1, 4);
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(course));
+        when(courseProgressService.recordQuizResult(eq("u1"), eq("c1"), eq("l0"), eq(75), eq(true), any()))
+                .thenReturn(true);
+        Map<String, List<String>> answers = correctAnswers(0, 4);
+        // Multi-answer question: only one of its two correct answers picked
+        answers.put("l0-q3", List.of("l0-q3-a0"));
+
+        QuizResult result = service.submit("u1", new QuizSubmission("c1", "l0", answers));
+
+        assertThat(result.getAttemptId()).isEqualTo("a1");
+        assertThat(result.getCorrect()).isEqualTo(3);
+        assertThat(result.getTotal()).isEqualTo(4);
+        assertThat(result.getPercent()).isEqualTo(75);
+        assertThat(result.isPassed()).isTrue();
+        assertThat(result.getWrongQuestionIds()).containsExactly("l0-q3");
+        ArgumentCaptor<QuizAttempt> saved = ArgumentCaptor.forClass(QuizAttempt.class);
+        verify(quizAttemptRepository).save(saved.capture());
+        assertThat(saved.getValue().getCourseVersion()).isEqualTo(1L);
+        assertThat(saved.getValue().getUserId()).isEqualTo("u1");
+    }
+
+    @Test
+    void unknownOrMissingAnswersAreWrong() {
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(course("c1", 1L, 1, 4)));
+        when(courseProgressService.recordQuizResult(eq("u1"), eq("c1"), eq("l0"), eq(25), eq(false), any()))
+                .thenReturn(true);
+        Map<String, List<String>> answers = correctAnswers(0, 4);
+        answers.remove("l0-q1");
+        answers.put("l0-q2", List.of("l0-q2-a0", "forged"));
+        answers.put("l0-q3", List.of("l0-q3-a0", "l0-q3-a1", "l0-q3-a2"));
+
+        QuizResult result = service.submit("u1", new QuizSubmission("c1", "l0", answers));
+
+        assertThat(result.getCorrect()).isEqualTo(1);
+        assertThat(result.isPassed()).isFalse();
+        assertThat(result.getWrongQuestionIds()).containsExactly("l0-q1", "l0-q2", "l0-q3");
+    }
+
+    @Test
+    void attemptIsSavedBeforeTheScoreWithOnlyTheQuizsOwnIds() {
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(course("c1", 1L, 1, 2)));
+        when(courseProgressService.recordQuizResult(eq("u1"), eq("c1"), eq("l0"), eq(50), eq(false), any()))
+                .thenReturn(true);
+        Map<String, List<String>> answers = correctAnswers(0, 2);
+        answers.put("l0-q1", List.of("forged", "l0-q1-a2"));
+        answers.put("$where", List.of("l0-q0-a0"));
+        answers.put("a.b", List.of("x".repeat(1_000)));
+
+        service.submit("u1", new QuizSubmission("c1", "l0", answers));
+
+        ArgumentCaptor<QuizAttempt> saved = ArgumentCaptor.forClass(QuizAttempt.class);
+        InOrder order = inOrder(quizAttemptRepository, courseProgressService);
+        order.verify(quizAttemptRepository).save(saved.capture());
+        order.verify(courseProgressService).recordQuizResult(eq("u1"), eq("c1"), eq("l0"), eq(50), eq(false), any());
+        assertThat(saved.getValue().getAnswers()).containsOnly(
+                Map.entry("l0-q0", List.of("l0-q0-a0")),
+                Map.entry("l0-q1", List.of("l0-q1-a2")));
+        verify(quizAttemptRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void missingCourseQuizOrEnrollmentIsRejected() {
+        when(courseService.getCourseById("gone")).thenReturn(Optional.empty());
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(course("c1", 1L, 1, 2)));
+        when(courseProgressService.recordQuizResult(anyString(), anyString(), anyString(), anyInt(), anyBoolean(), any()))
+                .thenReturn(false);
+
+        assertThat(status(new QuizSubmission("gone", "l0", Map.of()))).isEqualTo(404);
+        assertThat(status(new QuizSubmission("c1", "no-quiz", Map.of()))).isEqualTo(404);
+        assertThat(status(new QuizSubmission("c1", "l0", correctAnswers(0, 2)))).isEqualTo(403);
+        // The attempt is written first and dropped again when the score has nowhere to go
+        verify(quizAttemptRepository, times(1)).save(any(QuizAttempt.class));
+        verify(quizAttemptRepository).deleteById("a1");
+    }
+
+    @Test
+    void answerKeyIsRebuiltOnlyWhenTheCourseVersionChanges() {
+        Course v1 = course("c1", 1L, 1, 2);
+        Course v2 = course("c1", 2L, 1, 2);
+        // Version 2 moves the correct answer of the first question
+        v2.getTextContent().get(0).getQuizQuestions().get(0).getAnswers().get(0).setCorrect(false);
+        v2.getTextContent().get(0).getQuizQuestions().get(0).getAnswers().get(1).setCorrect(true);
+        when(courseService.getCourseById("c1")).thenReturn(Optional.of(v1), Optional.of(v2));
+        when(mongoTemplate.findOne(any(Query.class), eq(Course.class))).thenReturn(v1, v2);
+        when(courseProgressService.recordQuizResult(anyString(), anyString(), anyString(), anyInt(), anyBoolean(), any()))
+                .thenReturn(true);
+        QuizSubmission submission = new QuizSubmission("c1", "l0", correctAnswers(0, 2));
+
+        assertThat(service.submit("u1", submission).getCorrect()).isEqualTo(2);
+        assertThat(service.submit("u1", submission).getCorrect()).isEqualTo(2);
+        assertThat(service.submit("u1", submission).getCorrect()).isEqualTo(1);
+
+        verify(courseService, times(2)).getCourseById("c1");
+    }
+
+    @Test
+    void attemptIndexesAreCreatedAtStartup() {
+        IndexOperations indexes = mock(IndexOperations.class);
+        when(mongoTemplate.indexOps(QuizAttempt.class)).thenReturn(indexes);
+
+        service.ensureAttemptIndexes();
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexes, times(2)).ensureIndex(created.capture());
+        assertThat(created.getAllValues()).extracting(index -> index.getIndexKeys().toJson()).containsExactly(
+                "{\"userId\": 1, \"courseId\": 1, \"lessonId\": 1, \"submittedAt\": -1}",
+                "{\"courseId\": 1, \"lessonId\": 1, \"submittedAt\": -1}");
+    }
+
+    @Test
+    void benchmarkGradingAgainstCachedKeys() {
+        int lessons = 20;
+        int questions = 10;
+        Course course = course("c1", 1L, lessons, questions);
+        QuizScoringService.AnswerKey key = QuizScoringService.AnswerKey.of(course, 0L);
+        List<Map<String, List<String>>> submissions = new ArrayList<>();
+        for (int l = 0; l < lessons; l++) {
+            Map<String, List<String>> answers = correctAnswers(l, questions);
+            if (l % 2 == 1) {
+                answers.put("l" + l + "-q0", List.of("l" + l + "-q0-a3"));
+            }
+            submissions.add(answers);
+        }
+        QuizScoringService.LessonKey[] lessonKeys = new QuizScoringService.LessonKey[lessons];
+        for (int l = 0; l < lessons; l++) {
+            lessonKeys[l] = key.lesson("l" + l);
+        }
+        List<String> wrong = new ArrayList<>();
+        int rounds = 200_000;
+        long checksum = 0;
+        for (int i = 0; i < rounds / 10; i++) {
+            wrong.clear();
+            checksum += lessonKeys[i % lessons].grade(submissions.get(i % lessons), wrong);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            wrong.clear();
+            checksum += lessonKeys[i % lessons].grade(submissions.get(i % lessons), wrong);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double perSecond = rounds / (elapsedNanos / 1_000_000_000.0);
+        System.out.printf("Graded %d submissions of %d questions in %d ms (%.0f/s, %.1f bytes allocated per grade)%n",
+                rounds, questions, elapsedNanos / 1_000_000, perSecond, (double) allocated / rounds);
+        assertThat(checksum).isPositive();
+        assertThat(perSecond).isGreaterThan(5_000);
+        assertThat(allocated / rounds).isLessThan(64);
+    }
+
+    private int status(QuizSubmission submission) {
+        try {
+            service.submit("u1", submission);
+        } catch (ResponseStatusException e) {
+            return e.getStatusCode().value();
+        }
+        throw new AssertionError("Expected a ResponseStatusException");
+    }
+
+    // Questions have four answers; answer 0 is correct, and every fourth question also accepts answer 1
+    private static Course course(String id, Long version, int lessons, int questions) {
+        List<TextContent> content = new ArrayList<>();
+        for (int l = 0; l < lessons; l++) {
+            List<QuizQuestion> quiz = new ArrayList<>();
+            for (int q = 0; q < questions; q++) {
+                String questionId = "l" + l + "-q" + q;
+                List<QuizAnswer> answers = new ArrayList<>();
+                for (int a = 0; a < 4; a++) {
+                    answers.add(new QuizAnswer(questionId + "-a" + a, Map.of("en", "answer " + a),
+                            a == 0 || (a == 1 && q % 4 == 3)));
+                }
+                quiz.add(new QuizQuestion(questionId, Map.of("en", "question " + q), answers));
+            }
+            TextContent lesson = new TextContent();
+            lesson.setId("l" + l);
+            lesson.setOrder(l);
+            lesson.setQuizQuestions(quiz);
+            content.add(lesson);
+        }
+        Course course = new Course();
+        course.setId(id);
+        course.setVersion(version);
+        course.setTextContent(content);
+        return course;
+    }
+
+    private static Map<String, List<String>> correctAnswers(int lesson, int questions) {
+        Map<String, List<String>> answers = new HashMap<>();
+        for (int q = 0; q < questions; q++) {
+            String questionId = "l" + lesson + "-q" + q;
+            answers.put(questionId, q % 4 == 3 ? List.of(questionId + "-a1", questionId + "-a0") : List.of(questionId + "-a0"));
+        }
+        return answers;
+    }
+}
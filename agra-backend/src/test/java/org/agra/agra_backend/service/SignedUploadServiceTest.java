@@ -0,0 +1,299 @@
+package org.agra.agra_backend.service;
+
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.dao.PostRepository;
+import org.agra.agra_backend.dao.TicketRepository;
+import org.agra.agra_backend.dao.UserRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.Post;
+import org.agra.agra_backend.model.Ticket;
+import org.agra.agra_backend.model.User;
+import org.agra.agra_backend.payload.SignedUploadCompleteRequest;
+import org.agra.agra_backend.payload.UserInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SignedUploadServiceTest {
+
+    private static final String SECRET = "test-secret";
+    private static final long NOW = 1_760_000_000L;
+
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private CourseRepository courseRepository;
+    @Mock
+    private TicketRepository ticketRepository;
+    @Mock
+    private UserRepository userRepository;
+
+    private SignedUploadService service;
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        service = new SignedUploadService("demo", "test-key", SECRET, "", 600L, 5_000_000L,
+                "jpg,png,webp", "jpg,png,pdf", postRepository, courseRepository, ticketRepository, userRepository, null, null, null);
+        author = new User();
+        author.setId("user-1");
+        author.setEmail("Jane.Doe@example.com");
+        author.setRole("USER");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void issueSignsUploadFieldsWithApiSecret() throws Exception {
+        stubPost("post-1", "user-1");
+
+        Map<String, Object> issued = service.issue(author, "post", "post-1", "image/png", 1_000L, NOW);
+
+        Map<String, Object> fields = (Map<String, Object>) issued.get("fields");
+        String publicId = (String) fields.get("public_id");
+        assertThat(publicId).startsWith("posts/jane_doe_example_com/post-1/direct_" + NOW + "_image_");
+        assertThat(fields).containsEntry("timestamp", NOW)
+                .containsEntry("allowed_formats", "jpg,png,webp")
+                .containsEntry("api_key", "test-key")
+                .doesNotContainKey("upload_preset");
+        String expected = sha1Hex("allowed_formats=jpg,png,webp&public_id=" + publicId + "&timestamp=" + NOW + SECRET);
+        assertThat(fields.get("signature")).isEqualTo(expected);
+        assertThat(issued).containsEntry("upload_url", "https://api.cloudinary.com/v1_1/demo/image/upload")
+                .containsEntry("max_file_size", 5_000_000L)
+                .containsEntry("expires_at", NOW + 600L);
+    }
+
+    @Test
+    void issueRejectsPostOwnedBySomeoneElse() {
+        stubPost("post-1", "someone-else");
+
+        assertThatThrownBy(() -> service.issue(author, "POST", "post-1", "image/png", 1_000L, NOW))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+
+    @Test
+    void issueForCourseRequiresAdmin() {
+        assertThatThrownBy(() -> service.issue(author, "COURSE", "course-1", "image/png", 1_000L, NOW))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+        verifyNoInteractions(courseRepository);
+    }
+
+    @Test
+    void issueRejectsUnknownTargetType() {
+        assertThatThrownBy(() -> service.issue(author, "VIDEO", "x", "image/png", 1_000L, NOW))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void completeLinksVerifiedUploadToPost() throws Exception {
+        Post post = stubPost("post-1", "user-1");
+        String publicId = "posts/jane_doe_example_com/post-1/direct_" + NOW + "_image_abc123";
+        String version = String.valueOf(NOW + 5);
+
+        Map<String, Object> linked = service.complete(author, completeRequest("POST", "post-1", publicId, version,
+                responseSignature(publicId, version), "png", 1_000L));
+
+        String expectedUrl = "https://res.cloudinary.com/demo/image/upload/v" + version + "/" + publicId + ".png";
+        assertThat(linked).containsEntry("url", expectedUrl);
+        assertThat(post.getImageUrl()).isEqualTo(expectedUrl);
+        assertThat(post.getMediaStatus()).isEqualTo(MediaProcessingService.STATUS_READY);
+        verify(postRepository).save(post);
+    }
+
+    @Test
+    void completeRejectsTamperedSignature() throws Exception {
+        stubPost("post-1", "user-1");
+        String publicId = "posts/jane_doe_example_com/post-1/direct_" + NOW + "_image_abc123";
+        String version = String.valueOf(NOW + 5);
+        String signatureForOtherAsset = responseSignature(publicId + "x", version);
+
+        assertThatThrownBy(() -> service.complete(author, completeRequest("POST", "post-1", publicId, version,
+                signatureForOtherAsset, "png", 1_000L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("Upload signature does not match"));
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void completeRejectsPublicIdFromAnotherTarget() throws Exception {
+        stubPost("post-1", "user-1");
+        String publicId = "posts/jane_doe_example_com/post-2/direct_" + NOW + "_image_abc123";
+        String version = String.valueOf(NOW + 5);
+
+        assertThatThrownBy(() -> service.complete(author, completeRequest("POST", "post-1", publicId, version,
+                responseSignature(publicId, version), "png", 1_000L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("Public id does not belong to this target"));
+    }
+
+    @Test
+    void completeRejectsUploadAfterExpiry() throws Exception {
+        stubPost("post-1", "user-1");
+        String publicId = "posts/jane_doe_example_com/post-1/direct_" + NOW + "_image_abc123";
+        String version = String.valueOf(NOW + 3_600);
+
+        assertThatThrownBy(() -> service.complete(author, completeRequest("POST", "post-1", publicId, version,
+                responseSignature(publicId, version), "png", 1_000L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("Upload parameters have expired"));
+    }
+
+    @Test
+    void completeLinksCourseImageWithDerivedRenditions() throws Exception {
+        User admin = new User();
+        admin.setId("admin-1");
+        admin.setRole("ADMIN");
+        Course course = new Course();
+        course.setId("course-1");
+        when(courseRepository.existsById("course-1")).thenReturn(true);
+        when(courseRepository.findById("course-1")).thenReturn(Optional.of(course));
+        String publicId = "courses/course-1/direct_" + NOW + "_image_abc123";
+        String version = String.valueOf(NOW + 1);
+
+        service.complete(admin, completeRequest("COURSE", "course-1", publicId, version,
+                responseSignature(publicId, version), "jpg", 1_000L));
+
+        assertThat(course.getImagePublicId()).isEqualTo(publicId);
+        assertThat(course.getThumbnailUrl())
+                .isEqualTo("https://res.cloudinary.com/demo/image/upload/v" + version + "/courses/course-1/c_fill,w_300,h_200/direct_" + NOW + "_image_abc123");
+        verify(courseRepository).save(course);
+    }
+
+    @Test
+    void completeLinksTicketAttachmentAsRawForOwner() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setId("ticket-1");
+        UserInfo owner = new UserInfo();
+        owner.setId("user-1");
+        ticket.setUserInfo(owner);
+        when(ticketRepository.findById("ticket-1")).thenReturn(Optional.of(ticket));
+        String publicId = "tickets/user-1/ticket-1/direct_" + NOW + "_raw_abc123";
+        String version = String.valueOf(NOW + 1);
+
+        service.complete(author, completeRequest("TICKET", "ticket-1", publicId, version,
+                responseSignature(publicId, version), "pdf", 1_000L));
+
+        ArgumentCaptor<Ticket> saved = ArgumentCaptor.forClass(Ticket.class);
+        verify(ticketRepository).save(saved.capture());
+        assertThat(saved.getValue().getAttachmentUrl())
+                .isEqualTo("https://res.cloudinary.com/demo/raw/upload/v" + version + "/" + publicId);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void issueChoosesTheResourceTypeFromTheContentType() {
+        stubTicket("ticket-1", "user-1");
+
+        Map<String, Object> pdf = service.issue(author, "TICKET", "ticket-1", "application/pdf", 1_000L, NOW);
+        Map<String, Object> png = service.issue(author, "TICKET", "ticket-1", "image/png", 1_000L, NOW);
+
+        assertThat(pdf).containsEntry("resource_type", "raw")
+                .containsEntry("upload_url", "https://api.cloudinary.com/v1_1/demo/raw/upload");
+        assertThat((String) ((Map<String, Object>) pdf.get("fields")).get("public_id"))
+                .startsWith("tickets/user-1/ticket-1/direct_" + NOW + "_raw_");
+        assertThat(png).containsEntry("resource_type", "image");
+        for (String contentType : new String[] {"text/html", "image/svg+xml", "video/mp4", "not a type", null}) {
+            assertThatThrownBy(() -> service.issue(author, "TICKET", "ticket-1", contentType, 1_000L, NOW))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    @Test
+    void issueRejectsDocumentsForImageTargetsAndFilesAboveTheLimit() {
+        stubPost("post-1", "user-1");
+
+        assertThatThrownBy(() -> service.issue(author, "POST", "post-1", "application/pdf", 1_000L, NOW))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> service.issue(author, "POST", "post-1", "image/png", 5_000_001L, NOW))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+    }
+
+    @Test
+    void completeUsesTheIssuedResourceTypeAndRejectsOversizedUploads() throws Exception {
+        Ticket ticket = stubTicket("ticket-1", "user-1");
+        String publicId = "tickets/user-1/ticket-1/direct_" + NOW + "_image_abc123";
+        String version = String.valueOf(NOW + 1);
+        String signature = responseSignature(publicId, version);
+
+        assertThatThrownBy(() -> service.complete(author, completeRequest("TICKET", "ticket-1", publicId, version,
+                signature, "png", 5_000_001L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+        verify(ticketRepository, never()).save(any());
+
+        // Only types this service issues are accepted, even with a valid storage signature
+        String video = "tickets/user-1/ticket-1/direct_" + NOW + "_video_abc123";
+        assertThatThrownBy(() -> service.complete(author, completeRequest("TICKET", "ticket-1", video, version,
+                responseSignature(video, version), "png", 1_000L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("Malformed public id"));
+
+        service.complete(author, completeRequest("TICKET", "ticket-1", publicId, version, signature, "png", null));
+        assertThat(ticket.getAttachmentUrl())
+                .isEqualTo("https://res.cloudinary.com/demo/image/upload/v" + version + "/" + publicId + ".png");
+    }
+
+    @Test
+    void completeRejectsProfileOfAnotherUser() {
+        SignedUploadCompleteRequest request = completeRequest("PROFILE", "user-2", "users/x/direct_1_image_a", "1", "sig", "png", 1_000L);
+
+        assertThatThrownBy(() -> service.complete(author, request))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+        verifyNoInteractions(userRepository);
+    }
+
+    private Post stubPost(String id, String ownerId) {
+        Post post = new Post();
+        post.setId(id);
+        post.setUserId(ownerId);
+        when(postRepository.findById(id)).thenReturn(Optional.of(post));
+        return post;
+    }
+
+    private Ticket stubTicket(String id, String ownerId) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        UserInfo owner = new UserInfo();
+        owner.setId(ownerId);
+        ticket.setUserInfo(owner);
+        when(ticketRepository.findById(id)).thenReturn(Optional.of(ticket));
+        return ticket;
+    }
+
+    private SignedUploadCompleteRequest completeRequest(String type, String targetId, String publicId, String version,
+                                                        String signature, String format, Long bytes) {
+        return new SignedUploadCompleteRequest(type, targetId, publicId, version, signature, format, bytes);
+    }
+
+    private static String responseSignature(String publicId, String version) throws Exception {
+        return sha1Hex("public_id=" + publicId + "&version=" + version + SECRET);
+    }
+
+    private static String sha1Hex(String value) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,272 @@
+package org.agra.agra_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.agra.agra_backend.dao.CourseRepository;
+import org.agra.agra_backend.dao.TrainingKitRepository;
+import org.agra.agra_backend.model.Course;
+import org.agra.agra_backend.model.CourseFile;
+import org.agra.agra_backend.model.CourseTranslation;
+import org.agra.agra_backend.model.QuizAnswer;
+import org.agra.agra_backend.model.QuizQuestion;
+import org.agra.agra_backend.model.TextContent;
+import org.agra.agra_backend.model.TrainingKit;
+import org.agra.agra_backend.payload.TrainingKitBundle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrainingKitBundleServiceTest {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().findAndAddModules().build();
+
+    @Mock
+    private CourseRepository courseRepository;
+    @Mock
+    private TrainingKitRepository trainingKitRepository;
+    @TempDir
+    Path assets;
+    @TempDir
+    Path cache;
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private CourseService courseService;
+    private CourseLessonService courseLessonService;
+    private TrainingKitBundleService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        courseService = new CourseService(courseRepository, null, null, null, null, null, null);
+        courseLessonService = new CourseLessonService(null, courseService);
+        Files.writeString(assets.resolve("guide.pdf"), "%PDF guide");
+        Files.writeString(assets.resolve("kit-fr.pdf"), "%PDF kit fr");
+        Files.writeString(assets.resolve("kit-any.pdf"), "%PDF kit any");
+        service = service(this::openLocal, 2, 4);
+        lenient().when(trainingKitRepository.findByCourseId(anyString())).thenReturn(List.of(
+                kit("k1", "kit-fr.pdf", "fr"), kit("k2", "kit-en.pdf", "en"), kit("k3", "kit-any.pdf", null)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void buildsOneZipWithLocalizedLessonsFilesAndKitsAndServesItFromDiskAfterwards() throws Exception {
+        when(courseRepository.findById("c1")).thenReturn(Optional.of(course("c1", "Compost")));
+
+        TrainingKitBundle building = service.requestBundle("c1", Locale.FRENCH).orElseThrow();
+        TrainingKitBundle ready = awaitBuilt("c1", Locale.FRENCH);
+
+        assertThat(building.getStatus()).isEqualTo(TrainingKitBundleService.STATUS_BUILDING);
+        assertThat(ready.getStatus()).isEqualTo(TrainingKitBundleService.STATUS_READY);
+        assertThat(ready.getHash()).isEqualTo(building.getHash());
+        assertThat(ready.getDownloadUrl()).isEqualTo("/api/courses/c1/bundle/" + ready.getHash());
+        Path zip = service.bundleFile(ready.getHash()).orElseThrow();
+        assertThat(ready.getSize()).isEqualTo(Files.size(zip));
+
+        Map<String, byte[]> entries = unzip(zip);
+        assertThat(entries).containsOnlyKeys("course.json", "lessons/001-l1.json", "files/guide.pdf",
+                "kits/kit-fr.pdf", "kits/kit-any.pdf", "manifest.json");
+        assertThat(JSON.readTree(entries.get("course.json")).get("title").asText()).isEqualTo("Compost FR");
+        JsonNode lesson = JSON.readTree(entries.get("lessons/001-l1.json"));
+        assertThat(lesson.get("language").asText()).isEqualTo("fr");
+        assertThat(lesson.get("quizQuestions").get(0).get("question").asText()).isEqualTo("Pourquoi ?");
+        assertThat(new String(entries.get("kits/kit-fr.pdf"))).isEqualTo("%PDF kit fr");
+        assertThat(JSON.readTree(entries.get("manifest.json")).get("hash").asText()).isEqualTo(ready.getHash());
+
+        assertThat(service.requestBundle("c1", Locale.FRENCH).orElseThrow().getStatus()).isEqualTo(TrainingKitBundleService.STATUS_READY);
+        assertThat(fetches).hasValue(3);
+    }
+
+    @Test
+    void editedCourseGetsANewBundleAndTheOldOneIsSweptAfterTheGracePeriod() throws Exception {
+        AtomicReference<Course> stored = new AtomicReference<>(course("c1", "Compost"));
+        when(courseRepository.findById("c1")).thenAnswer(invocation -> Optional.of(stored.get()));
+        service.requestBundle("c1", Locale.FRENCH);
+        String first = awaitBuilt("c1", Locale.FRENCH).getHash();
+
+        stored.set(course("c1", "Compost v2"));
+        service.requestBundle("c1", Locale.FRENCH);
+        TrainingKitBundle second = awaitBuilt("c1", Locale.FRENCH);
+
+        assertThat(second.getHash()).isNotEqualTo(first);
+        assertThat(service.bundleFile(second.getHash())).isPresent();
+        // Still there for clients resuming a download of the old URL
+        Path old = service.bundleFile(first).orElseThrow();
+        service.sweep();
+        assertThat(old).exists();
+
+        // Once it has not been current for the retention period, a fresh instance sweeps it from disk
+        Files.setLastModifiedTime(old, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        Path partial = Files.writeString(cache.resolve("abandoned.part"), "zip");
+        Files.setLastModifiedTime(partial, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        service.stop();
+        service = service(this::openLocal, 2, 4);
+        service.sweep();
+        assertThat(service.bundleFile(first)).isEmpty();
+        assertThat(partial).doesNotExist();
+        assertThat(service.bundleFile(second.getHash())).isPresent();
+    }
+
+    @Test
+    void fullWorkerPoolTurnsRequestsAwayWithServiceUnavailable() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        service.stop();
+        service = service(url -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return openLocal(url);
+        }, 1, 1);
+        lenient().when(courseRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.of(course(invocation.getArgument(0), "Course")));
+        try {
+            service.requestBundle("c1", Locale.FRENCH);
+            service.requestBundle("c2", Locale.FRENCH);
+
+            assertThatThrownBy(() -> service.requestBundle("c3", Locale.FRENCH))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode().value()).isEqualTo(503));
+            // Asking again for a bundle already queued does not take another slot
+            assertThat(service.requestBundle("c2", Locale.FRENCH).orElseThrow().getStatus())
+                    .isEqualTo(TrainingKitBundleService.STATUS_BUILDING);
+        } finally {
+            release.countDown();
+        }
+        assertThat(awaitBuilt("c2", Locale.FRENCH).getStatus()).isEqualTo(TrainingKitBundleService.STATUS_READY);
+    }
+
+    @Test
+    void failedAssetFetchIsReportedOnceAndRetriedOnTheNextRequest() throws Exception {
+        Course course = course("c1", "Compost");
+        course.getFiles().add(new CourseFile("f2", "missing.pdf", "pdf", "https://cdn.example.org/missing.pdf", null, 0, null));
+        when(courseRepository.findById("c1")).thenReturn(Optional.of(course));
+
+        service.requestBundle("c1", Locale.FRENCH);
+        TrainingKitBundle failed = awaitBuilt("c1", Locale.FRENCH);
+
+        assertThat(failed.getStatus()).isEqualTo(TrainingKitBundleService.STATUS_FAILED);
+        assertThat(failed.getError()).contains("missing.pdf");
+        assertThat(service.bundleFile(failed.getHash())).isEmpty();
+        try (var leftovers = Files.list(cache)) {
+            assertThat(leftovers).isEmpty();
+        }
+        assertThat(service.requestBundle("c1", Locale.FRENCH).orElseThrow().getStatus())
+                .isEqualTo(TrainingKitBundleService.STATUS_BUILDING);
+        assertThat(awaitBuilt("c1", Locale.FRENCH).getStatus()).isEqualTo(TrainingKitBundleService.STATUS_FAILED);
+    }
+
+    @Test
+    void unknownCourseAndMalformedHashesFindNothing() {
+        when(courseRepository.findById("nope")).thenReturn(Optional.empty());
+
+        assertThat(service.requestBundle("nope", Locale.ENGLISH)).isEmpty();
+        assertThat(service.bundleFile("../../etc/passwd")).isEmpty();
+        assertThat(service.bundleFile("a".repeat(64))).isEmpty();
+    }
+
+    private TrainingKitBundleService service(TrainingKitBundleService.AssetSource source, int workers, int queue) {
+        return new TrainingKitBundleService(courseService, courseLessonService, trainingKitRepository, JSON,
+                source, cache.toString(), workers, queue, 1000, 1);
+    }
+
+    // Local stand-in for the CDN: the last path segment of the URL names a file in the assets directory
+    private InputStream openLocal(String url) throws IOException {
+        fetches.incrementAndGet();
+        String path = URI.create(url).getPath();
+        return Files.newInputStream(assets.resolve(path.substring(path.lastIndexOf('/') + 1)));
+    }
+
+    private TrainingKitBundle awaitBuilt(String courseId, Locale locale) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            TrainingKitBundle bundle = service.requestBundle(courseId, locale).orElseThrow();
+            if (!TrainingKitBundleService.STATUS_BUILDING.equals(bundle.getStatus())) {
+                return bundle;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Bundle for " + courseId + " was not built in time");
+    }
+
+    private static Map<String, byte[]> unzip(Path zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static Course course(String id, String title) {
+        Course course = new Course();
+        course.setId(id);
+        course.setDefaultLanguage("en");
+        course.setTranslations(Map.of("en", translation(title), "fr", translation(title + " FR")));
+        course.setUpdatedAt(new Date(1_000L));
+        TextContent lesson = new TextContent();
+        lesson.setId("l1");
+        lesson.setOrder(1);
+        lesson.setType("QUIZ");
+        lesson.setTitle(Map.of("en", "Why", "fr", "Pourquoi"));
+        lesson.setQuizQuestions(List.of(new QuizQuestion("q1", Map.of("en", "Why?", "fr", "Pourquoi ?"),
+                List.of(new QuizAnswer("a1", Map.of("en", "Soil", "fr", "Sol"), true)))));
+        course.setTextContent(List.of(lesson));
+        course.setFiles(new ArrayList<>(List.of(
+                new CourseFile("f1", "guide.pdf", "pdf", "https://cdn.example.org/raw/guide.pdf", null, 10, null))));
+        return course;
+    }
+
+    private static CourseTranslation translation(String title) {
+        CourseTranslation translation = new CourseTranslation();
+        translation.setTitle(title);
+        return translation;
+    }
+
+    private static TrainingKit kit(String id, String file, String language) {
+        TrainingKit kit = new TrainingKit();
+        kit.setId(id);
+        kit.setCourseId("c1");
+        kit.setFileUrl("https://cdn.example.org/kits/" + file);
+        kit.setLanguage(language);
+        kit.setUploadDate(new Date(2_000L));
+        return kit;
+    }
+}
@@ -11,6 +11,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,12 +19,17 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -43,6 +49,8 @@ class UserServiceTest {
     private CloudinaryService cloudinaryService;
     @Mock
     private ActivityLogService activityLogService;
+    @Mock
+    private AuthorInfoPropagationService authorInfoPropagationService;
 
     @InjectMocks
     private UserService service;
@@ -79,6 +87,41 @@ class UserServiceTest {
         verifyNoInteractions(passwordEncoder);
     }
 
+    @Test
+    void updateUserPropagatesAuthorInfoWhenNameChanges() {
+        User existing = new User();
+        existing.setId("user-1");
+        existing.setName("Old Name");
+        existing.setPassword("hashed");
+        User update = new User();
+        update.setId("user-1");
+        update.setName("New Name");
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(existing));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User saved = service.updateUser(update);
+
+        verify(authorInfoPropagationService).propagate(saved);
+    }
+
+    @Test
+    void updateUserSkipsPropagationWhenSummaryUnchanged() {
+        User existing = new User();
+        existing.setId("user-1");
+        existing.setName("Same");
+        existing.setPhone("123");
+        User update = new User();
+        update.setId("user-1");
+        update.setName("Same");
+        update.setPhone("456");
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(existing));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.updateUser(update);
+
+        verifyNoInteractions(authorInfoPropagationService);
+    }
+
     @Test
     void updateUserPreservesFieldsAndEncodesPasswordWhenNeeded() {
         User existing = new User();
@@ -146,6 +189,41 @@ class UserServiceTest {
         verify(passwordEncoder, never()).encode(any());
     }
 
+    @Test
+    void updateUserUploadsDownscaledProfilePictureWhenRenditionsAvailable() throws IOException {
+        ImageRenditionService renditions = new ImageRenditionService(320, 960, 1920, 0.8f, "jpeg", 100_000_000L, 1, 2);
+        UserService withRenditions = new UserService(userRepository, passwordEncoder, cloudinaryService,
+                activityLogService, null, renditions);
+        try {
+            User existing = new User();
+            existing.setId("user-1");
+            existing.setEmail("user@example.com");
+            User update = new User();
+            update.setId("user-1");
+            update.setEmail("user@example.com");
+            ByteArrayOutputStream photo = new ByteArrayOutputStream();
+            ImageIO.write(new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB), "jpg", photo);
+            MultipartFile file = new MockMultipartFile("file", "me.jpg", "image/jpeg", photo.toByteArray());
+            when(userRepository.findById("user-1")).thenReturn(Optional.of(existing));
+            when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+            AtomicReference<BufferedImage> uploaded = new AtomicReference<>();
+            when(cloudinaryService.uploadProfilePictureFromDisk(any(), eq("user@example.com"))).thenAnswer(invocation -> {
+                Path path = invocation.getArgument(0);
+                uploaded.set(ImageIO.read(path.toFile()));
+                return Map.of("secure_url", "https://img/medium");
+            });
+
+            User saved = withRenditions.updateUser(update, file);
+
+            assertThat(saved.getPicture()).isEqualTo("https://img/medium");
+            assertThat(uploaded.get().getWidth()).isEqualTo(960);
+            assertThat(uploaded.get().getHeight()).isEqualTo(640);
+            verify(cloudinaryService, never()).uploadProfilePicture(any(), any());
+        } finally {
+            renditions.stop();
+        }
+    }
+
     @Test
     void updateUserWithProfilePictureUploadsAndEncodes() throws IOException {
         User existing = new User();